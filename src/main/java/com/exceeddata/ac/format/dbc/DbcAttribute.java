@@ -51,6 +51,36 @@ public interface DbcAttribute extends Serializable {
      */
     public void encode(TypeData data, byte[] bytes);
     
+    /**
+     * Convert a physical value into the raw value of the signal, rounded to the nearest integer.
+     * 
+     * @param value the physical value
+     * @return long
+     */
+    public long toRaw(long value);
+    
+    /**
+     * Convert a physical value into the raw value of the signal, rounded to the nearest integer.
+     * 
+     * @param value the physical value
+     * @return long
+     */
+    public long toRaw(double value);
+    
+    /**
+     * Copy the attribute without its value table, so later changes to either one do not affect the other.
+     * 
+     * @return DbcAttribute
+     */
+    public DbcAttribute copy();
+    
+    /**
+     * Get the precomputed bit layout, or null if the signal is longer than 64 bits.
+     * 
+     * @return DbcSignalLayout
+     */
+    public DbcSignalLayout getLayout();
+    
     /**
      * Decode bytes into formula-computed data.
      * 
@@ -146,4 +176,32 @@ public interface DbcAttribute extends Serializable {
      * @return DbcOrder
      */
     public DbcByteOrder getByteOrder();
+    
+    /**
+     * Return the multiplexer value of the page the attribute belongs to, or -1 if not multiplexed.
+     * 
+     * @return int
+     */
+    public int getMultiplexValue();
+    
+    /**
+     * Set the multiplexer value of the page the attribute belongs to, -1 if not multiplexed.
+     * 
+     * @param multiplexValue the multiplexer value
+     */
+    public void setMultiplexValue(int multiplexValue);
+    
+    /**
+     * Return whether the attribute is a multiplexor selecting the page of multiplexed attributes.
+     * 
+     * @return true or false
+     */
+    public boolean isMultiplexor();
+    
+    /**
+     * Set whether the attribute is a multiplexor.
+     * 
+     * @param multiplexor whether the attribute is a multiplexor
+     */
+    public void setMultiplexor(boolean multiplexor);
 }
@@ -1,6 +1,7 @@
 package com.exceeddata.ac.format.dbc;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.BitSet;
@@ -11,7 +12,7 @@ import com.exceeddata.ac.common.data.typedata.LongData;
 import com.exceeddata.ac.common.data.typedata.TypeData;
 import com.exceeddata.ac.common.exception.EngineException;
 
-public class DbcAttributeDecimal implements DbcAttribute {
+public class DbcAttributeDecimal implements DbcAttribute, Cloneable {
     private static final long serialVersionUID = 1L;
     
     private String name = null;
@@ -35,13 +36,23 @@ public class DbcAttributeDecimal implements DbcAttribute {
     private int lengthMinusOne = 0;
     private DecimalData zeroOffsetData = DecimalData.ZERO;
     private DecimalData oneOffsetData = DecimalData.ONE;
-    private BitSet signedBS = DbcUtils.createSignedLongBitSet();
-    private BitSet unsignedBS = DbcUtils.createUnsignedLongBitSet();
     private MathContext divisorContext = new MathContext(64, RoundingMode.HALF_UP);
     
     private boolean notZeroOffset = true;
     private boolean notOneFactor = true;
     private int bitAllocation = length;
+    private int multiplexValue = -1;
+    private boolean multiplexor = false;
+    private DbcSignalLayout layout = DbcSignalLayout.of(startBit, length, order, signed);
+    private transient volatile DecimalData[] table = null; //optional decoded values indexed by raw bit pattern
+    private double doubleFactor = 1d;   //primitive encoding
+    private double doubleOffset = 0d;
+    private boolean longScaled = true;  //factor 1 and a whole long offset, encode longs exactly
+    private long longOffset = 0l;
+    private boolean fixedPoint = true;  //raw * fixedFactor + fixedOffset fits a long at fixedScale
+    private long fixedFactor = 1l;
+    private long fixedOffset = 0l;
+    private int fixedScale = 0;
     
     public DbcAttributeDecimal() {}
 
@@ -65,13 +76,41 @@ public class DbcAttributeDecimal implements DbcAttribute {
         }
         
         final long scaled = v.setScale(0, RoundingMode.HALF_UP).longValue();
-        if (order == DbcByteOrder.MOTOROLA) {
+        if (layout != null) { //a single bit is set by any non-zero value
+            layout.insert(lengthMinusOne != 0 ? scaled : scaled != 0 ? 1l : 0l, bytes, 0);
+        } else if (order == DbcByteOrder.MOTOROLA) {
             encodeMotorola(scaled, bytes);
         } else {
             encodeIntel(scaled, bytes);
         }
     }
     
+    @Override
+    public long toRaw(final long value) {
+        return longScaled ? value - longOffset : toRaw((double) value);
+    }
+    
+    @Override
+    public long toRaw(final double value) {
+        return DbcUtils.toRaw(value, doubleOffset, doubleFactor, offset, factor, divisorContext);
+    }
+    
+    @Override
+    public DbcAttributeDecimal copy() {
+        try {
+            final DbcAttributeDecimal copy = (DbcAttributeDecimal) super.clone(); //all fields are values or immutable
+            copy.table = null;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    @Override
+    public DbcSignalLayout getLayout() {
+        return layout;
+    }
+    
     public void encodeMotorola(final long scaled, final byte[] bytes) {
         if (lengthMinusOne == 0) {
             if (scaled != 0l) {
@@ -125,20 +164,31 @@ public class DbcAttributeDecimal implements DbcAttribute {
     public DecimalData decode(final byte[] bytes) {
         if (lengthMinusOne == 0) {
             return (bytes[startByte] & (1 << startByteBit)) != 0 ? oneOffsetData : zeroOffsetData;
+        } else if (layout != null) {
+            final DecimalData[] t = table;
+            if (t != null) {
+                return t[(int) layout.extract(bytes) & (t.length - 1)];
+            }
+            return scale(layout.extract(bytes));
         } else {
             return order == DbcByteOrder.MOTOROLA ? decodeMotorola(bytes) : decodeIntel(bytes);
         }
     }
     
+    /**
+     * Decode Motorola bytes bit by bit.
+     * 
+     * @param bytes the bytes
+     * @return DecimalData
+     */
     public DecimalData decodeMotorola(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[currentByte] & (1 << currentByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[currentByte] & (1 << currentByteBit)) != 0
+                ? DbcUtils.createSignedLongBitSet()
+                : DbcUtils.createUnsignedLongBitSet();
         
         for (int i = lengthMinusOne; i >= 0; --i) {
             if (currentByteBit < 0) {
@@ -148,25 +198,23 @@ public class DbcAttributeDecimal implements DbcAttribute {
             bitset.set(i, (bytes[currentByte] & (1 << currentByteBit--)) != 0);
         }
         
-        BigDecimal v = BigDecimal.valueOf(DbcUtils.bsToLong(bitset));
-        if (notOneFactor) {
-            v = v.multiply(factor);
-        }
-        if (notZeroOffset) {
-            v = v.add(offset);
-        }
-        return new DecimalData(v);
+        return scale(DbcUtils.bsToLong(bitset));
     }
     
+    /**
+     * Decode Intel bytes bit by bit.
+     * 
+     * @param bytes the bytes
+     * @return DecimalData
+     */
     public DecimalData decodeIntel(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0
+                ? DbcUtils.createSignedLongBitSet()
+                : DbcUtils.createUnsignedLongBitSet();
         
         //start with least significant bit
         for (int i = 0; i < length; ++i) {
@@ -177,18 +225,14 @@ public class DbcAttributeDecimal implements DbcAttribute {
             bitset.set(i, (bytes[currentByte] & (1 << currentByteBit++)) != 0);
         }
 
-        BigDecimal v = BigDecimal.valueOf(DbcUtils.bsToLong(bitset));
-        if (notOneFactor) {
-            v = v.multiply(factor);
-        }
-        if (notZeroOffset) {
-            v = v.add(offset);
-        }
-        return new DecimalData(v);
+        return scale(DbcUtils.bsToLong(bitset));
     }
     
     @Override
     public LongData interpret(final byte[] bytes) {
+        if (layout != null) {
+            return LongData.nonNullValueOf(layout.extract(bytes));
+        }
         return LongData.nonNullValueOf(DbcUtils.bsToLong(order == DbcByteOrder.MOTOROLA ? extractMotorola(bytes) : extractIntel(bytes)));
     }
     
@@ -200,12 +244,11 @@ public class DbcAttributeDecimal implements DbcAttribute {
     public BitSet extractMotorola(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[currentByte] & (1 << currentByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[currentByte] & (1 << currentByteBit)) != 0
+                ? DbcUtils.createSignedLongBitSet()
+                : DbcUtils.createUnsignedLongBitSet();
         
         for (int i = lengthMinusOne; i >= 0; --i) {
             if (currentByteBit < 0) {
@@ -220,12 +263,11 @@ public class DbcAttributeDecimal implements DbcAttribute {
     public BitSet extractIntel(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0
+                ? DbcUtils.createSignedLongBitSet()
+                : DbcUtils.createUnsignedLongBitSet();
         
         //start with least significant bit
         for (int i = 0; i < length; ++i) {
@@ -239,6 +281,92 @@ public class DbcAttributeDecimal implements DbcAttribute {
         return bitset;
     }
     
+    /**
+     * Return whether every value of the signal is decoded in fixed point, as an unscaled long at
+     * {@link #getFixedScale()} computed with integer arithmetic.  Signals whose scaled values may not
+     * fit 63 bits decode through <code>BigDecimal</code> arithmetic.
+     * 
+     * @return true or false
+     */
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+    
+    /**
+     * Return the scale of the fixed point values, the larger scale of the factor and the offset
+     * that apply.
+     * 
+     * @return int
+     */
+    public int getFixedScale() {
+        return fixedScale;
+    }
+    
+    /**
+     * Decode the unscaled fixed point value of the signal without allocating, the value being
+     * <code>unscaled * 10^-getFixedScale()</code>.  Only valid if {@link #isFixedPoint()}.
+     * 
+     * @param bytes the bytes
+     * @return long
+     */
+    public long decodeUnscaled(final byte[] bytes) {
+        return unscaled(lengthMinusOne == 0
+                ? (bytes[startByte] & (1 << startByteBit)) != 0 ? 1l : 0l
+                : layout.extract(bytes));
+    }
+    
+    /**
+     * Return the unscaled fixed point value of a raw value.  Only valid if {@link #isFixedPoint()}.
+     * 
+     * @param raw the raw value
+     * @return long
+     */
+    public long unscaled(final long raw) {
+        return raw * fixedFactor + fixedOffset;
+    }
+    
+    private DecimalData scale(final long raw) {
+        if (fixedPoint) { //same value and scale as the BigDecimal arithmetic below
+            return new DecimalData(BigDecimal.valueOf(raw * fixedFactor + fixedOffset, fixedScale));
+        }
+        
+        BigDecimal v = BigDecimal.valueOf(raw);
+        if (notOneFactor) {
+            v = v.multiply(factor);
+        }
+        if (notZeroOffset) {
+            v = v.add(offset);
+        }
+        return new DecimalData(v);
+    }
+    
+    /**
+     * Precompute the decoded value of every raw bit pattern, so that decoding becomes one extraction and
+     * one array load.  Single-bit signals already decode to precomputed values and are never tabulated.
+     * 
+     * @param enabled whether to tabulate, false to drop the table
+     * @return the number of table entries, 0 if not tabulated
+     */
+    public int tabulate(final boolean enabled) {
+        if (!enabled || lengthMinusOne == 0 || length > DbcValueTables.MAX_BITS || layout == null) {
+            this.table = null;
+            return 0;
+        }
+        
+        final DecimalData[] t = new DecimalData[1 << length];
+        final int shift = 64 - length;
+        for (int pattern = 0; pattern < t.length; ++pattern) {
+            final long raw = signed ? ((long) pattern << shift) >> shift : pattern;
+            t[pattern] = scale(raw);
+        }
+        this.table = t;
+        return t.length;
+    }
+    
+    public boolean isTabulated() {
+        return table != null;
+    }
+    
     @Override
     public String getName() {
         return name;
@@ -281,6 +409,9 @@ public class DbcAttributeDecimal implements DbcAttribute {
         this.startByteBit = startBit % 8;
         this.endIntelByte = (startBit + length - 1) / 8;
         this.endIntelByteBit = (startBit + length - 1) % 8;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
+        rescale();
         return this;
     }
     
@@ -304,6 +435,9 @@ public class DbcAttributeDecimal implements DbcAttribute {
         this.bitAllocation = (length > 8 && length % 8 != 0)
                 ? (length / 8 + 1) * 8 //align bytes, some tools cannot support unaligned bytes
                 : length;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
+        rescale();
     }
     
     @Override
@@ -322,6 +456,9 @@ public class DbcAttributeDecimal implements DbcAttribute {
     
     public DbcAttributeDecimal setOrder(final DbcByteOrder order) {
         this.order = order;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
+        rescale();
         return this;
     }
     
@@ -332,9 +469,32 @@ public class DbcAttributeDecimal implements DbcAttribute {
     
     public DbcAttributeDecimal setSigned(final boolean signed) {
         this.signed = signed;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
+        rescale();
         return this;
     }
     
+    @Override
+    public int getMultiplexValue() {
+        return multiplexValue;
+    }
+    
+    @Override
+    public void setMultiplexValue(final int multiplexValue) {
+        this.multiplexValue = multiplexValue;
+    }
+    
+    @Override
+    public boolean isMultiplexor() {
+        return multiplexor;
+    }
+    
+    @Override
+    public void setMultiplexor(final boolean multiplexor) {
+        this.multiplexor = multiplexor;
+    }
+    
     public BigDecimal getInitialValue() {
         return offset;
     }
@@ -346,9 +506,11 @@ public class DbcAttributeDecimal implements DbcAttribute {
     
     public DbcAttributeDecimal setAdjustment(final BigDecimal offset) {
         this.offset = offset;
+        this.table = null;
         this.notZeroOffset = offset.signum() != 0;
         this.zeroOffsetData = DecimalData.valueOf(offset);
         this.oneOffsetData = DecimalData.valueOf(factor.add(offset));
+        rescale();
         return this;
     }
     
@@ -359,11 +521,30 @@ public class DbcAttributeDecimal implements DbcAttribute {
     
     public DbcAttributeDecimal setMultiplier(final BigDecimal factor) {
         this.factor = factor;
+        this.table = null;
         this.notOneFactor = BigDecimal.ONE.compareTo(factor) != 0;
         this.oneOffsetData = DecimalData.valueOf(factor.add(offset));
+        rescale();
         return this;
     }
     
+    private void rescale() {
+        this.doubleFactor = factor.doubleValue();
+        this.doubleOffset = offset.doubleValue();
+        this.longScaled = !notOneFactor && (offset.signum() == 0 || offset.scale() <= 0 && offset.toBigInteger().bitLength() < 63);
+        this.longOffset = longScaled ? offset.longValue() : 0l;
+        
+        //value * 10^scale = raw * factor * 10^scale + offset * 10^scale, in longs when the sum cannot overflow,
+        //at the scale the BigDecimal arithmetic of scale(long) would produce
+        final int s = notOneFactor ? factor.scale() : 0;
+        this.fixedScale = notZeroOffset ? Math.max(s, offset.scale()) : s;
+        final BigInteger f = factor.setScale(fixedScale).unscaledValue();
+        final BigInteger o = offset.setScale(fixedScale).unscaledValue();
+        this.fixedPoint = layout != null && Math.max(length + f.bitLength(), o.bitLength()) < 63;
+        this.fixedFactor = fixedPoint ? f.longValue() : 0l;
+        this.fixedOffset = fixedPoint ? o.longValue() : 0l;
+    }
+    
     public BigDecimal getMinValue() {
         return minValue;
     }
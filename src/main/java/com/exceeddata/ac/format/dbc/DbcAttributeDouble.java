@@ -11,9 +11,16 @@ import com.exceeddata.ac.common.data.typedata.LongData;
 import com.exceeddata.ac.common.data.typedata.TypeData;
 import com.exceeddata.ac.common.exception.EngineException;
 
-public class DbcAttributeDouble implements DbcAttribute {
+public class DbcAttributeDouble implements DbcAttribute, Cloneable {
     private static final long serialVersionUID = 1L;
     
+    /** The <code>SIG_VALTYPE_</code> of an integer signal. */
+    public static final int VALUE_TYPE_INTEGER = 0;
+    /** The <code>SIG_VALTYPE_</code> of an IEEE-754 32-bit float signal. */
+    public static final int VALUE_TYPE_FLOAT = 1;
+    /** The <code>SIG_VALTYPE_</code> of an IEEE-754 64-bit double signal. */
+    public static final int VALUE_TYPE_DOUBLE = 2;
+    
     private String name = null;
     private String unit = null;
     private int nameHash = 0;
@@ -35,18 +42,38 @@ public class DbcAttributeDouble implements DbcAttribute {
     private int lengthMinusOne = 0;
     private DoubleData zeroOffsetData = DoubleData.ZERO;
     private DoubleData oneOffsetData = DoubleData.ONE;
-    private BitSet signedBS = DbcUtils.createSignedLongBitSet();
-    private BitSet unsignedBS = DbcUtils.createUnsignedLongBitSet();
     private MathContext divisorContext = new MathContext(64, RoundingMode.HALF_UP);
     
     private boolean notZeroOffset = true;
     private boolean notOneFactor = true;
     private int bitAllocation = length;
+    private int multiplexValue = -1;
+    private boolean multiplexor = false;
+    private DbcSignalLayout layout = DbcSignalLayout.of(startBit, length, order, signed);
+    private transient volatile DoubleData[] table = null; //optional decoded values indexed by raw bit pattern
+    private double tolerance = 0d;
+    private boolean doubleScaled = true;
+    private double doubleFactor = 1d;
+    private double doubleOffset = 0d;
+    private int valueType = VALUE_TYPE_INTEGER;
     
     public DbcAttributeDouble() {}
     
     @Override
     public void encode(final TypeData data, final byte[] bytes) {
+        if (valueType != VALUE_TYPE_INTEGER) {
+            final Double value;
+            try {
+                if ((value = data.toDouble()) == null) {
+                    return;
+                }
+            } catch (EngineException e) {
+                return;
+            }
+            layout.insert(toRaw(value.doubleValue()), bytes, 0);
+            return;
+        }
+        
         BigDecimal value = null;
         try {
             if ((value = data.toDecimal()) == null) {
@@ -65,13 +92,64 @@ public class DbcAttributeDouble implements DbcAttribute {
         }
         
         final long scaled = v.setScale(0, RoundingMode.HALF_UP).longValue();
-        if (order == DbcByteOrder.MOTOROLA) {
+        if (layout != null) { //a single bit is set by any non-zero value
+            layout.insert(lengthMinusOne != 0 ? scaled : scaled != 0 ? 1l : 0l, bytes, 0);
+        } else if (order == DbcByteOrder.MOTOROLA) {
             encodeMotorola(scaled, bytes);
         } else {
             encodeIntel(scaled, bytes);
         }
     }
     
+    @Override
+    public long toRaw(final long value) {
+        return toRaw((double) value);
+    }
+    
+    @Override
+    public long toRaw(final double value) {
+        if (valueType != VALUE_TYPE_INTEGER) {
+            return toBits(notOneFactor || notZeroOffset ? (value - doubleOffset) / doubleFactor : value);
+        }
+        return DbcUtils.toRaw(value, doubleOffset, doubleFactor, offset, factor, divisorContext);
+    }
+    
+    /**
+     * Reinterpret the raw bits of an IEEE float or double signal as its unscaled value.
+     * 
+     * @param raw the raw bits
+     * @return double
+     */
+    public double fromBits(final long raw) {
+        return valueType == VALUE_TYPE_FLOAT ? Float.intBitsToFloat((int) raw) : Double.longBitsToDouble(raw);
+    }
+    
+    /**
+     * Return the raw bits of an unscaled value of an IEEE float or double signal.
+     * 
+     * @param value the unscaled value
+     * @return long
+     */
+    public long toBits(final double value) {
+        return valueType == VALUE_TYPE_FLOAT ? Float.floatToRawIntBits((float) value) & 0xffffffffl : Double.doubleToRawLongBits(value);
+    }
+    
+    @Override
+    public DbcAttributeDouble copy() {
+        try {
+            final DbcAttributeDouble copy = (DbcAttributeDouble) super.clone(); //all fields are values or immutable
+            copy.table = null;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    @Override
+    public DbcSignalLayout getLayout() {
+        return layout;
+    }
+    
     public void encodeMotorola(final long scaled, final byte[] bytes) {
         if (lengthMinusOne == 0) {
             if (scaled != 0l) {
@@ -125,20 +203,31 @@ public class DbcAttributeDouble implements DbcAttribute {
     public DoubleData decode(final byte[] bytes) {
         if (lengthMinusOne == 0) {
             return (bytes[startByte] & (1 << startByteBit)) != 0 ? oneOffsetData : zeroOffsetData;
+        } else if (layout != null) {
+            final DoubleData[] t = table;
+            if (t != null) {
+                return t[(int) layout.extract(bytes) & (t.length - 1)];
+            }
+            return scale(layout.extract(bytes));
         } else {
             return order == DbcByteOrder.MOTOROLA ? decodeMotorola(bytes) : decodeIntel(bytes);
         }
     }
     
+    /**
+     * Decode Motorola bytes bit by bit.
+     * 
+     * @param bytes the bytes
+     * @return DoubleData
+     */
     public DoubleData decodeMotorola(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[currentByte] & (1 << currentByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[currentByte] & (1 << currentByteBit)) != 0
+                ? DbcUtils.createSignedLongBitSet()
+                : DbcUtils.createUnsignedLongBitSet();
         
         for (int i = lengthMinusOne; i >= 0; --i) {
             if (currentByteBit < 0) {
@@ -148,25 +237,23 @@ public class DbcAttributeDouble implements DbcAttribute {
             bitset.set(i, (bytes[currentByte] & (1 << currentByteBit--)) != 0);
         }
         
-        BigDecimal v = BigDecimal.valueOf(DbcUtils.bsToLong(bitset));
-        if (notOneFactor) {
-            v = v.multiply(factor);
-        }
-        if (notZeroOffset) {
-            v = v.add(offset);
-        }
-        return DoubleData.nonNullValueOf(v.doubleValue());
+        return scale(DbcUtils.bsToLong(bitset));
     }
     
+    /**
+     * Decode Intel bytes bit by bit.
+     * 
+     * @param bytes the bytes
+     * @return DoubleData
+     */
     public DoubleData decodeIntel(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0
+                ? DbcUtils.createSignedLongBitSet()
+                : DbcUtils.createUnsignedLongBitSet();
         
         //start with least significant bit
         for (int i = 0; i < length; ++i) {
@@ -177,18 +264,17 @@ public class DbcAttributeDouble implements DbcAttribute {
             bitset.set(i, (bytes[currentByte] & (1 << currentByteBit++)) != 0);
         }
 
-        BigDecimal v = BigDecimal.valueOf(DbcUtils.bsToLong(bitset));
-        if (notOneFactor) {
-            v = v.multiply(factor);
-        }
-        if (notZeroOffset) {
-            v = v.add(offset);
-        }
-        return DoubleData.nonNullValueOf(v.doubleValue());
+        return scale(DbcUtils.bsToLong(bitset));
     }
     
     @Override
-    public LongData interpret(final byte[] bytes) {
+    public TypeData interpret(final byte[] bytes) {
+        if (valueType != VALUE_TYPE_INTEGER) { //the raw value of an IEEE signal is the unscaled float
+            return DoubleData.nonNullValueOf(fromBits(layout.extract(bytes)));
+        }
+        if (layout != null) {
+            return LongData.nonNullValueOf(layout.extract(bytes));
+        }
         return LongData.nonNullValueOf(DbcUtils.bsToLong(order == DbcByteOrder.MOTOROLA ? extractMotorola(bytes) : extractIntel(bytes)));
     }
     
@@ -200,12 +286,11 @@ public class DbcAttributeDouble implements DbcAttribute {
     public BitSet extractMotorola(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[currentByte] & (1 << currentByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[currentByte] & (1 << currentByteBit)) != 0
+                ? DbcUtils.createSignedLongBitSet()
+                : DbcUtils.createUnsignedLongBitSet();
         
         for (int i = lengthMinusOne; i >= 0; --i) {
             if (currentByteBit < 0) {
@@ -220,12 +305,11 @@ public class DbcAttributeDouble implements DbcAttribute {
     public BitSet extractIntel(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0
+                ? DbcUtils.createSignedLongBitSet()
+                : DbcUtils.createUnsignedLongBitSet();
         
         //start with least significant bit
         for (int i = 0; i < length; ++i) {
@@ -239,6 +323,58 @@ public class DbcAttributeDouble implements DbcAttribute {
         return bitset;
     }
     
+    private DoubleData scale(final long raw) {
+        if (valueType != VALUE_TYPE_INTEGER) {
+            final double v = fromBits(raw);
+            return DoubleData.nonNullValueOf(notOneFactor || notZeroOffset ? v * doubleFactor + doubleOffset : v);
+        }
+        if (doubleScaled) {
+            return DoubleData.nonNullValueOf(raw * doubleFactor + doubleOffset);
+        }
+        
+        BigDecimal v = BigDecimal.valueOf(raw);
+        if (notOneFactor) {
+            v = v.multiply(factor);
+        }
+        if (notZeroOffset) {
+            v = v.add(offset);
+        }
+        return DoubleData.nonNullValueOf(v.doubleValue());
+    }
+    
+    private void rescale() {
+        this.doubleScaled = DbcUtils.isDoubleScalable(length, signed, factor, offset, tolerance);
+        this.doubleFactor = factor.doubleValue();
+        this.doubleOffset = offset.doubleValue();
+    }
+    
+    /**
+     * Precompute the decoded value of every raw bit pattern, so that decoding becomes one extraction and
+     * one array load.  Single-bit signals already decode to precomputed values and are never tabulated.
+     * 
+     * @param enabled whether to tabulate, false to drop the table
+     * @return the number of table entries, 0 if not tabulated
+     */
+    public int tabulate(final boolean enabled) {
+        if (!enabled || lengthMinusOne == 0 || length > DbcValueTables.MAX_BITS || layout == null) {
+            this.table = null;
+            return 0;
+        }
+        
+        final DoubleData[] t = new DoubleData[1 << length];
+        final int shift = 64 - length;
+        for (int pattern = 0; pattern < t.length; ++pattern) {
+            final long raw = signed ? ((long) pattern << shift) >> shift : pattern;
+            t[pattern] = scale(raw);
+        }
+        this.table = t;
+        return t.length;
+    }
+    
+    public boolean isTabulated() {
+        return table != null;
+    }
+    
     @Override
     public String getName() {
         return name;
@@ -281,6 +417,8 @@ public class DbcAttributeDouble implements DbcAttribute {
         this.startByteBit = startBit % 8; 
         this.endIntelByte = (startBit + length - 1) / 8;
         this.endIntelByteBit = (startBit + length - 1) % 8;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
     }
     
     @Override
@@ -312,6 +450,9 @@ public class DbcAttributeDouble implements DbcAttribute {
         this.bitAllocation = (length > 8 && length % 8 != 0)
                 ? (length / 8 + 1) * 8 //align bytes, some tools cannot support unaligned bytes
                 : length;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
+        rescale();
     }
     
     public DbcByteOrder getOrder() {
@@ -320,6 +461,8 @@ public class DbcAttributeDouble implements DbcAttribute {
     
     public void setOrder(final DbcByteOrder order) {
         this.order = order;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
     }
     
     @Override
@@ -329,6 +472,29 @@ public class DbcAttributeDouble implements DbcAttribute {
     
     public void setSigned(final boolean signed) {
         this.signed = signed;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
+        rescale();
+    }
+    
+    @Override
+    public int getMultiplexValue() {
+        return multiplexValue;
+    }
+    
+    @Override
+    public void setMultiplexValue(final int multiplexValue) {
+        this.multiplexValue = multiplexValue;
+    }
+    
+    @Override
+    public boolean isMultiplexor() {
+        return multiplexor;
+    }
+    
+    @Override
+    public void setMultiplexor(final boolean multiplexor) {
+        this.multiplexor = multiplexor;
     }
     
     public BigDecimal getInitialValue() {
@@ -342,9 +508,11 @@ public class DbcAttributeDouble implements DbcAttribute {
     
     public void setAdjustment(final BigDecimal offset) {
         this.offset = offset;
+        this.table = null;
         this.notZeroOffset = offset.signum() != 0;
         this.zeroOffsetData = DoubleData.nonNullValueOf(offset.doubleValue());
         this.oneOffsetData = DoubleData.nonNullValueOf(factor.add(offset).doubleValue());
+        rescale();
     }
     
     @Override
@@ -354,8 +522,66 @@ public class DbcAttributeDouble implements DbcAttribute {
     
     public void setMultiplier(final BigDecimal factor) {
         this.factor = factor;
+        this.table = null;
         this.notOneFactor = BigDecimal.ONE.compareTo(factor) != 0;
         this.oneOffsetData = DoubleData.nonNullValueOf(factor.add(offset).doubleValue());
+        rescale();
+    }
+    
+    /**
+     * Get the absolute tolerance allowed for decoding in double arithmetic.
+     * 
+     * @return double
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+    
+    /**
+     * Set the absolute tolerance allowed for decoding in double arithmetic instead of <code>BigDecimal</code>.
+     * With the default of 0 the double path is only taken when its results are identical.
+     * 
+     * @param tolerance the absolute tolerance in physical units
+     */
+    public void setTolerance(final double tolerance) {
+        this.tolerance = tolerance;
+        this.table = null;
+        rescale();
+    }
+    
+    /**
+     * Return the <code>SIG_VALTYPE_</code> of the signal, {@link #VALUE_TYPE_INTEGER},
+     * {@link #VALUE_TYPE_FLOAT} or {@link #VALUE_TYPE_DOUBLE}.
+     * 
+     * @return int
+     */
+    public int getValueType() {
+        return valueType;
+    }
+    
+    /**
+     * Set the <code>SIG_VALTYPE_</code> of the signal.  Float signals are 32 bits and double signals are
+     * 64 bits long, their raw bits decoded as IEEE-754 values before the factor and offset are applied.
+     * 
+     * @param valueType the value type
+     */
+    public void setValueType(final int valueType) {
+        if (valueType != VALUE_TYPE_INTEGER
+                && (valueType != VALUE_TYPE_FLOAT || length != 32)
+                && (valueType != VALUE_TYPE_DOUBLE || length != 64)) {
+            throw new IllegalArgumentException("FORMAT_DBC_VALUE_TYPE_UNEXPECTED: " + name + " " + valueType);
+        }
+        this.valueType = valueType;
+        this.table = null;
+    }
+    
+    /**
+     * Return whether the factor and offset are applied in double arithmetic.
+     * 
+     * @return true or false
+     */
+    public boolean isDoubleScaled() {
+        return doubleScaled;
     }
     
     public BigDecimal getMinValue() {
@@ -8,7 +8,7 @@ import com.exceeddata.ac.common.data.typedata.IntData;
 import com.exceeddata.ac.common.data.typedata.TypeData;
 import com.exceeddata.ac.common.exception.EngineException;
 
-public class DbcAttributeInteger implements DbcAttribute {
+public class DbcAttributeInteger implements DbcAttribute, Cloneable {
     private static final long serialVersionUID = 1L;
     
     private String name = null;
@@ -32,9 +32,11 @@ public class DbcAttributeInteger implements DbcAttribute {
     private int lengthMinusOne = 0;
     private IntData zeroOffsetData = IntData.ZERO;
     private IntData oneOffsetData = IntData.ONE;
-    private BitSet signedBS = DbcUtils.createSignedIntBitSet();
-    private BitSet unsignedBS = DbcUtils.createUnsignedIntBitSet();
     private int bitAllocation = length;
+    private int multiplexValue = -1;
+    private boolean multiplexor = false;
+    private DbcSignalLayout layout = DbcSignalLayout.of(startBit, length, order, signed);
+    private transient volatile IntData[] table = null; //optional decoded values indexed by raw bit pattern
     
     public DbcAttributeInteger() {}
     
@@ -50,13 +52,41 @@ public class DbcAttributeInteger implements DbcAttribute {
         }
         
         final int scaled = (int) Math.round((double) (value.intValue() - offset) / factor);
-        if (order == DbcByteOrder.MOTOROLA) {
+        if (layout != null) { //a single bit is set by any non-zero value
+            layout.insert(lengthMinusOne != 0 ? scaled : scaled != 0 ? 1l : 0l, bytes, 0);
+        } else if (order == DbcByteOrder.MOTOROLA) {
             encodeMotorola(scaled, bytes);
         } else {
             encodeIntel(scaled, bytes);
         }
     }
     
+    @Override
+    public long toRaw(final long value) {
+        return factor == 1 ? value - offset : Math.round((double) (value - offset) / factor);
+    }
+    
+    @Override
+    public long toRaw(final double value) {
+        return Math.round((value - offset) / factor);
+    }
+    
+    @Override
+    public DbcAttributeInteger copy() {
+        try {
+            final DbcAttributeInteger copy = (DbcAttributeInteger) super.clone(); //all fields are values or immutable
+            copy.table = null;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    @Override
+    public DbcSignalLayout getLayout() {
+        return layout;
+    }
+    
     public void encodeMotorola(final int scaled, final byte[] bytes) {
         if (lengthMinusOne == 0) {
             if (scaled != 0) {
@@ -110,20 +140,31 @@ public class DbcAttributeInteger implements DbcAttribute {
     public IntData decode(final byte[] bytes) {
         if (lengthMinusOne == 0) {
             return (bytes[startByte] & (1 << startByteBit)) != 0 ? oneOffsetData : zeroOffsetData;
+        } else if (layout != null) {
+            final IntData[] t = table;
+            if (t != null) {
+                return t[(int) layout.extract(bytes) & (t.length - 1)];
+            }
+            return IntData.nonNullValueOf((int) layout.extract(bytes) * factor + offset);
         } else {
             return order == DbcByteOrder.MOTOROLA ? decodeMotorola(bytes) : decodeIntel(bytes);
         }
     }
     
+    /**
+     * Decode Motorola bytes bit by bit.
+     * 
+     * @param bytes the bytes
+     * @return IntData
+     */
     public IntData decodeMotorola(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[currentByte] & (1 << currentByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[currentByte] & (1 << currentByteBit)) != 0
+                ? DbcUtils.createSignedIntBitSet()
+                : DbcUtils.createUnsignedIntBitSet();
         
         for (int i = lengthMinusOne; i >= 0; --i) {
             if (currentByteBit < 0) {
@@ -136,15 +177,20 @@ public class DbcAttributeInteger implements DbcAttribute {
         return IntData.nonNullValueOf(DbcUtils.bsToInt(bitset) * factor + offset);
     }
     
+    /**
+     * Decode Intel bytes bit by bit.
+     * 
+     * @param bytes the bytes
+     * @return IntData
+     */
     public IntData decodeIntel(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0
+                ? DbcUtils.createSignedIntBitSet()
+                : DbcUtils.createUnsignedIntBitSet();
         
         //start with least significant bit
         for (int i = 0; i < length; ++i) {
@@ -160,6 +206,9 @@ public class DbcAttributeInteger implements DbcAttribute {
     
     @Override
     public IntData interpret(final byte[] bytes) {
+        if (layout != null) {
+            return IntData.nonNullValueOf((int) layout.extract(bytes));
+        }
         return IntData.nonNullValueOf(DbcUtils.bsToInt(order == DbcByteOrder.MOTOROLA ? extractMotorola(bytes) : extractIntel(bytes)));
     }
     
@@ -171,12 +220,11 @@ public class DbcAttributeInteger implements DbcAttribute {
     public BitSet extractMotorola(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[currentByte] & (1 << currentByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[currentByte] & (1 << currentByteBit)) != 0
+                ? DbcUtils.createSignedIntBitSet()
+                : DbcUtils.createUnsignedIntBitSet();
         
         for (int i = lengthMinusOne; i >= 0; --i) {
             if (currentByteBit < 0) {
@@ -191,12 +239,11 @@ public class DbcAttributeInteger implements DbcAttribute {
     public BitSet extractIntel(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0
+                ? DbcUtils.createSignedIntBitSet()
+                : DbcUtils.createUnsignedIntBitSet();
         
         //start with least significant bit
         for (int i = 0; i < length; ++i) {
@@ -210,6 +257,33 @@ public class DbcAttributeInteger implements DbcAttribute {
         return bitset;
     }
     
+    /**
+     * Precompute the decoded value of every raw bit pattern, so that decoding becomes one extraction and
+     * one array load.  Single-bit signals already decode to precomputed values and are never tabulated.
+     * 
+     * @param enabled whether to tabulate, false to drop the table
+     * @return the number of table entries, 0 if not tabulated
+     */
+    public int tabulate(final boolean enabled) {
+        if (!enabled || lengthMinusOne == 0 || length > DbcValueTables.MAX_BITS || layout == null) {
+            this.table = null;
+            return 0;
+        }
+        
+        final IntData[] t = new IntData[1 << length];
+        final int shift = 64 - length;
+        for (int pattern = 0; pattern < t.length; ++pattern) {
+            final long raw = signed ? ((long) pattern << shift) >> shift : pattern;
+            t[pattern] = IntData.nonNullValueOf((int) raw * factor + offset);
+        }
+        this.table = t;
+        return t.length;
+    }
+    
+    public boolean isTabulated() {
+        return table != null;
+    }
+    
     @Override
     public String getName() {
         return name;
@@ -252,6 +326,8 @@ public class DbcAttributeInteger implements DbcAttribute {
         this.startByteBit = startBit % 8; 
         this.endIntelByte = (startBit + length - 1) / 8;
         this.endIntelByteBit = (startBit + length - 1) % 8;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
     }
     
     @Override
@@ -283,6 +359,8 @@ public class DbcAttributeInteger implements DbcAttribute {
         this.bitAllocation = (length > 8 && length % 8 != 0)
                 ? (length / 8 + 1) * 8 //align bytes, some tools cannot support unaligned bytes
                 : length;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
     }
     
     public DbcByteOrder getOrder() {
@@ -291,6 +369,8 @@ public class DbcAttributeInteger implements DbcAttribute {
     
     public void setOrder(final DbcByteOrder order) {
         this.order = order;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
     }
     
     @Override
@@ -300,6 +380,28 @@ public class DbcAttributeInteger implements DbcAttribute {
     
     public void setSigned(final boolean signed) {
         this.signed = signed;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
+    }
+    
+    @Override
+    public int getMultiplexValue() {
+        return multiplexValue;
+    }
+    
+    @Override
+    public void setMultiplexValue(final int multiplexValue) {
+        this.multiplexValue = multiplexValue;
+    }
+    
+    @Override
+    public boolean isMultiplexor() {
+        return multiplexor;
+    }
+    
+    @Override
+    public void setMultiplexor(final boolean multiplexor) {
+        this.multiplexor = multiplexor;
     }
     
     public int getInitialValue() {
@@ -313,6 +415,7 @@ public class DbcAttributeInteger implements DbcAttribute {
     
     public void setAdjustment(final int offset) {
         this.offset = offset;
+        this.table = null;
         this.zeroOffsetData = offset == 0 ? IntData.ZERO : IntData.valueOf(offset);
         this.oneOffsetData = IntData.valueOf(factor + offset);
     }
@@ -324,6 +427,7 @@ public class DbcAttributeInteger implements DbcAttribute {
     
     public void setMultiplier(final int factor) {
         this.factor = factor;
+        this.table = null;
         this.oneOffsetData = IntData.valueOf(factor + offset);
     }
     
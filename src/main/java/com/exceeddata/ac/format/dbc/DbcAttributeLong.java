@@ -8,7 +8,7 @@ import com.exceeddata.ac.common.data.typedata.LongData;
 import com.exceeddata.ac.common.data.typedata.TypeData;
 import com.exceeddata.ac.common.exception.EngineException;
 
-public class DbcAttributeLong implements DbcAttribute {
+public class DbcAttributeLong implements DbcAttribute, Cloneable {
     private static final long serialVersionUID = 1L;
     
     private String name = null;
@@ -32,9 +32,11 @@ public class DbcAttributeLong implements DbcAttribute {
     private int lengthMinusOne = 0;
     private LongData zeroOffsetData = LongData.ZERO;
     private LongData oneOffsetData = LongData.ONE;
-    private BitSet signedBS = DbcUtils.createSignedLongBitSet();
-    private BitSet unsignedBS = DbcUtils.createUnsignedLongBitSet();
     private int bitAllocation = length;
+    private int multiplexValue = -1;
+    private boolean multiplexor = false;
+    private DbcSignalLayout layout = DbcSignalLayout.of(startBit, length, order, signed);
+    private transient volatile LongData[] table = null; //optional decoded values indexed by raw bit pattern
     
     public DbcAttributeLong() {}
     
@@ -50,13 +52,41 @@ public class DbcAttributeLong implements DbcAttribute {
         }
         
         final long scaled = Math.round((double) ((value.longValue() - offset)) / factor);
-        if (order == DbcByteOrder.MOTOROLA) {
+        if (layout != null) { //a single bit is set by any non-zero value
+            layout.insert(lengthMinusOne != 0 ? scaled : scaled != 0 ? 1l : 0l, bytes, 0);
+        } else if (order == DbcByteOrder.MOTOROLA) {
             encodeMotorola(scaled, bytes);
         } else {
             encodeIntel(scaled, bytes);
         }
     }
     
+    @Override
+    public long toRaw(final long value) {
+        return factor == 1l ? value - offset : Math.round((double) (value - offset) / factor);
+    }
+    
+    @Override
+    public long toRaw(final double value) {
+        return Math.round((value - offset) / factor);
+    }
+    
+    @Override
+    public DbcAttributeLong copy() {
+        try {
+            final DbcAttributeLong copy = (DbcAttributeLong) super.clone(); //all fields are values or immutable
+            copy.table = null;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    @Override
+    public DbcSignalLayout getLayout() {
+        return layout;
+    }
+    
     public void encodeMotorola(final long scaled, final byte[] bytes) {
         if (lengthMinusOne == 0) {
             if (scaled != 0l) {
@@ -110,20 +140,31 @@ public class DbcAttributeLong implements DbcAttribute {
     public LongData decode(final byte[] bytes) {
         if (lengthMinusOne == 0) {
             return (bytes[startByte] & (1 << startByteBit)) != 0 ? oneOffsetData : zeroOffsetData;
+        } else if (layout != null) {
+            final LongData[] t = table;
+            if (t != null) {
+                return t[(int) layout.extract(bytes) & (t.length - 1)];
+            }
+            return LongData.nonNullValueOf(layout.extract(bytes) * factor + offset);
         } else {
             return order == DbcByteOrder.MOTOROLA ? decodeMotorola(bytes) : decodeIntel(bytes);
         }
     }
     
+    /**
+     * Decode Motorola bytes bit by bit.
+     * 
+     * @param bytes the bytes
+     * @return LongData
+     */
     public LongData decodeMotorola(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[currentByte] & (1 << currentByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[currentByte] & (1 << currentByteBit)) != 0
+                ? DbcUtils.createSignedLongBitSet()
+                : DbcUtils.createUnsignedLongBitSet();
         
         for (int i = lengthMinusOne; i >= 0; --i) {
             if (currentByteBit < 0) {
@@ -136,15 +177,20 @@ public class DbcAttributeLong implements DbcAttribute {
         return LongData.nonNullValueOf(DbcUtils.bsToLong(bitset) * factor + offset);
     }
     
+    /**
+     * Decode Intel bytes bit by bit.
+     * 
+     * @param bytes the bytes
+     * @return LongData
+     */
     public LongData decodeIntel(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0
+                ? DbcUtils.createSignedLongBitSet()
+                : DbcUtils.createUnsignedLongBitSet();
         
         //start with least significant bit
         for (int i = 0; i < length; ++i) {
@@ -160,6 +206,9 @@ public class DbcAttributeLong implements DbcAttribute {
     
     @Override
     public LongData interpret(final byte[] bytes) {
+        if (layout != null) {
+            return LongData.nonNullValueOf(layout.extract(bytes));
+        }
         return LongData.nonNullValueOf(DbcUtils.bsToLong(order == DbcByteOrder.MOTOROLA ? extractMotorola(bytes) : extractIntel(bytes)));
     }
     
@@ -171,12 +220,11 @@ public class DbcAttributeLong implements DbcAttribute {
     public BitSet extractMotorola(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[currentByte] & (1 << currentByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[currentByte] & (1 << currentByteBit)) != 0
+                ? DbcUtils.createSignedLongBitSet()
+                : DbcUtils.createUnsignedLongBitSet();
         
         for (int i = lengthMinusOne; i >= 0; --i) {
             if (currentByteBit < 0) {
@@ -191,12 +239,11 @@ public class DbcAttributeLong implements DbcAttribute {
     public BitSet extractIntel(final byte[] bytes) {
         int currentByte = startByte;
         int currentByteBit = startByteBit;
-        BitSet bitset = unsignedBS;
         
         //calculate with most significant bit
-        if (signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0) {
-            bitset = signedBS;
-        }
+        final BitSet bitset = signed && (bytes[endIntelByte] & (1 << endIntelByteBit)) != 0
+                ? DbcUtils.createSignedLongBitSet()
+                : DbcUtils.createUnsignedLongBitSet();
         //start with least significant bit
         for (int i = 0; i < length; ++i) {
             if (currentByteBit > 7) {
@@ -209,6 +256,33 @@ public class DbcAttributeLong implements DbcAttribute {
         return bitset;
     }
     
+    /**
+     * Precompute the decoded value of every raw bit pattern, so that decoding becomes one extraction and
+     * one array load.  Single-bit signals already decode to precomputed values and are never tabulated.
+     * 
+     * @param enabled whether to tabulate, false to drop the table
+     * @return the number of table entries, 0 if not tabulated
+     */
+    public int tabulate(final boolean enabled) {
+        if (!enabled || lengthMinusOne == 0 || length > DbcValueTables.MAX_BITS || layout == null) {
+            this.table = null;
+            return 0;
+        }
+        
+        final LongData[] t = new LongData[1 << length];
+        final int shift = 64 - length;
+        for (int pattern = 0; pattern < t.length; ++pattern) {
+            final long raw = signed ? ((long) pattern << shift) >> shift : pattern;
+            t[pattern] = LongData.nonNullValueOf(raw * factor + offset);
+        }
+        this.table = t;
+        return t.length;
+    }
+    
+    public boolean isTabulated() {
+        return table != null;
+    }
+    
     @Override
     public String getName() {
         return name;
@@ -251,6 +325,8 @@ public class DbcAttributeLong implements DbcAttribute {
         this.startByteBit = startBit % 8;
         this.endIntelByte = (startBit + length - 1) / 8;
         this.endIntelByteBit = (startBit + length - 1) % 8;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
     }
     
     @Override
@@ -282,6 +358,8 @@ public class DbcAttributeLong implements DbcAttribute {
         this.bitAllocation = (length > 8 && length % 8 != 0)
                 ? (length / 8 + 1) * 8 //align bytes, some tools cannot support unaligned bytes
                 : length;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
     }
     
     public DbcByteOrder getOrder() {
@@ -290,6 +368,8 @@ public class DbcAttributeLong implements DbcAttribute {
     
     public void setOrder(final DbcByteOrder order) {
         this.order = order;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
     }
     
     @Override
@@ -299,6 +379,28 @@ public class DbcAttributeLong implements DbcAttribute {
     
     public void setSigned(final boolean signed) {
         this.signed = signed;
+        this.layout = DbcSignalLayout.of(startBit, length, order, signed);
+        this.table = null;
+    }
+    
+    @Override
+    public int getMultiplexValue() {
+        return multiplexValue;
+    }
+    
+    @Override
+    public void setMultiplexValue(final int multiplexValue) {
+        this.multiplexValue = multiplexValue;
+    }
+    
+    @Override
+    public boolean isMultiplexor() {
+        return multiplexor;
+    }
+    
+    @Override
+    public void setMultiplexor(final boolean multiplexor) {
+        this.multiplexor = multiplexor;
     }
     
     public long getInitialValue() {
@@ -312,6 +414,7 @@ public class DbcAttributeLong implements DbcAttribute {
     
     public void setAdjustment(final long offset) {
         this.offset = offset;
+        this.table = null;
         this.zeroOffsetData = offset == 0l ? LongData.ZERO : LongData.valueOf(offset);
         this.oneOffsetData = LongData.valueOf(factor + offset);
     }
@@ -323,6 +426,7 @@ public class DbcAttributeLong implements DbcAttribute {
     
     public void setMultiplier(final long factor) {
         this.factor = factor;
+        this.table = null;
         this.oneOffsetData = LongData.valueOf(factor + offset);
     }
     
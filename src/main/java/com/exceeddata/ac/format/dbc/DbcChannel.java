@@ -13,6 +13,8 @@ public class DbcChannel implements Serializable {
     
     private int channelID = 1;
     private LinkedHashMap<Long, DbcMessage> messages = null;
+    private transient volatile DbcMessageTable table = null; //built on first lookup
+    private transient int modCount = 0; //changes of the messages, checked by decoders indexing this channel
     
     public DbcChannel() {
         this.messages = new LinkedHashMap<>();
@@ -33,7 +35,7 @@ public class DbcChannel implements Serializable {
     }
     
     public Record decode(final MessageDesc desc, final MessageContent content) {
-        final DbcMessage dbc = messages.get(content.getMessageID());
+        final DbcMessage dbc = table().get(content.getMessageID());
         return dbc != null ? dbc.decode(desc, content) : null;
     }
     
@@ -41,12 +43,12 @@ public class DbcChannel implements Serializable {
             final MessageDesc desc, 
             final MessageContent content,
             final Record target) {
-        final DbcMessage dbc = messages.get(content.getMessageID());
+        final DbcMessage dbc = table().get(content.getMessageID());
         return dbc != null ? dbc.decode(desc, content, target) : null;
     }
     
     public Record interpret(final MessageDesc desc, final MessageContent content) {
-        final DbcMessage dbc = messages.get(content.getMessageID());
+        final DbcMessage dbc = table().get(content.getMessageID());
         return dbc != null ? dbc.interpret(desc, content) : null;
     }
     
@@ -54,10 +56,31 @@ public class DbcChannel implements Serializable {
             final MessageDesc desc, 
             final MessageContent content,
             final Record target) {
-        final DbcMessage dbc = messages.get(content.getMessageID());
+        final DbcMessage dbc = table().get(content.getMessageID());
         return dbc != null ? dbc.interpret(desc, content, target) : null;
     }
     
+    private DbcMessageTable table() {
+        DbcMessageTable t = table;
+        if (t == null) {
+            table = t = DbcMessageTable.of(messages);
+        }
+        return t;
+    }
+    
+    /**
+     * Rebuild the lookup table on next decode, also of the decoders holding this channel.  Must be called
+     * after modifying the map returned by <code>getMessages()</code>.
+     */
+    public void reindex() {
+        this.table = null;
+        ++modCount;
+    }
+    
+    int modCount() {
+        return modCount;
+    }
+    
     public int getChannelID() {
         return channelID;
     }
@@ -72,6 +95,7 @@ public class DbcChannel implements Serializable {
     
     public void setMessages(final Map<Long, DbcMessage> messages) {
         this.messages = new LinkedHashMap<>(messages);
+        reindex();
     }
     
     public boolean containsMessage(final long msgid) {
@@ -84,10 +108,12 @@ public class DbcChannel implements Serializable {
     
     public void addMessage(final DbcMessage message) {
         messages.put(message.getMessageID(), message);
+        reindex();
     }
     
     public void removeMessage(final long msgid) {
         messages.remove(msgid);
+        reindex();
     }
     
     public int size() {
@@ -96,5 +122,6 @@ public class DbcChannel implements Serializable {
     
     public void clear() {
         messages.clear();
+        reindex();
     }
 }
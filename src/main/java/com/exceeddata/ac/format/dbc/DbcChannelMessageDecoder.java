@@ -1,6 +1,5 @@
 package com.exceeddata.ac.format.dbc;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -16,7 +15,11 @@ public class DbcChannelMessageDecoder implements MessageDecoder {
     private static final long serialVersionUID = 1L;
     
     private LinkedHashMap<Integer, DbcChannel> channels;
+    private transient volatile ChannelTable table = null; //composite (channel, id) table built on first lookup
+    private DbcRepeatMode repeatMode = DbcRepeatMode.DECODE;
+    private transient DbcPayloadCache payloads = null; //per instance, never shared by clones
     private boolean outputOffset;
+    private boolean timeNanos = false;
     
     public DbcChannelMessageDecoder() {
         this(false);
@@ -28,8 +31,13 @@ public class DbcChannelMessageDecoder implements MessageDecoder {
     }
     
     private DbcChannelMessageDecoder(final DbcChannelMessageDecoder decoder) {
-        this.channels = new LinkedHashMap<>(decoder.channels);
+        this.channels = new LinkedHashMap<>();
+        for (final Map.Entry<Integer, DbcChannel> entry : decoder.channels.entrySet()) {
+            this.channels.put(entry.getKey(), entry.getValue().copy()); //copy so that channel-level removal does not leak
+        }
         this.outputOffset = decoder.outputOffset;
+        this.timeNanos = decoder.timeNanos;
+        this.repeatMode = decoder.repeatMode;
     }
     
     @Override
@@ -41,6 +49,41 @@ public class DbcChannelMessageDecoder implements MessageDecoder {
         this.outputOffset = outputOffset;
     }
     
+    public boolean isTimeNanos() {
+        return timeNanos;
+    }
+    
+    /**
+     * Set whether the messages output the time as epoch nanoseconds in a long instead of an instant, see
+     * {@link DbcMessage#setTimeNanos(boolean)}.  Channels holding messages of the other time output,
+     * added before or after, are replaced by copies, so decoders and clones sharing the channels and
+     * messages are not affected.  Set it before decoding.
+     * 
+     * @param timeNanos whether to output epoch nanoseconds
+     */
+    public void setTimeNanos(final boolean timeNanos) {
+        this.timeNanos = timeNanos;
+        for (final Map.Entry<Integer, DbcChannel> entry : channels.entrySet()) {
+            entry.setValue(stamp(entry.getValue()));
+        }
+        table = null;
+    }
+    
+    private DbcChannel stamp(final DbcChannel channel) {
+        DbcChannel stamped = channel;
+        for (final DbcMessage message : channel.getMessages().values()) {
+            if (message.isTimeNanos() != timeNanos) {
+                if (stamped == channel) {
+                    stamped = channel.copy();
+                }
+                final DbcMessage copy = message.copy();
+                copy.setTimeNanos(timeNanos);
+                stamped.addMessage(copy);
+            }
+        }
+        return stamped;
+    }
+    
     @Override
     public DbcChannelMessageDecoder clone() {
         return new DbcChannelMessageDecoder(this);
@@ -66,8 +109,11 @@ public class DbcChannelMessageDecoder implements MessageDecoder {
     
     @Override
     public Record decode(final MessageDesc desc, final MessageContent message) {
-        final DbcChannel channel = channels.get(message.getChannelID());
-        return channel != null ? channel.decode(desc, message) : null;
+        final DbcMessage dbc = table().get(message.getChannelID(), message.getMessageID());
+        if (dbc == null) {
+            return null;
+        }
+        return repeatMode == DbcRepeatMode.DECODE ? dbc.decode(desc, message) : payloads().decode(dbc, desc, message, null, true);
     }
     
     @Override
@@ -75,14 +121,20 @@ public class DbcChannelMessageDecoder implements MessageDecoder {
             final MessageDesc desc, 
             final MessageContent message,
             final Record target) {
-        final DbcChannel channel = channels.get(message.getChannelID());
-        return channel != null ? channel.decode(desc, message, target) : null;
+        final DbcMessage dbc = table().get(message.getChannelID(), message.getMessageID());
+        if (dbc == null) {
+            return null;
+        }
+        return repeatMode == DbcRepeatMode.DECODE ? dbc.decode(desc, message, target) : payloads().decode(dbc, desc, message, target, true);
     }
     
     @Override
     public Record interpret(final MessageDesc desc, final MessageContent message) {
-        final DbcChannel channel = channels.get(message.getChannelID());
-        return channel != null ? channel.interpret(desc, message) : null;
+        final DbcMessage dbc = table().get(message.getChannelID(), message.getMessageID());
+        if (dbc == null) {
+            return null;
+        }
+        return repeatMode == DbcRepeatMode.DECODE ? dbc.interpret(desc, message) : payloads().decode(dbc, desc, message, null, false);
     }
     
     @Override
@@ -90,73 +142,126 @@ public class DbcChannelMessageDecoder implements MessageDecoder {
             final MessageDesc desc, 
             final MessageContent message,
             final Record target) {
-        final DbcChannel channel = channels.get(message.getChannelID());
-        return channel != null ? channel.interpret(desc, message, target) : null;
+        final DbcMessage dbc = table().get(message.getChannelID(), message.getMessageID());
+        if (dbc == null) {
+            return null;
+        }
+        return repeatMode == DbcRepeatMode.DECODE ? dbc.interpret(desc, message, target) : payloads().decode(dbc, desc, message, target, false);
+    }
+    
+    /**
+     * Return a view of a frame decoding each signal only when it is read.  Repeated payloads are not
+     * tracked by views.
+     * 
+     * @param desc the message desc
+     * @param message the message content
+     * @param applyFormula whether to apply formula
+     * @return DbcRecordView or null if the message is not defined or the bytes are short
+     */
+    public DbcRecordView view(final MessageDesc desc, final MessageContent message, final boolean applyFormula) {
+        final DbcMessage dbc = lookup(message);
+        return dbc != null ? dbc.view(desc, message, applyFormula) : null;
+    }
+    
+    DbcMessage lookup(final MessageContent message) {
+        return table().get(message.getChannelID(), message.getMessageID());
     }
     
+    /**
+     * Decode a batch of frames into per-message primitive columns, without creating a record per frame.
+     * 
+     * @param desc the message desc
+     * @param messages the frames
+     * @param applyFormula whether to apply formula
+     * @return DbcColumnBatch
+     */
+    public DbcColumnBatch decodeBatch(
+            final MessageDesc desc, 
+            final List<? extends MessageContent> messages,
+            final boolean applyFormula) {
+        final DbcMessageTable t = table();
+        final DbcColumnBatch batch = new DbcColumnBatch();
+        MessageContent message;
+        for (int i = 0, s = messages.size(); i < s; ++i) {
+            message = messages.get(i);
+            batch.append(t.get(message.getChannelID(), message.getMessageID()), desc, message);
+        }
+        return batch.finish(applyFormula);
+    }
+    
+    /**
+     * Select attributes by compiling a projection per message.  Each partially selected message is replaced
+     * in this decoder by a projected copy holding only the selected signals, and messages and channels
+     * without any selected signal are removed, so their frames are rejected at lookup.  The original
+     * messages are never modified.
+     * 
+     * @param selectedAttributes the selected attributes
+     */
     @Override
     public void select(final Set<String> selectedAttributes) {
         if (selectedAttributes == null || selectedAttributes.size() == 0) {
             return;
         }
         
-        final ArrayList<Integer> unselectedChannels = new ArrayList<>();
-        final ArrayList<Long> unselectedMessages = new ArrayList<>();
-        final ArrayList<Integer> attributeIndices = new ArrayList<>();
         final Iterator<Map.Entry<Integer, DbcChannel>> citer = channels.entrySet().iterator();
-        LinkedHashMap<Long, DbcMessage> messages = null;
-        List<DbcAttribute> attributes = null;
-        int attributeSizes = 0, indexSize = 0;
-        Iterator<Map.Entry<Long, DbcMessage>> miter;
-        Map.Entry<Integer, DbcChannel> centry;
-        Map.Entry<Long, DbcMessage> mentry;
-        
-        for (int i = 0, s = channels.size(); i < s; ++i) {
-            centry = citer.next();
-            unselectedMessages.clear();
-            messages = centry.getValue().getMessages();
-            miter = messages.entrySet().iterator();
-            for (int j = 0, t = messages.size(); j < t; ++j) {
-                mentry = miter.next();
-                attributeIndices.clear();
-                attributes = mentry.getValue().getAttributes();
-                attributeSizes = attributes.size();
-                
-                for (int k = 0; k < attributeSizes; ++k) {
-                    if (selectedAttributes.contains(attributes.get(k).getName())) {
-                        attributeIndices.add(k);
-                    }
+        while (citer.hasNext()) {
+            final DbcChannel channel = citer.next().getValue();
+            final Iterator<Map.Entry<Long, DbcMessage>> miter = channel.getMessages().entrySet().iterator();
+            while (miter.hasNext()) {
+                final Map.Entry<Long, DbcMessage> mentry = miter.next();
+                final int[] indices = mentry.getValue().indicesOf(selectedAttributes);
+                if (indices.length == 0) {
+                    miter.remove(); //no match, clear the entire message
+                } else if (indices.length != mentry.getValue().size()) {
+                    mentry.setValue(mentry.getValue().project(indices));
                 }
-                
-                indexSize = attributeIndices.size();
-                if (indexSize == 0) {
-                    //no match, clear the entire message
-                    unselectedMessages.add(mentry.getKey());
-                } else if (indexSize != attributeSizes) {
-                    //some match, reconstruct the attributes
-                    final List<DbcAttribute> newAttributes = new ArrayList<DbcAttribute>();
-                    for (int l = 0, v = attributeIndices.size(); l < v; ++l) {
-                        newAttributes.add(attributes.get(attributeIndices.get(l)));
-                    }
-                    mentry.getValue().setAttributes(newAttributes);
-                }
-            }
-            
-            //clear all empty messages
-            for (int j = 0, t = unselectedMessages.size(); j < t; ++j) {
-                messages.remove(unselectedMessages.get(j));
             }
+            channel.reindex();
             
             //if no messages left, then clear the channel too
-            if (messages.size() == 0) {
-                unselectedChannels.add(centry.getKey());
+            if (channel.size() == 0) {
+                citer.remove();
             }
         }
-        
-        //clear all empty channels
-        for (int i = 0, s = unselectedChannels.size(); i < s; ++i) {
-            channels.remove(unselectedChannels.get(i));
+        table = null;
+    }
+    
+    /**
+     * Set how frames repeating the previous payload of the same channel and message ID are handled.
+     * Repeats are tracked per decoder instance, use <code>clone()</code> for each decoding thread.
+     * 
+     * @param repeatMode the repeat mode
+     */
+    public void setRepeatMode(final DbcRepeatMode repeatMode) {
+        this.repeatMode = repeatMode != null ? repeatMode : DbcRepeatMode.DECODE;
+        this.payloads = null;
+    }
+    
+    public DbcRepeatMode getRepeatMode() {
+        return repeatMode;
+    }
+    
+    private DbcPayloadCache payloads() {
+        if (payloads == null) {
+            payloads = new DbcPayloadCache(repeatMode);
+        }
+        return payloads;
+    }
+    
+    private DbcMessageTable table() {
+        ChannelTable t = table;
+        if (t == null || t.isStale()) {
+            table = t = new ChannelTable(channels);
         }
+        return t.table;
+    }
+    
+    /**
+     * Rebuild the lookup table on next decode.  Must be called after modifying the map returned by
+     * <code>getChannels()</code>, changes of the messages of a channel are tracked by the channel.
+     */
+    public void reindex() {
+        this.table = null;
     }
     
     public LinkedHashMap<Integer, DbcChannel> getChannels() {
@@ -164,7 +269,11 @@ public class DbcChannelMessageDecoder implements MessageDecoder {
     }
     
     public void setChannels(final Map<Integer, DbcChannel> channels) {
-        this.channels = new LinkedHashMap<>(channels);
+        this.channels = new LinkedHashMap<>();
+        for (final Map.Entry<Integer, DbcChannel> entry : channels.entrySet()) {
+            this.channels.put(entry.getKey(), stamp(entry.getValue()));
+        }
+        this.table = null;
     }
     
     public boolean containsChannel(final int channelID) {
@@ -176,11 +285,13 @@ public class DbcChannelMessageDecoder implements MessageDecoder {
     }
     
     public void addChannel(final DbcChannel channel) {
-        channels.put(channel.getChannelID(), channel);
+        channels.put(channel.getChannelID(), stamp(channel));
+        table = null;
     }
     
     public void removeChannel(final int channelID) {
         channels.remove(channelID);
+        table = null;
     }
     
     public int size() {
@@ -189,5 +300,33 @@ public class DbcChannelMessageDecoder implements MessageDecoder {
     
     public void clear() {
         channels.clear();
+        table = null;
+    }
+    
+    /**
+     * The composite table with the modification counts of the indexed channels, stale once a channel changes.
+     */
+    private static final class ChannelTable {
+        private final DbcMessageTable table;
+        private final DbcChannel[] channels;
+        private final int[] modCounts;
+        
+        private ChannelTable(final LinkedHashMap<Integer, DbcChannel> channels) {
+            this.channels = channels.values().toArray(new DbcChannel[channels.size()]);
+            this.modCounts = new int[this.channels.length];
+            for (int i = 0; i < this.channels.length; ++i) {
+                this.modCounts[i] = this.channels[i].modCount();
+            }
+            this.table = DbcMessageTable.ofChannels(channels);
+        }
+        
+        private boolean isStale() {
+            for (int i = 0; i < channels.length; ++i) {
+                if (channels[i].modCount() != modCounts[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
@@ -0,0 +1,97 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import com.exceeddata.ac.common.message.MessageContent;
+import com.exceeddata.ac.common.message.MessageDesc;
+
+/**
+ * A batch of columnar decode outputs, one {@link DbcMessageColumns} per decoded DBC message in order of
+ * first appearance.  Frames without a DBC definition are counted but not stored.
+ *
+ */
+public final class DbcColumnBatch implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final IdentityHashMap<DbcMessage, DbcMessageColumns> index = new IdentityHashMap<>();
+    private final List<DbcMessageColumns> columns = new ArrayList<>();
+    private DbcMessage lastMessage = null;
+    private DbcMessageColumns lastColumns = null;
+    private int unmatched = 0;
+
+    public DbcColumnBatch() {}
+
+    /**
+     * Append a frame to the columns of its message, or count it as unmatched if message is null.
+     *
+     * @param message the DBC message, may be null
+     * @param desc the message desc
+     * @param content the message content
+     */
+    public void append(final DbcMessage message, final MessageDesc desc, final MessageContent content) {
+        if (message == null) {
+            ++unmatched;
+            return;
+        }
+
+        //periodic traces often repeat the same message, skip the map lookup for runs
+        DbcMessageColumns c = lastMessage == message ? lastColumns : index.get(message);
+        if (c == null) {
+            c = new DbcMessageColumns(message);
+            index.put(message, c);
+            columns.add(c);
+        }
+        lastMessage = message;
+        lastColumns = c;
+        c.append(desc, content);
+    }
+
+    /**
+     * Finish all message columns, applying factor and offset if requested.
+     *
+     * @param applyFormula whether to apply formula
+     * @return DbcColumnBatch
+     */
+    public DbcColumnBatch finish(final boolean applyFormula) {
+        for (int i = 0, s = columns.size(); i < s; ++i) {
+            columns.get(i).finish(applyFormula);
+        }
+        return this;
+    }
+
+    /**
+     * Return the message columns in order of first appearance.
+     *
+     * @return List
+     */
+    public List<DbcMessageColumns> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * Return the columns of a message, or null if no frame of the message was decoded.
+     *
+     * @param message the DBC message
+     * @return DbcMessageColumns
+     */
+    public DbcMessageColumns getColumns(final DbcMessage message) {
+        return index.get(message);
+    }
+
+    /**
+     * Return the number of frames without a DBC definition.
+     *
+     * @return int
+     */
+    public int getUnmatched() {
+        return unmatched;
+    }
+
+    public int size() {
+        return columns.size();
+    }
+}
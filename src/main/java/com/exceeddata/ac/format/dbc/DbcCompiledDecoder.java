@@ -0,0 +1,347 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.exception.EngineException;
+import com.exceeddata.ac.common.message.MessageContent;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.common.message.MessageDesc;
+
+/**
+ * An immutable compiled form of a DBC decoder that can be shared by many decoding threads without locks.
+ *
+ * <p>Compiling takes a private copy of every channel, message and signal attribute of the source
+ * decoder and prebuilds the message templates, so later changes to the source decoder or its
+ * attributes (such as <code>select</code> or <code>setMultiplier</code>) do not leak into the compiled
+ * decoder.  Signal attributes are stateless while decoding, so the compiled decoder holds no per-thread
+ * scratch state and <code>clone()</code> simply returns the same instance.</p>
+ *
+ */
+public final class DbcCompiledDecoder implements MessageDecoder {
+    private static final long serialVersionUID = 1L;
+
+    private final MessageDecoder decoder;
+    private final boolean consolidated;
+    private final boolean outputOffset;
+    private final boolean timeNanos;
+    private final List<DbcMessage> messages;
+    private final DbcFieldIndex fields;
+
+    private DbcCompiledDecoder(
+            final MessageDecoder decoder,
+            final boolean consolidated,
+            final List<DbcMessage> messages,
+            final DbcFieldIndex fields) {
+        this.decoder = decoder;
+        this.consolidated = consolidated;
+        this.outputOffset = decoder.getOutputOffset();
+        this.timeNanos = consolidated ? ((DbcConsolidateMessageDecoder) decoder).isTimeNanos() : ((DbcChannelMessageDecoder) decoder).isTimeNanos();
+        this.messages = Collections.unmodifiableList(messages);
+        this.fields = fields != null ? fields : DbcFieldIndex.assign(outputOffset, timeNanos, messages);
+    }
+
+    /**
+     * Compile a channel or consolidate DBC decoder into a shareable immutable decoder, tabulating small
+     * signals with the default bit width and memory ceiling of {@link DbcValueTables}.
+     *
+     * @param decoder the source decoder
+     * @return DbcCompiledDecoder
+     * @throws EngineException if the decoder is not a DBC message decoder
+     */
+    public static DbcCompiledDecoder compile(final MessageDecoder decoder) throws EngineException {
+        return compile(decoder, DbcValueTables.DEFAULT_BITS, DbcValueTables.DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Compile a channel or consolidate DBC decoder into a shareable immutable decoder.  Signals up to
+     * <code>tableBits</code> wide get precomputed value tables within <code>tableBytes</code> of memory.
+     * The tables are held by the compiled copies of the signal attributes, the source decoder keeps none.
+     *
+     * @param decoder the source decoder
+     * @param tableBits the widest signal to tabulate, 0 to disable tables
+     * @param tableBytes the memory ceiling of the tables
+     * @return DbcCompiledDecoder
+     * @throws EngineException if the decoder is not a DBC message decoder
+     */
+    public static DbcCompiledDecoder compile(final MessageDecoder decoder, final int tableBits, final long tableBytes) throws EngineException {
+        if (decoder instanceof DbcCompiledDecoder) {
+            return (DbcCompiledDecoder) decoder;
+        }
+        
+        final DbcCompiledDecoder compiled = copy(decoder);
+        DbcValueTables.tabulate(compiled.messages, tableBits, tableBytes);
+        return compiled;
+    }
+
+    private static DbcCompiledDecoder copy(final MessageDecoder decoder) throws EngineException {
+
+        final List<DbcMessage> messages = new ArrayList<>();
+        if (decoder instanceof DbcChannelMessageDecoder) {
+            final DbcChannelMessageDecoder source = (DbcChannelMessageDecoder) decoder;
+            final DbcChannelMessageDecoder compiled = new DbcChannelMessageDecoder(source.getOutputOffset());
+            compiled.setTimeNanos(source.isTimeNanos());
+            for (final DbcChannel channel : source.getChannels().values()) {
+                final DbcChannel copy = new DbcChannel();
+                copy.setChannelID(channel.getChannelID());
+                for (final DbcMessage message : channel.getMessages().values()) {
+                    final DbcMessage m = compileMessage(message, source.isTimeNanos());
+                    copy.addMessage(m);
+                    messages.add(m);
+                }
+                compiled.addChannel(copy);
+            }
+            return new DbcCompiledDecoder(compiled, false, messages, null);
+        } else if (decoder instanceof DbcConsolidateMessageDecoder) {
+            final DbcConsolidateMessageDecoder source = (DbcConsolidateMessageDecoder) decoder;
+            final DbcConsolidateMessageDecoder compiled = new DbcConsolidateMessageDecoder(source.getOutputOffset());
+            compiled.setTimeNanos(source.isTimeNanos());
+            for (final Map.Entry<Long, DbcMessage> entry : source.getMessages().entrySet()) {
+                final DbcMessage m = compileMessage(entry.getValue(), source.isTimeNanos());
+                compiled.addMessage(m);
+                messages.add(m);
+            }
+            return new DbcCompiledDecoder(compiled, true, messages, null);
+        }
+
+        throw new EngineException("FORMAT_DBC_DECODER_NOT_COMPILABLE: " + (decoder == null ? "null" : decoder.getClass().getName()));
+    }
+
+    private static DbcMessage compileMessage(final DbcMessage message, final boolean timeNanos) {
+        final DbcMessage m = message.deepCopy(); //no tables nor later attribute changes of the source
+        m.setTimeNanos(timeNanos); //a private copy, stamped before the decoder would copy it again
+        m.getTemplate(); //prebuild so that decoding threads never race on it
+        return m;
+    }
+
+    @Override
+    public boolean getOutputOffset() {
+        return outputOffset;
+    }
+
+    /**
+     * Return whether the time is output as epoch nanoseconds, as set on the source decoder.
+     *
+     * @return true or false
+     */
+    public boolean isTimeNanos() {
+        return timeNanos;
+    }
+
+    /**
+     * Return the same instance, the compiled decoder is immutable and shareable.
+     *
+     * @return DbcCompiledDecoder
+     */
+    @Override
+    public DbcCompiledDecoder clone() {
+        return this;
+    }
+
+    @Override
+    public Record compute(final MessageDesc desc, final MessageContent message, final boolean applyFormula) {
+        return decoder.compute(desc, message, applyFormula);
+    }
+
+    @Override
+    public Record compute(
+            final MessageDesc desc,
+            final MessageContent message,
+            final Record target,
+            final boolean applyFormula) {
+        return decoder.compute(desc, message, target, applyFormula);
+    }
+
+    @Override
+    public Record decode(final MessageDesc desc, final MessageContent message) {
+        return decoder.decode(desc, message);
+    }
+
+    @Override
+    public Record decode(
+            final MessageDesc desc,
+            final MessageContent message,
+            final Record target) {
+        return decoder.decode(desc, message, target);
+    }
+
+    @Override
+    public Record interpret(final MessageDesc desc, final MessageContent message) {
+        return decoder.interpret(desc, message);
+    }
+
+    @Override
+    public Record interpret(
+            final MessageDesc desc,
+            final MessageContent message,
+            final Record target) {
+        return decoder.interpret(desc, message, target);
+    }
+
+    /**
+     * Return a view of a frame decoding each signal only when it is read.
+     *
+     * @param desc the message desc
+     * @param message the message content
+     * @param applyFormula whether to apply formula
+     * @return DbcRecordView or null if the message is not defined or the bytes are short
+     */
+    public DbcRecordView view(final MessageDesc desc, final MessageContent message, final boolean applyFormula) {
+        return consolidated
+                ? ((DbcConsolidateMessageDecoder) decoder).view(desc, message, applyFormula)
+                : ((DbcChannelMessageDecoder) decoder).view(desc, message, applyFormula);
+    }
+
+    /**
+     * Decode a frame into a sparse row of positions in the wide schema of {@link #getFieldIndex()}.
+     *
+     * @param desc the message desc
+     * @param message the message content
+     * @param target the row to reuse
+     * @param applyFormula whether to apply formula
+     * @return the target, or null if the message is not defined or the bytes are short
+     */
+    public DbcSparseRow sparse(
+            final MessageDesc desc,
+            final MessageContent message,
+            final DbcSparseRow target,
+            final boolean applyFormula) {
+        final DbcMessage dbc = consolidated
+                ? ((DbcConsolidateMessageDecoder) decoder).lookup(message)
+                : ((DbcChannelMessageDecoder) decoder).lookup(message);
+        return dbc != null ? dbc.sparse(desc, message, target, applyFormula) : null;
+    }
+
+    /**
+     * Decode a batch of frames into per-message primitive columns.
+     *
+     * @param desc the message desc
+     * @param messages the frames
+     * @param applyFormula whether to apply formula
+     * @return DbcColumnBatch
+     */
+    public DbcColumnBatch decodeBatch(
+            final MessageDesc desc,
+            final List<? extends MessageContent> messages,
+            final boolean applyFormula) {
+        return consolidated
+                ? ((DbcConsolidateMessageDecoder) decoder).decodeBatch(desc, messages, applyFormula)
+                : ((DbcChannelMessageDecoder) decoder).decodeBatch(desc, messages, applyFormula);
+    }
+
+    /**
+     * A compiled decoder is shared by decoding threads and never modified, so selection is applied
+     * before compiling, or by {@link #view(Set)} which returns a selected decoder.  An empty selection
+     * is accepted as a no-op.
+     *
+     * @param selectedAttributes the selected attributes
+     * @throws RuntimeException FORMAT_DBC_DECODER_COMPILED_IMMUTABLE for a non-empty selection
+     */
+    @Override
+    public void select(final Set<String> selectedAttributes) {
+        if (selectedAttributes == null || selectedAttributes.size() == 0) {
+            return;
+        }
+        throw new RuntimeException("FORMAT_DBC_DECODER_COMPILED_IMMUTABLE: use view(Set) to select attributes");
+    }
+
+    /**
+     * Return a projection view of this decoder decoding only the selected attributes.  The view shares
+     * the signal attributes and fully selected messages of this decoder, and holds its own
+     * projected copies of partially selected messages, so concurrent queries with different selections
+     * share one model in memory.  Neither decoder is modified.
+     *
+     * @param selectedAttributes the selected attributes, null or empty for this decoder
+     * @return DbcCompiledDecoder
+     */
+    public DbcCompiledDecoder view(final Set<String> selectedAttributes) {
+        if (selectedAttributes == null || selectedAttributes.size() == 0) {
+            return this;
+        }
+
+        final List<DbcMessage> projected = new ArrayList<>();
+        if (consolidated) {
+            final DbcConsolidateMessageDecoder view = new DbcConsolidateMessageDecoder(outputOffset);
+            view.setTimeNanos(timeNanos);
+            for (final DbcMessage message : ((DbcConsolidateMessageDecoder) decoder).getMessages().values()) {
+                final DbcMessage m = viewMessage(message, selectedAttributes);
+                if (m != null) {
+                    view.addMessage(m);
+                    projected.add(m);
+                }
+            }
+            return new DbcCompiledDecoder(view, true, projected, fields);
+        }
+
+        final DbcChannelMessageDecoder view = new DbcChannelMessageDecoder(outputOffset);
+        view.setTimeNanos(timeNanos);
+        for (final DbcChannel channel : ((DbcChannelMessageDecoder) decoder).getChannels().values()) {
+            final DbcChannel copy = new DbcChannel();
+            copy.setChannelID(channel.getChannelID());
+            for (final DbcMessage message : channel.getMessages().values()) {
+                final DbcMessage m = viewMessage(message, selectedAttributes);
+                if (m != null) {
+                    copy.addMessage(m);
+                    projected.add(m);
+                }
+            }
+            if (copy.size() > 0) {
+                view.addChannel(copy);
+            }
+        }
+        return new DbcCompiledDecoder(view, false, projected, fields);
+    }
+
+    private static DbcMessage viewMessage(final DbcMessage message, final Set<String> selectedAttributes) {
+        final int[] indices = message.indicesOf(selectedAttributes);
+        if (indices.length == 0) {
+            return null;
+        } else if (indices.length == message.size()) {
+            return message;
+        }
+        final DbcMessage m = message.project(indices);
+        m.getTemplate(); //prebuild so that decoding threads never race on it
+        return m;
+    }
+
+    /**
+     * Return whether the compiled decoder consolidates the messages of all channels.
+     *
+     * @return true or false
+     */
+    public boolean isConsolidated() {
+        return consolidated;
+    }
+
+    /**
+     * Return the compiled messages in DBC order.  The messages must be treated as read-only.
+     *
+     * @return List
+     */
+    public List<DbcMessage> getMessages() {
+        return messages;
+    }
+
+    /**
+     * Return the field index of the wide schema of this decoder, assigned when compiling.  Projection
+     * views share the index of the decoder they are viewed from, so field positions stay stable
+     * across views.
+     *
+     * @return DbcFieldIndex
+     */
+    public DbcFieldIndex getFieldIndex() {
+        return fields;
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    MessageDecoder getDecoder() {
+        return decoder;
+    }
+}
@@ -1,6 +1,5 @@
 package com.exceeddata.ac.format.dbc;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -16,7 +15,11 @@ public class DbcConsolidateMessageDecoder implements MessageDecoder {
     private static final long serialVersionUID = 1L;
     
     private LinkedHashMap<Long, DbcMessage> messages;
+    private transient volatile DbcMessageTable table = null; //built on first lookup
+    private DbcRepeatMode repeatMode = DbcRepeatMode.DECODE;
+    private transient DbcPayloadCache payloads = null; //per instance, never shared by clones
     private boolean outputOffset;
+    private boolean timeNanos = false;
     
     public DbcConsolidateMessageDecoder() {
         this(false);
@@ -30,6 +33,8 @@ public class DbcConsolidateMessageDecoder implements MessageDecoder {
     private DbcConsolidateMessageDecoder(final DbcConsolidateMessageDecoder decoder) {
         this.messages = new LinkedHashMap<>(decoder.messages);
         this.outputOffset = decoder.outputOffset;
+        this.timeNanos = decoder.timeNanos;
+        this.repeatMode = decoder.repeatMode;
     }
     
     @Override
@@ -41,6 +46,35 @@ public class DbcConsolidateMessageDecoder implements MessageDecoder {
         this.outputOffset = outputOffset;
     }
     
+    public boolean isTimeNanos() {
+        return timeNanos;
+    }
+    
+    /**
+     * Set whether the messages output the time as epoch nanoseconds in a long instead of an instant, see
+     * {@link DbcMessage#setTimeNanos(boolean)}.  Messages of the other time output, added before or
+     * after, are replaced by copies, so decoders and clones sharing the messages are not affected.  Set
+     * it before decoding.
+     * 
+     * @param timeNanos whether to output epoch nanoseconds
+     */
+    public void setTimeNanos(final boolean timeNanos) {
+        this.timeNanos = timeNanos;
+        for (final Map.Entry<Long, DbcMessage> entry : messages.entrySet()) {
+            entry.setValue(stamp(entry.getValue()));
+        }
+        table = null;
+    }
+    
+    private DbcMessage stamp(final DbcMessage message) {
+        if (message.isTimeNanos() == timeNanos) {
+            return message;
+        }
+        final DbcMessage copy = message.copy();
+        copy.setTimeNanos(timeNanos);
+        return copy;
+    }
+    
     @Override
     public DbcConsolidateMessageDecoder clone() {
         return new DbcConsolidateMessageDecoder(this);
@@ -66,8 +100,11 @@ public class DbcConsolidateMessageDecoder implements MessageDecoder {
     
     @Override
     public Record decode(final MessageDesc desc, final MessageContent message) {
-        final DbcMessage dbc = messages.get(message.getMessageID());
-        return dbc != null ? dbc.decode(desc, message) : null;
+        final DbcMessage dbc = table().get(message.getMessageID());
+        if (dbc == null) {
+            return null;
+        }
+        return repeatMode == DbcRepeatMode.DECODE ? dbc.decode(desc, message) : payloads().decode(dbc, desc, message, null, true);
     }
     
     @Override
@@ -75,14 +112,20 @@ public class DbcConsolidateMessageDecoder implements MessageDecoder {
             final MessageDesc desc, 
             final MessageContent message,
             final Record target) {
-        final DbcMessage dbc = messages.get(message.getMessageID());
-        return dbc != null ? dbc.decode(desc, message, target) : null;
+        final DbcMessage dbc = table().get(message.getMessageID());
+        if (dbc == null) {
+            return null;
+        }
+        return repeatMode == DbcRepeatMode.DECODE ? dbc.decode(desc, message, target) : payloads().decode(dbc, desc, message, target, true);
     }
     
     @Override
     public Record interpret(final MessageDesc desc, final MessageContent message) {
-        final DbcMessage dbc = messages.get(message.getMessageID());
-        return dbc != null ? dbc.interpret(desc, message) : null;
+        final DbcMessage dbc = table().get(message.getMessageID());
+        if (dbc == null) {
+            return null;
+        }
+        return repeatMode == DbcRepeatMode.DECODE ? dbc.interpret(desc, message) : payloads().decode(dbc, desc, message, null, false);
     }
     
     @Override
@@ -90,67 +133,131 @@ public class DbcConsolidateMessageDecoder implements MessageDecoder {
             final MessageDesc desc, 
             final MessageContent message,
             final Record target) {
-        final DbcMessage dbc = messages.get(message.getMessageID());
-        return dbc != null ? dbc.interpret(desc, message, target) : null;
+        final DbcMessage dbc = table().get(message.getMessageID());
+        if (dbc == null) {
+            return null;
+        }
+        return repeatMode == DbcRepeatMode.DECODE ? dbc.interpret(desc, message, target) : payloads().decode(dbc, desc, message, target, false);
     }
     
+    /**
+     * Return a view of a frame decoding each signal only when it is read.  Repeated payloads are not
+     * tracked by views.
+     * 
+     * @param desc the message desc
+     * @param message the message content
+     * @param applyFormula whether to apply formula
+     * @return DbcRecordView or null if the message is not defined or the bytes are short
+     */
+    public DbcRecordView view(final MessageDesc desc, final MessageContent message, final boolean applyFormula) {
+        final DbcMessage dbc = lookup(message);
+        return dbc != null ? dbc.view(desc, message, applyFormula) : null;
+    }
+    
+    DbcMessage lookup(final MessageContent message) {
+        return table().get(message.getMessageID());
+    }
+    
+    /**
+     * Decode a batch of frames into per-message primitive columns, without creating a record per frame.
+     * 
+     * @param desc the message desc
+     * @param messages the frames
+     * @param applyFormula whether to apply formula
+     * @return DbcColumnBatch
+     */
+    public DbcColumnBatch decodeBatch(
+            final MessageDesc desc, 
+            final List<? extends MessageContent> messages,
+            final boolean applyFormula) {
+        final DbcMessageTable t = table();
+        final DbcColumnBatch batch = new DbcColumnBatch();
+        MessageContent message;
+        for (int i = 0, s = messages.size(); i < s; ++i) {
+            message = messages.get(i);
+            batch.append(t.get(message.getMessageID()), desc, message);
+        }
+        return batch.finish(applyFormula);
+    }
+    
+    /**
+     * Select attributes by compiling a projection per message.  Each partially selected message is replaced
+     * in this decoder by a projected copy holding only the selected signals, and messages without any
+     * selected signal are removed, so their frames are rejected at lookup.  The original messages are
+     * never modified.
+     * 
+     * @param selectedAttributes the selected attributes
+     */
     @Override
     public void select(final Set<String> selectedAttributes) {
         if (selectedAttributes == null || selectedAttributes.size() == 0) {
             return;
         }
         
-        final ArrayList<Long> unselectedMessages = new ArrayList<>();
-        final ArrayList<Integer> attributeIndices = new ArrayList<>();
         final Iterator<Map.Entry<Long, DbcMessage>> miter = messages.entrySet().iterator();
-        List<DbcAttribute> attributes = null;
-        int attributeSizes = 0, indexSize = 0;
-        Map.Entry<Long, DbcMessage> mentry;
-        
-        for (int j = 0, t = messages.size(); j < t; ++j) {
-            mentry = miter.next();
-            attributeIndices.clear();
-            attributes = mentry.getValue().getAttributes();
-            attributeSizes = attributes.size();
-            
-            for (int k = 0; k < attributeSizes; ++k) {
-                if (selectedAttributes.contains(attributes.get(k).getName())) {
-                    attributeIndices.add(k);
-                }
-            }
-            
-            indexSize = attributeIndices.size();
-            if (indexSize == 0) {
-                //no match, clear the entire message
-                unselectedMessages.add(mentry.getKey());
-            } else if (indexSize != attributeSizes) {
-                //some match, reconstruct the attributes
-                final List<DbcAttribute> newAttributes = new ArrayList<DbcAttribute>();
-                for (int l = 0, v = attributeIndices.size(); l < v; ++l) {
-                    newAttributes.add(attributes.get(attributeIndices.get(l)));
-                }
-                mentry.getValue().setAttributes(newAttributes);
+        while (miter.hasNext()) {
+            final Map.Entry<Long, DbcMessage> mentry = miter.next();
+            final int[] indices = mentry.getValue().indicesOf(selectedAttributes);
+            if (indices.length == 0) {
+                miter.remove(); //no match, clear the entire message
+            } else if (indices.length != mentry.getValue().size()) {
+                mentry.setValue(mentry.getValue().project(indices));
             }
         }
-        
-        //clear all empty messages
-        for (int j = 0, t = unselectedMessages.size(); j < t; ++j) {
-            messages.remove(unselectedMessages.get(j));
-        }
+        table = null;
     }
     
     public void addChannel(final DbcChannel channel) {
         for (final DbcMessage message : channel.getMessages().values()) {
             if (!messages.containsKey(message.getMessageID())) { //respect the dbc order in case of duplicate id
-                messages.put(message.getMessageID(), message);
+                messages.put(message.getMessageID(), stamp(message));
             }
         }
+        table = null;
     }
     
     public void addMessage(final DbcMessage message) {
         if (!messages.containsKey(message.getMessageID())) { //respect the dbc order in case of duplicate id
-            messages.put(message.getMessageID(), message);
+            messages.put(message.getMessageID(), stamp(message));
+        }
+        table = null;
+    }
+    
+    /**
+     * Set how frames repeating the previous payload of the same channel and message ID are handled.
+     * Repeats are tracked per decoder instance, use <code>clone()</code> for each decoding thread.
+     * 
+     * @param repeatMode the repeat mode
+     */
+    public void setRepeatMode(final DbcRepeatMode repeatMode) {
+        this.repeatMode = repeatMode != null ? repeatMode : DbcRepeatMode.DECODE;
+        this.payloads = null;
+    }
+    
+    public DbcRepeatMode getRepeatMode() {
+        return repeatMode;
+    }
+    
+    private DbcPayloadCache payloads() {
+        if (payloads == null) {
+            payloads = new DbcPayloadCache(repeatMode);
         }
+        return payloads;
+    }
+    
+    private DbcMessageTable table() {
+        DbcMessageTable t = table;
+        if (t == null) {
+            table = t = DbcMessageTable.of(messages);
+        }
+        return t;
+    }
+    
+    /**
+     * Rebuild the lookup table on next decode.  Must be called after modifying the map returned by <code>getMessages()</code>.
+     */
+    public void reindex() {
+        this.table = null;
     }
     
     public LinkedHashMap<Long, DbcMessage> getMessages() {
@@ -163,5 +270,6 @@ public class DbcConsolidateMessageDecoder implements MessageDecoder {
     
     public void clear() {
         messages.clear();
+        table = null;
     }
 }
@@ -189,15 +189,40 @@ public class DbcDelegatorMessage implements DbcDelegator {
             final boolean useQualifiedName,
             final boolean applyFormula) {
         final String sg_name, sg_start, sg_len, sg_endian, sg_factor, sg_offset, sg_min, sg_max;
-        int index = 4;
+        int index = 4, multiplexValue = -1;
+        boolean multiplexor = false;
         String remains = line.substring(index);
         
         if ((index = remains.indexOf(':')) <= 0) {
             throw new RuntimeException("FORMAT_DBC_MESSAGE_UNEXPECTED: " + line);
         }
-        sg_name = remains.substring(0, index).trim();
+        final String[] sg_names = remains.substring(0, index).trim().split("\\s+");
+        sg_name = sg_names[0];
         remains = remains.substring(index + 1);
         
+        if (sg_names.length > 2) {
+            throw new RuntimeException("FORMAT_DBC_MESSAGE_UNEXPECTED: " + line);
+        } else if (sg_names.length == 2) { //multiplex indicator: M, mN or mNM
+            String mux = sg_names[1];
+            if (mux.endsWith("M")) {
+                multiplexor = true;
+                mux = mux.substring(0, mux.length() - 1);
+            }
+            if (mux.length() != 0) {
+                if (mux.length() < 2 || mux.charAt(0) != 'm') {
+                    throw new RuntimeException("FORMAT_DBC_MESSAGE_UNEXPECTED: " + line);
+                }
+                try {
+                    multiplexValue = Integer.parseInt(mux.substring(1));
+                } catch (NumberFormatException e) {
+                    throw new RuntimeException("FORMAT_DBC_MESSAGE_UNEXPECTED: " + line);
+                }
+                if (multiplexValue < 0) {
+                    throw new RuntimeException("FORMAT_DBC_MESSAGE_UNEXPECTED: " + line);
+                }
+            }
+        }
+        
         if ((index = remains.indexOf('|')) <= 0) {
             throw new RuntimeException("FORMAT_DBC_MESSAGE_UNEXPECTED: " + line);
         }
@@ -254,9 +279,6 @@ public class DbcDelegatorMessage implements DbcDelegator {
         final BigDecimal offset = !applyFormula || "0".equals(sg_offset) ? BigDecimal.ZERO : new BigDecimal(sg_offset); //if not formula set offset to 0
         final BigDecimal minValue = "0".equals(sg_min) ? BigDecimal.ZERO : new BigDecimal(sg_min);
         final BigDecimal maxValue = "1".equals(sg_max) ? BigDecimal.ONE : new BigDecimal(sg_max);
-        final boolean whole = factor.scale() <= 0 && offset.scale() <= 0 && minValue.scale() <=0 && maxValue.scale() <= 0;
-        final int maxIntBits = signed ? 32 : 31;
-        final int maxLongBits = signed ? 64 : 63;
         
         String unit = null;
         if (remains.length() != 0) {
@@ -268,6 +290,43 @@ public class DbcDelegatorMessage implements DbcDelegator {
             }
         }
         
+        return buildAttribute(name, unit, startBit, bitLength, order, signed, factor, offset, minValue, maxValue, multiplexValue, multiplexor);
+    }
+    
+    /**
+     * Build the attribute of parsed signal fields, choosing the narrowest attribute type of the value range.
+     * 
+     * @param name the attribute name
+     * @param unit the unit, or null
+     * @param startBit the start bit
+     * @param bitLength the bit length
+     * @param order the byte order
+     * @param signed whether signed
+     * @param factor the factor, 1 if formula is not applied
+     * @param offset the offset, 0 if formula is not applied
+     * @param minValue the minimum value
+     * @param maxValue the maximum value
+     * @param multiplexValue the multiplex value, or -1 if not multiplexed
+     * @param multiplexor whether the signal is a multiplexor
+     * @return DbcAttribute
+     */
+    public static DbcAttribute buildAttribute(
+            final String name,
+            final String unit,
+            final int startBit,
+            final int bitLength,
+            final DbcByteOrder order,
+            final boolean signed,
+            final BigDecimal factor,
+            final BigDecimal offset,
+            final BigDecimal minValue,
+            final BigDecimal maxValue,
+            final int multiplexValue,
+            final boolean multiplexor) {
+        final boolean whole = factor.scale() <= 0 && offset.scale() <= 0 && minValue.scale() <=0 && maxValue.scale() <= 0;
+        final int maxIntBits = signed ? 32 : 31;
+        final int maxLongBits = signed ? 64 : 63;
+        
         if (whole) {
             if (bitLength <= maxLongBits) {
                 if (bitLength > maxIntBits) {
@@ -282,7 +341,7 @@ public class DbcDelegatorMessage implements DbcDelegator {
                     attribute.setAdjustment(offset.longValue());
                     attribute.setMinValue(minValue.longValue());
                     attribute.setMaxValue(maxValue.longValue());
-                    return attribute;
+                    return multiplex(attribute, multiplexValue, multiplexor);
                 } else {
                     final DbcAttributeInteger attribute = new DbcAttributeInteger();
                     attribute.setName(name);
@@ -295,7 +354,7 @@ public class DbcDelegatorMessage implements DbcDelegator {
                     attribute.setAdjustment(offset.intValue());
                     attribute.setMinValue(minValue.intValue());
                     attribute.setMaxValue(maxValue.intValue());
-                    return attribute;
+                    return multiplex(attribute, multiplexValue, multiplexor);
                 }
             } else {
                 final DbcAttributeDecimal attribute = new DbcAttributeDecimal();
@@ -309,7 +368,7 @@ public class DbcDelegatorMessage implements DbcDelegator {
                 attribute.setAdjustment(offset);
                 attribute.setMinValue(minValue);
                 attribute.setMaxValue(maxValue);
-                return attribute;
+                return multiplex(attribute, multiplexValue, multiplexor);
             }
         }
         
@@ -324,6 +383,62 @@ public class DbcDelegatorMessage implements DbcDelegator {
         attribute.setAdjustment(offset);
         attribute.setMinValue(minValue);
         attribute.setMaxValue(maxValue);
+        return multiplex(attribute, multiplexValue, multiplexor);
+    }
+    
+    /**
+     * Rebuild an attribute for its <code>SIG_VALTYPE_</code>.  IEEE float and double signals become
+     * double attributes decoding their raw bits, integer signals are returned as is.
+     * 
+     * @param attribute the attribute
+     * @param valueType the value type
+     * @return DbcAttribute
+     */
+    public static DbcAttribute buildValueType(final DbcAttribute attribute, final int valueType) {
+        if (valueType == DbcAttributeDouble.VALUE_TYPE_INTEGER) {
+            return attribute;
+        }
+        
+        final DbcAttributeDouble ieee = new DbcAttributeDouble();
+        ieee.setName(attribute.getName());
+        ieee.setUnit(attribute.getUnit());
+        ieee.setStartBit(attribute.getStartBit());
+        ieee.setLength(attribute.getLength());
+        ieee.setOrder(attribute.getByteOrder());
+        ieee.setSigned(attribute.isSigned());
+        ieee.setMultiplier(attribute.getMultiplier());
+        ieee.setAdjustment(attribute.getAdjustment());
+        ieee.setMinValue(minValueOf(attribute));
+        ieee.setMaxValue(maxValueOf(attribute));
+        ieee.setValueType(valueType);
+        return multiplex(ieee, attribute.getMultiplexValue(), attribute.isMultiplexor());
+    }
+    
+    static BigDecimal minValueOf(final DbcAttribute attribute) {
+        if (attribute instanceof DbcAttributeInteger) {
+            return BigDecimal.valueOf(((DbcAttributeInteger) attribute).getMinValue());
+        } else if (attribute instanceof DbcAttributeLong) {
+            return BigDecimal.valueOf(((DbcAttributeLong) attribute).getMinValue());
+        } else if (attribute instanceof DbcAttributeDecimal) {
+            return ((DbcAttributeDecimal) attribute).getMinValue();
+        }
+        return ((DbcAttributeDouble) attribute).getMinValue();
+    }
+    
+    static BigDecimal maxValueOf(final DbcAttribute attribute) {
+        if (attribute instanceof DbcAttributeInteger) {
+            return BigDecimal.valueOf(((DbcAttributeInteger) attribute).getMaxValue());
+        } else if (attribute instanceof DbcAttributeLong) {
+            return BigDecimal.valueOf(((DbcAttributeLong) attribute).getMaxValue());
+        } else if (attribute instanceof DbcAttributeDecimal) {
+            return ((DbcAttributeDecimal) attribute).getMaxValue();
+        }
+        return ((DbcAttributeDouble) attribute).getMaxValue();
+    }
+    
+    private static DbcAttribute multiplex(final DbcAttribute attribute, final int multiplexValue, final boolean multiplexor) {
+        attribute.setMultiplexValue(multiplexValue);
+        attribute.setMultiplexor(multiplexor);
         return attribute;
     }
 }
@@ -0,0 +1,118 @@
+package com.exceeddata.ac.format.dbc;
+
+import static com.exceeddata.ac.common.message.MessageConstants.OFFSET;
+import static com.exceeddata.ac.common.message.MessageConstants.OFFSET_HASH;
+import static com.exceeddata.ac.common.message.MessageConstants.TIME;
+import static com.exceeddata.ac.common.message.MessageConstants.TIME_HASH;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.data.typedata.DecimalData;
+import com.exceeddata.ac.common.data.typedata.DoubleData;
+import com.exceeddata.ac.common.data.typedata.InstantData;
+import com.exceeddata.ac.common.data.typedata.IntData;
+import com.exceeddata.ac.common.data.typedata.LongData;
+import com.exceeddata.ac.common.data.typedata.TypeData;
+
+/**
+ * A stable position index of the wide schema of all messages of a decoder: the time, the offset if
+ * output, then every distinct signal name in DBC order.  Signals of the same name in several messages
+ * share one position.  Indexing assigns each message the positions of its template fields, so decoded
+ * frames can be emitted as {@link DbcSparseRow} and merged into wide records by position.
+ *
+ * <p>An index is immutable once built and safe to share across threads.</p>
+ *
+ */
+public final class DbcFieldIndex implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final HashMap<String, Integer> positions;
+    private final Record template;
+
+    private DbcFieldIndex(final HashMap<String, Integer> positions, final Record template) {
+        this.positions = positions;
+        this.template = template;
+    }
+
+    /**
+     * Index the messages and assign each its field positions.  The messages must not be shared with
+     * decoders of another index.
+     *
+     * @param outputOffset whether the messages output offset
+     * @param timeNanos whether the messages output the time as epoch nanoseconds
+     * @param messages the messages in DBC order
+     * @return DbcFieldIndex
+     */
+    static DbcFieldIndex assign(final boolean outputOffset, final boolean timeNanos, final List<DbcMessage> messages) {
+        final HashMap<String, Integer> positions = new HashMap<>();
+        final Record template = new Record();
+        positions.put(TIME, 0);
+        template.add(TIME, TIME_HASH, timeNanos ? LongData.NULL : InstantData.NULL);
+        if (outputOffset) {
+            positions.put(OFFSET, 1);
+            template.add(OFFSET, OFFSET_HASH, LongData.NULL);
+        }
+
+        final int base = outputOffset ? 2 : 1;
+        for (final DbcMessage message : messages) {
+            final List<DbcAttribute> attributes = message.getAttributes();
+            final int[] fields = new int[base + attributes.size()];
+            for (int i = 1; i < base; ++i) {
+                fields[i] = i;
+            }
+            for (int i = 0, s = attributes.size(); i < s; ++i) {
+                final DbcAttribute attribute = attributes.get(i);
+                Integer position = positions.get(attribute.getName());
+                if (position == null) {
+                    positions.put(attribute.getName(), position = template.size());
+                    template.add(attribute.getName(), attribute.getHash(), nullOf(attribute));
+                }
+                fields[base + i] = position;
+            }
+            message.setFieldPositions(fields);
+        }
+        return new DbcFieldIndex(positions, template);
+    }
+
+    private static TypeData nullOf(final DbcAttribute attribute) {
+        if (attribute instanceof DbcAttributeLong) {
+            return LongData.NULL;
+        } else if (attribute instanceof DbcAttributeInteger) {
+            return IntData.NULL;
+        } else if (attribute instanceof DbcAttributeDouble) {
+            return DoubleData.NULL;
+        }
+        return DecimalData.NULL;
+    }
+
+    /**
+     * Return the position of a field in the wide schema.
+     *
+     * @param name the field name
+     * @return the position, or -1 if not found
+     */
+    public int positionOf(final String name) {
+        final Integer position = positions.get(name);
+        return position != null ? position.intValue() : -1;
+    }
+
+    public String nameAt(final int position) {
+        return template.nameAt(position);
+    }
+
+    public int size() {
+        return template.size();
+    }
+
+    /**
+     * Return a new wide record of all fields set to typed nulls, to materialize sparse rows into.
+     *
+     * @return Record
+     */
+    public Record newRecord() {
+        return template.dataCopy();
+    }
+}
@@ -0,0 +1,418 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.message.MessageDecoder;
+
+/**
+ * A generator of specialized straight-line decoder classes per DBC message.
+ *
+ * <p>For each message a Java class is generated with the byte window, shift, mask, factor and offset of
+ * every signal folded in as constants, compiled in memory with the system Java compiler, and loaded
+ * through a private class loader.  The generated kernel is installed on the message with
+ * {@link DbcMessage#setKernel(DbcMessageKernel)}, which removes the per-signal interface dispatch from
+ * the decode loop.  The signal attributes must not be modified while a kernel is installed.</p>
+ *
+ * <p>Generation is optional.  When no system compiler is available (for example on a JRE) or the
+ * compilation fails, no kernel is installed and messages keep decoding on the interpreted path.</p>
+ *
+ */
+public final class DbcKernelGenerator {
+    private DbcKernelGenerator() {}
+
+    private static final String PACKAGE = "com.exceeddata.ac.format.dbc.kernel";
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    /**
+     * Return whether kernel generation is available in this JVM.
+     *
+     * @return true or false
+     */
+    public static boolean isAvailable() {
+        return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    /**
+     * Generate and install kernels for all messages of a channel, consolidate or compiled decoder.
+     *
+     * @param decoder the decoder
+     * @return the number of messages with an installed kernel, 0 if generation is unavailable
+     */
+    public static int generate(final MessageDecoder decoder) {
+        final List<DbcMessage> messages = new ArrayList<>();
+        if (decoder instanceof DbcChannelMessageDecoder) {
+            for (final DbcChannel channel : ((DbcChannelMessageDecoder) decoder).getChannels().values()) {
+                messages.addAll(channel.getMessages().values());
+            }
+        } else if (decoder instanceof DbcConsolidateMessageDecoder) {
+            messages.addAll(((DbcConsolidateMessageDecoder) decoder).getMessages().values());
+        } else if (decoder instanceof DbcCompiledDecoder) {
+            messages.addAll(((DbcCompiledDecoder) decoder).getMessages());
+        }
+        return generate(messages);
+    }
+
+    /**
+     * Generate and install kernels for the messages, compiled together in one compilation.  Multiplexed
+     * messages are skipped, their interpreted path already decodes only the active page.
+     *
+     * @param all the messages
+     * @return the number of messages with an installed kernel, 0 if generation is unavailable
+     */
+    public static int generate(final List<DbcMessage> all) {
+        final List<DbcMessage> messages = new ArrayList<>(all.size());
+        for (final DbcMessage message : all) {
+            if (!message.isMultiplexed()) {
+                messages.add(message);
+            }
+        }
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null || messages.size() == 0) {
+            return 0;
+        }
+
+        final List<JavaFileObject> sources = new ArrayList<>(messages.size());
+        final String[] classNames = new String[messages.size()];
+        for (int i = 0, s = messages.size(); i < s; ++i) {
+            final String simpleName = "Kernel" + SEQUENCE.incrementAndGet();
+            classNames[i] = PACKAGE + "." + simpleName;
+            sources.add(new SourceObject(classNames[i], toSource(simpleName, messages.get(i))));
+        }
+
+        final Map<String, byte[]> classes = compile(compiler, sources);
+        if (classes == null) {
+            return 0;
+        }
+
+        final KernelClassLoader loader = new KernelClassLoader(DbcMessageKernel.class.getClassLoader(), classes);
+        int installed = 0;
+        for (int i = 0, s = messages.size(); i < s; ++i) {
+            final DbcMessage message = messages.get(i);
+            try {
+                final List<DbcAttribute> attributes = message.getAttributes();
+                final DbcMessageKernel kernel = (DbcMessageKernel) loader.loadClass(classNames[i])
+                        .getConstructor(DbcAttribute[].class)
+                        .newInstance((Object) attributes.toArray(new DbcAttribute[attributes.size()]));
+                message.setKernel(kernel);
+                ++installed;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                //keep the interpreted path for this message
+            }
+        }
+        return installed;
+    }
+
+    private static Map<String, byte[]> compile(final JavaCompiler compiler, final List<JavaFileObject> sources) {
+        final Map<String, ByteArrayOutputStream> outputs = new HashMap<>();
+        final StandardJavaFileManager standard = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        final JavaFileManager manager = new ForwardingJavaFileManager<JavaFileManager>(standard) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(
+                    final Location location,
+                    final String className,
+                    final JavaFileObject.Kind kind,
+                    final FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                        outputs.put(className, stream);
+                        return stream;
+                    }
+                };
+            }
+        };
+
+        final List<String> options = Arrays.asList("-classpath", classpath(), "-g:none", "-nowarn", "-proc:none");
+        final Boolean success;
+        try {
+            success = compiler.getTask(new StringWriter(), manager, null, options, null, sources).call();
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (success == null || !success.booleanValue()) {
+            return null;
+        }
+
+        final Map<String, byte[]> classes = new HashMap<>();
+        for (final Map.Entry<String, ByteArrayOutputStream> entry : outputs.entrySet()) {
+            classes.put(entry.getKey(), entry.getValue().toByteArray());
+        }
+        return classes;
+    }
+
+    private static String classpath() {
+        final StringBuilder sb = new StringBuilder(System.getProperty("java.class.path", ""));
+        for (final Class<?> c : new Class<?>[] {DbcMessageKernel.class, Record.class}) {
+            try {
+                final CodeSource source = c.getProtectionDomain().getCodeSource();
+                final URL location = source != null ? source.getLocation() : null;
+                if (location != null && "file".equals(location.getProtocol())) {
+                    sb.append(File.pathSeparatorChar).append(new File(location.toURI()).getPath());
+                }
+            } catch (Exception e) {
+                //fall back to the system class path
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Generate the kernel source of a message.
+     *
+     * @param simpleName the class simple name
+     * @param message the message
+     * @return String
+     */
+    static String toSource(final String simpleName, final DbcMessage message) {
+        final List<DbcAttribute> attributes = message.getAttributes();
+        final StringBuilder fields = new StringBuilder(1024);
+        final StringBuilder names = new StringBuilder(512);
+        final StringBuilder assigns = new StringBuilder(1024);
+        final StringBuilder body = new StringBuilder(4096);
+        final StringBuilder fill = new StringBuilder(4096);
+
+        for (int i = 0, s = attributes.size(); i < s; ++i) {
+            final DbcAttribute attribute = attributes.get(i);
+            final String value = valueOf(attribute, i, fields);
+            //names are taken from the attributes so they stay identical to the template names
+            names.append("    private final String n").append(i).append(";\n");
+            assigns.append("        this.n").append(i).append(" = a[").append(i).append("].getName();\n");
+            body.append("        t.add(n").append(i).append(", ").append(attribute.getHash()).append(", ").append(value).append(");\n");
+            fill.append("        t.setAt(p + ").append(i).append(", ").append(value).append(");\n");
+        }
+
+        return new StringBuilder(fields.length() + names.length() + assigns.length() + body.length() + fill.length() + 1024)
+                .append("package ").append(PACKAGE).append(";\n\n")
+                .append("import java.math.BigDecimal;\n")
+                .append("import com.exceeddata.ac.common.data.record.Record;\n")
+                .append("import com.exceeddata.ac.common.data.typedata.*;\n")
+                .append("import com.exceeddata.ac.format.dbc.*;\n\n")
+                .append("/* generated for DBC message ").append(message.getMessageID()).append(" */\n")
+                .append("public final class ").append(simpleName).append(" implements DbcMessageKernel {\n")
+                .append(fields)
+                .append(names)
+                .append("    private final DbcAttribute[] a;\n\n")
+                .append("    public ").append(simpleName).append("(final DbcAttribute[] a) {\n")
+                .append("        this.a = a;\n")
+                .append(assigns)
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public void decode(final byte[] b, final Record t) {\n")
+                .append(body)
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public void decode(final byte[] b, final Record t, final int p) {\n")
+                .append(fill)
+                .append("    }\n")
+                .append("}\n")
+                .toString();
+    }
+
+    private static String valueOf(final DbcAttribute attribute, final int index, final StringBuilder fields) {
+        final int length = attribute.getLength();
+        if (!DbcSignalLayout.supports(length)) {
+            return "a[" + index + "].decode(b)";
+        }
+
+        if (length == 1) {
+            return flag(attribute, index, fields);
+        }
+
+        final DbcSignalLayout layout = new DbcSignalLayout(attribute.getStartBit(), length, attribute.getByteOrder(), attribute.isSigned());
+        final String raw = extraction(layout);
+
+        if (attribute instanceof DbcAttributeInteger) {
+            final int factor = attribute.getMultiplier().intValue();
+            final int offset = attribute.getAdjustment().intValue();
+            return "IntData.nonNullValueOf(" + scaleWhole("(int) " + raw, String.valueOf(factor), String.valueOf(offset), factor == 1, offset == 0) + ")";
+        } else if (attribute instanceof DbcAttributeLong) {
+            final long factor = attribute.getMultiplier().longValue();
+            final long offset = attribute.getAdjustment().longValue();
+            return "LongData.nonNullValueOf(" + scaleWhole(raw, factor + "L", offset + "L", factor == 1l, offset == 0l) + ")";
+        } else if (attribute instanceof DbcAttributeDouble) {
+            final int valueType = ((DbcAttributeDouble) attribute).getValueType();
+            if (valueType != DbcAttributeDouble.VALUE_TYPE_INTEGER) {
+                final String bits = valueType == DbcAttributeDouble.VALUE_TYPE_FLOAT
+                        ? "Float.intBitsToFloat((int) " + raw + ")"
+                        : "Double.longBitsToDouble(" + raw + ")";
+                final double factor = attribute.getMultiplier().doubleValue();
+                final double offset = attribute.getAdjustment().doubleValue();
+                return "DoubleData.nonNullValueOf(" + scaleWhole(bits, Double.toHexString(factor), Double.toHexString(offset),
+                        BigDecimal.ONE.compareTo(attribute.getMultiplier()) == 0, attribute.getAdjustment().signum() == 0) + ")";
+            }
+            if (((DbcAttributeDouble) attribute).isDoubleScaled()) {
+                return "DoubleData.nonNullValueOf(" + raw + " * " + Double.toHexString(attribute.getMultiplier().doubleValue())
+                        + " + " + Double.toHexString(attribute.getAdjustment().doubleValue()) + ")";
+            }
+            return "DoubleData.nonNullValueOf(" + scaleDecimal(attribute, index, raw, fields) + ".doubleValue())";
+        } else if (attribute instanceof DbcAttributeDecimal) {
+            final DbcAttributeDecimal decimal = (DbcAttributeDecimal) attribute;
+            if (decimal.isFixedPoint()) {
+                final long factor = decimal.unscaled(1l) - decimal.unscaled(0l), offset = decimal.unscaled(0l);
+                return "new DecimalData(BigDecimal.valueOf(" + scaleWhole(raw, factor + "L", offset + "L", factor == 1l, offset == 0l)
+                        + ", " + decimal.getFixedScale() + "))";
+            }
+            return "new DecimalData(" + scaleDecimal(attribute, index, raw, fields) + ")";
+        }
+        return "a[" + index + "].decode(b)";
+    }
+
+    private static String flag(final DbcAttribute attribute, final int index, final StringBuilder fields) {
+        final BigDecimal factor = attribute.getMultiplier();
+        final BigDecimal offset = attribute.getAdjustment();
+        final String zero, one;
+        if (attribute instanceof DbcAttributeInteger) {
+            zero = "IntData.valueOf(" + offset.intValue() + ")";
+            one = "IntData.valueOf(" + (factor.intValue() + offset.intValue()) + ")";
+        } else if (attribute instanceof DbcAttributeLong) {
+            zero = "LongData.valueOf(" + offset.longValue() + "L)";
+            one = "LongData.valueOf(" + (factor.longValue() + offset.longValue()) + "L)";
+        } else if (attribute instanceof DbcAttributeDouble) {
+            zero = "DoubleData.nonNullValueOf(" + Double.toHexString(offset.doubleValue()) + ")";
+            one = "DoubleData.nonNullValueOf(" + Double.toHexString(factor.add(offset).doubleValue()) + ")";
+        } else if (attribute instanceof DbcAttributeDecimal) {
+            zero = "DecimalData.valueOf(new BigDecimal(\"" + offset.toString() + "\"))";
+            one = "DecimalData.valueOf(new BigDecimal(\"" + factor.add(offset).toString() + "\"))";
+        } else {
+            return "a[" + index + "].decode(b)";
+        }
+
+        fields.append("    private static final TypeData Z").append(index).append(" = ").append(zero).append(";\n");
+        fields.append("    private static final TypeData N").append(index).append(" = ").append(one).append(";\n");
+        final int startBit = attribute.getStartBit();
+        return "((b[" + (startBit >> 3) + "] & " + (1 << (startBit & 7)) + ") != 0 ? N" + index + " : Z" + index + ")";
+    }
+
+    private static String scaleWhole(final String raw, final String factor, final String offset, final boolean oneFactor, final boolean zeroOffset) {
+        final StringBuilder sb = new StringBuilder(raw.length() + 32);
+        sb.append(raw);
+        if (!oneFactor) {
+            sb.append(" * ").append(factor);
+        }
+        if (!zeroOffset) {
+            sb.append(" + ").append(offset);
+        }
+        return sb.toString();
+    }
+
+    private static String scaleDecimal(final DbcAttribute attribute, final int index, final String raw, final StringBuilder fields) {
+        final BigDecimal factor = attribute.getMultiplier();
+        final BigDecimal offset = attribute.getAdjustment();
+        final StringBuilder sb = new StringBuilder(raw.length() + 64);
+        sb.append("BigDecimal.valueOf(").append(raw).append(")");
+        if (BigDecimal.ONE.compareTo(factor) != 0) {
+            fields.append("    private static final BigDecimal F").append(index).append(" = new BigDecimal(\"").append(factor.toString()).append("\");\n");
+            sb.append(".multiply(F").append(index).append(")");
+        }
+        if (offset.signum() != 0) {
+            fields.append("    private static final BigDecimal O").append(index).append(" = new BigDecimal(\"").append(offset.toString()).append("\");\n");
+            sb.append(".add(O").append(index).append(")");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Generate the expression of a raw value extraction with all positions folded in.
+     *
+     * @param layout the layout
+     * @return String
+     */
+    static String extraction(final DbcSignalLayout layout) {
+        final int start = layout.getWindowStart();
+        final int count = layout.getWindowBytes();
+        final int shift = layout.getShift();
+        final int length = layout.getLength();
+        final boolean motorola = layout.getOrder() == DbcByteOrder.MOTOROLA;
+
+        if (count <= 8) {
+            final StringBuilder window = new StringBuilder(count * 24);
+            for (int k = 0; k < count; ++k) {
+                final int index = motorola ? start + k : start + count - 1 - k; //most significant byte first
+                final int bits = 8 * (count - 1 - k);
+                if (k > 0) {
+                    window.append(" | ");
+                }
+                window.append(bits > 0 ? "((b[" + index + "] & 0xffL) << " + bits + ")" : "(b[" + index + "] & 0xffL)");
+            }
+            if (layout.isSigned()) {
+                final int left = 64 - length - shift;
+                return "(((" + window + ")" + (left > 0 ? " << " + left : "") + ")" + (length < 64 ? " >> " + (64 - length) : "") + ")";
+            }
+            return "(((" + window + ")" + (shift > 0 ? " >>> " + shift : "") + ")" + (length < 64 ? " & 0x" + Long.toHexString(layout.getMask()) + "L" : "") + ")";
+        }
+
+        //9 bytes, fold the extra byte beyond the 64-bit window
+        final StringBuilder window = new StringBuilder(256);
+        final int extra = motorola ? start : start + 8;
+        for (int k = 0; k < 8; ++k) {
+            final int index = motorola ? start + 1 + k : start + 7 - k;
+            if (k > 0) {
+                window.append(" | ");
+            }
+            window.append(k < 7 ? "((b[" + index + "] & 0xffL) << " + (8 * (7 - k)) + ")" : "(b[" + index + "] & 0xffL)");
+        }
+        final String raw = "(((" + window + ") >>> " + shift + ") | ((b[" + extra + "] & 0xffL) << " + (64 - shift) + "))";
+        if (layout.isSigned() || length == 64) {
+            return length < 64 ? "((" + raw + " << " + (64 - length) + ") >> " + (64 - length) + ")" : raw;
+        }
+        return "(" + raw + " & 0x" + Long.toHexString(layout.getMask()) + "L)";
+    }
+
+    private static final class SourceObject extends SimpleJavaFileObject {
+        private final String source;
+
+        SourceObject(final String className, final String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    private static final class KernelClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        KernelClassLoader(final ClassLoader parent, final Map<String, byte[]> classes) {
+            super(parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(final String name) throws ClassNotFoundException {
+            final byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
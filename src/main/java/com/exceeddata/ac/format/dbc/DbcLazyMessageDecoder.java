@@ -0,0 +1,286 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.exception.EngineException;
+import com.exceeddata.ac.common.message.MessageContent;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.common.message.MessageDesc;
+
+/**
+ * A consolidated DBC decoder that parses the signals of a message only when its ID is first decoded or
+ * prepared.  Startup indexes the byte offsets of the <code>BO_</code> blocks, so startup time and memory
+ * follow the message IDs actually seen rather than the size of the DBC files.  Undefined IDs resolve by
+ * a direct array or a binary search over the index and never parse.
+ *
+ * <p>Messages are materialized at most once per decoder and its clones, and are safe to decode from
+ * multiple threads.  The decoder holds its DBC sources, memory-mapped for files, and is not meant to
+ * be serialized.</p>
+ *
+ */
+public final class DbcLazyMessageDecoder implements MessageDecoder {
+    private static final long serialVersionUID = 1L;
+    private static final DbcMessage UNDEFINED = new DbcMessage(); //slot defined by blocks without signals
+
+    private final transient DbcMessageIndex index;
+    private final boolean useQualifiedName;
+    private final boolean applyFormula;
+    private final boolean outputOffset;
+    private boolean timeNanos = false;
+    private Set<String> selectedAttributes = null;
+    private transient volatile AtomicReferenceArray<DbcMessage> messages; //by slot, shared with clones
+
+    private DbcLazyMessageDecoder(
+            final DbcMessageIndex index,
+            final boolean useQualifiedName,
+            final boolean applyFormula,
+            final boolean outputOffset) {
+        this.index = index;
+        this.useQualifiedName = useQualifiedName;
+        this.applyFormula = applyFormula;
+        this.outputOffset = outputOffset;
+        this.messages = new AtomicReferenceArray<>(index.size());
+    }
+
+    private DbcLazyMessageDecoder(final DbcLazyMessageDecoder decoder) {
+        this.index = decoder.index;
+        this.useQualifiedName = decoder.useQualifiedName;
+        this.applyFormula = decoder.applyFormula;
+        this.outputOffset = decoder.outputOffset;
+        this.timeNanos = decoder.timeNanos;
+        this.selectedAttributes = decoder.selectedAttributes;
+        this.messages = decoder.messages;
+    }
+
+    /**
+     * Index DBC files, numbering channels from 1 in path order.
+     *
+     * @param paths the DBC file paths, blank paths allowed
+     * @param useQualifiedName whether to construct qualified names
+     * @param applyFormula whether to apply formula
+     * @param outputOffset whether to output offset
+     * @return DbcLazyMessageDecoder
+     * @throws EngineException if a file cannot be read
+     */
+    public static DbcLazyMessageDecoder ofFiles(
+            final String[] paths,
+            final boolean useQualifiedName,
+            final boolean applyFormula,
+            final boolean outputOffset) throws EngineException {
+        return new DbcLazyMessageDecoder(DbcMessageIndex.ofFiles(paths), useQualifiedName, applyFormula, outputOffset);
+    }
+
+    /**
+     * Index DBC file contents, numbering channels from 1 in list order.
+     *
+     * @param contents the DBC file contents
+     * @param useQualifiedName whether to construct qualified names
+     * @param applyFormula whether to apply formula
+     * @param outputOffset whether to output offset
+     * @return DbcLazyMessageDecoder
+     */
+    public static DbcLazyMessageDecoder ofContents(
+            final List<String> contents,
+            final boolean useQualifiedName,
+            final boolean applyFormula,
+            final boolean outputOffset) {
+        return new DbcLazyMessageDecoder(DbcMessageIndex.ofContents(contents), useQualifiedName, applyFormula, outputOffset);
+    }
+
+    @Override
+    public boolean getOutputOffset() {
+        return outputOffset;
+    }
+
+    public boolean isTimeNanos() {
+        return timeNanos;
+    }
+
+    /**
+     * Set whether the messages output the time as epoch nanoseconds in a long instead of an instant, see
+     * {@link DbcMessage#setTimeNanos(boolean)}.  Like <code>select</code>, changing it discards the
+     * messages materialized so far by this decoder, its clones keep theirs.
+     *
+     * @param timeNanos whether to output epoch nanoseconds
+     */
+    public void setTimeNanos(final boolean timeNanos) {
+        if (this.timeNanos != timeNanos) {
+            this.timeNanos = timeNanos;
+            this.messages = new AtomicReferenceArray<>(index.size());
+        }
+    }
+
+    @Override
+    public DbcLazyMessageDecoder clone() {
+        return new DbcLazyMessageDecoder(this);
+    }
+
+    @Override
+    public Record compute(final MessageDesc desc, final MessageContent message, final boolean applyFormula) {
+        return applyFormula ? decode(desc, message) : interpret(desc, message);
+    }
+
+    @Override
+    public Record compute(
+            final MessageDesc desc,
+            final MessageContent message,
+            final Record target,
+            final boolean applyFormula) {
+        return applyFormula ? decode(desc, message, target) : interpret(desc, message, target);
+    }
+
+    @Override
+    public Record decode(final MessageDesc desc, final MessageContent message) {
+        final DbcMessage dbc = get(message.getMessageID());
+        return dbc != null ? dbc.decode(desc, message) : null;
+    }
+
+    @Override
+    public Record decode(final MessageDesc desc, final MessageContent message, final Record target) {
+        final DbcMessage dbc = get(message.getMessageID());
+        return dbc != null ? dbc.decode(desc, message, target) : null;
+    }
+
+    @Override
+    public Record interpret(final MessageDesc desc, final MessageContent message) {
+        final DbcMessage dbc = get(message.getMessageID());
+        return dbc != null ? dbc.interpret(desc, message) : null;
+    }
+
+    @Override
+    public Record interpret(final MessageDesc desc, final MessageContent message, final Record target) {
+        final DbcMessage dbc = get(message.getMessageID());
+        return dbc != null ? dbc.interpret(desc, message, target) : null;
+    }
+
+    /**
+     * Select attributes.  Messages are projected to the selected signals as they are materialized, and
+     * messages without any selected signal decode to null.  Selecting discards the messages materialized
+     * so far by this decoder, its clones keep theirs.
+     *
+     * @param selectedAttributes the selected attributes
+     */
+    @Override
+    public void select(final Set<String> selectedAttributes) {
+        if (selectedAttributes == null || selectedAttributes.size() == 0) {
+            return;
+        }
+        this.selectedAttributes = new HashSet<>(selectedAttributes);
+        this.messages = new AtomicReferenceArray<>(index.size());
+    }
+
+    /**
+     * Materialize the messages of a set of IDs ahead of decoding, such as the IDs of a pre-scanned trace.
+     *
+     * @param messageIDs the message IDs
+     * @return the number of IDs with a message
+     */
+    public int prepare(final long... messageIDs) {
+        int defined = 0;
+        for (final long messageID : messageIDs) {
+            if (get(messageID) != null) {
+                ++defined;
+            }
+        }
+        return defined;
+    }
+
+    /**
+     * Get the message of an ID, materializing it on first use.
+     *
+     * @param messageID the message ID
+     * @return DbcMessage or null if not defined
+     */
+    public DbcMessage get(final long messageID) {
+        final int slot = index.slot(messageID);
+        return slot >= 0 ? get(slot) : null;
+    }
+
+    private DbcMessage get(final int slot) {
+        final AtomicReferenceArray<DbcMessage> m = messages;
+        DbcMessage message = m.get(slot);
+        if (message == null) {
+            message = materialize(slot);
+            if (!m.compareAndSet(slot, null, message)) {
+                message = m.get(slot); //another thread materialized it first
+            }
+        }
+        return message != UNDEFINED ? message : null;
+    }
+
+    /**
+     * Return the messages materialized so far, in DBC order.
+     *
+     * @return List
+     */
+    public List<DbcMessage> getMessages() {
+        final AtomicReferenceArray<DbcMessage> m = messages;
+        final List<Integer> slots = new ArrayList<>();
+        for (int i = 0, s = m.length(); i < s; ++i) {
+            final DbcMessage message = m.get(i);
+            if (message != null && message != UNDEFINED) {
+                slots.add(i);
+            }
+        }
+        Collections.sort(slots, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                return Long.compare(index.order(a, m.get(a).getChannelID() - 1), index.order(b, m.get(b).getChannelID() - 1));
+            }
+        });
+
+        final List<DbcMessage> materialized = new ArrayList<>(slots.size());
+        for (final Integer slot : slots) {
+            materialized.add(m.get(slot));
+        }
+        return materialized;
+    }
+
+    /**
+     * Materialize every message defined in the DBC sources, such as for a schema that must not depend
+     * on the IDs decoded so far, and return them in DBC order.
+     *
+     * @return List
+     */
+    public List<DbcMessage> materializeAll() {
+        for (int slot = 0, s = index.size(); slot < s; ++slot) {
+            get(slot);
+        }
+        return getMessages();
+    }
+
+    /**
+     * Return the number of message IDs defined in the DBC sources, materialized or not.
+     *
+     * @return int
+     */
+    public int size() {
+        return index.size();
+    }
+
+    private DbcMessage materialize(final int slot) {
+        final DbcMessage message = index.materialize(slot, useQualifiedName, applyFormula);
+        if (message == null) {
+            return UNDEFINED;
+        }
+
+        message.setOutputOffset(outputOffset);
+        message.setTimeNanos(timeNanos);
+        if (selectedAttributes != null) {
+            final int[] indices = message.indicesOf(selectedAttributes);
+            if (indices.length == 0) {
+                return UNDEFINED;
+            } else if (indices.length != message.size()) {
+                return message.project(indices);
+            }
+        }
+        return message;
+    }
+}
@@ -6,8 +6,11 @@ import static com.exceeddata.ac.common.message.MessageConstants.TIME;
 import static com.exceeddata.ac.common.message.MessageConstants.TIME_HASH;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 
@@ -15,6 +18,7 @@ import com.exceeddata.ac.common.data.record.Record;
 import com.exceeddata.ac.common.data.typedata.InstantData;
 import com.exceeddata.ac.common.data.typedata.LongData;
 import com.exceeddata.ac.common.data.typedata.NullData;
+import com.exceeddata.ac.common.data.typedata.TypeData;
 import com.exceeddata.ac.common.message.MessageContent;
 import com.exceeddata.ac.common.message.MessageDesc;
 
@@ -27,9 +31,17 @@ public class DbcMessage implements Serializable {
     private int length = 0;
     private boolean extendedFrame = false;
     private boolean outputOffset = false;
+    private boolean timeNanos = false;
     
     private List<DbcAttribute> attributes = null;
-    private Record template = null;
+    private volatile Record template = null; //built once, published safely to concurrent decoders
+    private transient volatile DbcMessageKernel kernel = null; //optional generated decoder, not serialized
+    private int[] projection = null; //indices into the source message attributes if projected
+    private DbcAttribute hiddenMultiplexor = null; //multiplexor of the source message if projected, selects pages
+    private transient volatile InspectProjection inspected = null; //last compiled inspect selection
+    private transient volatile DbcMultiplexIndex multiplex = null; //page index, built on first use
+    private transient volatile FieldIndex fields = null; //template positions by name, for views
+    private int[] fieldPositions = null; //positions of the template fields in a DbcFieldIndex
     
     public DbcMessage() {
         this.attributes = new ArrayList<DbcAttribute>();
@@ -54,12 +66,39 @@ public class DbcMessage implements Serializable {
         this.name = message.name;
         this.length = message.length;
         this.outputOffset = message.outputOffset;
+        this.timeNanos = message.timeNanos;
         this.attributes = new ArrayList<DbcAttribute>(message.attributes);
         this.extendedFrame = message.extendedFrame;
+        this.kernel = message.kernel;
+        this.projection = message.projection;
+        this.hiddenMultiplexor = message.hiddenMultiplexor;
+        this.fieldPositions = message.fieldPositions;
+    }
+    
+    public boolean getOutputOffset() {
+        return outputOffset;
     }
     
     public void setOutputOffset(final boolean outputOffset) {
         this.outputOffset = outputOffset;
+        this.template = null;
+        this.fieldPositions = null;
+    }
+    
+    public boolean isTimeNanos() {
+        return timeNanos;
+    }
+    
+    /**
+     * Set whether to output the time as epoch nanoseconds in a long instead of an instant, which saves
+     * creating an <code>Instant</code> per frame.  Use {@link DbcUtils#toInstant(long)} to materialize
+     * the instant when needed.  Not for messages shared with other decoders, whose
+     * <code>setTimeNanos</code> copies the messages instead.
+     * 
+     * @param timeNanos whether to output epoch nanoseconds
+     */
+    public void setTimeNanos(final boolean timeNanos) {
+        this.timeNanos = timeNanos;
     }
     
     @Override
@@ -71,26 +110,230 @@ public class DbcMessage implements Serializable {
         return new DbcMessage(this);
     }
     
+    /**
+     * Copy the message together with its attributes, so that later changes to this message or its
+     * attributes do not affect the copy.  The attribute copies have no value tables.
+     * 
+     * @return DbcMessage
+     */
+    public DbcMessage deepCopy() {
+        final DbcMessage m = new DbcMessage(this);
+        for (int i = 0, s = m.attributes.size(); i < s; ++i) {
+            m.attributes.set(i, m.attributes.get(i).copy());
+        }
+        if (hiddenMultiplexor != null) {
+            m.hiddenMultiplexor = hiddenMultiplexor.copy();
+        }
+        return m;
+    }
+    
+    /**
+     * Compile a selection into the indices of the selected attributes, in attribute order.
+     * 
+     * @param selectedAttributes the selected attribute names
+     * @return int[], empty if no attribute is selected
+     */
+    public int[] indicesOf(final Set<String> selectedAttributes) {
+        final int[] indices = new int[attributes.size()];
+        int count = 0;
+        for (int i = 0, s = attributes.size(); i < s; ++i) {
+            if (selectedAttributes.contains(attributes.get(i).getName())) {
+                indices[count++] = i;
+            }
+        }
+        return count == indices.length ? indices : Arrays.copyOf(indices, count);
+    }
+    
+    /**
+     * Return a copy of the message holding only the attributes at the indices, so that decoding touches
+     * only the selected signals.  A multiplexor left out still selects the active page of the copy, so
+     * signals of inactive pages stay null.  This message is not modified.
+     * 
+     * @param indices the attribute indices in ascending order
+     * @return DbcMessage
+     */
+    public DbcMessage project(final int[] indices) {
+        final List<DbcAttribute> selected = new ArrayList<DbcAttribute>(indices.length);
+        final int[] composed = new int[indices.length];
+        for (int i = 0; i < indices.length; ++i) {
+            selected.add(attributes.get(indices[i]));
+            composed[i] = projection != null ? projection[indices[i]] : indices[i];
+        }
+        
+        final DbcMultiplexIndex mux = multiplex();
+        final DbcMessage m = new DbcMessage(this);
+        m.setAttributes(selected);
+        m.projection = composed;
+        if (mux != DbcMultiplexIndex.NONE) {
+            m.hiddenMultiplexor = mux.multiplexor() >= 0 ? attributes.get(mux.multiplexor()) : hiddenMultiplexor;
+        }
+        if (fieldPositions != null) { //keep the positions of the selected fields
+            final int base = outputOffset ? 2 : 1;
+            m.fieldPositions = Arrays.copyOf(fieldPositions, base + indices.length);
+            for (int i = 0; i < indices.length; ++i) {
+                m.fieldPositions[base + i] = fieldPositions[base + indices[i]];
+            }
+        }
+        return m;
+    }
+    
+    /**
+     * Get the indices of the attributes of the original DBC message kept by projection, or null if the
+     * message is not projected.
+     * 
+     * @return int[]
+     */
+    public int[] getProjection() {
+        return projection;
+    }
+    
     public byte[] encode(final Record record) {
+        return encode(record, null);
+    }
+    
+    /**
+     * Encode the record with the attribute values at known record positions, avoiding lookups by name.
+     * 
+     * @param record the record
+     * @param positions the record position of each attribute or -1 if absent, or null to look up by name
+     * @return byte[]
+     */
+    byte[] encode(final Record record, final int[] positions) {
         final byte[] bytes = new byte[length];
-        for (final DbcAttribute attribute : attributes) {
-            attribute.encode(record.get(attribute.getName(), attribute.getHash()), bytes);
+        final DbcMultiplexIndex mux = multiplex();
+        if (mux.multiplexor() >= 0) { //the multiplexor value, encoded with the common signals, selects the page
+            encode(record, positions, bytes, mux.common());
+            encode(record, positions, bytes, mux.attributes(mux.page(bytes)));
+            return bytes;
+        }
+        
+        for (int i = 0, s = attributes.size(); i < s; ++i) {
+            encode(record, positions, bytes, i);
         }
         return bytes;
     }
     
-    public Record decode(final MessageDesc desc, final MessageContent content) {
-        if (template == null) {
-            template = new Record();
-            template.add(TIME, TIME_HASH, NullData.INSTANCE);
-            if (outputOffset) {
-                template.add(OFFSET, OFFSET_HASH, NullData.INSTANCE);
+    private void encode(final Record record, final int[] positions, final byte[] bytes, final int[] indices) {
+        for (int i = 0; i < indices.length; ++i) {
+            encode(record, positions, bytes, indices[i]);
+        }
+    }
+    
+    private void encode(final Record record, final int[] positions, final byte[] bytes, final int index) {
+        final DbcAttribute attribute = attributes.get(index);
+        if (positions == null) {
+            attribute.encode(record.get(attribute.getName(), attribute.getHash()), bytes);
+        } else {
+            attribute.encode(positions[index] >= 0 ? record.dataAt(positions[index]) : NullData.INSTANCE, bytes);
+        }
+    }
+    
+    /**
+     * Encode physical values, one per attribute in attribute order, into a payload at an offset of the
+     * bytes without allocating.  NaN values are skipped and keep the payload bits of their signal.
+     * 
+     * @param values the physical values
+     * @param bytes the bytes
+     * @param offset the offset of the payload
+     */
+    public void encode(final double[] values, final byte[] bytes, final int offset) {
+        encode(values, null, bytes, null, offset);
+    }
+    
+    /**
+     * Encode physical values, one per attribute in attribute order, into a payload at an offset of the
+     * bytes without allocating.
+     * 
+     * @param values the physical values
+     * @param bytes the bytes
+     * @param offset the offset of the payload
+     */
+    public void encode(final long[] values, final byte[] bytes, final int offset) {
+        encode(null, values, bytes, null, offset);
+    }
+    
+    /**
+     * Encode physical values into a payload at an absolute offset of the buffer, see
+     * {@link #encode(double[], byte[], int)}.  The buffer position is not changed.
+     * 
+     * @param values the physical values
+     * @param buffer the buffer
+     * @param offset the offset of the payload
+     */
+    public void encode(final double[] values, final ByteBuffer buffer, final int offset) {
+        encode(values, null, null, buffer, offset);
+    }
+    
+    /**
+     * Encode physical values into a payload at an absolute offset of the buffer, see
+     * {@link #encode(long[], byte[], int)}.  The buffer position is not changed.
+     * 
+     * @param values the physical values
+     * @param buffer the buffer
+     * @param offset the offset of the payload
+     */
+    public void encode(final long[] values, final ByteBuffer buffer, final int offset) {
+        encode(null, values, null, buffer, offset);
+    }
+    
+    private void encode(
+            final double[] doubles, 
+            final long[] longs, 
+            final byte[] bytes, 
+            final ByteBuffer buffer, 
+            final int offset) {
+        final DbcMultiplexIndex mux = multiplex();
+        if (mux.multiplexor() >= 0) { //the raw multiplexor value selects the page signals to encode
+            final int m = mux.multiplexor();
+            final int[] common = mux.common();
+            long raw = 0l;
+            for (int i = 0; i < common.length; ++i) {
+                final long r = insert(common[i], doubles, longs, bytes, buffer, offset);
+                if (common[i] == m) {
+                    raw = r;
+                }
             }
-            for (int i = 0, size = attributes.size(); i < size; ++i) {
-                template.add(attributes.get(i).getName(), attributes.get(i).getHash(), NullData.INSTANCE);
+            if (doubles == null || !Double.isNaN(doubles[m])) {
+                final int[] page = mux.attributes(mux.page(raw));
+                for (int i = 0; i < page.length; ++i) {
+                    insert(page[i], doubles, longs, bytes, buffer, offset);
+                }
             }
+            return;
+        }
+        
+        for (int i = 0, s = attributes.size(); i < s; ++i) {
+            insert(i, doubles, longs, bytes, buffer, offset);
+        }
+    }
+    
+    private long insert(
+            final int index,
+            final double[] doubles, 
+            final long[] longs, 
+            final byte[] bytes, 
+            final ByteBuffer buffer, 
+            final int offset) {
+        final DbcAttribute attribute = attributes.get(index);
+        final DbcSignalLayout layout = attribute.getLayout();
+        if (layout == null) {
+            throw new RuntimeException("FORMAT_DBC_SIGNAL_LENGTH_UNSUPPORTED: " + attribute.getName());
+        }
+        if (doubles != null && Double.isNaN(doubles[index])) {
+            return 0l;
         }
-        return decode(desc, content, template.dataCopy());
+        
+        final long raw = doubles != null ? attribute.toRaw(doubles[index]) : attribute.toRaw(longs[index]);
+        if (bytes != null) {
+            layout.insert(raw, bytes, offset);
+        } else {
+            layout.insert(raw, buffer, offset);
+        }
+        return raw;
+    }
+    
+    public Record decode(final MessageDesc desc, final MessageContent content) {
+        return decode(desc, content, getTemplate().dataCopy());
     }
     
     public Record decode(
@@ -106,11 +349,24 @@ public class DbcMessage implements Serializable {
         final long nanosOffset = content.getNanosOffset();
         DbcAttribute attribute;
         
-        target.setAt(0, start != null ? new InstantData(start.plusNanos(nanosOffset)) : InstantData.NULL);
+        target.setAt(0, time(start, nanosOffset));
         if (outputOffset) {
             target.setAt(1, new LongData(nanosOffset));
         }
         
+        final DbcMessageKernel k = kernel;
+        if (k != null) {
+            k.decode(bytes, target);
+            return target;
+        }
+        
+        final DbcMultiplexIndex mux = multiplex();
+        if (mux != DbcMultiplexIndex.NONE) {
+            decode(bytes, target, mux.common(), true);
+            decode(bytes, target, mux.attributes(mux.page(bytes)), true);
+            return target;
+        }
+        
         for (int i = 0, s = attributes.size(); i < s; ++i) {
             attribute = attributes.get(i);
             target.add(attribute.getName(), attribute.getHash(), attribute.decode(bytes));
@@ -118,18 +374,16 @@ public class DbcMessage implements Serializable {
         return target;
     }
     
-    public Record interpret(final MessageDesc desc, final MessageContent content) {
-        if (template == null) {
-            template = new Record();
-            template.add(TIME, TIME_HASH, NullData.INSTANCE);
-            if (outputOffset) {
-                template.add(OFFSET, OFFSET_HASH, NullData.INSTANCE);
-            }
-            for (int i = 0, size = attributes.size(); i < size; ++i) {
-                template.add(attributes.get(i).getName(), attributes.get(i).getHash(), NullData.INSTANCE);
-            }
+    private void decode(final byte[] bytes, final Record target, final int[] indices, final boolean applyFormula) {
+        DbcAttribute attribute;
+        for (int i = 0; i < indices.length; ++i) {
+            attribute = attributes.get(indices[i]);
+            target.add(attribute.getName(), attribute.getHash(), applyFormula ? attribute.decode(bytes) : attribute.interpret(bytes));
         }
-        return interpret(desc, content, template.dataCopy());
+    }
+    
+    public Record interpret(final MessageDesc desc, final MessageContent content) {
+        return interpret(desc, content, getTemplate().dataCopy());
     }
     
     public Record interpret(
@@ -145,11 +399,18 @@ public class DbcMessage implements Serializable {
         final long nanosOffset = content.getNanosOffset();
         DbcAttribute attribute;
         
-        target.setAt(0, start != null ? new InstantData(start.plusNanos(nanosOffset)) : InstantData.NULL);
+        target.setAt(0, time(start, nanosOffset));
         if (outputOffset) {
           target.setAt(1, new LongData(nanosOffset));
         }
         
+        final DbcMultiplexIndex mux = multiplex();
+        if (mux != DbcMultiplexIndex.NONE) {
+            decode(bytes, target, mux.common(), false);
+            decode(bytes, target, mux.attributes(mux.page(bytes)), false);
+            return target;
+        }
+        
         for (int i = 0, s = attributes.size(); i < s; ++i) {
             attribute = attributes.get(i);
             target.add(attribute.getName(), attribute.getHash(), attribute.interpret(bytes));
@@ -157,13 +418,235 @@ public class DbcMessage implements Serializable {
         return target;
     }
     
+    /**
+     * Decode into a target laid out as the template of this message, such as a record recycled by
+     * {@link DbcRecordPool}, setting every value by position so the target never grows.  Signals of
+     * inactive multiplexed pages are set to null.
+     *
+     * @param desc the message desc
+     * @param content the message content
+     * @param target a copy of the template of this message
+     * @param applyFormula whether to apply formula
+     * @return the target, or null if the bytes are shorter than the message
+     */
+    public Record fill(
+            final MessageDesc desc,
+            final MessageContent content,
+            final Record target,
+            final boolean applyFormula) {
+        final byte[] bytes = content.getData();
+        if (bytes.length < length) { //check invalid bytes, sometimes the dbc may be mismatched with bytes
+            return null;
+        }
+
+        final Instant start = desc.getTimeStart();
+        final long nanosOffset = content.getNanosOffset();
+        final int base = outputOffset ? 2 : 1;
+        DbcAttribute attribute;
+
+        target.setAt(0, time(start, nanosOffset));
+        if (outputOffset) {
+            target.setAt(1, new LongData(nanosOffset));
+        }
+
+        final DbcMessageKernel k = kernel;
+        if (applyFormula && k != null) {
+            k.decode(bytes, target, base);
+            return target;
+        }
+
+        final DbcMultiplexIndex mux = multiplex();
+        final long page = mux != DbcMultiplexIndex.NONE ? mux.page(bytes) : -1l;
+        for (int i = 0, s = attributes.size(); i < s; ++i) {
+            attribute = attributes.get(i);
+            if (page < 0l || attribute.getMultiplexValue() < 0 || attribute.getMultiplexValue() == page) {
+                target.setAt(base + i, applyFormula ? attribute.decode(bytes) : attribute.interpret(bytes));
+            } else {
+                target.setAt(base + i, NullData.INSTANCE); //clear the values of a previous page
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Return a view of a frame that decodes each signal only when it is read, for consumers reading a
+     * few signals of wide messages.  The view keeps a reference to the content bytes, which must not
+     * change while the view is in use.
+     *
+     * @param desc the message desc
+     * @param content the message content
+     * @param applyFormula whether to apply formula
+     * @return the view, or null if the bytes are shorter than the message
+     */
+    public DbcRecordView view(final MessageDesc desc, final MessageContent content, final boolean applyFormula) {
+        final byte[] bytes = content.getData();
+        if (bytes.length < length) { //check invalid bytes, sometimes the dbc may be mismatched with bytes
+            return null;
+        }
+        return new DbcRecordView(this, desc.getTimeStart(), content.getNanosOffset(), bytes, applyFormula);
+    }
+
+    /**
+     * Decode into a sparse row of the positions of the fields of this message in the wide schema of a
+     * {@link DbcFieldIndex}, for materializing by position without name lookups.  Signals of inactive
+     * multiplexed pages are left out.
+     *
+     * @param desc the message desc
+     * @param content the message content
+     * @param target the row, cleared first
+     * @param applyFormula whether to apply formula
+     * @return the target, or null if the bytes are shorter than the message
+     */
+    public DbcSparseRow sparse(
+            final MessageDesc desc,
+            final MessageContent content,
+            final DbcSparseRow target,
+            final boolean applyFormula) {
+        final int[] positions = fieldPositions;
+        if (positions == null) {
+            throw new IllegalStateException("FORMAT_DBC_FIELD_INDEX_UNASSIGNED: " + name);
+        }
+        final byte[] bytes = content.getData();
+        if (bytes.length < length) { //check invalid bytes, sometimes the dbc may be mismatched with bytes
+            return null;
+        }
+
+        final Instant start = desc.getTimeStart();
+        final long nanosOffset = content.getNanosOffset();
+        final int base = outputOffset ? 2 : 1;
+        DbcAttribute attribute;
+
+        target.clear();
+        target.add(positions[0], time(start, nanosOffset));
+        if (outputOffset) {
+            target.add(positions[1], new LongData(nanosOffset));
+        }
+
+        final DbcMultiplexIndex mux = multiplex();
+        final long page = mux != DbcMultiplexIndex.NONE ? mux.page(bytes) : -1l;
+        for (int i = 0, s = attributes.size(); i < s; ++i) {
+            attribute = attributes.get(i);
+            if (page < 0l || attribute.getMultiplexValue() < 0 || attribute.getMultiplexValue() == page) {
+                target.add(positions[base + i], applyFormula ? attribute.decode(bytes) : attribute.interpret(bytes));
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Get the positions of the template fields of the message in the wide schema of the
+     * {@link DbcFieldIndex} it was indexed by, or null if not indexed.  Must be treated as read-only.
+     *
+     * @return int[]
+     */
+    public int[] getFieldPositions() {
+        return fieldPositions;
+    }
+
+    void setFieldPositions(final int[] fieldPositions) {
+        this.fieldPositions = fieldPositions;
+    }
+
+    /**
+     * Return the output time of a frame, an instant or epoch nanoseconds.
+     *
+     * @param start the trace start time, or null
+     * @param nanosOffset the nanosecond offset to the start
+     * @return TypeData
+     */
+    TypeData time(final Instant start, final long nanosOffset) {
+        if (timeNanos) {
+            return start != null ? LongData.nonNullValueOf(DbcUtils.toEpochNanos(start) + nanosOffset) : LongData.NULL;
+        }
+        return start != null ? new InstantData(start.plusNanos(nanosOffset)) : InstantData.NULL;
+    }
+
+    /**
+     * Return the template position of a field name.
+     *
+     * @param name the name
+     * @return the position, or -1 if not found
+     */
+    int positionOf(final String name) {
+        final Record t = getTemplate(); //a new template after any attribute change
+        FieldIndex f = fields;
+        if (f == null || f.template != t) {
+            fields = f = new FieldIndex(t);
+        }
+        final Integer position = f.positions.get(name);
+        return position != null ? position.intValue() : -1;
+    }
+
+    /**
+     * Capture the decoded values of a frame of this message in attribute order, for {@link #restamp}.
+     * Signals of inactive multiplexed pages are left null as they are not decoded.
+     *
+     * @param record the decoded record
+     * @param bytes the frame bytes
+     * @param templated whether the record is laid out as the template, otherwise values are found by name
+     * @return TypeData[]
+     */
+    TypeData[] capture(final Record record, final byte[] bytes, final boolean templated) {
+        final DbcMultiplexIndex mux = multiplex();
+        final long page = mux != DbcMultiplexIndex.NONE ? mux.page(bytes) : -1l;
+        final TypeData[] values = new TypeData[attributes.size()];
+        DbcAttribute attribute;
+        for (int i = 0, base = outputOffset ? 2 : 1; i < values.length; ++i) {
+            attribute = attributes.get(i);
+            if (page < 0l || attribute.getMultiplexValue() < 0 || attribute.getMultiplexValue() == page) {
+                values[i] = templated ? record.dataAt(base + i) : record.get(attribute.getName(), attribute.getHash());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Fill the target with previously captured values of this message under the time of a new frame.
+     *
+     * @param desc the message desc
+     * @param content the message content
+     * @param values the values captured by {@link #capture}
+     * @param target the target record
+     * @return Record
+     */
+    Record restamp(
+            final MessageDesc desc,
+            final MessageContent content,
+            final TypeData[] values,
+            final Record target) {
+        final Instant start = desc.getTimeStart();
+        final long nanosOffset = content.getNanosOffset();
+        DbcAttribute attribute;
+
+        target.setAt(0, time(start, nanosOffset));
+        if (outputOffset) {
+            target.setAt(1, new LongData(nanosOffset));
+        }
+
+        for (int i = 0; i < values.length; ++i) {
+            if (values[i] != null) {
+                attribute = attributes.get(i);
+                target.add(attribute.getName(), attribute.getHash(), values[i]);
+            }
+        }
+        return target;
+    }
+
     public Record inspect(final MessageDesc desc, final MessageContent content, final Set<String> selectedAttributes) {
         return inspect(desc, content, selectedAttributes, new Record());
     }
     
     public Record inspect(final MessageDesc desc, final MessageContent content, final Set<String> selectedAttributes, final Record target) {
+        //compiled once per selection set, which must not be modified while in use
+        final Record t = getTemplate(); //a new template after any attribute change
+        InspectProjection p = inspected;
+        if (p == null || p.selected != selectedAttributes || p.template != t) {
+            inspected = p = new InspectProjection(selectedAttributes, t, indicesOf(selectedAttributes));
+        }
+        
+        final int[] indices = p.indices;
         final byte[] bytes = content.getData();
-        if (bytes.length < length) { //check invalid bytes, sometimes the dbc may be mismatched with bytes
+        if (indices.length == 0 || bytes.length < length) { //check invalid bytes, sometimes the dbc may be mismatched with bytes
             return null;
         }
         
@@ -171,20 +654,83 @@ public class DbcMessage implements Serializable {
         final long nanosOffset = content.getNanosOffset();
         DbcAttribute attribute;
         
-        target.setAt(0, start != null ? new InstantData(start.plusNanos(nanosOffset)) : InstantData.NULL);
+        target.setAt(0, time(start, nanosOffset));
         if (outputOffset) {
             target.setAt(1, new LongData(nanosOffset));
         }
 
-        for (int i = 0, s = attributes.size(); i < s; ++i) {
-            attribute = attributes.get(i);
-            if (selectedAttributes.contains(attribute.getName())) {
+        final DbcMultiplexIndex mux = multiplex();
+        final long page = mux != DbcMultiplexIndex.NONE ? mux.page(bytes) : -1l;
+        for (int i = 0; i < indices.length; ++i) {
+            attribute = attributes.get(indices[i]);
+            if (page < 0l || attribute.getMultiplexValue() < 0 || attribute.getMultiplexValue() == page) { //skip inactive pages
                 target.add(attribute.getName(), attribute.getHash(), attribute.decode(bytes));
             }
         }
         return target.size() == 2 ? null : target;    //not found
     }
     
+    /**
+     * Get the output template of the message, building it on first use.  The template is never
+     * modified after it is published, so it is safe to share across decoding threads.
+     * 
+     * @return Record
+     */
+    public Record getTemplate() {
+        Record t = template;
+        if (t == null) {
+            t = new Record();
+            t.add(TIME, TIME_HASH, NullData.INSTANCE);
+            if (outputOffset) {
+                t.add(OFFSET, OFFSET_HASH, NullData.INSTANCE);
+            }
+            for (int i = 0, size = attributes.size(); i < size; ++i) {
+                t.add(attributes.get(i).getName(), attributes.get(i).getHash(), NullData.INSTANCE);
+            }
+            template = t;
+        }
+        return t;
+    }
+    
+    /**
+     * Return whether the message has a multiplexor, in which case only the signals that are not
+     * multiplexed and the signals of the active page are decoded.  Signals of inactive pages are left as
+     * in the target, null for targets copied from the template.
+     * 
+     * @return true or false
+     */
+    public boolean isMultiplexed() {
+        return multiplex() != DbcMultiplexIndex.NONE;
+    }
+    
+    DbcMultiplexIndex multiplex() {
+        DbcMultiplexIndex m = multiplex;
+        if (m == null) {
+            multiplex = m = DbcMultiplexIndex.of(attributes, hiddenMultiplexor);
+        }
+        return m;
+    }
+    
+    /**
+     * Get the generated decoder kernel, or null if the message decodes on the interpreted path.
+     * 
+     * @return DbcMessageKernel
+     */
+    public DbcMessageKernel getKernel() {
+        return kernel;
+    }
+    
+    /**
+     * Set the generated decoder kernel.  The kernel is dropped when the attribute list changes, but it
+     * folds in the layout, factor and offset of each signal, so the attributes themselves are frozen
+     * once a kernel is set.  To modify a signal, set the kernel to null first and regenerate after.
+     * 
+     * @param kernel the kernel, or null to decode on the interpreted path
+     */
+    public void setKernel(final DbcMessageKernel kernel) {
+        this.kernel = kernel;
+    }
+    
     public int getChannelID() {
         return channelID;
     }
@@ -225,21 +771,37 @@ public class DbcMessage implements Serializable {
     public void setAttributes(final List<DbcAttribute> attributes) {
         this.attributes = attributes;
         this.template = null;
+        this.fieldPositions = null;
+        this.kernel = null;
+        this.projection = null;
+        this.multiplex = null;
     }
     
     public void addAttribute(final DbcAttribute attribute) {
         this.attributes.add(attribute);
         this.template = null;
+        this.fieldPositions = null;
+        this.kernel = null;
+        this.projection = null;
+        this.multiplex = null;
     }
     
     public void setAttribute(final int index, final DbcAttribute attribute) {
         this.attributes.set(index, attribute);
         this.template = null;
+        this.fieldPositions = null;
+        this.kernel = null;
+        this.projection = null;
+        this.multiplex = null;
     }
     
     public void removeAttribute(final int index) {
         this.attributes.remove(index);
         this.template = null;
+        this.fieldPositions = null;
+        this.kernel = null;
+        this.projection = null;
+        this.multiplex = null;
     }
     
     public int size() {
@@ -249,6 +811,10 @@ public class DbcMessage implements Serializable {
     public void clear() {
         this.attributes.clear();
         this.template = null;
+        this.fieldPositions = null;
+        this.kernel = null;
+        this.projection = null;
+        this.multiplex = null;
     }
     
     public boolean isExtendedFrame() {
@@ -258,4 +824,29 @@ public class DbcMessage implements Serializable {
     public void setExtendedFrame(final boolean extendedFrame) {
         this.extendedFrame = extendedFrame;
     }
+    
+    private static final class InspectProjection {
+        private final Set<String> selected;
+        private final Record template;
+        private final int[] indices;
+        
+        private InspectProjection(final Set<String> selected, final Record template, final int[] indices) {
+            this.selected = selected;
+            this.template = template;
+            this.indices = indices;
+        }
+    }
+
+    private static final class FieldIndex {
+        private final Record template;
+        private final HashMap<String, Integer> positions;
+
+        private FieldIndex(final Record template) {
+            this.template = template;
+            this.positions = new HashMap<>(template.size() * 2);
+            for (int i = 0, s = template.size(); i < s; ++i) {
+                positions.put(template.nameAt(i), i);
+            }
+        }
+    }
 }
@@ -0,0 +1,365 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import com.exceeddata.ac.common.message.MessageContent;
+import com.exceeddata.ac.common.message.MessageDesc;
+
+/**
+ * Columnar decode output of a single DBC message: one primitive column per signal, an epoch-nanosecond
+ * timestamp column, a nanosecond offset column and a row validity bitmap.
+ *
+ * <p>Rows are appended with raw extracted values only.  Factor and offset scaling runs afterwards in
+ * {@link #finish(boolean)} as one tight loop per column.  Whole-number signals are held in
+ * <code>long[]</code> columns and fractional signals in <code>double[]</code> columns.  Column arrays
+ * are returned as-is and may be longer than {@link #size()}.</p>
+ *
+ * <p>Signals of multiplexed pages are only extracted for rows of their page, and have their own
+ * validity bitmap, see {@link #isValid(int, int)}.</p>
+ *
+ */
+public final class DbcMessageColumns implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final long NULL_TIME = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final DbcMessage message;
+    private final DbcAttribute[] attributes;
+    private final DbcSignalLayout[] layouts;
+    private final boolean[] fractional;
+    private final int minLength;
+    private final int[] pages; //multiplex value of each column, -1 if not multiplexed
+
+    private long[][] longs;
+    private double[][] doubles;
+    private long[] times;
+    private long[] offsets;
+    private long[] validity;
+    private long[][] pageValidity; //validity of each multiplexed column, null for other columns
+    private int capacity;
+    private int size = 0;
+    private boolean finished = false;
+
+    public DbcMessageColumns(final DbcMessage message) {
+        final List<DbcAttribute> list = message.getAttributes();
+        final int width = list.size();
+
+        this.message = message;
+        this.minLength = message.getLength();
+        this.attributes = list.toArray(new DbcAttribute[width]);
+        this.layouts = new DbcSignalLayout[width];
+        this.fractional = new boolean[width];
+        this.capacity = INITIAL_CAPACITY;
+        this.longs = new long[width][];
+        this.doubles = new double[width][];
+        this.times = new long[capacity];
+        this.offsets = new long[capacity];
+        this.validity = new long[(capacity + 63) / 64];
+        final DbcMultiplexIndex mux = message.multiplex();
+        this.pages = new int[width];
+        this.pageValidity = new long[width][];
+
+        DbcAttribute attribute;
+        for (int i = 0; i < width; ++i) {
+            attribute = attributes[i];
+            if (DbcSignalLayout.supports(attribute.getLength())) {
+                //single-bit signals decode unsigned, same as the record path
+                layouts[i] = new DbcSignalLayout(
+                        attribute.getStartBit(),
+                        attribute.getLength(),
+                        attribute.getByteOrder(),
+                        attribute.isSigned() && attribute.getLength() > 1);
+                longs[i] = new long[capacity];
+            }
+            pages[i] = mux != DbcMultiplexIndex.NONE ? attribute.getMultiplexValue() : -1;
+            if (pages[i] >= 0) {
+                pageValidity[i] = new long[validity.length];
+            }
+            fractional[i] = attribute instanceof DbcAttributeDouble
+                    || !isIntegral(attribute.getMultiplier())
+                    || !isIntegral(attribute.getAdjustment());
+        }
+    }
+
+    private static boolean isIntegral(final BigDecimal value) {
+        return value.signum() == 0 || value.scale() <= 0 || value.stripTrailingZeros().scale() <= 0;
+    }
+
+    /**
+     * Append the raw signal values of a frame.  A frame shorter than the message length is appended as an invalid row.
+     *
+     * @param desc the message desc
+     * @param content the message content
+     */
+    public void append(final MessageDesc desc, final MessageContent content) {
+        if (finished) {
+            throw new IllegalStateException("FORMAT_DBC_COLUMNS_FINISHED: " + message.getName());
+        }
+        if (size == capacity) {
+            grow();
+        }
+
+        final Instant start = desc.getTimeStart();
+        final long nanosOffset = content.getNanosOffset();
+        final byte[] bytes = content.getData();
+        final int row = size++;
+
+        times[row] = start != null ? DbcUtils.toEpochNanos(start) + nanosOffset : NULL_TIME;
+        offsets[row] = nanosOffset;
+
+        if (bytes.length < minLength) { //check invalid bytes, sometimes the dbc may be mismatched with bytes
+            return;
+        }
+
+        validity[row >>> 6] |= 1l << row;
+        final DbcSignalLayout[] layouts = this.layouts;
+        final long[][] longs = this.longs;
+        final DbcMultiplexIndex mux = message.multiplex();
+        if (mux == DbcMultiplexIndex.NONE) {
+            for (int i = 0, s = layouts.length; i < s; ++i) {
+                if (layouts[i] != null) {
+                    longs[i][row] = layouts[i].extract(bytes);
+                }
+            }
+            return;
+        }
+
+        final long page = mux.page(bytes);
+        for (int i = 0, s = layouts.length; i < s; ++i) {
+            if (pages[i] < 0) {
+                if (layouts[i] != null) {
+                    longs[i][row] = layouts[i].extract(bytes);
+                }
+            } else if (pages[i] == page) { //signals of inactive pages are left out, same as the record path
+                pageValidity[i][row >>> 6] |= 1l << row;
+                if (layouts[i] != null) {
+                    longs[i][row] = layouts[i].extract(bytes);
+                }
+            }
+        }
+    }
+
+    private void grow() {
+        capacity = capacity * 2;
+        for (int i = 0; i < longs.length; ++i) {
+            if (longs[i] != null) {
+                longs[i] = Arrays.copyOf(longs[i], capacity);
+            }
+        }
+        times = Arrays.copyOf(times, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        validity = Arrays.copyOf(validity, (capacity + 63) / 64);
+        for (int i = 0; i < pageValidity.length; ++i) {
+            if (pageValidity[i] != null) {
+                pageValidity[i] = Arrays.copyOf(pageValidity[i], validity.length);
+            }
+        }
+    }
+
+    /**
+     * Finish appending and apply the factor and offset to every column.  Without formula the columns keep
+     * the raw values and every signal but IEEE float and double signals stays in a <code>long[]</code> column.
+     *
+     * @param applyFormula whether to apply formula
+     * @return DbcMessageColumns
+     */
+    public DbcMessageColumns finish(final boolean applyFormula) {
+        if (finished) {
+            return this;
+        }
+        finished = true;
+
+        final int rows = size;
+        for (int i = 0; i < attributes.length; ++i) {
+            final long[] raw = longs[i];
+            if (raw == null) {
+                continue;
+            }
+
+            if (attributes[i] instanceof DbcAttributeDouble
+                    && ((DbcAttributeDouble) attributes[i]).getValueType() != DbcAttributeDouble.VALUE_TYPE_INTEGER) {
+                //the raw value of an IEEE signal is the unscaled float, a double column with or without formula
+                final DbcAttributeDouble attribute = (DbcAttributeDouble) attributes[i];
+                final boolean scaled = applyFormula
+                        && (BigDecimal.ONE.compareTo(attribute.getMultiplier()) != 0 || attribute.getAdjustment().signum() != 0);
+                final double factor = attribute.getMultiplier().doubleValue();
+                final double offset = attribute.getAdjustment().doubleValue();
+                final double[] column = new double[rows];
+                for (int j = 0; j < rows; ++j) {
+                    column[j] = scaled ? attribute.fromBits(raw[j]) * factor + offset : attribute.fromBits(raw[j]);
+                }
+                doubles[i] = column;
+                longs[i] = null;
+            } else if (!applyFormula) {
+                continue;
+            } else if (fractional[i]) {
+                final double[] column = new double[rows];
+                if (attributes[i] instanceof DbcAttributeDouble && !((DbcAttributeDouble) attributes[i]).isDoubleScaled()) {
+                    //same rule as the record path, double arithmetic only where it matches the decimal result
+                    final BigDecimal factor = attributes[i].getMultiplier();
+                    final BigDecimal offset = attributes[i].getAdjustment();
+                    for (int j = 0; j < rows; ++j) {
+                        column[j] = BigDecimal.valueOf(raw[j]).multiply(factor).add(offset).doubleValue();
+                    }
+                } else {
+                    final double factor = attributes[i].getMultiplier().doubleValue();
+                    final double offset = attributes[i].getAdjustment().doubleValue();
+                    for (int j = 0; j < rows; ++j) {
+                        column[j] = raw[j] * factor + offset;
+                    }
+                }
+                doubles[i] = column;
+                longs[i] = null;
+            } else {
+                final long factor = attributes[i].getMultiplier().longValue();
+                final long offset = attributes[i].getAdjustment().longValue();
+                if (factor != 1l || offset != 0l) {
+                    for (int j = 0; j < rows; ++j) {
+                        raw[j] = raw[j] * factor + offset;
+                    }
+                }
+            }
+        }
+        return this;
+    }
+
+    public DbcMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * Return the number of rows.
+     *
+     * @return int
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the number of signal columns.
+     *
+     * @return int
+     */
+    public int width() {
+        return attributes.length;
+    }
+
+    public DbcAttribute getAttribute(final int column) {
+        return attributes[column];
+    }
+
+    /**
+     * Return the column index of a signal name, or -1 if not found.
+     *
+     * @param name the signal name
+     * @return int
+     */
+    public int indexOf(final String name) {
+        for (int i = 0; i < attributes.length; ++i) {
+            if (attributes[i].getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return whether the column is held as <code>double[]</code>.
+     *
+     * @param column the column index
+     * @return true or false
+     */
+    public boolean isDoubleColumn(final int column) {
+        return doubles[column] != null;
+    }
+
+    /**
+     * Return the long column, or null if the column is a double column or the signal is wider than 64 bits.
+     *
+     * @param column the column index
+     * @return long[]
+     */
+    public long[] getLongColumn(final int column) {
+        return longs[column];
+    }
+
+    /**
+     * Return the double column, or null if the column is a long column.
+     *
+     * @param column the column index
+     * @return double[]
+     */
+    public double[] getDoubleColumn(final int column) {
+        return doubles[column];
+    }
+
+    /**
+     * Return the epoch-nanosecond timestamps, {@link #NULL_TIME} if the trace has no start time.
+     *
+     * @return long[]
+     */
+    public long[] getTimes() {
+        return times;
+    }
+
+    /**
+     * Materialize the time of a row as an instant.
+     *
+     * @param row the row
+     * @return Instant, or null if the trace has no start time
+     */
+    public Instant getTime(final int row) {
+        return times[row] != NULL_TIME ? DbcUtils.toInstant(times[row]) : null;
+    }
+
+    /**
+     * Return the nanosecond offsets to the trace start.
+     *
+     * @return long[]
+     */
+    public long[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Return the validity bitmap, bit <code>row % 64</code> of word <code>row / 64</code>.
+     *
+     * @return long[]
+     */
+    public long[] getValidity() {
+        return validity;
+    }
+
+    public boolean isValid(final int row) {
+        return (validity[row >>> 6] & (1l << row)) != 0l;
+    }
+
+    /**
+     * Return the validity bitmap of a column, the row validity unless the signal is multiplexed, in
+     * which case only the rows of its page are valid.
+     *
+     * @param column the column index
+     * @return long[]
+     */
+    public long[] getValidity(final int column) {
+        return pageValidity[column] != null ? pageValidity[column] : validity;
+    }
+
+    /**
+     * Return whether the value of a column is valid in a row, false for signals of inactive pages.
+     *
+     * @param column the column index
+     * @param row the row
+     * @return true or false
+     */
+    public boolean isValid(final int column, final int row) {
+        return (getValidity(column)[row >>> 6] & (1l << row)) != 0l;
+    }
+}
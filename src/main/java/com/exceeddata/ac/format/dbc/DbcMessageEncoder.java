@@ -1,24 +1,38 @@
 package com.exceeddata.ac.format.dbc;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.exception.EngineException;
 import com.exceeddata.ac.common.message.MessageContent;
 import com.exceeddata.ac.common.message.MessageEncoder;
 import com.exceeddata.ac.common.message.MessagePacket;
 
+/**
+ * Encodes records into DBC frames.  The field positions of a record schema are resolved to messages once
+ * and cached as an immutable plan, so records of the same schema encode by index.
+ *
+ * <p>Encoding is thread-safe as long as the messages are not modified concurrently.</p>
+ *
+ */
 public class DbcMessageEncoder implements MessageEncoder {
     private static final long serialVersionUID = 1L;
     
+    private static final int MIN_CHUNK = 256;
+    
     private LinkedHashMap<String, DbcMessage> attributeMessages = null;
-    private LinkedHashSet<String> attributeNames = null;
+    private transient volatile EncodePlan plan = null; //plan of the last record schema
     
     public DbcMessageEncoder() {
         this.attributeMessages = new LinkedHashMap<>();
-        this.attributeNames = new LinkedHashSet<>();
     }
     
     public DbcMessageEncoder(final DbcMessageEncoder encoder) {
@@ -27,7 +41,6 @@ public class DbcMessageEncoder implements MessageEncoder {
         } else {
             this.attributeMessages = new LinkedHashMap<>();
         }
-        this.attributeNames = new LinkedHashSet<>();
     }
     
     @Override
@@ -39,23 +52,96 @@ public class DbcMessageEncoder implements MessageEncoder {
         return new DbcMessageEncoder(this);
     }
     
+    /**
+     * Encode the record into one frame per message with at least one non-empty field, in the order of the
+     * first non-empty field of each message.
+     *
+     * @param record the record
+     * @return ArrayList
+     */
     @Override
     public ArrayList<MessageContent> encode(final Record record) {
-        for (int i = 0, s = record.size(); i < s; ++i) {
-            if (!record.dataAt(i).isEmpty()) {
-                attributeNames.add(record.nameAt(i));
+        return encode(record, plan(record));
+    }
+    
+    /**
+     * Encode a batch of records in one pass, returning the frames of each record in record order.
+     *
+     * @param records the records
+     * @return List
+     */
+    public List<List<MessageContent>> encodeBatch(final List<Record> records) {
+        final List<List<MessageContent>> results = new ArrayList<>(records.size());
+        EncodePlan p = null;
+        for (final Record record : records) {
+            if (p == null || !p.matches(record)) {
+                p = plan(record);
             }
+            results.add(encode(record, p));
+        }
+        return results;
+    }
+    
+    /**
+     * Encode a batch of records in chunks on the executor, returning the frames of each record in record
+     * order regardless of the order in which the chunks complete.
+     *
+     * @param records the records
+     * @param executor the executor
+     * @return List
+     * @throws EngineException if encoding fails or is interrupted
+     */
+    public List<List<MessageContent>> encodeBatch(final List<Record> records, final ExecutorService executor) throws EngineException {
+        final int chunk = Math.max(MIN_CHUNK, records.size() / (Runtime.getRuntime().availableProcessors() * 4) + 1);
+        if (records.size() <= chunk) {
+            return encodeBatch(records);
+        }
+        
+        final List<Future<List<List<MessageContent>>>> futures = new ArrayList<>(records.size() / chunk + 1);
+        for (int from = 0, s = records.size(); from < s; from += chunk) {
+            final List<Record> part = records.subList(from, Math.min(from + chunk, s));
+            futures.add(executor.submit(new Callable<List<List<MessageContent>>>() {
+                @Override
+                public List<List<MessageContent>> call() {
+                    return encodeBatch(part);
+                }
+            }));
         }
         
-        final ArrayList<MessageContent> contents = new ArrayList<>(attributeNames.size() / 8 + 5);
+        final List<List<MessageContent>> results = new ArrayList<>(records.size());
+        try {
+            for (final Future<List<List<MessageContent>>> future : futures) {
+                results.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(futures);
+            throw new EngineException("FORMAT_DBC_ENCODE_INTERRUPTED", e);
+        } catch (ExecutionException e) {
+            cancel(futures);
+            throw new EngineException("FORMAT_DBC_ENCODE_FAILED: " + e.getCause(), e.getCause());
+        }
+        return results;
+    }
+    
+    private static void cancel(final List<? extends Future<?>> futures) {
+        for (final Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+    
+    private static ArrayList<MessageContent> encode(final Record record, final EncodePlan p) {
+        final ArrayList<MessageContent> contents = new ArrayList<>(Math.min(p.messages.length, 16));
+        final boolean[] encoded = new boolean[p.messages.length];
         DbcMessage message;
-        String name;
         byte[] data;
+        int slot;
         
-        while (attributeNames.size() > 0) {
-            name = attributeNames.iterator().next();
-            if ((message = attributeMessages.get(name)) != null) {
-                if ((data = message.encode(record)) != null) {
+        for (int i = 0, s = record.size(); i < s; ++i) {
+            if ((slot = p.slots[i]) >= 0 && !encoded[slot] && !record.dataAt(i).isEmpty()) {
+                encoded[slot] = true;
+                message = p.messages[slot];
+                if ((data = message.encode(record, p.positions[slot])) != null) {
                     final MessagePacket packet = new MessagePacket();
                     packet.setData(data);
                     packet.setDataLength(data.length);
@@ -63,23 +149,32 @@ public class DbcMessageEncoder implements MessageEncoder {
                     packet.setMessageID(message.getMessageID());
                     contents.add(packet);
                 }
-                for (final DbcAttribute attribute : message.getAttributes()) {
-                    attributeNames.remove(attribute.getName());
-                }
-            } else {
-                attributeNames.remove(name);
             }
         }
-        
         return contents;
     }
     
+    private EncodePlan plan(final Record record) {
+        EncodePlan p = plan;
+        if (p == null || !p.matches(record)) {
+            plan = p = new EncodePlan(record, attributeMessages);
+        }
+        return p;
+    }
+    
+    /**
+     * Get the attribute to message map.  Call {@link #setAttributeMessages(Map)} after modifying the
+     * returned map so that cached encode plans are rebuilt.
+     *
+     * @return LinkedHashMap
+     */
     public LinkedHashMap<String, DbcMessage> getAttributeMessages() {
         return attributeMessages;
     }
     
     public DbcMessageEncoder setAttributeMessages(final Map<String, DbcMessage> attributeMessages) {
         this.attributeMessages = new LinkedHashMap<>(attributeMessages);
+        this.plan = null;
         return this;
     }
     
@@ -95,10 +190,12 @@ public class DbcMessageEncoder implements MessageEncoder {
         for (final DbcAttribute attribute : message.getAttributes()) {
             attributeMessages.put(attribute.getName(), message);
         }
+        this.plan = null;
     }
     
     public void removeMessage(final String attributeName) {
         attributeMessages.remove(attributeName);
+        this.plan = null;
     }
     
     public int size() {
@@ -107,5 +204,62 @@ public class DbcMessageEncoder implements MessageEncoder {
     
     public void clear() {
         attributeMessages.clear();
+        this.plan = null;
+    }
+    
+    /**
+     * The messages of a record schema and the record position of every attribute of each message.
+     */
+    private static final class EncodePlan {
+        private final String[] names;
+        private final int[] slots;
+        private final DbcMessage[] messages;
+        private final int[][] positions;
+        
+        private EncodePlan(final Record record, final Map<String, DbcMessage> attributeMessages) {
+            final int size = record.size();
+            final Map<String, Integer> fields = new LinkedHashMap<>(size * 2);
+            final IdentityHashMap<DbcMessage, Integer> indices = new IdentityHashMap<>();
+            final List<DbcMessage> list = new ArrayList<>();
+            
+            this.names = new String[size];
+            this.slots = new int[size];
+            for (int i = 0; i < size; ++i) {
+                names[i] = record.nameAt(i);
+                fields.put(names[i], i);
+                
+                final DbcMessage message = attributeMessages.get(names[i]);
+                Integer slot = null;
+                if (message != null && (slot = indices.get(message)) == null) {
+                    indices.put(message, slot = list.size());
+                    list.add(message);
+                }
+                slots[i] = slot != null ? slot : -1;
+            }
+            
+            this.messages = list.toArray(new DbcMessage[list.size()]);
+            this.positions = new int[messages.length][];
+            for (int m = 0; m < messages.length; ++m) {
+                final List<DbcAttribute> attributes = messages[m].getAttributes();
+                positions[m] = new int[attributes.size()];
+                for (int a = 0; a < positions[m].length; ++a) {
+                    final Integer position = fields.get(attributes.get(a).getName());
+                    positions[m][a] = position != null ? position : -1;
+                }
+            }
+        }
+        
+        private boolean matches(final Record record) {
+            if (record.size() != names.length) {
+                return false;
+            }
+            String name;
+            for (int i = 0; i < names.length; ++i) {
+                if ((name = record.nameAt(i)) != names[i] && !names[i].equals(name)) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 }
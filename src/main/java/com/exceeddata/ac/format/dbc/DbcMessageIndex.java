@@ -0,0 +1,309 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import com.exceeddata.ac.common.exception.EngineException;
+import com.exceeddata.ac.common.util.XStringUtils;
+
+/**
+ * A byte offset index of the <code>BO_</code> blocks of DBC sources, for parsing a single message on
+ * demand.  Building the index only scans for <code>BO_</code> and <code>SIG_VALTYPE_</code> lines and
+ * their IDs, the signals of a block are parsed by {@link DbcParser} when the message is materialized,
+ * together with the value types of the message in the same source.
+ *
+ * <p>A block runs from its <code>BO_</code> line to the next line that is not a signal, so the trailing
+ * comments and attributes of a file are never parsed.  An ID defined by several blocks
+ * resolves to the first block, in source order, that yields signals, as when parsing whole files.  DBC
+ * files are memory-mapped, so only the pages of materialized blocks are read.</p>
+ *
+ */
+final class DbcMessageIndex {
+    private static final int STANDARD_IDS = DbcMessageTable.STANDARD_IDS;
+
+    private final ByteBuffer[] sources;
+    private final long[] ids;       //distinct message IDs, ascending
+    private final int[] firsts;     //first block of each ID, blocks of an ID are adjacent
+    private final int[] blockSources;
+    private final int[] blockStarts;
+    private final int[] blockEnds;
+    private final int[] standard;   //slot + 1 of standard IDs, 0 if undefined
+    private final long[] valueTypes;    //SIG_VALTYPE_ lines by message ID, then in source order
+    private final int[] valueTypeSources;
+    private final int[] valueTypeStarts;
+    private final int[] valueTypeEnds;
+
+    private DbcMessageIndex(final ByteBuffer[] sources) {
+        this.sources = sources;
+
+        int count = 0, types = 0;
+        int[] s = new int[64], starts = new int[64], ends = new int[64];
+        int[] typeSources = new int[16], typeStarts = new int[16], typeEnds = new int[16];
+        long[] keys = new long[64], typeKeys = new long[16];
+        for (int i = 0; i < sources.length; ++i) {
+            final ByteBuffer source = sources[i];
+            int previous = -1;
+            for (int position = 0, limit = source.limit(); position < limit; ) {
+                final int lineStart = position;
+                while (position < limit && source.get(position) != '\n' && source.get(position) != '\r') {
+                    ++position;
+                }
+                final int lineEnd = position;
+                final long messageID = id(source, lineStart, lineEnd, "BO_ ");
+                while (position < limit && (source.get(position) == '\n' || source.get(position) == '\r')) {
+                    ++position;
+                }
+                if (messageID < 0l) {
+                    final int first = skipWhitespace(source, lineStart, lineEnd);
+                    if (previous >= 0 && first < lineEnd && !startsWith(source, first, lineEnd, "SG_ ")) {
+                        ends[previous] = lineStart; //the block ends at the first line that is not a signal
+                        previous = -1;
+                    }
+
+                    final long typeID = id(source, lineStart, lineEnd, "SIG_VALTYPE_ ");
+                    if (typeID >= 0l) {
+                        if (types == typeKeys.length) {
+                            typeKeys = Arrays.copyOf(typeKeys, types << 1);
+                            typeSources = Arrays.copyOf(typeSources, types << 1);
+                            typeStarts = Arrays.copyOf(typeStarts, types << 1);
+                            typeEnds = Arrays.copyOf(typeEnds, types << 1);
+                        }
+                        typeKeys[types] = (typeID & 0x7fffffffl) << 32 | types;
+                        typeSources[types] = i;
+                        typeStarts[types] = lineStart;
+                        typeEnds[types++] = lineEnd;
+                    }
+                    continue;
+                }
+
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, count << 1);
+                    s = Arrays.copyOf(s, count << 1);
+                    starts = Arrays.copyOf(starts, count << 1);
+                    ends = Arrays.copyOf(ends, count << 1);
+                }
+                if (previous >= 0) {
+                    ends[previous] = lineStart;
+                }
+                keys[count] = (messageID & 0x7fffffffl) << 32 | count; //sorts by ID, then in source order
+                s[count] = i;
+                starts[count] = lineStart;
+                ends[count] = limit;
+                previous = count++;
+            }
+        }
+
+        Arrays.sort(keys, 0, count);
+        this.blockSources = new int[count];
+        this.blockStarts = new int[count];
+        this.blockEnds = new int[count];
+        int distinct = 0;
+        for (int i = 0; i < count; ++i) {
+            final int block = (int) keys[i];
+            blockSources[i] = s[block];
+            blockStarts[i] = starts[block];
+            blockEnds[i] = ends[block];
+            if (i == 0 || keys[i] >>> 32 != keys[i - 1] >>> 32) {
+                ++distinct;
+            }
+        }
+
+        this.ids = new long[distinct];
+        this.firsts = new int[distinct + 1];
+        this.standard = new int[STANDARD_IDS];
+        for (int i = 0, slot = -1; i < count; ++i) {
+            if (i == 0 || keys[i] >>> 32 != keys[i - 1] >>> 32) {
+                ids[++slot] = keys[i] >>> 32;
+                firsts[slot] = i;
+                if (ids[slot] < STANDARD_IDS) {
+                    standard[(int) ids[slot]] = slot + 1;
+                }
+            }
+        }
+        firsts[distinct] = count;
+
+        Arrays.sort(typeKeys, 0, types);
+        this.valueTypes = new long[types];
+        this.valueTypeSources = new int[types];
+        this.valueTypeStarts = new int[types];
+        this.valueTypeEnds = new int[types];
+        for (int i = 0; i < types; ++i) {
+            final int line = (int) typeKeys[i];
+            valueTypes[i] = typeKeys[i] >>> 32;
+            valueTypeSources[i] = typeSources[line];
+            valueTypeStarts[i] = typeStarts[line];
+            valueTypeEnds[i] = typeEnds[line];
+        }
+    }
+
+    static DbcMessageIndex ofFiles(final String[] paths) throws EngineException {
+        final ByteBuffer[] sources = new ByteBuffer[paths.length];
+        for (int i = 0; i < paths.length; ++i) {
+            if (XStringUtils.isBlank(paths[i])) {
+                sources[i] = ByteBuffer.allocate(0);
+                continue;
+            }
+            try (final FileChannel channel = FileChannel.open(Paths.get(paths[i].trim()), StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new EngineException("FORMAT_DBC_FILE_TOO_LARGE: " + paths[i]);
+                }
+                sources[i] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException e) {
+                throw new EngineException("FORMAT_DBC_FILE_READ_FAILED: " + paths[i], e);
+            }
+        }
+        return new DbcMessageIndex(sources);
+    }
+
+    static DbcMessageIndex ofContents(final List<String> contents) {
+        final ByteBuffer[] sources = new ByteBuffer[contents.size()];
+        for (int i = 0; i < sources.length; ++i) {
+            final String content = contents.get(i);
+            sources[i] = ByteBuffer.wrap(content != null ? content.getBytes(StandardCharsets.UTF_8) : new byte[0]);
+        }
+        return new DbcMessageIndex(sources);
+    }
+
+    /**
+     * Return the slot of a message ID.
+     *
+     * @param messageID the message ID
+     * @return the slot, or -1 if no block defines the ID
+     */
+    int slot(final long messageID) {
+        if (messageID >= 0l && messageID < STANDARD_IDS) {
+            return standard[(int) messageID] - 1;
+        }
+        final int slot = Arrays.binarySearch(ids, messageID);
+        return slot >= 0 ? slot : -1;
+    }
+
+    /**
+     * Return the number of distinct message IDs, slots are numbered from 0 in ID order.
+     *
+     * @return int
+     */
+    int size() {
+        return ids.length;
+    }
+
+    long messageID(final int slot) {
+        return ids[slot];
+    }
+
+    /**
+     * Return the position of the first block of a slot in a source, for ordering materialized messages
+     * as in the sources.
+     *
+     * @param slot the slot
+     * @param source the source, from 0
+     * @return the source and byte offset
+     */
+    long order(final int slot, final int source) {
+        int b = firsts[slot];
+        while (b < firsts[slot + 1] - 1 && blockSources[b] < source) {
+            ++b;
+        }
+        return (long) blockSources[b] << 32 | blockStarts[b];
+    }
+
+    /**
+     * Parse the first block of a slot that yields signals.
+     *
+     * @param slot the slot
+     * @param useQualifiedName whether to construct qualified names
+     * @param applyFormula whether to apply formula
+     * @return the message, or null if no block yields signals
+     */
+    DbcMessage materialize(final int slot, final boolean useQualifiedName, final boolean applyFormula) {
+        final long messageID = ids[slot];
+        for (int b = firsts[slot]; b < firsts[slot + 1]; ++b) {
+            final ByteBuffer block = sources[blockSources[b]].duplicate();
+            block.limit(blockEnds[b]).position(blockStarts[b]);
+            final StringBuilder sb = new StringBuilder(StandardCharsets.UTF_8.decode(block));
+            for (int t = valueTypeFrom(messageID); t < valueTypes.length && valueTypes[t] == messageID; ++t) {
+                if (valueTypeSources[t] == blockSources[b]) {
+                    final ByteBuffer line = sources[valueTypeSources[t]].duplicate();
+                    line.limit(valueTypeEnds[t]).position(valueTypeStarts[t]);
+                    sb.append('\n').append(StandardCharsets.UTF_8.decode(line));
+                }
+            }
+            try {
+                final DbcMessage message = DbcParser.parse(
+                        blockSources[b] + 1, new StringReader(sb.toString()), useQualifiedName, applyFormula)
+                        .getMessage(messageID);
+                if (message != null && message.size() > 0) {
+                    return message;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("FORMAT_DBC_MESSAGE_UNEXPECTED: " + messageID, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the first value type line of a message ID.
+     */
+    private int valueTypeFrom(final long messageID) {
+        int low = 0, high = valueTypes.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (valueTypes[mid] < messageID) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Return the message ID of a line of the prefix, such as <code>BO_</code>, or -1 if the line is not
+     * of the prefix.
+     */
+    private static long id(final ByteBuffer source, final int start, final int end, final String prefix) {
+        int i = skipWhitespace(source, start, end);
+        if (end - i <= prefix.length() || !startsWith(source, i, end, prefix)) {
+            return -1l;
+        }
+        i = skipWhitespace(source, i + prefix.length(), end);
+
+        final int digits = i;
+        long messageID = 0l;
+        for (; i < end && source.get(i) >= '0' && source.get(i) <= '9'; ++i) {
+            if (i - digits >= 18) {
+                return -1l;
+            }
+            messageID = messageID * 10 + (source.get(i) - '0');
+        }
+        return i > digits && i < end && (source.get(i) & 0xff) <= ' ' ? messageID : -1l;
+    }
+
+    private static int skipWhitespace(final ByteBuffer source, final int start, final int end) {
+        int i = start;
+        while (i < end && (source.get(i) & 0xff) <= ' ') {
+            ++i;
+        }
+        return i;
+    }
+
+    private static boolean startsWith(final ByteBuffer source, final int start, final int end, final String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); ++i) {
+            if (source.get(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,30 @@
+package com.exceeddata.ac.format.dbc;
+
+import com.exceeddata.ac.common.data.record.Record;
+
+/**
+ * An interface for a generated straight-line decoder of a single DBC message.
+ *
+ * @see DbcKernelGenerator
+ */
+public interface DbcMessageKernel {
+
+    /**
+     * Decode all signals of the bytes into the target, in attribute order.  The byte length
+     * has already been checked against the message length.
+     *
+     * @param bytes the bytes
+     * @param target the target record
+     */
+    public void decode(byte[] bytes, Record target);
+
+    /**
+     * Decode all signals of the bytes into a target laid out as the message template, setting the
+     * signal values by position from <code>base</code>.
+     *
+     * @param bytes the bytes
+     * @param target the target record
+     * @param base the position of the first signal
+     */
+    public void decode(byte[] bytes, Record target, int base);
+}
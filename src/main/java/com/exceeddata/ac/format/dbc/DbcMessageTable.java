@@ -0,0 +1,188 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * An allocation-free lookup table from (channel, CAN ID) to DBC message.
+ *
+ * <p>Standard 11-bit IDs on low channel numbers are resolved by a direct-indexed array.  All other
+ * keys (29-bit extended IDs and high channel numbers) go to an open-addressing table keyed by the
+ * primitive composite <code>channel &lt;&lt; 32 | id</code>.  A one-bit-per-hash filter rejects
+ * most undefined IDs with a single load before probing, since undefined IDs are often the majority
+ * of bus traffic.</p>
+ *
+ * <p>A table is immutable once built and safe to share across threads.</p>
+ *
+ */
+public final class DbcMessageTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int STANDARD_IDS = 0x800;
+    public static final int DIRECT_CHANNELS = 64;
+
+    public static final DbcMessageTable EMPTY = new DbcMessageTable(new DbcMessage[0][], 0);
+
+    private final DbcMessage[][] standard; //[channel][id] for standard IDs of direct channels
+    private final long[] keys;
+    private final DbcMessage[] values;
+    private final int mask;
+    private final long[] filter;
+    private final int filterMask;
+    private int size = 0;
+
+    private DbcMessageTable(final DbcMessage[][] standard, final int hashed) {
+        int capacity = 4;
+        while (capacity < hashed * 2) { //keep load factor at or below 0.5
+            capacity <<= 1;
+        }
+
+        this.standard = standard;
+        this.keys = new long[capacity];
+        this.values = new DbcMessage[capacity];
+        this.mask = capacity - 1;
+        this.filter = new long[Math.max(1, capacity / 16)]; //4 filter bits per slot
+        this.filterMask = filter.length * 64 - 1;
+    }
+
+    /**
+     * Build a table of the messages of a single channel, looked up by <code>get(messageID)</code>.
+     *
+     * @param messages the messages keyed by message ID
+     * @return DbcMessageTable
+     */
+    public static DbcMessageTable of(final Map<Long, DbcMessage> messages) {
+        final DbcMessage[][] standard = new DbcMessage[1][];
+        int hashed = 0;
+        for (final Long messageID : messages.keySet()) {
+            if (isStandard(0, messageID)) {
+                standard[0] = new DbcMessage[STANDARD_IDS];
+            } else {
+                ++hashed;
+            }
+        }
+
+        final DbcMessageTable table = new DbcMessageTable(standard, hashed);
+        for (final Map.Entry<Long, DbcMessage> entry : messages.entrySet()) {
+            table.put(0, entry.getKey(), entry.getValue());
+        }
+        return table;
+    }
+
+    /**
+     * Build a composite table of the messages of all channels, looked up by <code>get(channelID, messageID)</code>.
+     *
+     * @param channels the channels keyed by channel ID
+     * @return DbcMessageTable
+     */
+    public static DbcMessageTable ofChannels(final Map<Integer, DbcChannel> channels) {
+        int directChannels = 0, hashed = 0;
+        for (final Map.Entry<Integer, DbcChannel> entry : channels.entrySet()) {
+            for (final Long messageID : entry.getValue().getMessages().keySet()) {
+                if (isStandard(entry.getKey(), messageID)) {
+                    directChannels = Math.max(directChannels, entry.getKey() + 1);
+                } else {
+                    ++hashed;
+                }
+            }
+        }
+
+        final DbcMessage[][] standard = new DbcMessage[directChannels][];
+        final DbcMessageTable table = new DbcMessageTable(standard, hashed);
+        for (final Map.Entry<Integer, DbcChannel> entry : channels.entrySet()) {
+            for (final Map.Entry<Long, DbcMessage> mentry : entry.getValue().getMessages().entrySet()) {
+                table.put(entry.getKey(), mentry.getKey(), mentry.getValue());
+            }
+        }
+        return table;
+    }
+
+    private static boolean isStandard(final int channelID, final long messageID) {
+        return messageID >= 0l && messageID < STANDARD_IDS && channelID >= 0 && channelID < DIRECT_CHANNELS;
+    }
+
+    private static long key(final int channelID, final long messageID) {
+        return ((long) channelID << 32) | (messageID & 0xffffffffl);
+    }
+
+    private static long mix(final long key) {
+        long h = key * 0x9e3779b97f4a7c15l;
+        h ^= h >>> 32;
+        h *= 0xbf58476d1ce4e5b9l;
+        return h ^ (h >>> 29);
+    }
+
+    private void put(final int channelID, final long messageID, final DbcMessage message) {
+        if (isStandard(channelID, messageID)) {
+            DbcMessage[] ids = standard[channelID];
+            if (ids == null) {
+                ids = standard[channelID] = new DbcMessage[STANDARD_IDS];
+            }
+            if (ids[(int) messageID] == null) {
+                ++size;
+            }
+            ids[(int) messageID] = message;
+            return;
+        }
+
+        final long key = key(channelID, messageID);
+        final long h = mix(key);
+        int i = (int) h & mask;
+        while (values[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == null) {
+            ++size;
+        }
+        keys[i] = key;
+        values[i] = message;
+
+        final int bit = (int) (h >>> 40) & filterMask;
+        filter[bit >>> 6] |= 1l << bit;
+    }
+
+    /**
+     * Get the message of a single-channel table.
+     *
+     * @param messageID the message ID
+     * @return DbcMessage or null if not defined
+     */
+    public DbcMessage get(final long messageID) {
+        return get(0, messageID);
+    }
+
+    /**
+     * Get the message of a channel.
+     *
+     * @param channelID the channel ID
+     * @param messageID the message ID
+     * @return DbcMessage or null if not defined
+     */
+    public DbcMessage get(final int channelID, final long messageID) {
+        if (messageID >= 0l && messageID < STANDARD_IDS && channelID >= 0 && channelID < standard.length) {
+            final DbcMessage[] ids = standard[channelID];
+            return ids != null ? ids[(int) messageID] : null;
+        }
+
+        final long key = key(channelID, messageID);
+        final long h = mix(key);
+        final int bit = (int) (h >>> 40) & filterMask;
+        if ((filter[bit >>> 6] & (1l << bit)) == 0l) {
+            return null; //definitely not defined
+        }
+
+        DbcMessage message;
+        int i = (int) h & mask;
+        while ((message = values[i]) != null) {
+            if (keys[i] == key) {
+                return message;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,171 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The per-page attribute index of a multiplexed DBC message.  The multiplexor is extracted first and
+ * only the attributes of the active page are decoded, next to the attributes that are not multiplexed.
+ *
+ * <p>Only the message-level multiplexor (<code>M</code>) is used.  Extended multiplexing with nested
+ * multiplexors (<code>SG_MUL_VAL_</code>) is not resolved, nested multiplexors decode as page signals.</p>
+ *
+ */
+final class DbcMultiplexIndex {
+    static final DbcMultiplexIndex NONE = new DbcMultiplexIndex(-1, null, new int[0], new int[0][], null);
+
+    private static final int[] EMPTY = new int[0];
+    private static final int DIRECT_PAGES = 1024;
+
+    private final int multiplexor;
+    private final DbcSignalLayout layout;
+    private final int[] common;
+    private final int[][] direct;
+    private final Map<Long, int[]> sparse;
+
+    private DbcMultiplexIndex(
+            final int multiplexor,
+            final DbcSignalLayout layout,
+            final int[] common,
+            final int[][] direct,
+            final Map<Long, int[]> sparse) {
+        this.multiplexor = multiplexor;
+        this.layout = layout;
+        this.common = common;
+        this.direct = direct;
+        this.sparse = sparse;
+    }
+
+    /**
+     * Build the index of the attributes, or return {@link #NONE} if the message has no multiplexor.
+     *
+     * @param attributes the attributes
+     * @return DbcMultiplexIndex
+     */
+    static DbcMultiplexIndex of(final List<DbcAttribute> attributes) {
+        return of(attributes, null);
+    }
+
+    /**
+     * Build the index of the attributes of a projected message.  If the projection left out the
+     * multiplexor, the pages are selected by the hidden multiplexor of the source message, which is
+     * neither decoded nor encoded, and {@link #multiplexor()} returns -1.
+     *
+     * @param attributes the attributes
+     * @param hidden the multiplexor of the source message, or null
+     * @return DbcMultiplexIndex
+     */
+    static DbcMultiplexIndex of(final List<DbcAttribute> attributes, final DbcAttribute hidden) {
+        int multiplexor = -1;
+        for (int i = 0, s = attributes.size(); i < s; ++i) {
+            final DbcAttribute attribute = attributes.get(i);
+            if (isMultiplexor(attribute)) {
+                multiplexor = i;
+                break;
+            }
+        }
+        if (multiplexor < 0 && (hidden == null || !isMultiplexor(hidden))) {
+            return NONE;
+        }
+
+        final List<Integer> common = new ArrayList<>();
+        final Map<Long, List<Integer>> pages = new HashMap<>();
+        long maxPage = -1l;
+        for (int i = 0, s = attributes.size(); i < s; ++i) {
+            final long value = attributes.get(i).getMultiplexValue();
+            if (value < 0) {
+                common.add(i);
+            } else {
+                List<Integer> page = pages.get(value);
+                if (page == null) {
+                    pages.put(value, page = new ArrayList<>());
+                }
+                page.add(i);
+                maxPage = Math.max(maxPage, value);
+            }
+        }
+
+        final DbcAttribute m = multiplexor >= 0 ? attributes.get(multiplexor) : hidden;
+        final DbcSignalLayout layout = new DbcSignalLayout(m.getStartBit(), m.getLength(), m.getByteOrder(), false);
+        if (maxPage < DIRECT_PAGES) {
+            final int[][] direct = new int[(int) maxPage + 1][];
+            for (final Map.Entry<Long, List<Integer>> entry : pages.entrySet()) {
+                direct[entry.getKey().intValue()] = toArray(entry.getValue());
+            }
+            return new DbcMultiplexIndex(multiplexor, layout, toArray(common), direct, null);
+        }
+
+        final Map<Long, int[]> sparse = new HashMap<>();
+        for (final Map.Entry<Long, List<Integer>> entry : pages.entrySet()) {
+            sparse.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        return new DbcMultiplexIndex(multiplexor, layout, toArray(common), null, sparse);
+    }
+
+    private static boolean isMultiplexor(final DbcAttribute attribute) {
+        return attribute.isMultiplexor() && attribute.getMultiplexValue() < 0 && DbcSignalLayout.supports(attribute.getLength());
+    }
+
+    private static int[] toArray(final List<Integer> list) {
+        final int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; ++i) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Return the raw multiplexor value of the bytes.
+     *
+     * @param bytes the bytes
+     * @return long
+     */
+    long page(final byte[] bytes) {
+        return layout.extract(bytes);
+    }
+
+    /**
+     * Return the multiplexor value of a raw value written by the multiplexor signal.
+     *
+     * @param raw the raw value
+     * @return long
+     */
+    long page(final long raw) {
+        return raw & layout.getMask();
+    }
+
+    /**
+     * Return the indices of the attributes of a page, empty if the page has no attributes.
+     *
+     * @param page the raw multiplexor value
+     * @return int[]
+     */
+    int[] attributes(final long page) {
+        if (direct != null) {
+            final int[] indices = page >= 0l && page < direct.length ? direct[(int) page] : null;
+            return indices != null ? indices : EMPTY;
+        }
+        final int[] indices = sparse.get(page);
+        return indices != null ? indices : EMPTY;
+    }
+
+    /**
+     * Return the indices of the attributes that are not multiplexed, including the multiplexor.
+     *
+     * @return int[]
+     */
+    int[] common() {
+        return common;
+    }
+
+    /**
+     * Return the index of the multiplexor attribute, or -1 if the multiplexor is hidden.
+     *
+     * @return int
+     */
+    int multiplexor() {
+        return multiplexor;
+    }
+}
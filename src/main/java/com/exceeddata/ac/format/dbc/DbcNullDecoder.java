@@ -26,6 +26,7 @@ import com.exceeddata.ac.common.data.typedata.BooleanData;
 import com.exceeddata.ac.common.data.typedata.InstantData;
 import com.exceeddata.ac.common.data.typedata.IntData;
 import com.exceeddata.ac.common.data.typedata.LongData;
+import com.exceeddata.ac.common.data.typedata.TypeData;
 import com.exceeddata.ac.common.message.MessageContent;
 import com.exceeddata.ac.common.message.MessageDecoder;
 import com.exceeddata.ac.common.message.MessageDesc;
@@ -35,7 +36,23 @@ public class DbcNullDecoder implements MessageDecoder {
     private static final long serialVersionUID = 1L;
     private static final Record TEMPLATE = RecordBuilder.newTemplateRecord(new String[] {TIME, OFFSET, CHANNEL, ERROR, DIRECTION, ID, CONTENT});
     
+    private final boolean timeNanos;
+    
     public DbcNullDecoder() {
+        this(false);
+    }
+    
+    /**
+     * Construct a decoder of raw frames.
+     * 
+     * @param timeNanos whether to output the time as epoch nanoseconds in a long instead of an instant
+     */
+    public DbcNullDecoder(final boolean timeNanos) {
+        this.timeNanos = timeNanos;
+    }
+    
+    public boolean isTimeNanos() {
+        return timeNanos;
     }
     
     @Override
@@ -45,11 +62,11 @@ public class DbcNullDecoder implements MessageDecoder {
     
     @Override
     public DbcNullDecoder clone() {
-        return new DbcNullDecoder();
+        return new DbcNullDecoder(timeNanos);
     }
     
     public DbcNullDecoder copy() {
-        return new DbcNullDecoder();
+        return new DbcNullDecoder(timeNanos);
     }
     
     @Override
@@ -68,9 +85,8 @@ public class DbcNullDecoder implements MessageDecoder {
     
     @Override
     public Record decode(final MessageDesc desc, final MessageContent message) {
-        final Instant start = desc.getTimeStart();
         return TEMPLATE.unsafeNoDataCopy()
-                .setAt(0, start != null ? new InstantData(start.plusNanos(message.getNanosOffset())) : InstantData.NULL)
+                .setAt(0, time(desc.getTimeStart(), message.getNanosOffset()))
                 .setAt(1, new LongData(message.getNanosOffset()))
                 .setAt(2, IntData.nonNullValueOf(message.getChannelID()))
                 .setAt(3, message.isError() ? BooleanData.TRUE : BooleanData.FALSE)
@@ -86,8 +102,7 @@ public class DbcNullDecoder implements MessageDecoder {
             final MessageDesc desc, 
             final MessageContent message, 
             final Record target) {
-        final Instant start = desc.getTimeStart();
-        return target.add(TIME, TIME_HASH, start != null ? new InstantData(start.plusNanos(message.getNanosOffset())) : InstantData.NULL)
+        return target.add(TIME, TIME_HASH, time(desc.getTimeStart(), message.getNanosOffset()))
                  .add(OFFSET, OFFSET_HASH, new LongData(message.getNanosOffset()))
                  .add(CHANNEL, CHANNEL_HASH, IntData.valueOf(message.getChannelID()))
                  .add(ERROR, ERROR_HASH, message.isError() ? BooleanData.TRUE : BooleanData.FALSE)
@@ -115,4 +130,11 @@ public class DbcNullDecoder implements MessageDecoder {
     public void select(final Set<String> selectedAttributes) {
         //do nothing since binary messages have no names
     }
+    
+    private TypeData time(final Instant start, final long nanosOffset) {
+        if (timeNanos) {
+            return start != null ? LongData.nonNullValueOf(DbcUtils.toEpochNanos(start) + nanosOffset) : LongData.NULL;
+        }
+        return start != null ? new InstantData(start.plusNanos(nanosOffset)) : InstantData.NULL;
+    }
 }
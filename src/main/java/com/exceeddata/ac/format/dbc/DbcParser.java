@@ -0,0 +1,225 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.exceeddata.ac.common.exception.EngineException;
+import com.exceeddata.ac.common.util.XStringUtils;
+
+/**
+ * Builds DBC channels from DBC content with a {@link DbcTokenizer}, shared by the decode and encode
+ * builders.  Multiple DBC files are parsed in parallel, one channel per file, and returned in file order.
+ *
+ */
+public final class DbcParser {
+    private DbcParser() {}
+
+    /**
+     * Parse DBC content into a channel.
+     *
+     * @param channelID the channel ID
+     * @param reader the DBC content
+     * @param useQualifiedName whether to construct qualified names
+     * @param applyFormula whether to apply formula
+     * @return DbcChannel
+     * @throws IOException if reading fails
+     */
+    public static DbcChannel parse(
+            final int channelID,
+            final Reader reader,
+            final boolean useQualifiedName,
+            final boolean applyFormula) throws IOException {
+        final DbcChannel channel = new DbcChannel();
+        channel.setChannelID(channelID);
+
+        final DbcTokenizer tokenizer = new DbcTokenizer(reader);
+        DbcMessage message = null, parsed;
+        DbcAttribute attribute;
+        while (tokenizer.nextLine()) {
+            if (tokenizer.isBlank()) {
+                continue;
+            }
+            if ((parsed = tokenizer.message(channelID)) != null) {
+                message = parsed;
+            } else if ((attribute = tokenizer.attribute(message != null ? message.getName() : null, useQualifiedName, applyFormula)) != null) {
+                if (message == null) {
+                    throw new RuntimeException("FORMAT_DBC_ATTRIBUTE_UNEXPECTED: " + tokenizer.line());
+                }
+                if (!channel.containsMessage(message.getMessageID())) {
+                    channel.addMessage(message);
+                }
+                message.addAttribute(attribute);
+            } else {
+                tokenizer.valueType(channel, useQualifiedName); //value types apply to the signals parsed before
+                message = null;
+            }
+        }
+        return channel;
+    }
+
+    /**
+     * Parse DBC files into channels numbered from 1 in path order.  A blank path yields an empty channel.
+     *
+     * @param paths the DBC file paths
+     * @param useQualifiedName whether to construct qualified names
+     * @param applyFormula whether to apply formula
+     * @return List
+     * @throws EngineException if a file cannot be read
+     */
+    public static List<DbcChannel> parseFiles(
+            final String[] paths,
+            final boolean useQualifiedName,
+            final boolean applyFormula) throws EngineException {
+        final List<Callable<DbcChannel>> tasks = new ArrayList<>(paths.length);
+        for (int i = 0; i < paths.length; ++i) {
+            final int channelID = i + 1;
+            final String path = paths[i];
+            tasks.add(new Callable<DbcChannel>() {
+                @Override
+                public DbcChannel call() throws EngineException {
+                    if (XStringUtils.isBlank(path)) {
+                        return parseEmpty(channelID);
+                    }
+                    try (final Reader reader = new InputStreamReader(Files.newInputStream(Paths.get(path.trim())), StandardCharsets.UTF_8)) {
+                        return parse(channelID, reader, useQualifiedName, applyFormula);
+                    } catch (IOException e) {
+                        throw new EngineException("FORMAT_DBC_FILE_READ_FAILED: " + path, e);
+                    }
+                }
+            });
+        }
+        return run(tasks);
+    }
+
+    /**
+     * Parse DBC file contents into channels numbered from 1 in list order.  Blank content yields an empty
+     * channel.
+     *
+     * @param contents the DBC file contents
+     * @param useQualifiedName whether to construct qualified names
+     * @param applyFormula whether to apply formula
+     * @return List
+     * @throws EngineException if parsing fails
+     */
+    public static List<DbcChannel> parseContents(
+            final List<String> contents,
+            final boolean useQualifiedName,
+            final boolean applyFormula) throws EngineException {
+        final List<Callable<DbcChannel>> tasks = new ArrayList<>(contents.size());
+        for (int i = 0; i < contents.size(); ++i) {
+            final int channelID = i + 1;
+            final String content = contents.get(i);
+            tasks.add(new Callable<DbcChannel>() {
+                @Override
+                public DbcChannel call() throws IOException {
+                    return XStringUtils.isBlank(content)
+                            ? parseEmpty(channelID)
+                            : parse(channelID, new StringReader(content), useQualifiedName, applyFormula);
+                }
+            });
+        }
+        return run(tasks);
+    }
+
+    /**
+     * Keep the messages of a channel that have attributes and, if deduplicating, whose IDs are not in
+     * previously retained channels.
+     *
+     * @param channel the channel
+     * @param messageids the retained message IDs of previous channels, updated
+     * @param deduplicateMessage whether to deduplicate messages
+     * @return LinkedHashMap
+     */
+    public static LinkedHashMap<Long, DbcMessage> retain(
+            final DbcChannel channel,
+            final Set<Long> messageids,
+            final boolean deduplicateMessage) {
+        final LinkedHashMap<Long, DbcMessage> messages = new LinkedHashMap<>();
+        for (final Map.Entry<Long, DbcMessage> entry : channel.getMessages().entrySet()) {
+            if (entry.getValue().size() > 0 && (!deduplicateMessage || !messageids.contains(entry.getKey()))) {
+                messages.put(entry.getKey(), entry.getValue());
+                messageids.add(entry.getKey());
+            }
+        }
+        return messages;
+    }
+
+    private static DbcChannel parseEmpty(final int channelID) {
+        final DbcChannel channel = new DbcChannel();
+        channel.setChannelID(channelID);
+        return channel;
+    }
+
+    private static List<DbcChannel> run(final List<Callable<DbcChannel>> tasks) throws EngineException {
+        final List<DbcChannel> channels = new ArrayList<>(tasks.size());
+        if (tasks.size() <= 1) {
+            for (final Callable<DbcChannel> task : tasks) {
+                channels.add(call(task));
+            }
+            return channels;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "dbc-parser");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        try {
+            final List<Future<DbcChannel>> futures = new ArrayList<>(tasks.size());
+            for (final Callable<DbcChannel> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (final Future<DbcChannel> future : futures) {
+                channels.add(future.get());
+            }
+            return channels;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EngineException("FORMAT_DBC_PARSE_INTERRUPTED", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static DbcChannel call(final Callable<DbcChannel> task) throws EngineException {
+        try {
+            return task.call();
+        } catch (Exception e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static EngineException unwrap(final Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        } else if (cause instanceof EngineException) {
+            return (EngineException) cause;
+        }
+        return new EngineException("FORMAT_DBC_PARSE_FAILED: " + cause, cause);
+    }
+}
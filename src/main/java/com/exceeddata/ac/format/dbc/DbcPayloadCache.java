@@ -0,0 +1,150 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.util.Arrays;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.data.typedata.TypeData;
+import com.exceeddata.ac.common.message.MessageContent;
+import com.exceeddata.ac.common.message.MessageDesc;
+
+/**
+ * The last payload and decoded values per (channel, message ID), used to skip decoding of repeated
+ * payloads.  Payloads are kept as copies and compared with <code>Arrays.equals</code>.
+ *
+ * <p>A cache is owned by a single decoder instance and is not thread-safe; decoders create a fresh
+ * cache on <code>clone()</code>.</p>
+ *
+ */
+public final class DbcPayloadCache {
+    private static final Record UNCHANGED = new Record(); //marker of an unchanged payload in MARK mode
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final DbcRepeatMode mode;
+    private Entry[] entries = new Entry[INITIAL_CAPACITY];
+    private int size = 0;
+
+    DbcPayloadCache(final DbcRepeatMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Return whether the record is the marker returned for an unchanged payload in
+     * {@link DbcRepeatMode#MARK} mode.
+     *
+     * @param record the record
+     * @return true or false
+     */
+    public static boolean isUnchanged(final Record record) {
+        return record == UNCHANGED;
+    }
+
+    /**
+     * Decode or interpret a frame of the message, unless its payload repeats the previous frame.
+     *
+     * @param message the DBC message
+     * @param desc the message desc
+     * @param content the message content
+     * @param target the target record, or null for a new record
+     * @param applyFormula whether to apply formula
+     * @return Record
+     */
+    Record decode(
+            final DbcMessage message,
+            final MessageDesc desc,
+            final MessageContent content,
+            final Record target,
+            final boolean applyFormula) {
+        final byte[] bytes = content.getData();
+        final Record template = message.getTemplate(); //a new template after any attribute change
+        final Entry entry = entry(((long) content.getChannelID() << 32) | (content.getMessageID() & 0xffffffffl));
+
+        if (entry.template == template && entry.applyFormula == applyFormula && entry.matches(bytes)) {
+            return mode == DbcRepeatMode.MARK
+                    ? UNCHANGED
+                    : message.restamp(desc, content, entry.values, target != null ? target : template.dataCopy());
+        }
+
+        final Record record = target == null
+                ? (applyFormula ? message.decode(desc, content) : message.interpret(desc, content))
+                : (applyFormula ? message.decode(desc, content, target) : message.interpret(desc, content, target));
+        if (record == null) {
+            entry.template = null;
+            entry.values = null;
+            return null;
+        }
+
+        entry.template = template;
+        entry.applyFormula = applyFormula;
+        entry.values = mode == DbcRepeatMode.REUSE ? message.capture(record, bytes, target == null) : null; //callers may modify their records
+        entry.store(bytes);
+        return record;
+    }
+
+    public void clear() {
+        this.entries = new Entry[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private Entry entry(final long key) {
+        final int mask = entries.length - 1;
+        int slot = (int) ((key * 0x9e3779b97f4a7c15l) >>> 40) & mask;
+        Entry e;
+        while ((e = entries[slot]) != null) {
+            if (e.key == key) {
+                return e;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        e = entries[slot] = new Entry(key);
+        if (++size > entries.length >> 1) {
+            grow();
+        }
+        return e;
+    }
+
+    private void grow() {
+        final Entry[] old = entries;
+        final Entry[] grown = new Entry[old.length << 1];
+        final int mask = grown.length - 1;
+        for (final Entry e : old) {
+            if (e != null) {
+                int slot = (int) ((e.key * 0x9e3779b97f4a7c15l) >>> 40) & mask;
+                while (grown[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                grown[slot] = e;
+            }
+        }
+        entries = grown;
+    }
+
+    private static final class Entry {
+        private final long key;
+        private byte[] payload = null;
+        private boolean applyFormula;
+        private Record template;
+        private TypeData[] values;
+
+        private Entry(final long key) {
+            this.key = key;
+        }
+
+        private boolean matches(final byte[] bytes) {
+            return Arrays.equals(payload, bytes);
+        }
+
+        private void store(final byte[] bytes) {
+            if (payload != null && payload.length == bytes.length) {
+                System.arraycopy(bytes, 0, payload, 0, bytes.length);
+            } else {
+                payload = bytes.clone();
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.util.IdentityHashMap;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.exception.EngineException;
+import com.exceeddata.ac.common.message.MessageContent;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.common.message.MessageDesc;
+
+/**
+ * A pool of output records of a DBC decoder, recycled once consumed.  Frames are decoded into a free
+ * record of their message by {@link DbcMessage#fill}, which sets the values by position, so in steady
+ * state decoding creates no record and no record ever grows.  Consumers hand each record back by
+ * <code>release</code> once done with it.
+ *
+ * <p>Each message keeps up to <code>depth</code> records.  When all of them are out a new record is
+ * copied from the template and not pooled, so records that are never released do not grow the pool.
+ * Frames are decoded as with {@link DbcRepeatMode#DECODE}.  A pool is not thread-safe, use one per
+ * decoding thread.</p>
+ *
+ */
+public final class DbcRecordPool {
+    private final DbcMessageTable table;
+    private final boolean consolidated;
+    private final int depth;
+    private final IdentityHashMap<DbcMessage, Ring> rings = new IdentityHashMap<>();
+    private final IdentityHashMap<Record, Ring> owners = new IdentityHashMap<>();
+    private long created = 0l;
+
+    /**
+     * Construct a pool for the messages of a channel, consolidate or compiled DBC decoder.
+     *
+     * @param decoder the decoder
+     * @param depth the maximum number of pooled records per message
+     * @throws EngineException if the decoder is not a DBC message decoder
+     */
+    public DbcRecordPool(final MessageDecoder decoder, final int depth) throws EngineException {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("FORMAT_DBC_POOL_DEPTH_INVALID: " + depth);
+        }
+
+        final MessageDecoder source = decoder instanceof DbcCompiledDecoder ? ((DbcCompiledDecoder) decoder).getDecoder() : decoder;
+        if (source instanceof DbcChannelMessageDecoder) {
+            this.table = DbcMessageTable.ofChannels(((DbcChannelMessageDecoder) source).getChannels());
+            this.consolidated = false;
+        } else if (source instanceof DbcConsolidateMessageDecoder) {
+            this.table = DbcMessageTable.of(((DbcConsolidateMessageDecoder) source).getMessages());
+            this.consolidated = true;
+        } else {
+            throw new EngineException("FORMAT_DBC_DECODER_NOT_POOLABLE: " + (decoder == null ? "null" : decoder.getClass().getName()));
+        }
+        this.depth = depth;
+    }
+
+    /**
+     * Decode or interpret a frame into a pooled record.
+     *
+     * @param desc the message desc
+     * @param message the message content
+     * @param applyFormula whether to apply formula
+     * @return Record or null if the message is not defined or the bytes are short
+     */
+    public Record compute(final MessageDesc desc, final MessageContent message, final boolean applyFormula) {
+        final DbcMessage dbc = consolidated
+                ? table.get(message.getMessageID())
+                : table.get(message.getChannelID(), message.getMessageID());
+        if (dbc == null) {
+            return null;
+        }
+
+        Ring ring = rings.get(dbc);
+        if (ring == null) {
+            rings.put(dbc, ring = new Ring(dbc, depth));
+        }
+        final Record record = acquire(ring);
+        final Record result = dbc.fill(desc, message, record, applyFormula);
+        if (result == null) {
+            release(record);
+        }
+        return result;
+    }
+
+    /**
+     * Decode a frame into a pooled record.
+     *
+     * @param desc the message desc
+     * @param message the message content
+     * @return Record or null if the message is not defined or the bytes are short
+     */
+    public Record decode(final MessageDesc desc, final MessageContent message) {
+        return compute(desc, message, true);
+    }
+
+    public Record interpret(final MessageDesc desc, final MessageContent message) {
+        return compute(desc, message, false);
+    }
+
+    /**
+     * Hand a record back to the pool once consumed.  The record must not be used afterwards.  Records
+     * not pooled, and records already released, are ignored.
+     *
+     * @param record the record
+     */
+    public void release(final Record record) {
+        final Ring ring = owners.get(record);
+        if (ring != null && ring.size < ring.free.length) {
+            for (int i = 0; i < ring.size; ++i) {
+                if (ring.free[i] == record) {
+                    return;
+                }
+            }
+            ring.free[ring.size++] = record;
+        }
+    }
+
+    /**
+     * Return the number of records created by the pool, pooled or not.
+     *
+     * @return long
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    private Record acquire(final Ring ring) {
+        if (ring.size > 0) {
+            final Record record = ring.free[--ring.size];
+            ring.free[ring.size] = null;
+            return record;
+        }
+
+        final Record record = ring.message.getTemplate().dataCopy();
+        ++created;
+        if (ring.pooled < ring.free.length) {
+            ++ring.pooled;
+            owners.put(record, ring);
+        }
+        return record;
+    }
+
+    private static final class Ring {
+        private final DbcMessage message;
+        private final Record[] free;
+        private int size = 0;
+        private int pooled = 0;
+
+        private Ring(final DbcMessage message, final int depth) {
+            this.message = message;
+            this.free = new Record[depth];
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.data.typedata.LongData;
+import com.exceeddata.ac.common.data.typedata.NullData;
+import com.exceeddata.ac.common.data.typedata.TypeData;
+
+/**
+ * A decode-on-access view of a DBC frame, laid out as the message template: the time, the offset if
+ * output, then the signals in attribute order.  A signal is extracted and scaled when it is first read
+ * and cached in the view, so consumers reading a few signals of a wide message skip the decoding and
+ * value allocation of all others.  Signals of inactive multiplexed pages read as null.
+ *
+ * <p>A view holds the frame bytes by reference and is not thread-safe.  Use <code>toRecord()</code>
+ * for a record of all values.</p>
+ *
+ */
+public final class DbcRecordView {
+    private final DbcMessage message;
+    private final List<DbcAttribute> attributes;
+    private final Instant start;
+    private final long nanosOffset;
+    private final byte[] bytes;
+    private final boolean applyFormula;
+    private final int base;
+    private final TypeData[] values;
+    private long page = -2l;    //-2 until resolved, -1 if not multiplexed
+
+    DbcRecordView(
+            final DbcMessage message,
+            final Instant start,
+            final long nanosOffset,
+            final byte[] bytes,
+            final boolean applyFormula) {
+        this.message = message;
+        this.attributes = message.getAttributes();
+        this.start = start;
+        this.nanosOffset = nanosOffset;
+        this.bytes = bytes;
+        this.applyFormula = applyFormula;
+        this.base = message.getOutputOffset() ? 2 : 1;
+        this.values = new TypeData[base + attributes.size()];
+    }
+
+    public DbcMessage getMessage() {
+        return message;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public String nameAt(final int index) {
+        return message.getTemplate().nameAt(index);
+    }
+
+    /**
+     * Return the value at a template position, decoding it on first read.
+     *
+     * @param index the position
+     * @return TypeData
+     */
+    public TypeData dataAt(final int index) {
+        TypeData value = values[index];
+        if (value == null) {
+            values[index] = value = index >= base ? signal(attributes.get(index - base)) : index == 0 ? message.time(start, nanosOffset) : new LongData(nanosOffset);
+        }
+        return value;
+    }
+
+    /**
+     * Return the time of the frame in epoch nanoseconds without creating an instant.
+     *
+     * @return long, or {@link DbcMessageColumns#NULL_TIME} if the trace has no start time
+     */
+    public long getTimeNanos() {
+        return start != null ? DbcUtils.toEpochNanos(start) + nanosOffset : DbcMessageColumns.NULL_TIME;
+    }
+
+    /**
+     * Return the value of a field, decoding it on first read.
+     *
+     * @param name the field name
+     * @return TypeData, or null if the message has no such field
+     */
+    public TypeData get(final String name) {
+        final int index = message.positionOf(name);
+        return index >= 0 ? dataAt(index) : null;
+    }
+
+    /**
+     * Return the number of values decoded so far.
+     *
+     * @return int
+     */
+    public int decoded() {
+        int count = 0;
+        for (int i = 0; i < values.length; ++i) {
+            if (values[i] != null) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Decode all values into a record, as returned by the decode of the message.
+     *
+     * @return Record
+     */
+    public Record toRecord() {
+        final Record record = message.getTemplate().dataCopy();
+        for (int i = 0; i < values.length; ++i) {
+            record.setAt(i, dataAt(i));
+        }
+        return record;
+    }
+
+    private TypeData signal(final DbcAttribute attribute) {
+        if (page == -2l) {
+            final DbcMultiplexIndex mux = message.multiplex();
+            page = mux != DbcMultiplexIndex.NONE ? mux.page(bytes) : -1l;
+        }
+        if (page >= 0l && attribute.getMultiplexValue() >= 0 && attribute.getMultiplexValue() != page) {
+            return NullData.INSTANCE; //inactive page
+        }
+        return applyFormula ? attribute.decode(bytes) : attribute.interpret(bytes);
+    }
+}
@@ -0,0 +1,245 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.io.Serializable;
+import java.util.Set;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.message.MessageContent;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.common.message.MessageDesc;
+
+/**
+ * A decoder whose DBC model can be swapped while decoding threads keep running.  Each frame reads the
+ * current model through a single volatile reference, so a reload is one write, readers never block
+ * and a frame is always decoded by one complete model.  Models are numbered from 1 in reload order.
+ *
+ * <p>Use <code>clone()</code> for each decoding thread: clones share the current model, while each
+ * instance holds its own clone of the decoder of a model, for decoders with per-instance state such
+ * as repeat tracking, and remembers the version of the model of its last decoded frame.</p>
+ *
+ * <p>Records buffered past the next frame should be decoded with the <code>*Versioned</code> methods,
+ * which return the version of the model together with each record.</p>
+ *
+ */
+public final class DbcReloadableDecoder implements MessageDecoder {
+    private static final long serialVersionUID = 1L;
+
+    private final Holder holder;
+    private transient Version local = null;           //model of the local decoder
+    private transient MessageDecoder decoder = null;  //per instance clone of the model decoder
+    private long lastVersion = 0l;
+
+    /**
+     * Construct a reloadable decoder with an initial model of version 1.
+     *
+     * @param decoder the initial decoder, fully built and not modified afterwards
+     */
+    public DbcReloadableDecoder(final MessageDecoder decoder) {
+        this.holder = new Holder();
+        this.holder.current = new Version(1l, decoder);
+    }
+
+    private DbcReloadableDecoder(final DbcReloadableDecoder decoder) {
+        this.holder = decoder.holder;
+    }
+
+    /**
+     * Swap in a new model for all clones of this decoder.  Frames being decoded finish with the model
+     * they started with.
+     *
+     * @param decoder the new decoder, fully built and not modified afterwards
+     * @return the version of the new model
+     */
+    public long reload(final MessageDecoder decoder) {
+        synchronized (holder) { //serializes reloads only, readers never lock
+            final Version v = new Version(holder.current.version + 1, decoder);
+            holder.current = v;
+            return v.version;
+        }
+    }
+
+    /**
+     * Return the version of the current model.
+     *
+     * @return long
+     */
+    public long getVersion() {
+        return holder.current.version;
+    }
+
+    /**
+     * Return the version of the model that decoded or interpreted the last frame of this instance.  It
+     * is overwritten by the next frame, see {@link #computeVersioned(MessageDesc, MessageContent, Record, boolean)}
+     * for the version of each record.
+     *
+     * @return the version, or 0 if no frame has been decoded
+     */
+    public long getLastVersion() {
+        return lastVersion;
+    }
+
+    /**
+     * Return the decoder of the current model.
+     *
+     * @return MessageDecoder
+     */
+    public MessageDecoder getDecoder() {
+        return holder.current.decoder;
+    }
+
+    @Override
+    public boolean getOutputOffset() {
+        return holder.current.decoder.getOutputOffset();
+    }
+
+    @Override
+    public DbcReloadableDecoder clone() {
+        return new DbcReloadableDecoder(this);
+    }
+
+    @Override
+    public Record compute(final MessageDesc desc, final MessageContent message, final boolean applyFormula) {
+        return decoder().compute(desc, message, applyFormula);
+    }
+
+    @Override
+    public Record compute(
+            final MessageDesc desc,
+            final MessageContent message,
+            final Record target,
+            final boolean applyFormula) {
+        return decoder().compute(desc, message, target, applyFormula);
+    }
+
+    @Override
+    public Record decode(final MessageDesc desc, final MessageContent message) {
+        return decoder().decode(desc, message);
+    }
+
+    @Override
+    public Record decode(final MessageDesc desc, final MessageContent message, final Record target) {
+        return decoder().decode(desc, message, target);
+    }
+
+    @Override
+    public Record interpret(final MessageDesc desc, final MessageContent message) {
+        return decoder().interpret(desc, message);
+    }
+
+    @Override
+    public Record interpret(final MessageDesc desc, final MessageContent message, final Record target) {
+        return decoder().interpret(desc, message, target);
+    }
+
+    /**
+     * Decode a frame and return the record with the version of the model that decoded it.
+     *
+     * @param desc the message desc
+     * @param message the message content
+     * @return Versioned or null if the frame is not decoded
+     */
+    public Versioned decodeVersioned(final MessageDesc desc, final MessageContent message) {
+        return computeVersioned(desc, message, null, true);
+    }
+
+    /**
+     * Compute a frame and return the record with the version of the model that computed it.
+     *
+     * @param desc the message desc
+     * @param message the message content
+     * @param target the target record to reuse, or null for a new record
+     * @param applyFormula whether to apply formula
+     * @return Versioned or null if the frame is not decoded
+     */
+    public Versioned computeVersioned(
+            final MessageDesc desc,
+            final MessageContent message,
+            final Record target,
+            final boolean applyFormula) {
+        final long version = acquire();
+        final Record record = target == null
+                ? decoder.compute(desc, message, applyFormula)
+                : decoder.compute(desc, message, target, applyFormula);
+        return record != null ? new Versioned(version, record) : null;
+    }
+
+    /**
+     * Reload a selected copy of the current model for all clones of this decoder, see
+     * {@link #reload(MessageDecoder)}.  The decoder of the current model is not modified.  An empty
+     * selection is a no-op.
+     *
+     * @param selectedAttributes the selected attributes
+     */
+    @Override
+    public void select(final Set<String> selectedAttributes) {
+        if (selectedAttributes == null || selectedAttributes.size() == 0) {
+            return;
+        }
+        
+        synchronized (holder) { //no reload in between, the selection applies to the latest model
+            final MessageDecoder current = holder.current.decoder;
+            final MessageDecoder selected;
+            if (current instanceof DbcCompiledDecoder) {
+                selected = ((DbcCompiledDecoder) current).view(selectedAttributes);
+            } else {
+                selected = current.clone();
+                selected.select(selectedAttributes);
+            }
+            reload(selected);
+        }
+    }
+
+    private MessageDecoder decoder() {
+        acquire();
+        return decoder;
+    }
+
+    private long acquire() {
+        final Version v = holder.current;
+        if (v != local) {
+            decoder = v.decoder.clone();
+            local = v;
+        }
+        return lastVersion = v.version;
+    }
+
+    /**
+     * A record with the version of the model that decoded it.
+     *
+     */
+    public static final class Versioned {
+        private final long version;
+        private final Record record;
+
+        private Versioned(final long version, final Record record) {
+            this.version = version;
+            this.record = record;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Record getRecord() {
+            return record;
+        }
+    }
+
+    private static final class Holder implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private volatile Version current;
+    }
+
+    private static final class Version implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final long version;
+        private final MessageDecoder decoder;
+
+        private Version(final long version, final MessageDecoder decoder) {
+            this.version = version;
+            this.decoder = decoder;
+        }
+    }
+}
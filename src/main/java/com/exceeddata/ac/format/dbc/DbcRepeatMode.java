@@ -0,0 +1,17 @@
+package com.exceeddata.ac.format.dbc;
+
+/**
+ * How a DBC decoder handles a frame whose payload is identical to the previous frame of the same
+ * channel and message ID.
+ *
+ */
+public enum DbcRepeatMode {
+    /** Decode every frame. */
+    DECODE,
+
+    /** Reuse the previously decoded values with the new timestamp. */
+    REUSE,
+
+    /** Return the marker of {@link DbcPayloadCache#isUnchanged} instead of a record. */
+    MARK
+}
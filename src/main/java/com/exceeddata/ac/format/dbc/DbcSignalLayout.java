@@ -0,0 +1,216 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * A precomputed extraction plan of a DBC signal.  The byte window, shift, mask and sign-extension
+ * of the signal are resolved once, so that a decode reads the window bytes into a single long and
+ * applies a few shifts instead of walking the signal bit by bit.
+ *
+ * <p>Both Intel and Motorola layouts are supported for signals of 1 to 64 bits, in payloads of any
+ * length (including 64-byte CAN FD frames).  An unaligned 64-bit signal may span 9 bytes, which is
+ * handled by folding the extra byte into the window.</p>
+ *
+ * <p>The same plan writes raw values back with {@link #insert(long, byte[], int)}, masking the window
+ * bytes in place without intermediate bit sets.</p>
+ *
+ * <p>The bit by bit {@code decodeMotorola} and {@code decodeIntel} methods of the attributes are the
+ * reference implementation of this extraction.</p>
+ *
+ */
+public final class DbcSignalLayout implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int MAX_LENGTH = 64;
+
+    private final int startBit;
+    private final int length;
+    private final DbcByteOrder order;
+    private final boolean signed;
+
+    private final int windowStart;  //lowest byte index of the window
+    private final int windowBytes;  //number of bytes in the window, 1 to 9
+    private final int shift;        //right shift to align the signal LSB to bit 0
+    private final int signShift;    //64 - length, for sign extension
+    private final long mask;
+
+    public DbcSignalLayout(final int startBit, final int length, final DbcByteOrder order, final boolean signed) {
+        if (!supports(length)) {
+            throw new IllegalArgumentException("FORMAT_DBC_SIGNAL_LENGTH_UNSUPPORTED: " + length);
+        }
+
+        this.startBit = startBit;
+        this.length = length;
+        this.order = order;
+        this.signed = signed;
+        this.signShift = 64 - length;
+        this.mask = length == 64 ? -1l : (1l << length) - 1l;
+
+        if (order == DbcByteOrder.MOTOROLA) {
+            //start bit is the MSB, count the bits in big endian stream order
+            final int msb = (startBit / 8) * 8 + (7 - startBit % 8);
+            final int lsb = msb + length - 1;
+            this.windowStart = startBit / 8;
+            this.windowBytes = lsb / 8 - windowStart + 1;
+            this.shift = 7 - lsb % 8;
+        } else {
+            //start bit is the LSB, count the bits in little endian order
+            this.windowStart = startBit / 8;
+            this.windowBytes = (startBit + length - 1) / 8 - windowStart + 1;
+            this.shift = startBit % 8;
+        }
+    }
+
+    /**
+     * Return whether a signal of the bit length can be extracted with a layout.
+     *
+     * @param length the bit length
+     * @return true or false
+     */
+    public static boolean supports(final int length) {
+        return length > 0 && length <= MAX_LENGTH;
+    }
+
+    /**
+     * Create the layout of a signal, or null if the bit length is not supported.
+     *
+     * @param startBit the start bit
+     * @param length the bit length
+     * @param order the byte order
+     * @param signed whether the signal is signed
+     * @return DbcSignalLayout or null
+     */
+    public static DbcSignalLayout of(final int startBit, final int length, final DbcByteOrder order, final boolean signed) {
+        return supports(length) ? new DbcSignalLayout(startBit, length, order, signed) : null;
+    }
+
+    /**
+     * Extract the raw value of the signal, sign-extended if the signal is signed.
+     *
+     * @param bytes the bytes
+     * @return long
+     */
+    public long extract(final byte[] bytes) {
+        final long raw = order == DbcByteOrder.MOTOROLA ? windowMotorola(bytes) : windowIntel(bytes);
+        return signed ? (raw << signShift) >> signShift : raw & mask;
+    }
+
+    private long windowIntel(final byte[] bytes) {
+        long window = 0l;
+        if (windowBytes <= 8) {
+            for (int i = windowStart + windowBytes - 1; i >= windowStart; --i) {
+                window = (window << 8) | (bytes[i] & 0xff);
+            }
+            return window >>> shift;
+        }
+
+        //9 bytes, the last byte holds the high bits beyond the 64-bit window
+        for (int i = windowStart + 7; i >= windowStart; --i) {
+            window = (window << 8) | (bytes[i] & 0xff);
+        }
+        return (window >>> shift) | ((long) (bytes[windowStart + 8] & 0xff) << (64 - shift));
+    }
+
+    private long windowMotorola(final byte[] bytes) {
+        long window = 0l;
+        final int end = windowStart + windowBytes;
+        if (windowBytes <= 8) {
+            for (int i = windowStart; i < end; ++i) {
+                window = (window << 8) | (bytes[i] & 0xff);
+            }
+            return window >>> shift;
+        }
+
+        //9 bytes, the first byte holds the high bits beyond the 64-bit window
+        for (int i = windowStart + 1; i < end; ++i) {
+            window = (window << 8) | (bytes[i] & 0xff);
+        }
+        return (window >>> shift) | ((long) (bytes[windowStart] & 0xff) << (64 - shift));
+    }
+
+    /**
+     * Write the raw value of the signal into the bytes of a payload starting at an offset.  The signal bits
+     * are cleared first and only the low <code>length</code> bits of the value are written, other bits in
+     * the window are kept.
+     *
+     * @param raw the raw value
+     * @param bytes the bytes
+     * @param offset the offset of the payload in the bytes
+     */
+    public void insert(final long raw, final byte[] bytes, final int offset) {
+        final long value = raw & mask;
+        for (int k = 0, index = offset + windowStart; k < windowBytes; ++k, ++index) {
+            final int position = order == DbcByteOrder.MOTOROLA ? (windowBytes - 1 - k) << 3 : k << 3;
+            bytes[index] = (byte) ((bytes[index] & ~(int) part(mask, position)) | (int) part(value, position));
+        }
+    }
+
+    /**
+     * Write the raw value of the signal into a buffer at an absolute offset, without changing the position
+     * of the buffer.
+     *
+     * @param raw the raw value
+     * @param buffer the buffer
+     * @param offset the offset of the payload in the buffer
+     */
+    public void insert(final long raw, final ByteBuffer buffer, final int offset) {
+        if (buffer.hasArray()) {
+            insert(raw, buffer.array(), buffer.arrayOffset() + offset);
+            return;
+        }
+
+        final long value = raw & mask;
+        for (int k = 0, index = offset + windowStart; k < windowBytes; ++k, ++index) {
+            final int position = order == DbcByteOrder.MOTOROLA ? (windowBytes - 1 - k) << 3 : k << 3;
+            buffer.put(index, (byte) ((buffer.get(index) & ~(int) part(mask, position)) | (int) part(value, position)));
+        }
+    }
+
+    //the window byte at a bit position of the shifted value, the 9th byte holds the bits shifted out
+    private long part(final long value, final int position) {
+        return position < 64 ? (value << shift) >>> position : value >>> (64 - shift);
+    }
+
+    public int getStartBit() {
+        return startBit;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public DbcByteOrder getOrder() {
+        return order;
+    }
+
+    public boolean isSigned() {
+        return signed;
+    }
+
+    /**
+     * Return the lowest byte index read by the layout.
+     *
+     * @return int
+     */
+    public int getWindowStart() {
+        return windowStart;
+    }
+
+    /**
+     * Return the number of bytes read by the layout.
+     *
+     * @return int
+     */
+    public int getWindowBytes() {
+        return windowBytes;
+    }
+
+    public int getShift() {
+        return shift;
+    }
+
+    public long getMask() {
+        return mask;
+    }
+}
@@ -0,0 +1,409 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.exceeddata.ac.common.exception.EngineException;
+import com.exceeddata.ac.common.util.XStringUtils;
+
+/**
+ * A compact binary snapshot of built DBC channels, so that jobs sharing the same DBC files and build
+ * flags can skip parsing.  A snapshot is named by its key, a SHA-256 hash of the DBC file contents and
+ * the build flags, and is read back through a memory-mapped buffer.
+ *
+ * <p>A snapshot is only a cache: a missing, truncated or foreign snapshot, or one written by another
+ * format version or for another key, reads as null and is to be rebuilt.  Snapshots are written to a
+ * temporary file and moved into place, so concurrent jobs never read a partial snapshot.</p>
+ *
+ */
+public final class DbcSnapshot {
+    private static final int MAGIC = 0x44424353; //DBCS
+    private static final int VERSION = 2;
+    private static final int KEY_LENGTH = 32;
+    private static final int MAX_BITS = 1 << 16;  //plausible signal bounds, a corrupted value reads as stale
+    private static final int MAX_SCALE = 256;
+
+    private static final byte INTEGER = 1;
+    private static final byte LONG = 2;
+    private static final byte DECIMAL = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT_IEEE = 5;
+    private static final byte DOUBLE_IEEE = 6;
+
+    private DbcSnapshot() {}
+
+    /**
+     * Compute the snapshot key of DBC files and build flags.  Files are hashed by content in path order,
+     * so a moved file keeps its key and an edited file changes it.
+     *
+     * @param paths the DBC file paths, blank paths allowed
+     * @param kind the kind of the built model, such as decoder or encoder
+     * @param selectedAttributes the selected attributes, or null
+     * @param flags the build flags in a fixed order
+     * @return the key as lower case hex
+     * @throws EngineException if a file cannot be read
+     */
+    public static String key(
+            final String[] paths,
+            final String kind,
+            final Set<String> selectedAttributes,
+            final boolean... flags) throws EngineException {
+        final MessageDigest digest = sha256();
+        final byte[] buffer = new byte[65536];
+        update(digest, VERSION);
+        update(digest, kind);
+        update(digest, paths.length);
+        for (final String path : paths) {
+            if (XStringUtils.isBlank(path)) {
+                update(digest, -1);
+                continue;
+            }
+            try (final InputStream in = Files.newInputStream(Paths.get(path.trim()))) {
+                long size = 0l;
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                    size += read;
+                }
+                update(digest, (int) (size >>> 32));
+                update(digest, (int) size);
+            } catch (IOException e) {
+                throw new EngineException("FORMAT_DBC_FILE_READ_FAILED: " + path, e);
+            }
+        }
+
+        return hex(digest, selectedAttributes, flags);
+    }
+
+    /**
+     * Compute the snapshot key of DBC file contents and build flags.
+     *
+     * @param contents the DBC file contents, blank contents allowed
+     * @param kind the kind of the built model, such as decoder or encoder
+     * @param selectedAttributes the selected attributes, or null
+     * @param flags the build flags in a fixed order
+     * @return the key as lower case hex
+     */
+    public static String key(
+            final List<String> contents,
+            final String kind,
+            final Set<String> selectedAttributes,
+            final boolean... flags) {
+        final MessageDigest digest = sha256();
+        update(digest, VERSION);
+        update(digest, kind);
+        update(digest, contents.size());
+        for (final String content : contents) {
+            if (XStringUtils.isBlank(content)) {
+                update(digest, -1);
+            } else {
+                update(digest, content);
+            }
+        }
+        return hex(digest, selectedAttributes, flags);
+    }
+
+    private static String hex(final MessageDigest digest, final Set<String> selectedAttributes, final boolean... flags) {
+        for (final boolean flag : flags) {
+            digest.update(flag ? (byte) 1 : (byte) 0);
+        }
+        if (selectedAttributes == null) {
+            update(digest, -1);
+        } else {
+            update(digest, selectedAttributes.size());
+            for (final String name : new TreeSet<>(selectedAttributes)) {
+                update(digest, name);
+            }
+        }
+
+        final StringBuilder sb = new StringBuilder(KEY_LENGTH * 2);
+        for (final byte b : digest.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return the snapshot file of a key under a directory.
+     *
+     * @param directory the snapshot directory
+     * @param key the snapshot key
+     * @return Path
+     */
+    public static Path path(final String directory, final String key) {
+        return Paths.get(directory.trim(), "dbc-" + key + ".snapshot");
+    }
+
+    /**
+     * Read the channels of a snapshot.
+     *
+     * @param file the snapshot file
+     * @param key the expected snapshot key
+     * @return the channels, or null if the snapshot is missing, stale or corrupted
+     */
+    public static List<DbcChannel> read(final Path file, final String key) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 8 + KEY_LENGTH || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            final byte[] stored = new byte[KEY_LENGTH];
+            buffer.get(stored);
+            if (!Arrays.equals(stored, unhex(key))) {
+                return null;
+            }
+
+            final int channelCount = buffer.getInt();
+            if (channelCount < 0 || channelCount > buffer.remaining()) {
+                return null;
+            }
+            final List<DbcChannel> channels = new ArrayList<>(channelCount);
+            for (int i = 0; i < channelCount; ++i) {
+                final DbcChannel dbcChannel = new DbcChannel();
+                dbcChannel.setChannelID(buffer.getInt());
+                for (int j = 0, messageCount = buffer.getInt(); j < messageCount; ++j) {
+                    final DbcMessage message = readMessage(buffer);
+                    if (message == null) {
+                        return null;
+                    }
+                    dbcChannel.addMessage(message);
+                }
+                channels.add(dbcChannel);
+            }
+            return buffer.hasRemaining() ? null : channels;
+        } catch (IOException | RuntimeException e) { //a corrupted snapshot is rebuilt like a stale one
+            return null;
+        }
+    }
+
+    /**
+     * Write the channels as a snapshot, replacing any existing snapshot of the file.
+     *
+     * @param file the snapshot file
+     * @param key the snapshot key
+     * @param channels the channels
+     * @return false if the snapshot could not be written
+     */
+    public static boolean write(final Path file, final String key, final List<DbcChannel> channels) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(65536);
+        Path temp = null;
+        try {
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.write(unhex(key));
+            out.writeInt(channels.size());
+            for (final DbcChannel channel : channels) {
+                out.writeInt(channel.getChannelID());
+                out.writeInt(channel.size());
+                for (final DbcMessage message : channel.getMessages().values()) {
+                    writeMessage(out, message);
+                }
+            }
+            out.flush();
+
+            final Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.write(temp, bytes.toByteArray());
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ex) {
+                    //leave it, the snapshot itself is intact
+                }
+            }
+            return false;
+        }
+    }
+
+    private static void writeMessage(final DataOutputStream out, final DbcMessage message) throws IOException {
+        out.writeInt(message.getChannelID());
+        out.writeLong(message.getMessageID());
+        out.writeBoolean(message.isExtendedFrame());
+        writeString(out, message.getName());
+        out.writeInt(message.getLength());
+        out.writeBoolean(message.getOutputOffset());
+        out.writeInt(message.size());
+        for (final DbcAttribute attribute : message.getAttributes()) {
+            out.writeByte(typeOf(attribute));
+            writeString(out, attribute.getName());
+            writeString(out, attribute.getUnit());
+            out.writeInt(attribute.getStartBit());
+            out.writeInt(attribute.getLength());
+            out.writeBoolean(attribute.getByteOrder() == DbcByteOrder.MOTOROLA);
+            out.writeBoolean(attribute.isSigned());
+            writeDecimal(out, attribute.getMultiplier());
+            writeDecimal(out, attribute.getAdjustment());
+            writeDecimal(out, DbcDelegatorMessage.minValueOf(attribute));
+            writeDecimal(out, DbcDelegatorMessage.maxValueOf(attribute));
+            out.writeInt(attribute.getMultiplexValue());
+            out.writeBoolean(attribute.isMultiplexor());
+        }
+    }
+
+    private static DbcMessage readMessage(final ByteBuffer buffer) {
+        final int channelID = buffer.getInt();
+        final long messageID = buffer.getLong();
+        final boolean extendedFrame = buffer.get() != 0;
+        final DbcMessage message = new DbcMessage(channelID, extendedFrame ? messageID | 0x80000000l : messageID, readString(buffer), buffer.getInt());
+        message.setOutputOffset(buffer.get() != 0);
+        for (int i = 0, size = buffer.getInt(); i < size; ++i) {
+            final byte type = buffer.get();
+            DbcAttribute attribute = DbcDelegatorMessage.buildAttribute(
+                    readString(buffer),
+                    readString(buffer),
+                    readBits(buffer),
+                    readBits(buffer),
+                    buffer.get() != 0 ? DbcByteOrder.MOTOROLA : DbcByteOrder.INTEL,
+                    buffer.get() != 0,
+                    readDecimal(buffer),
+                    readDecimal(buffer),
+                    readDecimal(buffer),
+                    readDecimal(buffer),
+                    buffer.getInt(),
+                    buffer.get() != 0);
+            if (type == FLOAT_IEEE || type == DOUBLE_IEEE) {
+                attribute = DbcDelegatorMessage.buildValueType(attribute, type == FLOAT_IEEE
+                        ? DbcAttributeDouble.VALUE_TYPE_FLOAT
+                        : DbcAttributeDouble.VALUE_TYPE_DOUBLE);
+            }
+            if (typeOf(attribute) != type) {
+                return null;
+            }
+            message.addAttribute(attribute);
+        }
+        return message;
+    }
+
+    private static byte typeOf(final DbcAttribute attribute) {
+        if (attribute instanceof DbcAttributeInteger) {
+            return INTEGER;
+        } else if (attribute instanceof DbcAttributeLong) {
+            return LONG;
+        } else if (attribute instanceof DbcAttributeDecimal) {
+            return DECIMAL;
+        } else if (attribute instanceof DbcAttributeDouble) {
+            final int valueType = ((DbcAttributeDouble) attribute).getValueType();
+            return valueType == DbcAttributeDouble.VALUE_TYPE_FLOAT ? FLOAT_IEEE
+                    : valueType == DbcAttributeDouble.VALUE_TYPE_DOUBLE ? DOUBLE_IEEE
+                    : DOUBLE;
+        }
+        throw new RuntimeException("FORMAT_DBC_SNAPSHOT_UNSUPPORTED: " + attribute.getClass().getName());
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        return new String(bytes(buffer, length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeDecimal(final DataOutputStream out, final BigDecimal value) throws IOException {
+        final byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(value.scale());
+        out.writeInt(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static int readBits(final ByteBuffer buffer) {
+        final int bits = buffer.getInt();
+        if (bits < 0 || bits > MAX_BITS) {
+            throw new RuntimeException("FORMAT_DBC_SNAPSHOT_CORRUPTED: " + bits);
+        }
+        return bits;
+    }
+
+    private static BigDecimal readDecimal(final ByteBuffer buffer) {
+        final int scale = buffer.getInt();
+        if (scale < -MAX_SCALE || scale > MAX_SCALE) {
+            throw new RuntimeException("FORMAT_DBC_SNAPSHOT_CORRUPTED: " + scale);
+        }
+        return new BigDecimal(new BigInteger(bytes(buffer, buffer.getInt())), scale);
+    }
+
+    private static byte[] bytes(final ByteBuffer buffer, final int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("FORMAT_DBC_SNAPSHOT_DIGEST_UNAVAILABLE", e);
+        }
+    }
+
+    private static void update(final MessageDigest digest, final int value) {
+        digest.update((byte) (value >>> 24));
+        digest.update((byte) (value >>> 16));
+        digest.update((byte) (value >>> 8));
+        digest.update((byte) value);
+    }
+
+    private static void update(final MessageDigest digest, final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        update(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static byte[] unhex(final String key) {
+        if (key.length() != KEY_LENGTH * 2) {
+            throw new IllegalArgumentException("FORMAT_DBC_SNAPSHOT_KEY_INVALID: " + key);
+        }
+        final byte[] bytes = new byte[KEY_LENGTH];
+        for (int i = 0; i < KEY_LENGTH; ++i) {
+            bytes[i] = (byte) Integer.parseInt(key.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,68 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.util.Arrays;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.data.typedata.TypeData;
+
+/**
+ * The decoded fields of one frame as positions in the wide schema of a {@link DbcFieldIndex} and their
+ * values, holding only the fields of the frame message.  A row is reused across frames and is not
+ * thread-safe.
+ *
+ */
+public final class DbcSparseRow {
+    private int[] positions;
+    private TypeData[] values;
+    private int size = 0;
+
+    public DbcSparseRow() {
+        this(16);
+    }
+
+    public DbcSparseRow(final int capacity) {
+        this.positions = new int[Math.max(capacity, 2)];
+        this.values = new TypeData[positions.length];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int positionAt(final int index) {
+        return positions[index];
+    }
+
+    public TypeData dataAt(final int index) {
+        return values[index];
+    }
+
+    /**
+     * Set the values of the row into a wide record by position, such as a copy of the template of the
+     * field index.  Fields not in the row are left as they are, so rows of several messages can be
+     * merged into one record.
+     *
+     * @param target the wide record
+     * @return the target
+     */
+    public Record materialize(final Record target) {
+        for (int i = 0; i < size; ++i) {
+            target.setAt(positions[i], values[i]);
+        }
+        return target;
+    }
+
+    void clear() {
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    void add(final int position, final TypeData value) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size << 1);
+            values = Arrays.copyOf(values, size << 1);
+        }
+        positions[size] = position;
+        values[size++] = value;
+    }
+}
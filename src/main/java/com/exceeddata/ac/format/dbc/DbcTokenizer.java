@@ -0,0 +1,384 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A streaming line tokenizer of DBC content.  Lines are read into a reusable character buffer, and
+ * <code>BO_</code>, <code>SG_</code> and <code>SIG_VALTYPE_</code> lines are parsed once in place by
+ * scanning for their delimiters, so that only names, units and numbers other than 0 and 1 are materialized.
+ *
+ * <p>A tokenizer is not thread-safe, use one tokenizer per reader.</p>
+ *
+ */
+public final class DbcTokenizer {
+    private static final int CHUNK = 8192;
+
+    private final Reader reader;
+    private final char[] chunk = new char[CHUNK];
+    private int chunkPosition = 0;
+    private int chunkLength = 0;
+    private char[] line = new char[256];
+    private int from = 0;   //first non-whitespace character of the line
+    private int to = 0;     //after the last non-whitespace character of the line
+    private boolean carriageReturn = false; //a line feed right after a carriage return ends no line
+
+    public DbcTokenizer(final Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Read the next line, terminated by a line feed, a carriage return or the end of the content.
+     *
+     * @return false if the content has no more lines
+     * @throws IOException if reading fails
+     */
+    public boolean nextLine() throws IOException {
+        int length = 0;
+        boolean read = false;
+        while (true) {
+            if (chunkPosition == chunkLength) {
+                if ((chunkLength = reader.read(chunk, 0, CHUNK)) <= 0) {
+                    chunkLength = chunkPosition = 0;
+                    break;
+                }
+                chunkPosition = 0;
+            }
+
+            final char c = chunk[chunkPosition++];
+            if (carriageReturn) {
+                carriageReturn = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            read = true;
+            if (c == '\n' || c == '\r') {
+                carriageReturn = c == '\r';
+                break;
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length << 1);
+            }
+            line[length++] = c;
+        }
+
+        from = 0;
+        to = length;
+        while (from < to && line[from] <= ' ') {
+            ++from;
+        }
+        while (to > from && line[to - 1] <= ' ') {
+            --to;
+        }
+        return read;
+    }
+
+    /**
+     * Return whether the current line is blank.
+     *
+     * @return true or false
+     */
+    public boolean isBlank() {
+        return from == to;
+    }
+
+    /**
+     * Return the current line, trimmed.
+     *
+     * @return String
+     */
+    public String line() {
+        return new String(line, from, to - from);
+    }
+
+    /**
+     * Parse the current line as a <code>BO_</code> message.
+     *
+     * @param channelID the channel ID
+     * @return the message without attributes, or null if the line is not a message
+     */
+    public DbcMessage message(final int channelID) {
+        if (!startsWith("BO_ ")) {
+            return null;
+        }
+
+        final int idStart = skipWhitespace(from + 4);
+        final int idEnd = indexOfWhitespace(idStart);
+        final int colon = indexOf(':', idEnd);
+        if (idEnd == idStart || colon < 0) {
+            return null;
+        }
+
+        final int nameStart = skipWhitespace(idEnd);
+        final int nameEnd = trimEnd(nameStart, colon);
+        final int lengthStart = skipWhitespace(colon + 1);
+        final int lengthEnd = indexOfWhitespace(lengthStart);
+        if (nameEnd == nameStart || lengthEnd == lengthStart || lengthEnd == to) { //a transmitter follows the length
+            return null;
+        }
+
+        try {
+            final long messageID = parseLong(idStart, idEnd);
+            final int length = parseInt(lengthStart, lengthEnd);
+            return new DbcMessage(channelID, messageID, new String(line, nameStart, nameEnd - nameStart), length);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parse the current line as a <code>SG_</code> signal.
+     *
+     * @param messageName the name of the message of the signal, for qualified names
+     * @param useQualifiedName whether to construct a qualified name
+     * @param applyFormula whether to apply formula
+     * @return the attribute, or null if the line is not a signal
+     */
+    public DbcAttribute attribute(final String messageName, final boolean useQualifiedName, final boolean applyFormula) {
+        if (!startsWith("SG_ ")) {
+            return null;
+        }
+
+        //each delimiter must follow at least one character after the previous one
+        final int colon = indexOf(':', from + 4);
+        final int bar = indexOf('|', colon + 1);
+        final int at = indexOf('@', bar + 1);
+        final int paren = indexOf('(', at + 1);
+        final int comma = indexOf(',', paren + 1);
+        final int close = indexOf(')', comma + 1);
+        final int bracket = indexOf('[', close + 1);
+        final int range = indexOf('|', bracket + 1);
+        final int end = indexOf(']', range + 1);
+        if (colon <= from + 4 || bar <= colon + 1 || at <= bar + 1 || paren <= at + 1 || comma <= paren + 1
+                || close <= comma + 1 || bracket <= close + 1 || range <= bracket + 1 || end <= range + 1) {
+            return null;
+        }
+
+        final int endianStart = skipWhitespace(at + 1);
+        final int endianEnd = trimEnd(endianStart, paren);
+        if (endianEnd - endianStart != 2
+                || (line[endianStart] != '0' && line[endianStart] != '1')
+                || (line[endianStart + 1] != '+' && line[endianStart + 1] != '-')) {
+            return null;
+        }
+
+        final int startBit, bitLength;
+        final BigDecimal factor, offset, minValue, maxValue;
+        try {
+            startBit = parseInt(colon + 1, bar);
+            bitLength = parseInt(bar + 1, at);
+            factor = decimal(paren + 1, comma);
+            offset = decimal(comma + 1, close);
+            minValue = decimal(bracket + 1, range);
+            maxValue = decimal(range + 1, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        //name and the optional multiplex indicator: M, mN or mNM
+        final int nameStart = skipWhitespace(from + 4);
+        final int nameEnd = indexOfWhitespace(nameStart, colon);
+        final int muxStart = skipWhitespace(nameEnd);
+        final int muxEnd = trimEnd(muxStart, colon);
+        if (nameEnd == nameStart || indexOfWhitespace(muxStart, muxEnd) != muxEnd) {
+            throw new RuntimeException("FORMAT_DBC_MESSAGE_UNEXPECTED: " + line());
+        }
+
+        int multiplexValue = -1;
+        boolean multiplexor = false;
+        if (muxEnd > muxStart) {
+            int valueEnd = muxEnd;
+            if (line[valueEnd - 1] == 'M') {
+                multiplexor = true;
+                --valueEnd;
+            }
+            if (valueEnd > muxStart) {
+                if (valueEnd - muxStart < 2 || line[muxStart] != 'm') {
+                    throw new RuntimeException("FORMAT_DBC_MESSAGE_UNEXPECTED: " + line());
+                }
+                try {
+                    multiplexValue = parseInt(muxStart + 1, valueEnd);
+                } catch (NumberFormatException e) {
+                    throw new RuntimeException("FORMAT_DBC_MESSAGE_UNEXPECTED: " + line());
+                }
+                if (multiplexValue < 0) {
+                    throw new RuntimeException("FORMAT_DBC_MESSAGE_UNEXPECTED: " + line());
+                }
+            }
+        }
+
+        String unit = null;
+        final int quote = indexOf('"', end + 1);
+        if (quote >= 0) {
+            final int unquote = indexOf('"', quote + 1);
+            if (unquote >= 0) {
+                final int unitStart = skipWhitespace(quote + 1);
+                unit = new String(line, unitStart, trimEnd(unitStart, unquote) - unitStart);
+            }
+        }
+
+        final String signal = new String(line, nameStart, nameEnd - nameStart);
+        return DbcDelegatorMessage.buildAttribute(
+                useQualifiedName ? messageName + "." + signal : signal,
+                unit,
+                startBit,
+                bitLength,
+                line[endianStart] == '0' ? DbcByteOrder.MOTOROLA : DbcByteOrder.INTEL,
+                line[endianStart + 1] == '-',
+                applyFormula ? factor : BigDecimal.ONE,
+                applyFormula ? offset : BigDecimal.ZERO,
+                minValue,
+                maxValue,
+                multiplexValue,
+                multiplexor);
+    }
+
+    /**
+     * Parse the current line as a <code>SIG_VALTYPE_</code> value type and rebuild the signal of the
+     * channel for it.  Value types of messages or signals not in the channel are ignored.
+     *
+     * @param channel the channel of the previously parsed messages
+     * @param useQualifiedName whether signal names are qualified
+     * @return false if the line is not a value type
+     */
+    public boolean valueType(final DbcChannel channel, final boolean useQualifiedName) {
+        if (!startsWith("SIG_VALTYPE_ ")) {
+            return false;
+        }
+
+        final int idStart = skipWhitespace(from + 13);
+        final int idEnd = indexOfWhitespace(idStart);
+        final int nameStart = skipWhitespace(idEnd);
+        final int colon = indexOf(':', nameStart);
+        final int nameEnd = colon >= 0 ? indexOfWhitespace(nameStart, colon) : nameStart;
+        if (idEnd == idStart || nameEnd == nameStart) {
+            throw new RuntimeException("FORMAT_DBC_VALUE_TYPE_UNEXPECTED: " + line());
+        }
+
+        final int typeStart = skipWhitespace(colon + 1);
+        final int semicolon = indexOf(';', typeStart);
+        final long messageID;
+        final int valueType;
+        try {
+            messageID = parseLong(idStart, idEnd) & 0x7fffffffl;
+            valueType = parseInt(typeStart, semicolon >= 0 ? semicolon : to);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("FORMAT_DBC_VALUE_TYPE_UNEXPECTED: " + line());
+        }
+
+        final DbcMessage message = channel.getMessage(messageID);
+        if (message == null) {
+            return true;
+        }
+        final String signal = new String(line, nameStart, nameEnd - nameStart);
+        final String name = useQualifiedName ? message.getName() + "." + signal : signal;
+        final List<DbcAttribute> attributes = message.getAttributes();
+        for (int i = 0, s = attributes.size(); i < s; ++i) {
+            if (attributes.get(i).getName().equals(name)) {
+                try {
+                    message.setAttribute(i, DbcDelegatorMessage.buildValueType(attributes.get(i), valueType));
+                } catch (IllegalArgumentException e) {
+                    throw new RuntimeException("FORMAT_DBC_VALUE_TYPE_UNEXPECTED: " + line());
+                }
+                break;
+            }
+        }
+        return true;
+    }
+
+    private boolean startsWith(final String prefix) {
+        if (to - from < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); ++i) {
+            if (line[from + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(final char c, final int start) {
+        for (int i = start; i < to; ++i) {
+            if (line[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOfWhitespace(final int start) {
+        return indexOfWhitespace(start, to);
+    }
+
+    private int indexOfWhitespace(final int start, final int end) {
+        int i = start;
+        while (i < end && line[i] > ' ') {
+            ++i;
+        }
+        return i;
+    }
+
+    private int skipWhitespace(final int start) {
+        int i = start;
+        while (i < to && line[i] <= ' ') {
+            ++i;
+        }
+        return i;
+    }
+
+    private int trimEnd(final int start, final int end) {
+        int i = end;
+        while (i > start && line[i - 1] <= ' ') {
+            --i;
+        }
+        return i;
+    }
+
+    private int parseInt(final int start, final int end) {
+        final long value = parseLong(start, end);
+        if (value != (int) value) {
+            throw new NumberFormatException();
+        }
+        return (int) value;
+    }
+
+    private long parseLong(final int start, final int end) {
+        int i = skipWhitespace(start);
+        final int e = trimEnd(i, end);
+        final boolean negative = i < e && line[i] == '-';
+        if (i < e && (line[i] == '-' || line[i] == '+')) {
+            ++i;
+        }
+        if (i == e) {
+            throw new NumberFormatException();
+        }
+
+        long value = 0l;
+        for (; i < e; ++i) {
+            final int digit = line[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw new NumberFormatException();
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private BigDecimal decimal(final int start, final int end) {
+        final int s = skipWhitespace(start);
+        final int e = trimEnd(s, end);
+        if (e - s == 1 && line[s] == '0') {
+            return BigDecimal.ZERO;
+        } else if (e - s == 1 && line[s] == '1') {
+            return BigDecimal.ONE;
+        } else if (e == s) {
+            throw new NumberFormatException();
+        }
+        return new BigDecimal(line, s, e - s);
+    }
+}
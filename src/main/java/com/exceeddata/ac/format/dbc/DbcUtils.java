@@ -2,6 +2,8 @@ package com.exceeddata.ac.format.dbc;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
 import java.time.Instant;
 import java.util.BitSet;
 
@@ -85,6 +87,138 @@ public final class DbcUtils {
         return bits;
     }
 
+    /**
+     * Return whether <code>raw * factor + offset</code> in double arithmetic can replace the decimal
+     * computation rounded to double, for every raw value of a signal.  With a zero tolerance the results
+     * must be identical: the raw range fits in 53 bits, factor and offset are exact doubles, and every
+     * intermediate result is exact.  With a positive tolerance the worst-case absolute error of the
+     * double computation must not exceed the tolerance.
+     *
+     * @param length the signal bit length
+     * @param signed whether the signal is signed
+     * @param factor the factor
+     * @param offset the offset
+     * @param tolerance the absolute tolerance, 0 for identical results
+     * @return true or false
+     */
+    public static boolean isDoubleScalable(
+            final int length,
+            final boolean signed,
+            final BigDecimal factor,
+            final BigDecimal offset,
+            final double tolerance) {
+        if (length < 1 || length > 53) {
+            return false;
+        }
+
+        final double f = factor.doubleValue();
+        final double o = offset.doubleValue();
+        if (Double.isInfinite(f) || Double.isInfinite(o)) {
+            return false;
+        }
+
+        final BigDecimal df = new BigDecimal(f);
+        final BigDecimal dof = new BigDecimal(o);
+        final BigDecimal rawMax = BigDecimal.valueOf(signed ? 1l << (length - 1) : (1l << length) - 1l);
+        final BigDecimal bound = rawMax.multiply(df.abs()).add(dof.abs());
+
+        if (df.compareTo(factor) == 0 && dof.compareTo(offset) == 0) {
+            //all values are multiples of the smallest set bit of factor and offset, exact below 2^53 of it
+            final int lowest = Math.min(lowestBitExponent(f), lowestBitExponent(o));
+            if (lowest == Integer.MAX_VALUE) {
+                return true;
+            }
+            if (lowest != Integer.MIN_VALUE && (53 + lowest > 1000 || bound.compareTo(new BigDecimal(Math.scalb(1d, 53 + lowest))) < 0)) {
+                return true;
+            }
+        }
+        if (!(tolerance > 0d)) {
+            return false;
+        }
+
+        //representation error of factor and offset, plus rounding of the product, the sum and the reference
+        final double error = rawMax.multiply(df.subtract(factor).abs()).add(dof.subtract(offset).abs()).doubleValue()
+                + 3d * Math.ulp(bound.doubleValue());
+        return error <= tolerance;
+    }
+
+    /**
+     * Scale a physical value to its raw value, <code>(value - offset) / factor</code> rounded half up as the
+     * decimal encode does.  Computed in double unless the quotient is too close to a half to round safely.
+     *
+     * @param value the physical value
+     * @param doubleOffset the offset as a double
+     * @param doubleFactor the factor as a double
+     * @param offset the offset
+     * @param factor the factor
+     * @param context the division context
+     * @return long
+     */
+    public static long toRaw(
+            final double value,
+            final double doubleOffset,
+            final double doubleFactor,
+            final BigDecimal offset,
+            final BigDecimal factor,
+            final MathContext context) {
+        final double q = (value - doubleOffset) / doubleFactor;
+        final double a = Math.abs(q);
+        if (!(a < 0x1p52)) {
+            return Double.isInfinite(q) || Double.isNaN(q) ? Math.round(q) : toRawDecimal(value, offset, factor, context);
+        }
+
+        //generous bound of the double errors of the value, offset, factor, difference and quotient
+        final double floor = Math.floor(a);
+        final double margin = 0x1p-40 * ((Math.abs(value) + Math.abs(doubleOffset)) / Math.abs(doubleFactor) + a);
+        if (Math.abs(a - floor - 0.5d) <= margin) {
+            return toRawDecimal(value, offset, factor, context);
+        }
+        final long raw = a - floor > 0.5d ? (long) floor + 1l : (long) floor;
+        return q < 0d ? -raw : raw;
+    }
+
+    private static long toRawDecimal(final double value, final BigDecimal offset, final BigDecimal factor, final MathContext context) {
+        BigDecimal v = BigDecimal.valueOf(value);
+        if (offset.signum() != 0) {
+            v = v.subtract(offset);
+        }
+        if (BigDecimal.ONE.compareTo(factor) != 0) {
+            v = v.divide(factor, context);
+        }
+        return v.setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private static int lowestBitExponent(final double d) {
+        if (d == 0d) {
+            return Integer.MAX_VALUE;
+        }
+        if (Math.abs(d) < Double.MIN_NORMAL) {
+            return Integer.MIN_VALUE; //subnormal, not worth the analysis
+        }
+        final long mantissa = (Double.doubleToRawLongBits(d) & 0x000fffffffffffffl) | 0x0010000000000000l;
+        return Math.getExponent(d) - 52 + Long.numberOfTrailingZeros(mantissa);
+    }
+
+    /**
+     * Convert an instant to nanoseconds since the epoch, valid between years 1677 and 2262.
+     * 
+     * @param instant the instant
+     * @return long
+     */
+    public static long toEpochNanos(final Instant instant) {
+        return instant.getEpochSecond() * 1000000000l + instant.getNano();
+    }
+    
+    /**
+     * Materialize an instant from epoch nanoseconds.
+     * 
+     * @param epochNanos the epoch nanoseconds
+     * @return Instant
+     */
+    public static Instant toInstant(final long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1000000000l), Math.floorMod(epochNanos, 1000000000l));
+    }
+    
     public static Record decode(MessageDecoder decoder , Instant time, int channelId, int messageId, byte [] data, Record record  , boolean applyFormula){
         Message msg = new Message(time, channelId, messageId, data);
         decoder.compute(msg,msg ,  record, applyFormula);
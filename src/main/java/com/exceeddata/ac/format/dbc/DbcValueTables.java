@@ -0,0 +1,109 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Precomputes raw-to-physical value tables for small signals of DBC messages.
+ *
+ * <p>Signals up to a configurable bit width are tabulated, narrowest first, until the estimated table memory
+ * reaches a ceiling.  Tables are caches of the attribute's own decode and never change the decoded
+ * values.</p>
+ *
+ */
+public final class DbcValueTables {
+    private DbcValueTables() {}
+
+    /** The widest signal that can be tabulated. */
+    public static final int MAX_BITS = 16;
+
+    /** The default widest tabulated signal, covering booleans, enums, counters and status bytes. */
+    public static final int DEFAULT_BITS = 12;
+
+    /** The default memory ceiling of all tables built in one call. */
+    public static final long DEFAULT_MAX_BYTES = 16l * 1024l * 1024l;
+
+    //estimated bytes per entry: the array reference plus the data object and its value
+    private static final int ENTRY_BYTES = 32;
+    private static final int DECIMAL_ENTRY_BYTES = 72;
+
+    /**
+     * Tabulate the signals of the messages with the default bit width and memory ceiling.
+     *
+     * @param messages the messages
+     * @return the estimated table memory in bytes
+     */
+    public static long tabulate(final List<DbcMessage> messages) {
+        return tabulate(messages, DEFAULT_BITS, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Tabulate the signals of the messages.  Attributes shared by several messages are tabulated once.
+     *
+     * @param messages the messages
+     * @param maxBits the widest signal to tabulate, at most {@link #MAX_BITS}
+     * @param maxBytes the memory ceiling of the tables
+     * @return the estimated table memory in bytes
+     */
+    public static long tabulate(final List<DbcMessage> messages, final int maxBits, final long maxBytes) {
+        final int bits = Math.min(maxBits, MAX_BITS);
+        final IdentityHashMap<DbcAttribute, Boolean> seen = new IdentityHashMap<>();
+        final List<DbcAttribute> candidates = new ArrayList<>();
+        for (final DbcMessage message : messages) {
+            for (final DbcAttribute attribute : message.getAttributes()) {
+                if (attribute.getLength() > 1 && attribute.getLength() <= bits && seen.put(attribute, Boolean.TRUE) == null) {
+                    candidates.add(attribute);
+                }
+            }
+        }
+
+        //narrowest first, the most signals per byte of table
+        Collections.sort(candidates, new Comparator<DbcAttribute>() {
+            @Override
+            public int compare(final DbcAttribute a, final DbcAttribute b) {
+                return Integer.compare(a.getLength(), b.getLength());
+            }
+        });
+
+        long used = 0l;
+        for (final DbcAttribute attribute : candidates) {
+            final long bytes = (1l << attribute.getLength()) * (attribute instanceof DbcAttributeDecimal ? DECIMAL_ENTRY_BYTES : ENTRY_BYTES);
+            if (used + bytes > maxBytes) {
+                break;
+            }
+            if (tabulate(attribute, true) > 0) {
+                used += bytes;
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Drop the tables of all signals of the messages.
+     *
+     * @param messages the messages
+     */
+    public static void untabulate(final List<DbcMessage> messages) {
+        for (final DbcMessage message : messages) {
+            for (final DbcAttribute attribute : message.getAttributes()) {
+                tabulate(attribute, false);
+            }
+        }
+    }
+
+    private static int tabulate(final DbcAttribute attribute, final boolean enabled) {
+        if (attribute instanceof DbcAttributeInteger) {
+            return ((DbcAttributeInteger) attribute).tabulate(enabled);
+        } else if (attribute instanceof DbcAttributeLong) {
+            return ((DbcAttributeLong) attribute).tabulate(enabled);
+        } else if (attribute instanceof DbcAttributeDouble) {
+            return ((DbcAttributeDouble) attribute).tabulate(enabled);
+        } else if (attribute instanceof DbcAttributeDecimal) {
+            return ((DbcAttributeDecimal) attribute).tabulate(enabled);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,221 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Set;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.message.MessageContent;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.common.message.MessageDesc;
+
+/**
+ * A decoder of traces spanning DBC revisions, holding one decoder per version with its validity time
+ * range.  Each frame is routed by its time, <code>desc.getTimeStart()</code> plus its nanos offset, to
+ * the version valid at that time.  The time range of the last routed version, or of the gap between
+ * versions, is cached, so consecutive frames of a trace route with two comparisons, and frames outside
+ * it by a binary search over the version boundaries.  Frames of no version decode to null.
+ *
+ * <p>The routing cache is per instance, use <code>clone()</code> for each decoding thread.  A desc
+ * without time start routes its frames by the nanos offset alone, as epoch nanos.</p>
+ *
+ */
+public final class DbcVersionedDecoder implements MessageDecoder {
+    private static final long serialVersionUID = 1L;
+
+    private long[] froms = new long[0];     //inclusive epoch nanos, ascending
+    private long[] untils = new long[0];    //exclusive epoch nanos
+    private MessageDecoder[] decoders = new MessageDecoder[0];
+
+    private transient MessageDesc lastDesc = null;
+    private transient long lastStart = 0l;
+    private transient long cachedFrom = 0l;
+    private transient long cachedUntil = 0l;   //an empty range until the first frame
+    private transient int cachedVersion = -1;
+    private transient int lastVersion = -1;
+
+    public DbcVersionedDecoder() {
+    }
+
+    private DbcVersionedDecoder(final DbcVersionedDecoder decoder) {
+        this.froms = decoder.froms;
+        this.untils = decoder.untils;
+        this.decoders = new MessageDecoder[decoder.decoders.length];
+        for (int i = 0; i < decoders.length; ++i) {
+            this.decoders[i] = decoder.decoders[i].clone(); //per thread state of the version decoders
+        }
+    }
+
+    /**
+     * Add a version valid from a time, inclusive, until a time, exclusive.  Versions must not overlap.
+     *
+     * @param validFrom the start of the validity, or null for unbounded
+     * @param validUntil the end of the validity, or null for unbounded
+     * @param decoder the decoder of the version
+     * @return this decoder
+     */
+    public DbcVersionedDecoder addVersion(final Instant validFrom, final Instant validUntil, final MessageDecoder decoder) {
+        final long from = validFrom != null ? DbcUtils.toEpochNanos(validFrom) : Long.MIN_VALUE;
+        final long until = validUntil != null ? DbcUtils.toEpochNanos(validUntil) : Long.MAX_VALUE;
+        if (from >= until) {
+            throw new IllegalArgumentException("FORMAT_DBC_VERSION_RANGE_INVALID: " + validFrom + " - " + validUntil);
+        }
+
+        int i = 0;
+        while (i < froms.length && froms[i] < from) {
+            ++i;
+        }
+        if ((i > 0 && untils[i - 1] > from) || (i < froms.length && froms[i] < until)) {
+            throw new IllegalArgumentException("FORMAT_DBC_VERSION_RANGE_OVERLAP: " + validFrom + " - " + validUntil);
+        }
+
+        froms = insert(froms, i, from);
+        untils = insert(untils, i, until);
+        final MessageDecoder[] d = Arrays.copyOf(decoders, decoders.length + 1);
+        System.arraycopy(decoders, i, d, i + 1, decoders.length - i);
+        d[i] = decoder;
+        decoders = d;
+        cachedUntil = cachedFrom;
+        return this;
+    }
+
+    /**
+     * Return the decoder of the version valid at a time.
+     *
+     * @param epochNanos the time in epoch nanos
+     * @return MessageDecoder or null if no version is valid
+     */
+    public MessageDecoder getDecoder(final long epochNanos) {
+        final int version = route(epochNanos);
+        return version >= 0 ? decoders[version] : null;
+    }
+
+    /**
+     * Return the decoder of a version, in order of validity from 0.
+     *
+     * @param version the version
+     * @return MessageDecoder
+     */
+    public MessageDecoder getVersionDecoder(final int version) {
+        return decoders[version];
+    }
+
+    /**
+     * Return the version, in order of validity from 0, that routed the last frame of this instance.
+     *
+     * @return the version, or -1 if no version was valid or no frame was routed
+     */
+    public int getLastVersion() {
+        return lastVersion;
+    }
+
+    public int size() {
+        return decoders.length;
+    }
+
+    @Override
+    public boolean getOutputOffset() {
+        return decoders.length > 0 && decoders[0].getOutputOffset();
+    }
+
+    @Override
+    public DbcVersionedDecoder clone() {
+        return new DbcVersionedDecoder(this);
+    }
+
+    @Override
+    public Record compute(final MessageDesc desc, final MessageContent message, final boolean applyFormula) {
+        final MessageDecoder decoder = decoder(desc, message);
+        return decoder != null ? decoder.compute(desc, message, applyFormula) : null;
+    }
+
+    @Override
+    public Record compute(
+            final MessageDesc desc,
+            final MessageContent message,
+            final Record target,
+            final boolean applyFormula) {
+        final MessageDecoder decoder = decoder(desc, message);
+        return decoder != null ? decoder.compute(desc, message, target, applyFormula) : null;
+    }
+
+    @Override
+    public Record decode(final MessageDesc desc, final MessageContent message) {
+        final MessageDecoder decoder = decoder(desc, message);
+        return decoder != null ? decoder.decode(desc, message) : null;
+    }
+
+    @Override
+    public Record decode(final MessageDesc desc, final MessageContent message, final Record target) {
+        final MessageDecoder decoder = decoder(desc, message);
+        return decoder != null ? decoder.decode(desc, message, target) : null;
+    }
+
+    @Override
+    public Record interpret(final MessageDesc desc, final MessageContent message) {
+        final MessageDecoder decoder = decoder(desc, message);
+        return decoder != null ? decoder.interpret(desc, message) : null;
+    }
+
+    @Override
+    public Record interpret(final MessageDesc desc, final MessageContent message, final Record target) {
+        final MessageDecoder decoder = decoder(desc, message);
+        return decoder != null ? decoder.interpret(desc, message, target) : null;
+    }
+
+    /**
+     * Select attributes in the decoders of all versions.
+     *
+     * @param selectedAttributes the selected attributes
+     */
+    @Override
+    public void select(final Set<String> selectedAttributes) {
+        for (final MessageDecoder decoder : decoders) {
+            decoder.select(selectedAttributes);
+        }
+    }
+
+    private MessageDecoder decoder(final MessageDesc desc, final MessageContent message) {
+        if (desc != lastDesc) {
+            final Instant start = desc.getTimeStart();
+            lastStart = start != null ? DbcUtils.toEpochNanos(start) : 0l;
+            lastDesc = desc;
+        }
+        lastVersion = route(lastStart + message.getNanosOffset());
+        return lastVersion >= 0 ? decoders[lastVersion] : null;
+    }
+
+    private int route(final long epochNanos) {
+        if (epochNanos >= cachedFrom && epochNanos < cachedUntil) {
+            return cachedVersion;
+        }
+
+        //the last version starting at or before the time
+        int low = 0, high = froms.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (froms[mid] <= epochNanos) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (high >= 0 && epochNanos < untils[high]) {
+            cachedFrom = froms[high];
+            cachedUntil = untils[high];
+            cachedVersion = high;
+        } else { //a gap between the versions around the time
+            cachedFrom = high >= 0 ? untils[high] : Long.MIN_VALUE;
+            cachedUntil = high + 1 < froms.length ? froms[high + 1] : Long.MAX_VALUE;
+            cachedVersion = -1;
+        }
+        return cachedVersion;
+    }
+
+    private static long[] insert(final long[] values, final int index, final long value) {
+        final long[] v = Arrays.copyOf(values, values.length + 1);
+        System.arraycopy(values, index, v, index + 1, values.length - index);
+        v[index] = value;
+        return v;
+    }
+}
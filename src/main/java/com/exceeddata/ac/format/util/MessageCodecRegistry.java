@@ -0,0 +1,372 @@
+package com.exceeddata.ac.format.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import com.exceeddata.ac.common.exception.EngineException;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.common.message.MessageEncoder;
+import com.exceeddata.ac.common.util.XStringUtils;
+import com.exceeddata.ac.format.dbc.DbcAttribute;
+import com.exceeddata.ac.format.dbc.DbcChannel;
+import com.exceeddata.ac.format.dbc.DbcChannelMessageDecoder;
+import com.exceeddata.ac.format.dbc.DbcCompiledDecoder;
+import com.exceeddata.ac.format.dbc.DbcConsolidateMessageDecoder;
+import com.exceeddata.ac.format.dbc.DbcMessage;
+import com.exceeddata.ac.format.dbc.DbcMessageEncoder;
+import com.exceeddata.ac.format.dbc.DbcSnapshot;
+
+/**
+ * A thread-safe registry of decoders and encoders built by {@link MessageDecodeBuilder} and
+ * {@link MessageEncodeBuilder}, keyed by the DBC contents and the build options.  Concurrent requests of
+ * the same key wait for a single build, and built entries are evicted in least recently used order once
+ * the registry exceeds its entry count or estimated footprint.
+ *
+ * <p>Decoders and encoders are shared by all callers of the same key and must not be modified, for
+ * example by <code>select</code>; clone them if needed.  DBC files are hashed again only when their size
+ * or modification time changes.</p>
+ *
+ */
+public final class MessageCodecRegistry {
+    private static final long MESSAGE_BYTES = 512l;     //rough footprint of a message and its template
+    private static final long ATTRIBUTE_BYTES = 640l;   //rough footprint of an attribute and its cached data
+    private static final int FINGERPRINTS = 4096;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, String> fingerprints = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+            return size() > FINGERPRINTS;
+        }
+    };
+
+    private long bytes = 0l;
+    private long hits = 0l;
+    private long misses = 0l;
+    private long builds = 0l;
+    private long buildFailures = 0l;
+    private long buildNanos = 0l;
+    private long evictions = 0l;
+
+    /**
+     * Construct a registry.
+     *
+     * @param maxEntries the maximum number of entries
+     * @param maxBytes the maximum estimated footprint of all entries in bytes
+     */
+    public MessageCodecRegistry(final int maxEntries, final long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0l) {
+            throw new IllegalArgumentException("FORMAT_REGISTRY_CAPACITY_INVALID: " + maxEntries + ", " + maxBytes);
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public MessageDecoder decoder(
+            final String dbcPaths,
+            final boolean consolidateSchema,
+            final boolean useQualifiedName,
+            final boolean applyFormula,
+            final boolean deduplicateMessage,
+            final boolean outputOffset,
+            final Set<String> selectedAttributes) throws EngineException {
+        final String key = XStringUtils.isBlank(dbcPaths) ? "decoder:" : keyOf(
+                dbcPaths.split(","), "decoder", selectedAttributes, consolidateSchema, useQualifiedName, applyFormula, deduplicateMessage, outputOffset);
+        return (MessageDecoder) get(key, new Builder() {
+            @Override
+            public Object build() throws EngineException {
+                return MessageDecodeBuilder.buildDBC(
+                        dbcPaths, consolidateSchema, useQualifiedName, applyFormula, deduplicateMessage, outputOffset, selectedAttributes);
+            }
+        });
+    }
+
+    public MessageDecoder decoderFromFileContents(
+            final List<String> dbcFileContents,
+            final boolean consolidateSchema,
+            final boolean useQualifiedName,
+            final boolean applyFormula,
+            final boolean deduplicateMessage,
+            final boolean outputOffset,
+            final Set<String> selectedAttributes) throws EngineException {
+        final String key = dbcFileContents == null || dbcFileContents.size() == 0 ? "decoder:" : "decoder:" + DbcSnapshot.key(
+                dbcFileContents, "decoder", selectedAttributes, consolidateSchema, useQualifiedName, applyFormula, deduplicateMessage, outputOffset);
+        return (MessageDecoder) get(key, new Builder() {
+            @Override
+            public Object build() throws EngineException {
+                return MessageDecodeBuilder.buildDBCFromFileContents(
+                        dbcFileContents, consolidateSchema, useQualifiedName, applyFormula, deduplicateMessage, outputOffset, selectedAttributes);
+            }
+        });
+    }
+
+    public MessageEncoder encoder(
+            final String dbcPaths,
+            final boolean useQualifiedName,
+            final boolean applyFormula,
+            final boolean deduplicateMessage) throws EngineException {
+        final String key = XStringUtils.isBlank(dbcPaths) ? "encoder:" : keyOf(
+                dbcPaths.split(","), "encoder", null, useQualifiedName, applyFormula, deduplicateMessage);
+        return (MessageEncoder) get(key, new Builder() {
+            @Override
+            public Object build() throws EngineException {
+                return MessageEncodeBuilder.buildDBC(dbcPaths, useQualifiedName, applyFormula, deduplicateMessage);
+            }
+        });
+    }
+
+    public MessageEncoder encoderFromFileContents(
+            final List<String> dbcFileContents,
+            final boolean useQualifiedName,
+            final boolean applyFormula,
+            final boolean deduplicateMessage) throws EngineException {
+        final String key = dbcFileContents == null || dbcFileContents.size() == 0 ? "encoder:" : "encoder:" + DbcSnapshot.key(
+                dbcFileContents, "encoder", null, useQualifiedName, applyFormula, deduplicateMessage);
+        return (MessageEncoder) get(key, new Builder() {
+            @Override
+            public Object build() throws EngineException {
+                return MessageEncodeBuilder.buildDBCFromFileContents(dbcFileContents, useQualifiedName, applyFormula, deduplicateMessage);
+            }
+        });
+    }
+
+    /**
+     * Remove all entries, builds in progress still complete for their callers.
+     */
+    public void clear() {
+        synchronized (lock) {
+            entries.clear();
+            fingerprints.clear();
+            bytes = 0l;
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Return the estimated footprint of the built entries in bytes.
+     *
+     * @return long
+     */
+    public long getEstimatedBytes() {
+        synchronized (lock) {
+            return bytes;
+        }
+    }
+
+    public long getHits() {
+        synchronized (lock) {
+            return hits;
+        }
+    }
+
+    public long getMisses() {
+        synchronized (lock) {
+            return misses;
+        }
+    }
+
+    public long getBuilds() {
+        synchronized (lock) {
+            return builds;
+        }
+    }
+
+    public long getBuildFailures() {
+        synchronized (lock) {
+            return buildFailures;
+        }
+    }
+
+    /**
+     * Return the total time spent in successful builds in nanoseconds.
+     *
+     * @return long
+     */
+    public long getBuildNanos() {
+        synchronized (lock) {
+            return buildNanos;
+        }
+    }
+
+    public long getEvictions() {
+        synchronized (lock) {
+            return evictions;
+        }
+    }
+
+    private Object get(final String key, final Builder builder) throws EngineException {
+        final Entry entry;
+        boolean owner = false;
+        synchronized (lock) {
+            final Entry existing = entries.get(key);
+            if (existing != null) {
+                ++hits;
+                entry = existing;
+            } else {
+                ++misses;
+                entry = new Entry();
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            final long start = System.nanoTime();
+            try {
+                final Object built = builder.build();
+                final long estimate = estimate(built);
+                synchronized (lock) {
+                    ++builds;
+                    buildNanos += System.nanoTime() - start;
+                    if (entries.get(key) == entry) {
+                        entry.bytes = estimate;
+                        bytes += estimate;
+                        evict(key);
+                    }
+                }
+                entry.future.complete(built);
+            } catch (EngineException | RuntimeException | Error e) {
+                synchronized (lock) {
+                    ++buildFailures;
+                    if (entries.get(key) == entry) {
+                        entries.remove(key);
+                    }
+                }
+                entry.future.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return entry.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EngineException("FORMAT_REGISTRY_INTERRUPTED", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof EngineException) {
+                throw (EngineException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new EngineException("FORMAT_REGISTRY_BUILD_FAILED: " + key, cause);
+        }
+    }
+
+    /**
+     * Evict least recently used built entries, other than the latest, while over capacity.  Entries still
+     * being built are not counted nor evicted.
+     */
+    private void evict(final String latest) {
+        final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while ((bytes > maxBytes || entries.size() > maxEntries) && iterator.hasNext()) {
+            final Map.Entry<String, Entry> eldest = iterator.next();
+            if (!eldest.getKey().equals(latest) && eldest.getValue().future.isDone()) {
+                bytes -= eldest.getValue().bytes;
+                iterator.remove();
+                ++evictions;
+            }
+        }
+    }
+
+    private String keyOf(
+            final String[] paths,
+            final String kind,
+            final Set<String> selectedAttributes,
+            final boolean... flags) throws EngineException {
+        final StringBuilder sb = new StringBuilder(256).append(kind);
+        for (final boolean flag : flags) {
+            sb.append(flag ? '1' : '0');
+        }
+        sb.append(selectedAttributes == null ? "*" : new TreeSet<>(selectedAttributes).toString());
+        for (final String path : paths) {
+            sb.append('|');
+            if (XStringUtils.isNotBlank(path)) {
+                final Path file = Paths.get(path.trim());
+                try {
+                    final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    sb.append(file.toAbsolutePath()).append('?').append(attributes.size()).append('@').append(attributes.lastModifiedTime().toMillis());
+                } catch (IOException e) {
+                    throw new EngineException("FORMAT_DBC_FILE_READ_FAILED: " + path, e);
+                }
+            }
+        }
+
+        final String fingerprint = sb.toString();
+        synchronized (lock) {
+            final String key = fingerprints.get(fingerprint);
+            if (key != null) {
+                return key;
+            }
+        }
+        final String key = kind + ":" + DbcSnapshot.key(paths, kind, selectedAttributes, flags);
+        synchronized (lock) {
+            fingerprints.put(fingerprint, key);
+        }
+        return key;
+    }
+
+    private static long estimate(final Object built) {
+        final Map<DbcMessage, Boolean> messages = new IdentityHashMap<>();
+        if (built instanceof DbcChannelMessageDecoder) {
+            for (final DbcChannel channel : ((DbcChannelMessageDecoder) built).getChannels().values()) {
+                add(messages, channel.getMessages().values());
+            }
+        } else if (built instanceof DbcConsolidateMessageDecoder) {
+            add(messages, ((DbcConsolidateMessageDecoder) built).getMessages().values());
+        } else if (built instanceof DbcCompiledDecoder) {
+            add(messages, ((DbcCompiledDecoder) built).getMessages());
+        } else if (built instanceof DbcMessageEncoder) {
+            add(messages, ((DbcMessageEncoder) built).getAttributeMessages().values());
+        }
+
+        long estimate = MESSAGE_BYTES;
+        for (final DbcMessage message : messages.keySet()) {
+            estimate += MESSAGE_BYTES + 2l * (message.getName() != null ? message.getName().length() : 0);
+            for (final DbcAttribute attribute : message.getAttributes()) {
+                estimate += ATTRIBUTE_BYTES + 4l * (attribute.getName() != null ? attribute.getName().length() : 0); //name in attribute and template
+            }
+        }
+        return estimate;
+    }
+
+    private static void add(final Map<DbcMessage, Boolean> messages, final Collection<DbcMessage> values) {
+        for (final DbcMessage message : values) {
+            messages.put(message, Boolean.TRUE);
+        }
+    }
+
+    private static interface Builder {
+        public Object build() throws EngineException;
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private long bytes = 0l;    //guarded by the registry lock
+    }
+}
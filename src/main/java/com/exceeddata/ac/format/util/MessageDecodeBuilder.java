@@ -3,12 +3,12 @@ package com.exceeddata.ac.format.util;
 import static com.exceeddata.ac.common.message.MessageConstants.OFFSET;
 import static com.exceeddata.ac.common.message.MessageConstants.TIME;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import com.exceeddata.ac.common.data.record.Record;
 import com.exceeddata.ac.common.data.template.Desc;
@@ -22,7 +22,6 @@ import com.exceeddata.ac.common.data.typedata.IntData;
 import com.exceeddata.ac.common.data.typedata.LongData;
 import com.exceeddata.ac.common.exception.EngineException;
 import com.exceeddata.ac.common.message.MessageDecoder;
-import com.exceeddata.ac.common.util.FileOperationUtils;
 import com.exceeddata.ac.common.util.XStringUtils;
 import com.exceeddata.ac.format.dbc.DbcAttribute;
 import com.exceeddata.ac.format.dbc.DbcAttributeDecimal;
@@ -31,11 +30,15 @@ import com.exceeddata.ac.format.dbc.DbcAttributeInteger;
 import com.exceeddata.ac.format.dbc.DbcAttributeLong;
 import com.exceeddata.ac.format.dbc.DbcChannel;
 import com.exceeddata.ac.format.dbc.DbcChannelMessageDecoder;
+import com.exceeddata.ac.format.dbc.DbcCompiledDecoder;
 import com.exceeddata.ac.format.dbc.DbcConsolidateMessageDecoder;
-import com.exceeddata.ac.format.dbc.DbcDelegator;
-import com.exceeddata.ac.format.dbc.DbcDelegatorMessage;
+import com.exceeddata.ac.format.dbc.DbcLazyMessageDecoder;
 import com.exceeddata.ac.format.dbc.DbcMessage;
 import com.exceeddata.ac.format.dbc.DbcNullDecoder;
+import com.exceeddata.ac.format.dbc.DbcParser;
+import com.exceeddata.ac.format.dbc.DbcReloadableDecoder;
+import com.exceeddata.ac.format.dbc.DbcSnapshot;
+import com.exceeddata.ac.format.dbc.DbcVersionedDecoder;
 
 /**
  * A util class for building inspector from DBC file paths.
@@ -56,137 +59,143 @@ public final class MessageDecodeBuilder {
             return new DbcNullDecoder();
         }
         
-        final Set<Long> messageids = new HashSet<>(); 
-        final MessageDecoder decoder = consolidateSchema ? new DbcConsolidateMessageDecoder(outputOffset) : new DbcChannelMessageDecoder(outputOffset);
-        final String[] paths = dbcPaths.split(",");
-        final int size = paths.length;
-        DbcDelegator delegator;
-        DbcChannel channel;
-        List<String> lines;
-        String line;
-        int channelID;
+        final List<DbcChannel> channels = DbcParser.parseFiles(dbcPaths.split(","), useQualifiedName, applyFormula);
+        return build(channels, consolidateSchema, deduplicateMessage, outputOffset, selectedAttributes);
+    }
+    
+    public static MessageDecoder buildDBCFromFileContents(
+            final List<String> dbcFileContents,
+            final boolean consolidateSchema,
+            final boolean useQualifiedName,
+            final boolean applyFormula,
+            final boolean deduplicateMessage,
+            final boolean outputOffset,
+            final Set<String> selectedAttributes) throws EngineException {
+        if (dbcFileContents == null || dbcFileContents.size() == 0) {
+            return new DbcNullDecoder();
+        }
         
-        for (int i = 0; i < size; ++i) {
-            channelID = i + 1;
-            channel = new DbcChannel();
-            channel.setChannelID(channelID);
-            
-            if (XStringUtils.isNotBlank(paths[i])) {
-                delegator = null;
-                lines = FileOperationUtils.readFileToList(paths[i].trim(), false);
-                for (int j = 0, s = lines.size(); j < s; ++j) {
-                    line = lines.get(j).trim();
-                    if (XStringUtils.isNotBlank(line)) {
-                        if (DbcDelegatorMessage.matchesMessage(line)) {
-                            delegator = new DbcDelegatorMessage(channelID, line); //new delegator
-                        } else if (DbcDelegatorMessage.matchesAttribute(line)) {
-                            if (delegator == null) {
-                                throw new RuntimeException("FORMAT_DBC_ATTRIBUTE_UNEXPECTED: " + line);
-                            }
-                            delegator.delegate(channel, line, useQualifiedName, applyFormula);
-                        } else {
-                            delegator = null;
-                        }
-                    }
-                }
-            }
-            
-            //post-processing, remove invalid message, set output offset.
-            final LinkedHashMap<Long, DbcMessage> messages = new LinkedHashMap<>();
-            for (final Map.Entry<Long, DbcMessage> entry : channel.getMessages().entrySet()) {
-                if (entry.getValue().size() > 0 && (!deduplicateMessage || !messageids.contains(entry.getKey()))) {
-                    final Long messageid = entry.getKey();
-                    final DbcMessage message = entry.getValue();
-                    message.setOutputOffset(outputOffset);
-                    messages.put(messageid, message);
-                    messageids.add(messageid);
-                }
-            }
-            
-            if (messages.size() > 0) {
-                channel.setMessages(messages);
-                
-                //add channel only after it has been processed
-                if (consolidateSchema) {
-                    ((DbcConsolidateMessageDecoder) decoder).addChannel(channel);
-                } else {
-                    ((DbcChannelMessageDecoder) decoder).addChannel(channel);
-                }
-            }
+        final List<DbcChannel> channels = DbcParser.parseContents(dbcFileContents, useQualifiedName, applyFormula);
+        return build(channels, consolidateSchema, deduplicateMessage, outputOffset, selectedAttributes);
+    }
+    
+    /**
+     * Build a decoder from DBC file paths through a snapshot under a directory.  The snapshot is keyed
+     * by the DBC file contents and all build flags, it is read if present and otherwise written after
+     * parsing, so a changed DBC file or flag rebuilds it.
+     *
+     * @param snapshotDir the snapshot directory, or blank to build without snapshot
+     * @return MessageDecoder
+     * @throws EngineException if a DBC file cannot be read
+     */
+    public static MessageDecoder buildDBC(
+            final String dbcPaths,
+            final boolean consolidateSchema,
+            final boolean useQualifiedName,
+            final boolean applyFormula,
+            final boolean deduplicateMessage,
+            final boolean outputOffset,
+            final Set<String> selectedAttributes,
+            final String snapshotDir) throws EngineException {
+        if (XStringUtils.isBlank(dbcPaths)) {
+            return new DbcNullDecoder();
+        }
+        if (XStringUtils.isBlank(snapshotDir)) {
+            return buildDBC(dbcPaths, consolidateSchema, useQualifiedName, applyFormula, deduplicateMessage, outputOffset, selectedAttributes);
         }
         
-        decoder.select(selectedAttributes);
+        final String[] paths = dbcPaths.split(",");
+        final String key = DbcSnapshot.key(paths, "decoder", selectedAttributes, consolidateSchema, useQualifiedName, applyFormula, deduplicateMessage, outputOffset);
+        final Path snapshot = DbcSnapshot.path(snapshotDir, key);
+        List<DbcChannel> channels = DbcSnapshot.read(snapshot, key);
+        if (channels == null) {
+            channels = retain(DbcParser.parseFiles(paths, useQualifiedName, applyFormula), deduplicateMessage, outputOffset);
+            DbcSnapshot.write(snapshot, key, channels); //a snapshot that cannot be written is rebuilt next time
+        }
+        return build(channels, consolidateSchema, outputOffset, selectedAttributes);
+    }
+    
+    /**
+     * Build a consolidated decoder that indexes the messages of DBC files and parses the signals of a
+     * message only when its ID is first decoded, see {@link DbcLazyMessageDecoder}.
+     *
+     * @return MessageDecoder
+     * @throws EngineException if a DBC file cannot be read
+     */
+    public static MessageDecoder buildLazyDBC(
+            final String dbcPaths,
+            final boolean useQualifiedName,
+            final boolean applyFormula,
+            final boolean outputOffset,
+            final Set<String> selectedAttributes) throws EngineException {
+        if (XStringUtils.isBlank(dbcPaths)) {
+            return new DbcNullDecoder();
+        }
         
+        final DbcLazyMessageDecoder decoder = DbcLazyMessageDecoder.ofFiles(dbcPaths.split(","), useQualifiedName, applyFormula, outputOffset);
+        decoder.select(selectedAttributes);
         return decoder;
     }
     
-    public static MessageDecoder buildDBCFromFileContents(
+    public static MessageDecoder buildLazyDBCFromFileContents(
             final List<String> dbcFileContents,
-            final boolean consolidateSchema,
             final boolean useQualifiedName,
             final boolean applyFormula,
-            final boolean deduplicateMessage,
             final boolean outputOffset,
-            final Set<String> selectedAttributes) throws EngineException {
+            final Set<String> selectedAttributes) {
         if (dbcFileContents == null || dbcFileContents.size() == 0) {
             return new DbcNullDecoder();
         }
         
+        final DbcLazyMessageDecoder decoder = DbcLazyMessageDecoder.ofContents(dbcFileContents, useQualifiedName, applyFormula, outputOffset);
+        decoder.select(selectedAttributes);
+        return decoder;
+    }
+    
+    private static MessageDecoder build(
+            final List<DbcChannel> channels,
+            final boolean consolidateSchema,
+            final boolean deduplicateMessage,
+            final boolean outputOffset,
+            final Set<String> selectedAttributes) {
+        return build(retain(channels, deduplicateMessage, outputOffset), consolidateSchema, outputOffset, selectedAttributes);
+    }
+    
+    private static List<DbcChannel> retain(
+            final List<DbcChannel> channels,
+            final boolean deduplicateMessage,
+            final boolean outputOffset) {
         final Set<Long> messageids = new HashSet<>(); 
-        final MessageDecoder decoder = consolidateSchema ? new DbcConsolidateMessageDecoder(outputOffset) : new DbcChannelMessageDecoder(outputOffset);
-        final int size = dbcFileContents.size();
-        DbcDelegator delegator;
-        DbcChannel channel;
-        String[] lines;
-        String line;
-        int channelID;
+        final List<DbcChannel> retained = new ArrayList<>(channels.size());
         
-        for (int i = 0; i < size; ++i) {
-            channelID = i + 1;
-            channel = new DbcChannel();
-            channel.setChannelID(channelID);
-
-            if (XStringUtils.isNotBlank(dbcFileContents.get(i))) {
-                delegator = null;
-                lines = dbcFileContents.get(i).split(Pattern.quote("\n"));
-                for (int j = 0, s = lines.length; j < s; ++j) {
-                    line = lines[j].trim();
-                    if (XStringUtils.isNotBlank(line)) {
-                        if (DbcDelegatorMessage.matchesMessage(line)) {
-                            delegator = new DbcDelegatorMessage(channelID, line); //new delegator
-                        } else if (DbcDelegatorMessage.matchesAttribute(line)) {
-                            if (delegator == null) {
-                                throw new RuntimeException("FORMAT_DBC_ATTRIBUTE_UNEXPECTED: " + line);
-                            }
-                            delegator.delegate(channel, line, useQualifiedName, applyFormula);
-                        } else {
-                            delegator = null;
-                        }
-                    }
-                }
-            }
-            
-            //post-processing, remove invalid message, set output offset.
-            final LinkedHashMap<Long, DbcMessage> messages = new LinkedHashMap<>();
-            for (final Map.Entry<Long, DbcMessage> entry : channel.getMessages().entrySet()) {
-                if (entry.getValue().size() > 0 && (!deduplicateMessage || !messageids.contains(entry.getKey()))) {
-                    final Long messageid = entry.getKey();
-                    final DbcMessage message = entry.getValue();
-                    message.setOutputOffset(outputOffset);
-                    messages.put(messageid, message);
-                    messageids.add(messageid);
-                }
+        for (final DbcChannel channel : channels) {
+            //post-processing in channel order, remove invalid message, set output offset.
+            final LinkedHashMap<Long, DbcMessage> messages = DbcParser.retain(channel, messageids, deduplicateMessage);
+            for (final DbcMessage message : messages.values()) {
+                message.setOutputOffset(outputOffset);
             }
             
             if (messages.size() > 0) {
                 channel.setMessages(messages);
-                
-                //add channel only after it has been processed
-                if (consolidateSchema) {
-                    ((DbcConsolidateMessageDecoder) decoder).addChannel(channel);
-                } else {
-                    ((DbcChannelMessageDecoder) decoder).addChannel(channel);
-                }
+                retained.add(channel);
+            }
+        }
+        return retained;
+    }
+    
+    private static MessageDecoder build(
+            final List<DbcChannel> channels,
+            final boolean consolidateSchema,
+            final boolean outputOffset,
+            final Set<String> selectedAttributes) {
+        final MessageDecoder decoder = consolidateSchema ? new DbcConsolidateMessageDecoder(outputOffset) : new DbcChannelMessageDecoder(outputOffset);
+        
+        //add channel only after it has been processed
+        for (final DbcChannel channel : channels) {
+            if (consolidateSchema) {
+                ((DbcConsolidateMessageDecoder) decoder).addChannel(channel);
+            } else {
+                ((DbcChannelMessageDecoder) decoder).addChannel(channel);
             }
         }
         
@@ -297,33 +306,99 @@ public final class MessageDecodeBuilder {
     
     public static Template toTemplate(final MessageDecoder decoder) {
         final Template template = new Template();
-        if (decoder instanceof DbcChannelMessageDecoder) {
-            template.put(TIME, new Desc(TIME, new PrimitiveDescType(Types.INSTANT), false));
-            if (decoder.getOutputOffset()) {
-                template.put(OFFSET, new Desc(OFFSET, new PrimitiveDescType(Types.LONG), false));
+        write(decoder, new FieldWriter() {
+            @Override
+            public void time(final boolean timeNanos) {
+                template.put(TIME, new Desc(TIME, new PrimitiveDescType(timeNanos ? Types.LONG : Types.INSTANT), false));
             }
-            final DbcChannelMessageDecoder inspectorDBC = (DbcChannelMessageDecoder) decoder;
-            for (final DbcChannel channel : inspectorDBC.getChannels().values()) {
-                for (final DbcMessage message : channel.getMessages().values()) {
-                    for (final DbcAttribute attribute : message.getAttributes()) {
-                        addAttributeToTemplate(template, attribute);
-                    }
-                }
-            } 
-        } else if (decoder instanceof DbcConsolidateMessageDecoder) {
-            template.put(TIME, new Desc(TIME, new PrimitiveDescType(Types.INSTANT), false));
-            if (decoder.getOutputOffset()) {
+
+            @Override
+            public void offset() {
                 template.put(OFFSET, new Desc(OFFSET, new PrimitiveDescType(Types.LONG), false));
             }
-            final DbcConsolidateMessageDecoder inspectorDBC = (DbcConsolidateMessageDecoder) decoder;
-            for (final DbcMessage message : inspectorDBC.getMessages().values()) {
-                for (final DbcAttribute attribute : message.getAttributes()) {
-                    addAttributeToTemplate(template, attribute);
-                }
+
+            @Override
+            public void attribute(final DbcAttribute attribute) {
+                addAttributeToTemplate(template, attribute);
             }
+        });
+        return template;
+    }
+    
+    /**
+     * A sink of the output fields of a decoder, in output order.
+     */
+    private interface FieldWriter {
+        void time(boolean timeNanos);
+        
+        void offset();
+        
+        void attribute(DbcAttribute attribute);
+    }
+    
+    private static void write(final MessageDecoder decoder, final FieldWriter writer) {
+        final List<DbcMessage> messages = messagesOf(decoder);
+        if (messages == null) {
+            return; //not a DBC decoder, no fields
         }
         
-        return template;
+        writer.time(isTimeNanos(decoder));
+        if (decoder.getOutputOffset()) {
+            writer.offset();
+        }
+        for (final DbcMessage message : messages) {
+            for (final DbcAttribute attribute : message.getAttributes()) {
+                writer.attribute(attribute);
+            }
+        }
+    }
+    
+    /**
+     * Return the messages of a DBC decoder in output order, of the current model of a reloadable decoder
+     * and of the first version of a versioned decoder.
+     * 
+     * @param decoder the decoder
+     * @return the messages, or null if not a DBC decoder
+     */
+    private static List<DbcMessage> messagesOf(final MessageDecoder decoder) {
+        final MessageDecoder d = unwrap(decoder);
+        if (d instanceof DbcChannelMessageDecoder) {
+            final List<DbcMessage> messages = new ArrayList<>();
+            for (final DbcChannel channel : ((DbcChannelMessageDecoder) d).getChannels().values()) {
+                messages.addAll(channel.getMessages().values());
+            }
+            return messages;
+        } else if (d instanceof DbcConsolidateMessageDecoder) {
+            return new ArrayList<>(((DbcConsolidateMessageDecoder) d).getMessages().values());
+        } else if (d instanceof DbcCompiledDecoder) {
+            return ((DbcCompiledDecoder) d).getMessages();
+        } else if (d instanceof DbcLazyMessageDecoder) { //all messages, not only those decoded so far
+            return ((DbcLazyMessageDecoder) d).materializeAll();
+        }
+        return null;
+    }
+    
+    private static MessageDecoder unwrap(final MessageDecoder decoder) {
+        if (decoder instanceof DbcReloadableDecoder) {
+            return unwrap(((DbcReloadableDecoder) decoder).getDecoder());
+        } else if (decoder instanceof DbcVersionedDecoder && ((DbcVersionedDecoder) decoder).size() > 0) {
+            return unwrap(((DbcVersionedDecoder) decoder).getVersionDecoder(0));
+        }
+        return decoder;
+    }
+    
+    private static boolean isTimeNanos(final MessageDecoder decoder) {
+        final MessageDecoder d = unwrap(decoder);
+        if (d instanceof DbcChannelMessageDecoder) {
+            return ((DbcChannelMessageDecoder) d).isTimeNanos();
+        } else if (d instanceof DbcConsolidateMessageDecoder) {
+            return ((DbcConsolidateMessageDecoder) d).isTimeNanos();
+        } else if (d instanceof DbcCompiledDecoder) {
+            return ((DbcCompiledDecoder) d).isTimeNanos();
+        } else if (d instanceof DbcLazyMessageDecoder) {
+            return ((DbcLazyMessageDecoder) d).isTimeNanos();
+        }
+        return false;
     }
     
     private static void addAttributeToTemplate(final Template template, final DbcAttribute attribute) {
@@ -357,32 +432,22 @@ public final class MessageDecodeBuilder {
     
     public static Record toTemplateRecord(final MessageDecoder decoder) {
         final Record template = new Record();
-        if (decoder instanceof DbcChannelMessageDecoder) {
-            template.add(TIME, InstantData.NULL);
-            if (decoder.getOutputOffset()) {
-                template.add(OFFSET, LongData.NULL);
-            }
-            final DbcChannelMessageDecoder inspectorDBC = (DbcChannelMessageDecoder) decoder;
-            for (final DbcChannel channel : inspectorDBC.getChannels().values()) {
-                for (final DbcMessage message : channel.getMessages().values()) {
-                    for (final DbcAttribute attribute : message.getAttributes()) {
-                        addAttributeToTemplateRecord(template, attribute);
-                    }
-                }
+        write(decoder, new FieldWriter() {
+            @Override
+            public void time(final boolean timeNanos) {
+                template.add(TIME, timeNanos ? LongData.NULL : InstantData.NULL);
             }
-        } else if (decoder instanceof DbcConsolidateMessageDecoder) {
-            template.add(TIME, InstantData.NULL);
-            if (decoder.getOutputOffset()) {
+
+            @Override
+            public void offset() {
                 template.add(OFFSET, LongData.NULL);
             }
-            final DbcConsolidateMessageDecoder inspectorDBC = (DbcConsolidateMessageDecoder) decoder;
-            for (final DbcMessage message : inspectorDBC.getMessages().values()) {
-                for (final DbcAttribute attribute : message.getAttributes()) {
-                    addAttributeToTemplateRecord(template, attribute);
-                }
+
+            @Override
+            public void attribute(final DbcAttribute attribute) {
+                addAttributeToTemplateRecord(template, attribute);
             }
-        }
-        
+        });
         return template;
     }
     
@@ -400,31 +465,22 @@ public final class MessageDecodeBuilder {
     
     public static String toSchema(final MessageDecoder decoder) {
         final StringBuilder sb = new StringBuilder(4096);
-        if (decoder instanceof DbcChannelMessageDecoder) {
-            sb.append("TIME instant");
-            if (decoder.getOutputOffset()) {
-                sb.append("OFFSET long");
-            }
-            final DbcChannelMessageDecoder inspectorDBC = (DbcChannelMessageDecoder) decoder;
-            for (final DbcChannel channel : inspectorDBC.getChannels().values()) {
-                for (final DbcMessage message : channel.getMessages().values()) {
-                    for (final DbcAttribute attribute : message.getAttributes()) {
-                        addAttributeToSchemaBuilder(sb, attribute);
-                    }
-                }
+        write(decoder, new FieldWriter() {
+            @Override
+            public void time(final boolean timeNanos) {
+                sb.append(timeNanos ? "TIME long" : "TIME instant");
             }
-        } else if (decoder instanceof DbcConsolidateMessageDecoder) {
-            sb.append("TIME instant");
-            if (decoder.getOutputOffset()) {
+
+            @Override
+            public void offset() {
                 sb.append("OFFSET long");
             }
-            final DbcConsolidateMessageDecoder inspectorDBC = (DbcConsolidateMessageDecoder) decoder;
-            for (final DbcMessage message : inspectorDBC.getMessages().values()) {
-                for (final DbcAttribute attribute : message.getAttributes()) {
-                    addAttributeToSchemaBuilder(sb, attribute);
-                }
+
+            @Override
+            public void attribute(final DbcAttribute attribute) {
+                addAttributeToSchemaBuilder(sb, attribute);
             }
-        }
+        });
         return sb.toString();
     }
     
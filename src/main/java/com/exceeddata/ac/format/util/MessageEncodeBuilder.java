@@ -1,22 +1,21 @@
 package com.exceeddata.ac.format.util;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import com.exceeddata.ac.common.exception.EngineException;
 import com.exceeddata.ac.common.message.MessageEncoder;
-import com.exceeddata.ac.common.util.FileOperationUtils;
 import com.exceeddata.ac.common.util.XStringUtils;
 import com.exceeddata.ac.format.dbc.DbcChannel;
-import com.exceeddata.ac.format.dbc.DbcDelegator;
-import com.exceeddata.ac.format.dbc.DbcDelegatorMessage;
 import com.exceeddata.ac.format.dbc.DbcMessage;
 import com.exceeddata.ac.format.dbc.DbcMessageEncoder;
 import com.exceeddata.ac.format.dbc.DbcNullEncoder;
+import com.exceeddata.ac.format.dbc.DbcParser;
+import com.exceeddata.ac.format.dbc.DbcSnapshot;
 
 /**
  * A util class for building inspector from DBC file paths.
@@ -34,56 +33,7 @@ public final class MessageEncodeBuilder {
             return new DbcNullEncoder();
         }
         
-        final Set<Long> messageids = new HashSet<>(); 
-        final DbcMessageEncoder encoder = new DbcMessageEncoder();
-        final String[] paths = dbcPaths.split(",");
-        final int size = paths.length;
-        DbcDelegator delegator;
-        DbcChannel channel;
-        List<String> lines;
-        String line;
-        int channelID;
-        
-        for (int i = 0; i < size; ++i) {
-            channelID = i + 1;
-            channel = new DbcChannel();
-            channel.setChannelID(channelID);
-            
-            if (XStringUtils.isNotBlank(paths[i])) {
-                delegator = null;
-                lines = FileOperationUtils.readFileToList(paths[i], false);
-                for (int j = 0, s = lines.size(); j < s; ++j) {
-                    line = lines.get(j).trim();
-                    if (XStringUtils.isNotBlank(line)) {
-                        if (DbcDelegatorMessage.matchesMessage(line)) {
-                            delegator = new DbcDelegatorMessage(channelID, line); //new delegator
-                        } else if (DbcDelegatorMessage.matchesAttribute(line)) {
-                            if (delegator == null) {
-                                throw new RuntimeException("FORMAT_DBC_ATTRIBUTE_UNEXPECTED: " + line);
-                            }
-                            delegator.delegate(channel, line, useQualifiedName, applyFormula);
-                        } else {
-                            delegator = null;
-                        }
-                    }
-                }
-            }
-            
-            //post-processing, remove invalid message.
-            final LinkedHashMap<Long, DbcMessage> messages = new LinkedHashMap<>();
-            for (final Map.Entry<Long, DbcMessage> entry : channel.getMessages().entrySet()) {
-                if (entry.getValue().size() > 0 && (!deduplicateMessage || !messageids.contains(entry.getKey()))) {
-                    messages.put(entry.getKey(), entry.getValue());
-                    messageids.add(entry.getKey());
-                }
-            }
-         
-            for (final DbcMessage message : messages.values()) {
-                encoder.addMessage(message);
-            }
-        }
-        
-        return encoder;
+        return build(DbcParser.parseFiles(dbcPaths.split(","), useQualifiedName, applyFormula), deduplicateMessage);
     }
     
     public static MessageEncoder buildDBCFromFileContents(
@@ -95,54 +45,67 @@ public final class MessageEncodeBuilder {
             return new DbcNullEncoder();
         }
         
+        return build(DbcParser.parseContents(dbcFileContents, useQualifiedName, applyFormula), deduplicateMessage);
+    }
+    
+    /**
+     * Build an encoder from DBC file paths through a snapshot under a directory, see
+     * {@link MessageDecodeBuilder#buildDBC(String, boolean, boolean, boolean, boolean, boolean, Set, String)}.
+     *
+     * @param snapshotDir the snapshot directory, or blank to build without snapshot
+     * @return MessageEncoder
+     * @throws EngineException if a DBC file cannot be read
+     */
+    public static MessageEncoder buildDBC(
+            final String dbcPaths,
+            final boolean useQualifiedName,
+            final boolean applyFormula,
+            final boolean deduplicateMessage,
+            final String snapshotDir) throws EngineException {
+        if (XStringUtils.isBlank(dbcPaths)) {
+            return new DbcNullEncoder();
+        }
+        if (XStringUtils.isBlank(snapshotDir)) {
+            return buildDBC(dbcPaths, useQualifiedName, applyFormula, deduplicateMessage);
+        }
+        
+        final String[] paths = dbcPaths.split(",");
+        final String key = DbcSnapshot.key(paths, "encoder", null, useQualifiedName, applyFormula, deduplicateMessage);
+        final Path snapshot = DbcSnapshot.path(snapshotDir, key);
+        List<DbcChannel> channels = DbcSnapshot.read(snapshot, key);
+        if (channels == null) {
+            channels = retain(DbcParser.parseFiles(paths, useQualifiedName, applyFormula), deduplicateMessage);
+            DbcSnapshot.write(snapshot, key, channels); //a snapshot that cannot be written is rebuilt next time
+        }
+        return build(channels);
+    }
+    
+    private static MessageEncoder build(final List<DbcChannel> channels, final boolean deduplicateMessage) {
+        return build(retain(channels, deduplicateMessage));
+    }
+    
+    private static List<DbcChannel> retain(final List<DbcChannel> channels, final boolean deduplicateMessage) {
         final Set<Long> messageids = new HashSet<>(); 
-        final DbcMessageEncoder encoder = new DbcMessageEncoder();
-        final int size = dbcFileContents.size();
-        DbcDelegator delegator;
-        DbcChannel channel;
-        String[] lines;
-        String line;
-        int channelID;
+        final List<DbcChannel> retained = new ArrayList<>(channels.size());
         
-        for (int i = 0; i < size; ++i) {
-            channelID = i + 1;
-            channel = new DbcChannel();
-            channel.setChannelID(channelID);
-            
-            if (XStringUtils.isNotBlank(dbcFileContents.get(i))) {
-                delegator = null;
-                lines = dbcFileContents.get(i).split(Pattern.quote("\n"));
-                for (int j = 0, s = lines.length; j < s; ++j) {
-                    line = lines[j].trim();
-                    if (XStringUtils.isNotBlank(line)) {
-                        if (DbcDelegatorMessage.matchesMessage(line)) {
-                            delegator = new DbcDelegatorMessage(channelID, line); //new delegator
-                        } else if (DbcDelegatorMessage.matchesAttribute(line)) {
-                            if (delegator == null) {
-                                throw new RuntimeException("FORMAT_DBC_ATTRIBUTE_UNEXPECTED: " + line);
-                            }
-                            delegator.delegate(channel, line, useQualifiedName, applyFormula);
-                        } else {
-                            delegator = null;
-                        }
-                    }
-                }
+        for (final DbcChannel channel : channels) {
+            //post-processing in channel order, remove invalid message.
+            final LinkedHashMap<Long, DbcMessage> messages = DbcParser.retain(channel, messageids, deduplicateMessage);
+            if (messages.size() > 0) {
+                channel.setMessages(messages);
+                retained.add(channel);
             }
-            
-            //post-processing, remove invalid message.
-            final LinkedHashMap<Long, DbcMessage> messages = new LinkedHashMap<>();
-            for (final Map.Entry<Long, DbcMessage> entry : channel.getMessages().entrySet()) {
-                if (entry.getValue().size() > 0 && (!deduplicateMessage || !messageids.contains(entry.getKey()))) {
-                    messages.put(entry.getKey(), entry.getValue());
-                    messageids.add(entry.getKey());
-                }
-            }
-         
-            for (final DbcMessage message : messages.values()) {
+        }
+        return retained;
+    }
+    
+    private static MessageEncoder build(final List<DbcChannel> channels) {
+        final DbcMessageEncoder encoder = new DbcMessageEncoder();
+        for (final DbcChannel channel : channels) {
+            for (final DbcMessage message : channel.getMessages().values()) {
                 encoder.addMessage(message);
             }
         }
-        
         return encoder;
     }
 }
@@ -0,0 +1,99 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.typedata.DoubleData;
+
+public class DbcAttributeDecimalTest {
+
+    @Test
+    public void testFixedPointMatchesDecimal() {
+        final Random random = new Random(9l);
+        final String[] factors = new String[] {"1", "1.0", "0.1", "0.01", "0.001", "-0.25", "2", "1E+1", "0.0009765625"};
+        final String[] offsets = new String[] {"0", "0.000", "-40", "0.5", "-273.15", "1000000", "12.3456"};
+        final byte[] bytes = new byte[8];
+        for (int n = 0; n < 20000; ++n) {
+            final BigDecimal factor = new BigDecimal(factors[random.nextInt(factors.length)]);
+            final BigDecimal offset = new BigDecimal(offsets[random.nextInt(offsets.length)]);
+            final DbcAttributeDecimal attribute = newAttribute(2 + random.nextInt(30), random.nextBoolean(), factor, offset);
+            assertTrue(attribute.isFixedPoint());
+
+            random.nextBytes(bytes);
+            final BigDecimal expected = reference(attribute, bytes);
+            assertEquals(expected, attribute.decode(bytes).toDecimal());
+            assertEquals(expected, BigDecimal.valueOf(attribute.decodeUnscaled(bytes), attribute.getFixedScale()));
+        }
+    }
+
+    @Test
+    public void testWideSignalsKeepDecimalPath() {
+        final Random random = new Random(10l);
+        final byte[] bytes = new byte[8];
+        final DbcAttributeDecimal attribute = newAttribute(64, false, new BigDecimal("0.001"), new BigDecimal("-40"));
+        assertFalse(attribute.isFixedPoint());
+        for (int n = 0; n < 1000; ++n) {
+            random.nextBytes(bytes);
+            assertEquals(reference(attribute, bytes), attribute.decode(bytes).toDecimal());
+        }
+
+        //a 40 bit raw times a factor of 30 significant bits may overflow a long
+        attribute.setLength(40);
+        attribute.setMultiplier(new BigDecimal("0.123456789"));
+        assertFalse(attribute.isFixedPoint());
+        attribute.setMultiplier(new BigDecimal("0.5"));
+        assertTrue(attribute.isFixedPoint());
+    }
+
+    @Test
+    public void testToRawMatchesEncode() {
+        final Random random = new Random(12l);
+        final String[] factors = new String[] {"1", "0.1", "0.01", "0.5", "-0.25", "0.0009765625", "3"};
+        final String[] offsets = new String[] {"0", "-40", "0.05", "-273.15", "1000000"};
+        final double[] fractions = new double[] {0d, 0.5d, -0.5d, 0.4999d, 0.5001d};
+        final byte[] encoded = new byte[8];
+        final byte[] inserted = new byte[8];
+        for (int n = 0; n < 20000; ++n) {
+            final BigDecimal factor = new BigDecimal(factors[random.nextInt(factors.length)]);
+            final BigDecimal offset = new BigDecimal(offsets[random.nextInt(offsets.length)]);
+            final DbcAttributeDecimal attribute = newAttribute(32, true, factor, offset);
+            final double fraction = random.nextBoolean() ? fractions[random.nextInt(fractions.length)] : random.nextDouble();
+            final double value = BigDecimal.valueOf(random.nextInt(1 << 20) - (1 << 19) + fraction)
+                    .multiply(factor).add(offset).doubleValue();
+
+            Arrays.fill(encoded, (byte) 0);
+            Arrays.fill(inserted, (byte) 0);
+            attribute.encode(DoubleData.valueOf(value), encoded);
+            attribute.getLayout().insert(attribute.toRaw(value), inserted, 0);
+            assertArrayEquals(String.valueOf(value), encoded, inserted);
+        }
+    }
+
+    private static DbcAttributeDecimal newAttribute(final int length, final boolean signed, final BigDecimal factor, final BigDecimal offset) {
+        final DbcAttributeDecimal attribute = new DbcAttributeDecimal();
+        attribute.setName("S");
+        attribute.setOrder(DbcByteOrder.INTEL);
+        attribute.setStartBit(0);
+        attribute.setLength(length);
+        attribute.setSigned(signed);
+        attribute.setMultiplier(factor);
+        attribute.setAdjustment(offset);
+        return attribute;
+    }
+
+    private static BigDecimal reference(final DbcAttributeDecimal attribute, final byte[] bytes) {
+        BigDecimal v = BigDecimal.valueOf(DbcUtils.bsToLong(attribute.extract(bytes)));
+        if (BigDecimal.ONE.compareTo(attribute.getMultiplier()) != 0) {
+            v = v.multiply(attribute.getMultiplier());
+        }
+        return attribute.getAdjustment().signum() != 0 ? v.add(attribute.getAdjustment()) : v;
+    }
+}
@@ -0,0 +1,104 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.typedata.DoubleData;
+
+public class DbcAttributeDoubleTest {
+
+    @Test
+    public void testDoubleScalable() {
+        assertTrue(DbcUtils.isDoubleScalable(16, false, new BigDecimal("0.125"), new BigDecimal("-40"), 0d));
+        assertTrue(DbcUtils.isDoubleScalable(53, false, BigDecimal.ONE, BigDecimal.ZERO, 0d));
+        assertTrue(DbcUtils.isDoubleScalable(32, true, new BigDecimal("0.0009765625"), new BigDecimal("0.5"), 0d));
+        assertFalse(DbcUtils.isDoubleScalable(54, false, BigDecimal.ONE, BigDecimal.ZERO, 0d));
+        assertFalse(DbcUtils.isDoubleScalable(16, false, new BigDecimal("0.1"), BigDecimal.ZERO, 0d));
+        assertFalse(DbcUtils.isDoubleScalable(52, false, new BigDecimal("0.125"), new BigDecimal("1e-30"), 0d));
+        assertTrue(DbcUtils.isDoubleScalable(16, false, new BigDecimal("0.1"), new BigDecimal("-40"), 1e-9));
+        assertFalse(DbcUtils.isDoubleScalable(52, false, new BigDecimal("0.1"), BigDecimal.ZERO, 1e-9));
+    }
+
+    @Test
+    public void testExactDoublePathMatchesDecimal() {
+        final Random random = new Random(6l);
+        final String[] factors = new String[] {"1", "0.5", "0.125", "0.0009765625", "2", "-0.25", "1024"};
+        final String[] offsets = new String[] {"0", "-40", "0.5", "-273.25", "1000000"};
+        final byte[] bytes = new byte[8];
+        for (int n = 0; n < 20000; ++n) {
+            final BigDecimal factor = new BigDecimal(factors[random.nextInt(factors.length)]);
+            final BigDecimal offset = new BigDecimal(offsets[random.nextInt(offsets.length)]);
+            final DbcAttributeDouble attribute = newAttribute(2 + random.nextInt(40), random.nextBoolean(), factor, offset);
+            assertTrue(attribute.isDoubleScaled());
+
+            random.nextBytes(bytes);
+            assertEquals(reference(attribute, bytes), attribute.decode(bytes).toDouble().doubleValue(), 0d);
+        }
+    }
+
+    @Test
+    public void testToleratedDoublePath() {
+        final Random random = new Random(7l);
+        final byte[] bytes = new byte[8];
+        final DbcAttributeDouble attribute = newAttribute(16, true, new BigDecimal("0.01"), new BigDecimal("-40"));
+        assertFalse(attribute.isDoubleScaled());
+
+        attribute.setTolerance(1e-9);
+        assertTrue(attribute.isDoubleScaled());
+        for (int n = 0; n < 20000; ++n) {
+            random.nextBytes(bytes);
+            assertEquals(reference(attribute, bytes), attribute.decode(bytes).toDouble().doubleValue(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testToRawMatchesEncode() {
+        final Random random = new Random(11l);
+        final String[] factors = new String[] {"1", "0.1", "0.01", "0.5", "-0.25", "0.0009765625", "3"};
+        final String[] offsets = new String[] {"0", "-40", "0.05", "-273.15", "1000000"};
+        final double[] fractions = new double[] {0d, 0.5d, -0.5d, 0.4999d, 0.5001d};
+        final byte[] encoded = new byte[8];
+        final byte[] inserted = new byte[8];
+        for (int n = 0; n < 20000; ++n) {
+            final BigDecimal factor = new BigDecimal(factors[random.nextInt(factors.length)]);
+            final BigDecimal offset = new BigDecimal(offsets[random.nextInt(offsets.length)]);
+            final DbcAttributeDouble attribute = newAttribute(32, true, factor, offset);
+            final double fraction = random.nextBoolean() ? fractions[random.nextInt(fractions.length)] : random.nextDouble();
+            final double value = BigDecimal.valueOf(random.nextInt(1 << 20) - (1 << 19) + fraction)
+                    .multiply(factor).add(offset).doubleValue();
+
+            Arrays.fill(encoded, (byte) 0);
+            Arrays.fill(inserted, (byte) 0);
+            attribute.encode(DoubleData.valueOf(value), encoded);
+            attribute.getLayout().insert(attribute.toRaw(value), inserted, 0);
+            assertArrayEquals(String.valueOf(value), encoded, inserted);
+        }
+    }
+
+    private static DbcAttributeDouble newAttribute(final int length, final boolean signed, final BigDecimal factor, final BigDecimal offset) {
+        final DbcAttributeDouble attribute = new DbcAttributeDouble();
+        attribute.setName("S");
+        attribute.setOrder(DbcByteOrder.INTEL);
+        attribute.setStartBit(0);
+        attribute.setLength(length);
+        attribute.setSigned(signed);
+        attribute.setMultiplier(factor);
+        attribute.setAdjustment(offset);
+        return attribute;
+    }
+
+    private static double reference(final DbcAttributeDouble attribute, final byte[] bytes) {
+        return BigDecimal.valueOf(DbcUtils.bsToLong(attribute.extract(bytes)))
+                .multiply(attribute.getMultiplier())
+                .add(attribute.getAdjustment())
+                .doubleValue();
+    }
+}
@@ -0,0 +1,107 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.data.typedata.TypeData;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+
+public class DbcColumnBatchTest {
+
+    @Test
+    public void testColumnsMatchRecords() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final DbcConsolidateMessageDecoder decoder = (DbcConsolidateMessageDecoder) MessageDecodeBuilder.buildDBC(
+                resource.getFile(), true, false, true, false, false, null);
+
+        final Random random = new Random(3l);
+        final long[] ids = new long[] {100l, 257l, 419351061l, 999l};
+        final List<DbcUtils.Message> frames = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            final byte[] data = new byte[i == 500 ? 1 : 8]; //one short frame
+            random.nextBytes(data);
+            frames.add(new DbcUtils.Message(Instant.ofEpochSecond(1700000000l, 123l), 1, ids[i % ids.length], data));
+        }
+
+        final DbcColumnBatch batch = decoder.decodeBatch(frames.get(0), frames, true);
+        assertEquals(3, batch.size());
+        assertEquals(250, batch.getUnmatched());
+
+        for (final DbcMessageColumns columns : batch.getColumns()) {
+            int row = 0;
+            for (final DbcUtils.Message frame : frames) {
+                if (frame.getMessageID() != columns.getMessage().getMessageID()) {
+                    continue;
+                }
+
+                final Record record = decoder.decode(frame, frame);
+                assertEquals(frame.getTimeStart().getEpochSecond() * 1000000000l + frame.getTimeStart().getNano(), columns.getTimes()[row]);
+                if (record == null) {
+                    assertFalse(columns.isValid(row++));
+                    continue;
+                }
+
+                assertTrue(columns.isValid(row));
+                for (int c = 0; c < columns.width(); ++c) {
+                    final TypeData data = record.get(columns.getAttribute(c).getName(), columns.getAttribute(c).getHash());
+                    if (columns.isDoubleColumn(c)) {
+                        assertEquals(data.toDouble().doubleValue(), columns.getDoubleColumn(c)[row], 1e-9);
+                    } else {
+                        assertEquals(data.toLong().longValue(), columns.getLongColumn(c)[row]);
+                    }
+                }
+                ++row;
+            }
+            assertEquals(columns.size(), row);
+        }
+    }
+
+    @Test
+    public void testMultiplexedColumns() throws Exception {
+        final DbcConsolidateMessageDecoder decoder = (DbcConsolidateMessageDecoder) MessageDecodeBuilder.buildDBCFromFileContents(
+                Collections.singletonList("BO_ 10 Mux: 8 ECU\n"
+                        + " SG_ Mux M : 0|8@1+ (1,0) [0|255] \"\" X\n"
+                        + " SG_ Counter : 8|8@1+ (1,0) [0|255] \"\" X\n"
+                        + " SG_ Speed m0 : 16|16@1+ (1,0) [0|65535] \"\" X\n"
+                        + " SG_ Voltage m1 : 16|16@1+ (0.1,0) [0|6553.5] \"\" X\n"),
+                true, false, true, false, false, null);
+
+        final Random random = new Random(4l);
+        final List<DbcUtils.Message> frames = new ArrayList<>();
+        for (int i = 0; i < 200; ++i) {
+            final byte[] data = new byte[8];
+            random.nextBytes(data);
+            data[0] = (byte) (i % 3); //page 2 has no signals
+            frames.add(new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 10l, data));
+        }
+
+        final DbcMessageColumns columns = decoder.decodeBatch(frames.get(0), frames, true).getColumns().get(0);
+        for (int row = 0; row < frames.size(); ++row) {
+            final Record record = decoder.decode(frames.get(row), frames.get(row));
+            assertTrue(columns.isValid(row));
+            for (int c = 0; c < columns.width(); ++c) {
+                final TypeData data = record.get(columns.getAttribute(c).getName(), columns.getAttribute(c).getHash());
+                if (data.isNull()) {
+                    assertFalse(columns.isValid(c, row));
+                } else if (columns.isDoubleColumn(c)) {
+                    assertTrue(columns.isValid(c, row));
+                    assertEquals(data.toDouble().doubleValue(), columns.getDoubleColumn(c)[row], 1e-9);
+                } else {
+                    assertTrue(columns.isValid(c, row));
+                    assertEquals(data.toLong().longValue(), columns.getLongColumn(c)[row]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.exceeddata.ac.format.dbc;
+
+import static com.exceeddata.ac.format.dbc.DbcRecordAssert.assertSameRecords;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigDecimal;
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+
+public class DbcCompiledDecoderTest {
+    private static final long[] IDS = new long[] {100l, 257l, 419351061l, 999l};
+    private static final int[] LENGTHS = new int[] {8, 2, 8, 8};
+    private static final int THREADS = 8;
+
+    @Test
+    public void testConcurrentChannelDecode() throws Exception {
+        verifyConcurrentDecode(false);
+    }
+
+    @Test
+    public void testConcurrentConsolidateDecode() throws Exception {
+        verifyConcurrentDecode(true);
+    }
+
+    @Test
+    public void testCompiledIsIsolatedFromSource() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final MessageDecoder source = MessageDecodeBuilder.buildDBC(resource.getFile(), true, false, true, false, false, null);
+        final DbcCompiledDecoder compiled = DbcCompiledDecoder.compile(source);
+        assertSame(compiled, compiled.clone());
+
+        final HashSet<String> selected = new HashSet<>();
+        selected.add("Torque");
+        source.select(selected);
+
+        final DbcUtils.Message frame = new DbcUtils.Message(Instant.EPOCH, 1, 257l, new byte[] {0x21, 0x01});
+        assertNull(source.decode(frame, frame));
+        assertEquals(4, compiled.decode(frame, frame).size());
+
+    }
+
+    @Test
+    public void testCompiledIsIsolatedFromSourceAttributes() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final DbcConsolidateMessageDecoder source = (DbcConsolidateMessageDecoder) MessageDecodeBuilder.buildDBC(
+                resource.getFile(), true, false, true, false, false, null);
+        final DbcCompiledDecoder compiled = DbcCompiledDecoder.compile(source);
+        final List<DbcUtils.Message> frames = buildTrace(200);
+        final List<Record> expected = decodeAll(compiled, frames);
+
+        for (final DbcMessage message : source.getMessages().values()) {
+            for (final DbcAttribute attribute : message.getAttributes()) {
+                if (attribute instanceof DbcAttributeInteger) {
+                    ((DbcAttributeInteger) attribute).setAdjustment(1000);
+                } else if (attribute instanceof DbcAttributeLong) {
+                    ((DbcAttributeLong) attribute).setAdjustment(1000l);
+                } else if (attribute instanceof DbcAttributeDouble) {
+                    ((DbcAttributeDouble) attribute).setAdjustment(new BigDecimal("1000"));
+                } else if (attribute instanceof DbcAttributeDecimal) {
+                    ((DbcAttributeDecimal) attribute).setAdjustment(new BigDecimal("1000"));
+                }
+            }
+        }
+        assertSameRecords(expected, decodeAll(compiled, frames));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testSelectRequiresView() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final DbcCompiledDecoder compiled = DbcCompiledDecoder.compile(
+                MessageDecodeBuilder.buildDBC(resource.getFile(), true, false, true, false, false, null));
+        compiled.select(new HashSet<String>());
+        compiled.select(Collections.singleton("Torque"));
+    }
+
+    @Test
+    public void testViewsShareOneModel() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final List<DbcUtils.Message> frames = buildTrace(2000);
+        for (final boolean consolidate : new boolean[] {true, false}) {
+            final DbcCompiledDecoder model = DbcCompiledDecoder.compile(
+                    MessageDecodeBuilder.buildDBC(resource.getFile(), consolidate, false, true, false, false, null));
+            final List<Record> unselected = decodeAll(model, frames);
+
+            final HashSet<String> torque = new HashSet<>();
+            torque.add("Torque");
+            torque.add("GearActual");
+            torque.add("GearTarget");
+            torque.add("Shifting");
+            final HashSet<String> battery = new HashSet<>();
+            battery.add("Odometer");
+            final DbcCompiledDecoder torqueView = model.view(torque);
+            final DbcCompiledDecoder batteryView = model.view(battery);
+            assertSame(model, model.view(null));
+            assertEquals(2, torqueView.size());
+            assertEquals(1, batteryView.size());
+            assertSame(model.getMessages().get(1), torqueView.getMessages().get(1)); //fully selected, shared
+
+            final MessageDecoder torqueSelected = MessageDecodeBuilder.buildDBC(resource.getFile(), consolidate, false, true, false, false, null);
+            final MessageDecoder batterySelected = torqueSelected.clone();
+            torqueSelected.select(torque);
+            batterySelected.select(battery);
+            assertSameRecords(decodeAll(torqueSelected, frames), decodeAll(torqueView, frames));
+            assertSameRecords(decodeAll(batterySelected, frames), decodeAll(batteryView, frames));
+            assertSameRecords(unselected, decodeAll(model, frames));
+        }
+    }
+
+    private void verifyConcurrentDecode(final boolean consolidate) throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final DbcCompiledDecoder decoder = DbcCompiledDecoder.compile(
+                MessageDecodeBuilder.buildDBC(resource.getFile(), consolidate, false, true, false, false, null));
+        final List<DbcUtils.Message> frames = buildTrace(20000);
+        final List<Record> expected = decodeAll(decoder, frames);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<List<Record>>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; ++i) {
+                futures.add(executor.submit(new Callable<List<Record>>() {
+                    @Override
+                    public List<Record> call() {
+                        return decodeAll(decoder, frames);
+                    }
+                }));
+            }
+            for (final Future<List<Record>> future : futures) {
+                assertSameRecords(expected, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<DbcUtils.Message> buildTrace(final int size) {
+        final Random random = new Random(7l);
+        final List<DbcUtils.Message> frames = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            final int k = random.nextInt(IDS.length);
+            final byte[] data = new byte[LENGTHS[k]];
+            random.nextBytes(data);
+            frames.add(new DbcUtils.Message(Instant.ofEpochMilli(1700000000000l + i), 1, IDS[k], data));
+        }
+        return frames;
+    }
+
+    private static List<Record> decodeAll(final MessageDecoder decoder, final List<DbcUtils.Message> frames) {
+        final List<Record> records = new ArrayList<>(frames.size());
+        for (final DbcUtils.Message frame : frames) {
+            records.add(decoder.decode(frame, frame));
+        }
+        return records;
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+
+public class DbcFieldIndexTest {
+    private static final long[] IDS = new long[] {100l, 257l, 419351061l, 5l};
+
+    @Test
+    public void testSparseRowsMaterializeWideRecords() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final MessageDecoder decoder = MessageDecodeBuilder.buildDBC(resource.getFile(), true, false, true, false, true, null);
+        final DbcCompiledDecoder compiled = DbcCompiledDecoder.compile(decoder);
+        final DbcFieldIndex index = compiled.getFieldIndex();
+
+        final Record wide = MessageDecodeBuilder.toTemplateRecord(decoder);
+        assertEquals(wide.size(), index.size());
+        for (int i = 0; i < wide.size(); ++i) {
+            assertEquals(wide.nameAt(i), index.nameAt(i));
+            assertEquals(i, index.positionOf(wide.nameAt(i)));
+        }
+        assertEquals(-1, index.positionOf("missing"));
+
+        final Random random = new Random(8l);
+        final DbcSparseRow row = new DbcSparseRow(2);
+        final Record merged = index.newRecord();
+        for (int i = 0; i < 200; ++i) {
+            final byte[] data = new byte[8];
+            random.nextBytes(data);
+            final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(i), 1, IDS[i % IDS.length], data);
+            final Record expected = compiled.decode(frame, frame);
+            if (expected == null) {
+                assertNull(compiled.sparse(frame, frame, row, true));
+                continue;
+            }
+
+            assertSame(row, compiled.sparse(frame, frame, row, true));
+            assertEquals(expected.size(), row.size());
+            final Record record = row.materialize(index.newRecord());
+            row.materialize(merged);
+            for (int j = 0; j < expected.size(); ++j) {
+                assertEquals(String.valueOf(expected.dataAt(j)), String.valueOf(record.get(expected.nameAt(j))));
+                assertEquals(String.valueOf(expected.dataAt(j)), String.valueOf(merged.get(expected.nameAt(j))));
+            }
+        }
+    }
+
+    @Test
+    public void testViewsKeepPositions() throws Exception {
+        final MessageDecoder decoder = MessageDecodeBuilder.buildDBCFromFileContents(
+                Arrays.asList("BO_ 1 A: 8 ECU\n SG_ X : 0|8@1+ (1,0) [0|255] \"\" E\n SG_ Y : 8|8@1+ (1,0) [0|255] \"\" E\n"
+                        + "BO_ 2 B: 8 ECU\n SG_ Y : 0|8@1+ (1,0) [0|255] \"\" E\n SG_ Z : 8|8@1+ (1,0) [0|255] \"\" E\n"),
+                false, false, true, false, false, null);
+        final DbcCompiledDecoder compiled = DbcCompiledDecoder.compile(decoder);
+        final DbcFieldIndex index = compiled.getFieldIndex();
+        assertEquals(4, index.size());
+        assertEquals(Arrays.asList(0, 2, 3), Arrays.asList(
+                index.positionOf(index.nameAt(0)), index.positionOf("Y"), index.positionOf("Z")));
+
+        final DbcCompiledDecoder view = compiled.view(new HashSet<>(Arrays.asList("Z")));
+        assertSame(index, view.getFieldIndex());
+        final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 2l, new byte[] {4, 6, 0, 0, 0, 0, 0, 0});
+        final DbcSparseRow row = view.sparse(frame, frame, new DbcSparseRow(), true);
+        assertEquals(2, row.size());
+        assertEquals(3, row.positionAt(1));
+        assertEquals(6d, row.dataAt(1).toDouble(), 0d);
+        assertNull(view.sparse(frame, new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 1l, new byte[8]), row, true));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnindexedMessage() throws Exception {
+        final DbcMessage message = new DbcMessage(0, 1l, "M", 8);
+        final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(1l), 0, 1l, new byte[8]);
+        message.sparse(frame, frame, new DbcSparseRow(), true);
+    }
+}
@@ -0,0 +1,108 @@
+package com.exceeddata.ac.format.dbc;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+
+/**
+ * JMH comparison of generated message kernels against the interpreted decode path, on a synthetic DBC of
+ * 500 eight-byte messages with mixed byte orders, signal widths and scalings.  The frames cycle through
+ * either a few hot messages or all 500, as the kernels trade a larger code footprint for fewer dispatches.
+ *
+ * <p>Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.exceeddata.ac.format.dbc.DbcKernelBenchmark</code>.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DbcKernelBenchmark {
+    private static final int MESSAGES = 500;
+    private static final int FRAMES = 4096;
+
+    /** number of distinct messages appearing in the frames */
+    @Param({"10", "500"})
+    public int hot;
+
+    private MessageDecoder interpreted;
+    private MessageDecoder generated;
+    private DbcUtils.Message[] frames;
+
+    @Setup
+    public void setup() throws Exception {
+        final Random random = new Random(500l);
+        final StringBuilder dbc = new StringBuilder(MESSAGES * 512);
+        for (int m = 0; m < MESSAGES; ++m) {
+            dbc.append("BO_ ").append(0x100 + m).append(" M").append(m).append(": 8 ECU\n");
+            int bit = 0, s = 0;
+            while (bit < 64) {
+                final int length = Math.min(64 - bit, 1 + random.nextInt(16));
+                final boolean motorola = random.nextBoolean();
+                final int startBit = motorola ? (bit / 8) * 8 + (7 - bit % 8) : bit;
+                final String scaling = random.nextInt(3) == 0 ? "(1,0)" : random.nextBoolean() ? "(0.1,-40)" : "(0.125,0)";
+                dbc.append(" SG_ S").append(m).append('_').append(s++).append(" : ").append(startBit).append('|').append(length)
+                   .append(motorola ? "@0" : "@1").append(random.nextBoolean() ? '+' : '-').append(' ').append(scaling)
+                   .append(" [0|0] \"\" Vector__XXX\n");
+                bit += length;
+            }
+            dbc.append('\n');
+        }
+
+        interpreted = DbcCompiledDecoder.compile(MessageDecodeBuilder.buildDBCFromFileContents(
+                Collections.singletonList(dbc.toString()), true, false, true, false, false, null));
+        generated = DbcCompiledDecoder.compile(MessageDecodeBuilder.buildDBCFromFileContents(
+                Collections.singletonList(dbc.toString()), true, false, true, false, false, null));
+        if (DbcKernelGenerator.generate(generated) != MESSAGES) {
+            throw new IllegalStateException("kernel generation unavailable");
+        }
+
+        frames = new DbcUtils.Message[FRAMES];
+        for (int i = 0; i < FRAMES; ++i) {
+            final byte[] data = new byte[8];
+            random.nextBytes(data);
+            frames[i] = new DbcUtils.Message(Instant.ofEpochSecond(1700000000l), 1, 0x100 + random.nextInt(hot), data);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void interpreted(final Blackhole blackhole) {
+        for (final DbcUtils.Message frame : frames) {
+            blackhole.consume(interpreted.decode(frame, frame));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void generated(final Blackhole blackhole) {
+        for (final DbcUtils.Message frame : frames) {
+            blackhole.consume(generated.decode(frame, frame));
+        }
+    }
+
+    public static void main(final String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(DbcKernelBenchmark.class.getSimpleName()).build()).run();
+    }
+}
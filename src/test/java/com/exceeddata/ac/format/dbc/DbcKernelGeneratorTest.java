@@ -0,0 +1,146 @@
+package com.exceeddata.ac.format.dbc;
+
+import static com.exceeddata.ac.format.dbc.DbcRecordAssert.assertSameRecord;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+
+public class DbcKernelGeneratorTest {
+
+    @Test
+    public void testKernelMatchesInterpretedDecode() throws Exception {
+        Assume.assumeTrue(DbcKernelGenerator.isAvailable());
+
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final DbcConsolidateMessageDecoder interpreted = (DbcConsolidateMessageDecoder) MessageDecodeBuilder.buildDBC(
+                resource.getFile(), true, false, true, false, false, null);
+        final DbcCompiledDecoder generated = DbcCompiledDecoder.compile(interpreted);
+        assertEquals(generated.size(), DbcKernelGenerator.generate(generated));
+
+        final Random random = new Random(5l);
+        final long[] ids = new long[] {100l, 257l, 419351061l};
+        for (int i = 0; i < 3000; ++i) {
+            final byte[] data = new byte[8];
+            random.nextBytes(data);
+            final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(1700000000l), 1, ids[i % ids.length], data);
+            assertSameRecord(interpreted.decode(frame, frame), generated.decode(frame, frame));
+        }
+    }
+
+    @Test
+    public void testKernelMatchesRandomSignals() {
+        Assume.assumeTrue(DbcKernelGenerator.isAvailable());
+
+        final Random random = new Random(6l);
+        final List<DbcMessage> messages = new ArrayList<>();
+        for (int m = 0; m < 40; ++m) {
+            final DbcMessage message = new DbcMessage(0, m, "M" + m, 64);
+            for (int a = 0; a < 12; ++a) {
+                message.addAttribute(randomAttribute(random, "S" + a));
+            }
+            messages.add(message);
+        }
+
+        final List<DbcMessage> copies = new ArrayList<>();
+        for (final DbcMessage message : messages) {
+            copies.add(message.copy());
+        }
+        assertEquals(messages.size(), DbcKernelGenerator.generate(copies));
+
+        final byte[] data = new byte[64];
+        for (int n = 0; n < 200; ++n) {
+            random.nextBytes(data);
+            final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(1700000000l), 0, 0l, data);
+            for (int m = 0; m < messages.size(); ++m) {
+                assertSameRecord(messages.get(m).decode(frame, frame), copies.get(m).decode(frame, frame));
+            }
+        }
+    }
+
+    @Test
+    public void testKernelDroppedOnAttributeChange() {
+        Assume.assumeTrue(DbcKernelGenerator.isAvailable());
+
+        final DbcMessage message = new DbcMessage(0, 1l, "M", 8);
+        message.addAttribute(randomAttribute(new Random(7l), "S"));
+        DbcKernelGenerator.generate(Collections.singletonList(message));
+        assertNotNull(message.getKernel());
+
+        message.removeAttribute(0);
+        assertNull(message.getKernel());
+    }
+
+
+    private static DbcAttribute randomAttribute(final Random random, final String name) {
+        final DbcByteOrder order = random.nextBoolean() ? DbcByteOrder.MOTOROLA : DbcByteOrder.INTEL;
+        final boolean signed = random.nextBoolean();
+        switch (random.nextInt(4)) {
+            case 0: {
+                final int length = 1 + random.nextInt(31);
+                final DbcAttributeInteger a = new DbcAttributeInteger();
+                a.setName(name);
+                a.setLength(length);
+                a.setOrder(order);
+                a.setSigned(signed);
+                a.setStartBit(randomStartBit(random, length, order));
+                a.setMultiplier(1 + random.nextInt(3));
+                a.setAdjustment(random.nextInt(5) - 2);
+                return a;
+            }
+            case 1: {
+                final int length = 1 + random.nextInt(64);
+                final DbcAttributeLong a = new DbcAttributeLong();
+                a.setName(name);
+                a.setLength(length);
+                a.setOrder(order);
+                a.setSigned(signed);
+                a.setStartBit(randomStartBit(random, length, order));
+                a.setMultiplier(1l + random.nextInt(3));
+                a.setAdjustment(random.nextInt(5) - 2l);
+                return a;
+            }
+            case 2: {
+                final int length = 1 + random.nextInt(64);
+                final DbcAttributeDouble a = new DbcAttributeDouble();
+                a.setName(name);
+                a.setLength(length);
+                a.setOrder(order);
+                a.setSigned(signed);
+                a.setStartBit(randomStartBit(random, length, order));
+                a.setMultiplier(new BigDecimal("0.125"));
+                a.setAdjustment(new BigDecimal("-40"));
+                return a;
+            }
+            default: {
+                final int length = 1 + random.nextInt(64);
+                final DbcAttributeDecimal a = new DbcAttributeDecimal();
+                a.setName(name);
+                a.setLength(length);
+                a.setOrder(order).setSigned(signed).setStartBit(randomStartBit(random, length, order));
+                a.setMultiplier(new BigDecimal("0.001")).setAdjustment(BigDecimal.ONE);
+                return a;
+            }
+        }
+    }
+
+    private static int randomStartBit(final Random random, final int length, final DbcByteOrder order) {
+        if (order == DbcByteOrder.INTEL) {
+            return random.nextInt(64 * 8 - length + 1);
+        }
+        final int msb = random.nextInt(64 * 8 - length + 1);
+        return (msb / 8) * 8 + (7 - msb % 8);
+    }
+}
@@ -0,0 +1,113 @@
+package com.exceeddata.ac.format.dbc;
+
+import static com.exceeddata.ac.format.dbc.DbcRecordAssert.assertSameRecord;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+
+public class DbcLazyMessageDecoderTest {
+    private static final long[] IDS = new long[] {100l, 257l, 419351061l, 5l, 2047l, 419351062l};
+
+    @Test
+    public void testLazyMatchesConsolidateDecode() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final String path = Paths.get(resource.toURI()).toString();
+        for (final boolean offset : new boolean[] {true, false}) {
+            final MessageDecoder full = MessageDecodeBuilder.buildDBC(path, true, false, true, false, offset, null);
+            final DbcLazyMessageDecoder lazy = (DbcLazyMessageDecoder) MessageDecodeBuilder.buildLazyDBC(path, false, true, offset, null);
+            assertEquals(0, lazy.getMessages().size());
+            assertEquals(MessageDecodeBuilder.toSchema(full),
+                    MessageDecodeBuilder.toSchema(MessageDecodeBuilder.buildLazyDBC(path, false, true, offset, null)));
+
+            for (int i = 0; i < 60; ++i) {
+                final byte[] data = new byte[] {(byte) i, 2, (byte) (i * 3), 4, 5, (byte) (i * 7), 7, 8};
+                final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(i), 1, IDS[i % IDS.length], data);
+                assertSameRecord(full.decode(frame, frame), lazy.decode(frame, frame));
+                assertSameRecord(full.interpret(frame, frame), lazy.interpret(frame, frame));
+            }
+            assertEquals(((DbcConsolidateMessageDecoder) full).getMessages().size(), lazy.getMessages().size());
+            assertEquals(MessageDecodeBuilder.toSchema(full), MessageDecodeBuilder.toSchema(lazy));
+        }
+    }
+
+    @Test
+    public void testMaterializesSeenIdsOnly() throws Exception {
+        final List<String> contents = Arrays.asList(
+                "BO_ 300 Empty: 8 ECU\n"
+                + "BO_ 2147484000 Ext: 8 ECU\n SG_ E : 0|8@1+ (1,0) [0|255] \"\" X\n"
+                + "BO_ 7 First: 8 ECU\n SG_ A : 0|8@1+ (1,0) [0|255] \"\" X\n SG_ B : 8|8@1+ (1,0) [0|255] \"\" X\n",
+                "",
+                "BO_ 300 Later: 8 ECU\n SG_ L : 0|8@1+ (2,0) [0|510] \"\" X\n"
+                + "BO_ 7 Second: 8 ECU\n SG_ C : 0|8@1+ (1,0) [0|255] \"\" X\n");
+        final DbcLazyMessageDecoder decoder = DbcLazyMessageDecoder.ofContents(contents, true, true, false);
+        assertEquals(3, decoder.size());
+
+        assertNull(decoder.get(8l));
+        assertNull(decoder.get(1l << 40));
+        assertEquals(0, decoder.getMessages().size());
+
+        assertEquals("First", decoder.get(7l).getName());
+        assertEquals(1, decoder.getMessages().size());
+        assertSame(decoder.get(7l), decoder.clone().get(7l));
+
+        //an ID whose first block has no signal resolves to a later block
+        assertEquals("Later", decoder.get(300l).getName());
+        assertEquals(3, decoder.get(300l).getChannelID());
+        assertEquals(true, decoder.get(352l).isExtendedFrame());
+        assertEquals(3, decoder.prepare(7l, 300l, 352l, 9l));
+        assertEquals(Arrays.asList("Ext", "First", "Later"), Arrays.asList(
+                decoder.getMessages().get(0).getName(), decoder.getMessages().get(1).getName(), decoder.getMessages().get(2).getName()));
+
+        final DbcLazyMessageDecoder selected = decoder.clone();
+        selected.select(Collections.singleton("First.B"));
+        assertNull(selected.get(300l));
+        assertEquals(1, selected.get(7l).size());
+        assertEquals("First.B", selected.get(7l).getAttributes().get(0).getName());
+        assertEquals(2, decoder.get(7l).size());
+    }
+
+    @Test
+    public void testLazyAppliesValueTypes() throws Exception {
+        final List<String> contents = Arrays.asList(
+                "BO_ 100 Inverter: 8 ECU\n SG_ Torque : 0|32@1- (1,0) [0|0] \"Nm\" X\n SG_ Speed : 32|32@1+ (0.5,10) [0|0] \"\" X\n"
+                + "BO_ 101 Adas: 8 ECU\n SG_ Range : 7|64@0+ (1,0) [0|0] \"m\" X\n"
+                + "CM_ SG_ 100 Torque \"motor torque\";\n"
+                + "BA_ \"GenMsgCycleTime\" BO_ 100 1;\n"
+                + "SIG_VALTYPE_ 100 Torque : 1;\n"
+                + "SIG_VALTYPE_ 101 Range : 2;\n"
+                + "SIG_VALTYPE_ 100 Speed : 1;\n",
+                "BO_ 102 Other: 8 ECU\n SG_ Torque : 0|32@1- (1,0) [0|0] \"\" X\n"
+                + "SIG_VALTYPE_ 100 Speed : 2;\n"); //value types of another source do not apply
+        final MessageDecoder full = MessageDecodeBuilder.buildDBCFromFileContents(contents, true, false, true, false, false, null);
+        final DbcLazyMessageDecoder lazy = DbcLazyMessageDecoder.ofContents(contents, false, true, false);
+
+        final byte[] inverter = new byte[8], adas = new byte[8];
+        ByteBuffer.wrap(inverter).order(ByteOrder.LITTLE_ENDIAN).putFloat(0, -12.5f).putFloat(4, 300.25f);
+        ByteBuffer.wrap(adas).putDouble(0, 42.125d);
+        for (final DbcUtils.Message frame : Arrays.asList(
+                new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 100l, inverter),
+                new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 101l, adas),
+                new DbcUtils.Message(Instant.ofEpochSecond(1l), 2, 102l, inverter))) {
+            assertSameRecord(full.decode(frame, frame), lazy.decode(frame, frame));
+            assertSameRecord(full.interpret(frame, frame), lazy.interpret(frame, frame));
+        }
+        final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 100l, inverter);
+        assertEquals(-12.5d, lazy.decode(frame, frame).get("Torque").toDouble(), 0d);
+        assertEquals(160.125d, lazy.decode(frame, frame).get("Speed").toDouble(), 0d);
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.data.typedata.IntData;
+import com.exceeddata.ac.common.data.typedata.NullData;
+import com.exceeddata.ac.common.message.MessageContent;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+import com.exceeddata.ac.format.util.MessageEncodeBuilder;
+
+public class DbcMessageEncoderTest {
+    private static final long[] IDS = new long[] {100l, 257l, 419351061l};
+
+    private static List<Record> records(final MessageDecoder decoder, final int count) throws Exception {
+        final List<Record> records = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            final byte[] data = new byte[] {(byte) i, (byte) (i >> 8), 3, 4, (byte) (i * 7), 6, 7, (byte) (i * 13)};
+            final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, IDS[i % IDS.length], data);
+            records.add(decoder.decode(frame, frame));
+        }
+        return records;
+    }
+
+    @Test
+    public void testEncodeMatchesMessageEncode() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final MessageDecoder decoder = MessageDecodeBuilder.buildDBC(resource.getFile(), true, false, true, false, false, null);
+        final DbcMessageEncoder encoder = (DbcMessageEncoder) MessageEncodeBuilder.buildDBC(resource.getFile(), false, true, false);
+
+        for (final Record record : records(decoder, 30)) {
+            final List<MessageContent> contents = encoder.encode(record);
+            assertEquals(1, contents.size());
+            final DbcMessage message = encoder.getAttribute(record.nameAt(1));
+            assertEquals(message.getMessageID(), contents.get(0).getMessageID());
+            assertArrayEquals(message.encode(record), contents.get(0).getData());
+        }
+    }
+
+    @Test
+    public void testEncodeMessagesInFieldOrder() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final DbcMessageEncoder encoder = (DbcMessageEncoder) MessageEncodeBuilder.buildDBC(resource.getFile(), false, true, false);
+
+        final Record record = new Record();
+        record.add("Unknown", 0, new IntData(1));
+        record.add("GearTarget", 0, new IntData(3));
+        record.add("EngineTemp", 0, NullData.INSTANCE);
+        record.add("GearActual", 0, new IntData(2));
+        record.add("Torque", 0, new IntData(-2));
+        for (int n = 0; n < 2; ++n) {
+            final List<MessageContent> contents = encoder.encode(record);
+            assertEquals(2, contents.size());
+            assertEquals(257l, contents.get(0).getMessageID());
+            assertArrayEquals(new byte[] {0x32, 0}, contents.get(0).getData());
+            assertEquals(100l, contents.get(1).getMessageID());
+            assertEquals((byte) 0xfe, contents.get(1).getData()[6]);
+        }
+    }
+
+    @Test
+    public void testEncodePrimitivesIntoBuffers() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final MessageDecoder decoder = MessageDecodeBuilder.buildDBC(resource.getFile(), true, false, true, false, false, null);
+        final DbcMessageEncoder encoder = (DbcMessageEncoder) MessageEncodeBuilder.buildDBC(resource.getFile(), false, true, false);
+
+        final byte[] buffer = new byte[20];
+        final ByteBuffer direct = ByteBuffer.allocateDirect(20);
+        for (final Record record : records(decoder, 30)) {
+            final DbcMessage message = encoder.getAttribute(record.nameAt(1));
+            final double[] values = new double[message.size()];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = record.get(message.getAttributes().get(i).getName(), 0).toDouble();
+            }
+
+            final byte[] expected = message.encode(record);
+            Arrays.fill(buffer, (byte) 0); //bits outside the signals are kept
+            direct.clear();
+            direct.put(new byte[20]);
+            message.encode(values, buffer, 4);
+            message.encode(values, direct, 4);
+            for (int i = 0; i < expected.length; ++i) {
+                assertEquals(expected[i], buffer[4 + i]);
+                assertEquals(expected[i], direct.get(4 + i));
+            }
+        }
+    }
+
+    @Test
+    public void testEncodeBatchKeepsOrder() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final MessageDecoder decoder = MessageDecodeBuilder.buildDBC(resource.getFile(), false, false, true, false, false, null);
+        final DbcMessageEncoder encoder = (DbcMessageEncoder) MessageEncodeBuilder.buildDBC(resource.getFile(), false, true, false);
+        final List<Record> records = records(decoder, 5000);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<List<MessageContent>> sequential = encoder.encodeBatch(records);
+            final List<List<MessageContent>> parallel = encoder.encodeBatch(records, executor);
+            assertEquals(records.size(), sequential.size());
+            assertEquals(records.size(), parallel.size());
+            for (int i = 0; i < records.size(); ++i) {
+                assertEquals(IDS[i % IDS.length] & 0x7fffffffl, parallel.get(i).get(0).getMessageID());
+                assertArrayEquals(encoder.encode(records.get(i)).get(0).getData(), parallel.get(i).get(0).getData());
+                assertArrayEquals(sequential.get(i).get(0).getData(), parallel.get(i).get(0).getData());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
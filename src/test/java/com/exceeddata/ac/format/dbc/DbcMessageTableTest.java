@@ -0,0 +1,81 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DbcMessageTableTest {
+
+    @Test
+    public void testStandardAndExtendedLookup() {
+        final Random random = new Random(11l);
+        final LinkedHashMap<Long, DbcMessage> messages = new LinkedHashMap<>();
+        for (int i = 0; i < 3000; ++i) {
+            final long id = i % 2 == 0 ? random.nextInt(0x800) : random.nextInt(0x20000000);
+            messages.put(id, new DbcMessage(1, id, "M" + id, 8));
+        }
+
+        final DbcMessageTable table = DbcMessageTable.of(messages);
+        assertEquals(messages.size(), table.size());
+        for (final Long id : messages.keySet()) {
+            assertSame(messages.get(id), table.get(id));
+        }
+        for (int i = 0; i < 100000; ++i) {
+            final long id = random.nextInt(0x20000000);
+            assertSame(messages.get(id), table.get(id));
+        }
+    }
+
+    @Test
+    public void testCompositeChannelLookup() {
+        final LinkedHashMap<Integer, DbcChannel> channels = new LinkedHashMap<>();
+        for (final int channelID : new int[] {1, 2, 100}) {
+            final DbcChannel channel = new DbcChannel();
+            channel.setChannelID(channelID);
+            channel.addMessage(new DbcMessage(channelID, 0x100l, "S" + channelID, 8));
+            channel.addMessage(new DbcMessage(channelID, 0x18ff1015l, "E" + channelID, 8));
+            channels.put(channelID, channel);
+        }
+
+        final DbcMessageTable table = DbcMessageTable.ofChannels(channels);
+        assertEquals(6, table.size());
+        for (final DbcChannel channel : channels.values()) {
+            assertSame(channel.getMessage(0x100l), table.get(channel.getChannelID(), 0x100l));
+            assertSame(channel.getMessage(0x18ff1015l), table.get(channel.getChannelID(), 0x18ff1015l));
+        }
+        assertNull(table.get(3, 0x100l));
+        assertNull(table.get(1, 0x101l));
+        assertNull(table.get(2, 0x18ff1016l));
+    }
+
+    @Test
+    public void testChannelChangesAfterDecode() {
+        final DbcChannel channel = new DbcChannel();
+        channel.setChannelID(1);
+        channel.addMessage(new DbcMessage(1, 0x10l, "A", 1));
+        final DbcChannelMessageDecoder decoder = new DbcChannelMessageDecoder();
+        decoder.addChannel(channel);
+        final DbcUtils.Message a = new DbcUtils.Message(Instant.EPOCH, 1, 0x10l, new byte[] {1});
+        final DbcUtils.Message b = new DbcUtils.Message(Instant.EPOCH, 1, 0x20l, new byte[] {1});
+        final DbcUtils.Message c = new DbcUtils.Message(Instant.EPOCH, 1, 0x30l, new byte[] {1});
+        assertNotNull(decoder.decode(a, a));
+        assertNull(decoder.decode(b, b));
+
+        decoder.getChannels().get(1).addMessage(new DbcMessage(1, 0x20l, "B", 1));
+        assertNotNull(decoder.decode(b, b));
+
+        decoder.getChannels().get(1).getMessages().put(0x30l, new DbcMessage(1, 0x30l, "C", 1));
+        decoder.getChannels().get(1).reindex();
+        assertNotNull(decoder.decode(c, c));
+
+        decoder.getChannel(1).removeMessage(0x10l);
+        assertNull(decoder.decode(a, a));
+    }
+}
@@ -0,0 +1,116 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.data.typedata.NullData;
+
+public class DbcMultiplexTest {
+    private static final String[] SIGNALS = new String[] {
+        "SG_ Mux M : 0|8@1+ (1,0) [0|255] \"\" Vector__XXX",
+        "SG_ Counter : 8|8@1+ (1,0) [0|255] \"\" Vector__XXX",
+        "SG_ Speed m0 : 16|16@1+ (1,0) [0|65535] \"\" Vector__XXX",
+        "SG_ Voltage m1 : 16|16@1+ (1,0) [0|65535] \"\" Vector__XXX",
+        "SG_ Current m1 : 32|16@1+ (1,0) [0|65535] \"\" Vector__XXX",
+    };
+
+    private static DbcMessage message() {
+        final DbcMessage message = new DbcMessage(0, 10l, "MuxMessage", 8);
+        for (final String line : SIGNALS) {
+            message.addAttribute(DbcDelegatorMessage.buildAttribute(line, message.getName(), 8, false, true));
+        }
+        return message;
+    }
+
+    @Test
+    public void testParseIndicators() {
+        final DbcAttribute mux = DbcDelegatorMessage.buildAttribute(SIGNALS[0], "M", 8, false, true);
+        assertEquals("Mux", mux.getName());
+        assertTrue(mux.isMultiplexor());
+        assertEquals(-1, mux.getMultiplexValue());
+
+        final DbcAttribute voltage = DbcDelegatorMessage.buildAttribute(SIGNALS[3], "M", 8, false, true);
+        assertEquals("Voltage", voltage.getName());
+        assertFalse(voltage.isMultiplexor());
+        assertEquals(1, voltage.getMultiplexValue());
+
+        final DbcAttribute nested = DbcDelegatorMessage.buildAttribute("SG_ Sub m12M : 8|4@1+ (1,0) [0|15] \"\" X", "M", 8, false, true);
+        assertTrue(nested.isMultiplexor());
+        assertEquals(12, nested.getMultiplexValue());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testParseInvalidIndicator() {
+        DbcDelegatorMessage.buildAttribute("SG_ Bad x1 : 8|4@1+ (1,0) [0|15] \"\" X", "M", 8, false, true);
+    }
+
+    @Test
+    public void testDecodeActivePage() throws Exception {
+        final DbcMessage message = message();
+        assertTrue(message.isMultiplexed());
+
+        final DbcUtils.Message page0 = new DbcUtils.Message(Instant.ofEpochSecond(1l), 0, 10l, new byte[] {0, 7, 1, 2, 3, 4, 0, 0});
+        final Record r0 = message.decode(page0, page0);
+        assertEquals(7, r0.get("Counter", 0).toInt().intValue());
+        assertEquals(0x0201, r0.get("Speed", 0).toInt().intValue());
+        assertEquals(NullData.INSTANCE, r0.get("Voltage", 0));
+        assertEquals(NullData.INSTANCE, r0.get("Current", 0));
+
+        final DbcUtils.Message page1 = new DbcUtils.Message(Instant.ofEpochSecond(1l), 0, 10l, new byte[] {1, 7, 1, 2, 3, 4, 0, 0});
+        final Record r1 = message.interpret(page1, page1);
+        assertEquals(NullData.INSTANCE, r1.get("Speed", 0));
+        assertEquals(0x0201, r1.get("Voltage", 0).toInt().intValue());
+        assertEquals(0x0403, r1.get("Current", 0).toInt().intValue());
+
+        final Record inspected = message.inspect(page1, page1, new HashSet<>(Arrays.asList("Speed", "Current")), message.getTemplate().dataCopy());
+        assertEquals(NullData.INSTANCE, inspected.get("Speed", 0));
+        assertEquals(0x0403, inspected.get("Current", 0).toInt().intValue());
+
+        final DbcUtils.Message unknown = new DbcUtils.Message(Instant.ofEpochSecond(1l), 0, 10l, new byte[] {9, 7, 1, 2, 3, 4, 0, 0});
+        final Record r9 = message.decode(unknown, unknown);
+        assertEquals(7, r9.get("Counter", 0).toInt().intValue());
+        assertEquals(NullData.INSTANCE, r9.get("Speed", 0));
+        assertEquals(NullData.INSTANCE, r9.get("Voltage", 0));
+    }
+
+    @Test
+    public void testProjectPageSignalsOnly() throws Exception {
+        final DbcMessage message = message().project(message().indicesOf(new HashSet<>(Arrays.asList("Speed", "Voltage"))));
+        assertEquals(2, message.size());
+        assertTrue(message.isMultiplexed());
+
+        final DbcUtils.Message page1 = new DbcUtils.Message(Instant.ofEpochSecond(1l), 0, 10l, new byte[] {1, 7, 1, 2, 3, 4, 0, 0});
+        final Record decoded = message.decode(page1, page1);
+        assertEquals(NullData.INSTANCE, decoded.get("Speed", 0));
+        assertEquals(0x0201, decoded.get("Voltage", 0).toInt().intValue());
+
+        final Record filled = message.fill(page1, page1, message.getTemplate().dataCopy(), true);
+        assertEquals(NullData.INSTANCE, filled.get("Speed", 0));
+        assertEquals(0x0201, filled.get("Voltage", 0).toInt().intValue());
+        assertEquals(NullData.INSTANCE, message.view(page1, page1, true).get("Speed"));
+
+        final DbcMessage speed = message.project(new int[] {0});
+        final DbcUtils.Message page0 = new DbcUtils.Message(Instant.ofEpochSecond(1l), 0, 10l, new byte[] {0, 7, 1, 2, 3, 4, 0, 0});
+        assertEquals(NullData.INSTANCE, speed.decode(page1, page1).get("Speed", 0));
+        assertEquals(0x0201, speed.decode(page0, page0).get("Speed", 0).toInt().intValue());
+    }
+
+    @Test
+    public void testEncodeActivePage() throws Exception {
+        final DbcMessage message = message();
+        final byte[] bytes = new byte[] {1, 7, 1, 2, 3, 4, 0, 0};
+        final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(1l), 0, 10l, bytes);
+        final Record record = message.decode(frame, frame);
+        record.add("Speed", 0, record.get("Counter", 0)); //inactive page, must not overwrite the voltage
+        assertArrayEquals(bytes, message.encode(record));
+    }
+}
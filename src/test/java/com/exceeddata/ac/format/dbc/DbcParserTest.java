@@ -0,0 +1,139 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DbcParserTest {
+    private static final String CONTENT =
+            "VERSION \"\"\r\n"
+            + "BO_ 100 Engine: 8 ECU\r\n"
+            + " SG_ EngineSpeed : 7|16@0+ (0.125,0) [0|8031.875] \"rpm\" Vector__XXX\r\n"
+            + "\r\n"
+            + " SG_ Torque:48|16@1- (1,-5) [-32768|32767] \"Nm\" Vector__XXX\n"
+            + "BO_ 200 Mux: 8 ECU\n"
+            + " SG_ Selector M : 0|8@1+ (1,0) [0|255] \"\" Vector__XXX\n"
+            + " SG_ Page2 m2 : 8|32@1+ (0.5,1) [0|1] \"\" Vector__XXX\n"
+            + " SG_ Wide : 0|64@1+ (1,0) [0|18446744073709551615] \"\" Vector__XXX\n"
+            + "BO_TX_BU_ 200 : ECU;\n"
+            + "BO_ 300 NoSignals: 8 ECU\n"
+            + "BO_ 301 Broken: 8 ECU\n"
+            + " SG_ Bad : x|8@1+ (1,0) [0|255] \"\" Vector__XXX";
+
+    @Test
+    public void testParseMatchesDelegators() throws Exception {
+        for (final boolean qualified : new boolean[] {true, false}) {
+            for (final boolean formula : new boolean[] {true, false}) {
+                assertSameChannel(
+                        reference(1, CONTENT.split("\n"), qualified, formula),
+                        DbcParser.parse(1, new StringReader(CONTENT), qualified, formula));
+            }
+        }
+
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final List<String> lines = Files.readAllLines(Paths.get(resource.toURI()), StandardCharsets.UTF_8);
+        assertSameChannel(
+                reference(2, lines.toArray(new String[lines.size()]), false, true),
+                DbcParser.parseFiles(new String[] {" ", resource.getFile()}, false, true).get(1));
+    }
+
+    @Test
+    public void testParseContentsInOrder() throws Exception {
+        final String[] contents = new String[6];
+        for (int i = 0; i < contents.length; ++i) {
+            contents[i] = "BO_ " + (i + 10) + " M" + i + ": 8 ECU\n SG_ S" + i + " : 0|8@1+ (1,0) [0|255] \"\" X\n";
+        }
+        contents[3] = "";
+
+        final List<DbcChannel> channels = DbcParser.parseContents(Arrays.asList(contents), false, true);
+        assertEquals(contents.length, channels.size());
+        for (int i = 0; i < contents.length; ++i) {
+            assertEquals(i + 1, channels.get(i).getChannelID());
+            assertEquals(i == 3 ? 0 : 1, channels.get(i).getMessages().size());
+            if (i != 3) {
+                assertEquals("S" + i, channels.get(i).getMessage(i + 10l).getAttributes().get(0).getName());
+            }
+        }
+    }
+
+    @Test
+    public void testTokenizerFields() throws Exception {
+        final DbcTokenizer tokenizer = new DbcTokenizer(new StringReader(CONTENT));
+        tokenizer.nextLine();
+        assertNull(tokenizer.message(1));
+        tokenizer.nextLine();
+        final DbcMessage message = tokenizer.message(3);
+        assertEquals(100l, message.getMessageID());
+        assertEquals("Engine", message.getName());
+        assertEquals(8, message.getLength());
+        tokenizer.nextLine();
+        final DbcAttribute attribute = tokenizer.attribute("Engine", true, true);
+        assertEquals("Engine.EngineSpeed", attribute.getName());
+        assertEquals("rpm", attribute.getUnit());
+        assertTrue(tokenizer.nextLine());
+        assertTrue(tokenizer.isBlank());
+        assertTrue(tokenizer.nextLine());
+        assertEquals(-5, tokenizer.attribute("Engine", false, true).getAdjustment().intValue());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testAttributeWithoutMessage() throws Exception {
+        DbcParser.parse(1, new StringReader("BO_ 1 A: 8 X\nBO_TX_BU_ 1 : X;\n SG_ A : 0|8@1+ (1,0) [0|255] \"\" X\n"), false, true);
+    }
+
+    private static DbcChannel reference(final int channelID, final String[] lines, final boolean qualified, final boolean formula) {
+        final DbcChannel channel = new DbcChannel();
+        channel.setChannelID(channelID);
+        DbcDelegator delegator = null;
+        for (final String raw : lines) {
+            final String line = raw.trim();
+            if (line.length() != 0) {
+                if (DbcDelegatorMessage.matchesMessage(line)) {
+                    delegator = new DbcDelegatorMessage(channelID, line);
+                } else if (DbcDelegatorMessage.matchesAttribute(line)) {
+                    delegator.delegate(channel, line, qualified, formula);
+                } else {
+                    delegator = null;
+                }
+            }
+        }
+        return channel;
+    }
+
+    private static void assertSameChannel(final DbcChannel expected, final DbcChannel actual) {
+        assertEquals(expected.getChannelID(), actual.getChannelID());
+        assertEquals(expected.getMessages().keySet(), actual.getMessages().keySet());
+        for (final DbcMessage e : expected.getMessages().values()) {
+            final DbcMessage a = actual.getMessage(e.getMessageID());
+            assertEquals(e.getName(), a.getName());
+            assertEquals(e.getLength(), a.getLength());
+            assertEquals(e.isExtendedFrame(), a.isExtendedFrame());
+            assertEquals(e.size(), a.size());
+            for (int i = 0; i < e.size(); ++i) {
+                final DbcAttribute ea = e.getAttributes().get(i);
+                final DbcAttribute aa = a.getAttributes().get(i);
+                assertEquals(ea.getClass(), aa.getClass());
+                assertEquals(ea.getName(), aa.getName());
+                assertEquals(ea.getUnit(), aa.getUnit());
+                assertEquals(ea.getStartBit(), aa.getStartBit());
+                assertEquals(ea.getLength(), aa.getLength());
+                assertEquals(ea.getByteOrder(), aa.getByteOrder());
+                assertEquals(ea.isSigned(), aa.isSigned());
+                assertEquals(ea.getMultiplier(), aa.getMultiplier());
+                assertEquals(ea.getAdjustment(), aa.getAdjustment());
+                assertEquals(ea.getMultiplexValue(), aa.getMultiplexValue());
+                assertEquals(ea.isMultiplexor(), aa.isMultiplexor());
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.exceeddata.ac.format.dbc;
+
+import static com.exceeddata.ac.format.dbc.DbcRecordAssert.assertSameRecord;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.data.typedata.NullData;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+
+public class DbcPayloadCacheTest {
+
+    @Test
+    public void testReuseMatchesDecode() throws Exception {
+        for (final boolean consolidate : new boolean[] {true, false}) {
+            final MessageDecoder plain = build(consolidate);
+            final MessageDecoder reuse = build(consolidate);
+            setRepeatMode(reuse, DbcRepeatMode.REUSE);
+
+            for (final DbcUtils.Message frame : frames()) {
+                for (final boolean applyFormula : new boolean[] {true, false}) {
+                    final Record expected = plain.compute(frame, frame, applyFormula);
+                    final Record actual = reuse.compute(frame, frame, applyFormula);
+                    assertSameRecord(expected, actual);
+                    if (actual != null) {
+                        actual.setAt(1, NullData.INSTANCE); //callers may modify their records without touching the cache
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReuseIntoWideTarget() throws Exception {
+        for (final boolean consolidate : new boolean[] {true, false}) {
+            final MessageDecoder plain = build(consolidate);
+            final MessageDecoder reuse = build(consolidate);
+            setRepeatMode(reuse, DbcRepeatMode.REUSE);
+
+            final Record expected = MessageDecodeBuilder.toTemplateRecord(plain);
+            final Record actual = MessageDecodeBuilder.toTemplateRecord(reuse);
+            for (final DbcUtils.Message frame : frames()) {
+                assertSameRecord(plain.compute(frame, frame, expected, true), reuse.compute(frame, frame, actual, true));
+            }
+        }
+    }
+
+    @Test
+    public void testMarkUnchanged() throws Exception {
+        final DbcConsolidateMessageDecoder decoder = (DbcConsolidateMessageDecoder) build(true);
+        decoder.setRepeatMode(DbcRepeatMode.MARK);
+
+        final byte[] data = new byte[] {1, 2, 3, 4, 5, 6, 7, 8};
+        final DbcUtils.Message first = new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 100l, data.clone());
+        final DbcUtils.Message repeat = new DbcUtils.Message(Instant.ofEpochSecond(2l), 1, 100l, data.clone());
+        final DbcUtils.Message otherChannel = new DbcUtils.Message(Instant.ofEpochSecond(2l), 2, 100l, data.clone());
+        data[7] = 9;
+        final DbcUtils.Message changed = new DbcUtils.Message(Instant.ofEpochSecond(3l), 1, 100l, data.clone());
+
+        assertFalse(DbcPayloadCache.isUnchanged(decoder.decode(first, first)));
+        assertTrue(DbcPayloadCache.isUnchanged(decoder.decode(repeat, repeat)));
+        assertFalse(DbcPayloadCache.isUnchanged(decoder.decode(otherChannel, otherChannel)));
+        assertFalse(DbcPayloadCache.isUnchanged(decoder.interpret(repeat, repeat)));
+        assertFalse(DbcPayloadCache.isUnchanged(decoder.decode(changed, changed)));
+
+        final DbcConsolidateMessageDecoder clone = decoder.clone();
+        assertEquals(DbcRepeatMode.MARK, clone.getRepeatMode());
+        assertNotNull(clone.decode(changed, changed));
+        assertTrue(DbcPayloadCache.isUnchanged(decoder.decode(changed, changed)));
+    }
+
+    private static List<DbcUtils.Message> frames() {
+        final Random random = new Random(8l);
+        final long[] ids = new long[] {100l, 257l, 419351061l};
+        final byte[][] last = new byte[ids.length * 2][];
+        final List<DbcUtils.Message> frames = new ArrayList<>();
+        for (int i = 0; i < 3000; ++i) {
+            final int m = random.nextInt(ids.length), channel = 1 + random.nextInt(2), k = m * 2 + channel - 1;
+            if (last[k] == null || random.nextInt(4) == 0) {
+                last[k] = new byte[random.nextInt(20) == 0 ? 1 : 8];
+                random.nextBytes(last[k]);
+            }
+            frames.add(new DbcUtils.Message(Instant.ofEpochSecond(1700000000l + i), channel, ids[m], last[k].clone()));
+        }
+        return frames;
+    }
+
+    private MessageDecoder build(final boolean consolidate) throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        return MessageDecodeBuilder.buildDBC(resource.getFile(), consolidate, false, true, false, true, null);
+    }
+
+    private static void setRepeatMode(final MessageDecoder decoder, final DbcRepeatMode mode) {
+        if (decoder instanceof DbcConsolidateMessageDecoder) {
+            ((DbcConsolidateMessageDecoder) decoder).setRepeatMode(mode);
+        } else {
+            ((DbcChannelMessageDecoder) decoder).setRepeatMode(mode);
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import com.exceeddata.ac.common.data.record.Record;
+
+/**
+ * Record assertions shared by the decoder tests.
+ *
+ */
+final class DbcRecordAssert {
+    private DbcRecordAssert() {}
+
+    /**
+     * Assert both records are null, or have the same names and data in the same order.
+     *
+     * @param expected the expected record
+     * @param actual the actual record
+     */
+    static void assertSameRecord(final Record expected, final Record actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.size(), actual.size());
+        for (int j = 0, t = expected.size(); j < t; ++j) {
+            assertEquals(expected.nameAt(j), actual.nameAt(j));
+            assertEquals(expected.dataAt(j), actual.dataAt(j));
+        }
+    }
+
+    /**
+     * Assert both lists have the same records in the same order.
+     *
+     * @param expected the expected records
+     * @param actual the actual records
+     */
+    static void assertSameRecords(final List<Record> expected, final List<Record> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0, s = expected.size(); i < s; ++i) {
+            assertSameRecord(expected.get(i), actual.get(i));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.exceeddata.ac.format.dbc;
+
+import static com.exceeddata.ac.format.dbc.DbcRecordAssert.assertSameRecord;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URL;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+
+public class DbcRecordPoolTest {
+    private static final long[] IDS = new long[] {100l, 257l, 419351061l, 5l};
+
+    @Test
+    public void testPooledRecordsMatchDecode() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final MessageDecoder decoder = MessageDecodeBuilder.buildDBC(resource.getFile(), true, false, true, false, true, null);
+        final DbcCompiledDecoder compiled = DbcCompiledDecoder.compile(decoder);
+        if (DbcKernelGenerator.isAvailable()) {
+            DbcKernelGenerator.generate(compiled);
+        }
+
+        for (final MessageDecoder d : Arrays.asList(decoder, compiled)) {
+            final DbcRecordPool pool = new DbcRecordPool(d, 2);
+            final Random random = new Random(3l);
+            for (int i = 0; i < 400; ++i) {
+                final byte[] data = new byte[8];
+                random.nextBytes(data);
+                final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(i), 1, IDS[i % IDS.length], data);
+                final boolean applyFormula = i % 3 != 0;
+                final Record record = pool.compute(frame, frame, applyFormula);
+                assertSameRecord(d.compute(frame, frame, applyFormula), record);
+                if (record != null) {
+                    pool.release(record);
+                }
+            }
+            assertTrue(pool.getCreated() <= IDS.length);
+        }
+    }
+
+    @Test
+    public void testRecycledMultiplexRecord() throws Exception {
+        final DbcConsolidateMessageDecoder decoder = (DbcConsolidateMessageDecoder) MessageDecodeBuilder.buildDBCFromFileContents(
+                Arrays.asList("BO_ 10 Mux: 8 ECU\n"
+                        + " SG_ Mux M : 0|8@1+ (1,0) [0|255] \"\" X\n"
+                        + " SG_ Speed m0 : 8|8@1+ (1,0) [0|255] \"\" X\n"
+                        + " SG_ Voltage m1 : 16|8@1+ (1,0) [0|255] \"\" X\n"),
+                true, false, true, false, false, null);
+        final DbcRecordPool pool = new DbcRecordPool(decoder, 1);
+
+        final DbcUtils.Message page0 = new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 10l, new byte[] {0, 7, 9, 0, 0, 0, 0, 0});
+        final Record first = pool.decode(page0, page0);
+        assertSameRecord(decoder.decode(page0, page0), first);
+        pool.release(first);
+        pool.release(first);
+
+        final DbcUtils.Message page1 = new DbcUtils.Message(Instant.ofEpochSecond(2l), 1, 10l, new byte[] {1, 7, 9, 0, 0, 0, 0, 0});
+        final Record second = pool.decode(page1, page1);
+        assertSame(first, second);
+        assertSameRecord(decoder.decode(page1, page1), second);
+        assertNotNull(pool.decode(page1, page1)); //the only pooled record is out
+        assertEquals(2l, pool.getCreated());
+
+        final DbcUtils.Message shorter = new DbcUtils.Message(Instant.ofEpochSecond(3l), 1, 10l, new byte[] {1});
+        assertNull(pool.decode(shorter, shorter));
+        assertNull(pool.decode(page1, new DbcUtils.Message(Instant.ofEpochSecond(3l), 1, 11l, new byte[8])));
+    }
+
+    @Test
+    public void testSteadyStateAllocatesLess() throws Exception {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final DbcCompiledDecoder decoder = DbcCompiledDecoder.compile(
+                MessageDecodeBuilder.buildDBC(resource.getFile(), true, false, true, false, false, null));
+        final DbcRecordPool pool = new DbcRecordPool(decoder, 4);
+        final int frames = 20000;
+        final DbcUtils.Message[] messages = new DbcUtils.Message[IDS.length];
+        final Record[] templates = new Record[IDS.length];
+        for (int i = 0; i < messages.length; ++i) {
+            messages[i] = new DbcUtils.Message(Instant.ofEpochSecond(1700000000l), 1, IDS[i], new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+            for (final DbcMessage m : decoder.getMessages()) {
+                if (m.getMessageID() == IDS[i]) {
+                    templates[i] = m.getTemplate();
+                }
+            }
+        }
+
+        long pooled = 0l, plain = 0l, copied = 0l;
+        for (int round = 0; round < 3; ++round) { //the last round runs warm
+            final long id = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(id);
+            for (int i = 0; i < frames; ++i) {
+                final Record record = pool.decode(messages[i & 3], messages[i & 3]);
+                if (record != null) {
+                    pool.release(record);
+                }
+            }
+            pooled = threads.getThreadAllocatedBytes(id) - before;
+
+            before = threads.getThreadAllocatedBytes(id);
+            for (int i = 0; i < frames; ++i) {
+                decoder.decode(messages[i & 3], messages[i & 3]);
+            }
+            plain = threads.getThreadAllocatedBytes(id) - before;
+
+            before = threads.getThreadAllocatedBytes(id);
+            for (int i = 0; i < frames; ++i) {
+                if (templates[i & 3] != null) {
+                    templates[i & 3].dataCopy();
+                }
+            }
+            copied = threads.getThreadAllocatedBytes(id) - before;
+        }
+        assertTrue(pool.getCreated() <= IDS.length);
+        assertTrue(copied > 0l);
+        //the pool saves the template copy a plain decode makes for every frame, give or take a TLAB refill
+        assertTrue("pooled " + pooled / frames + " plain " + plain / frames + " copied " + copied / frames + " bytes per frame",
+                plain - pooled >= copied - 65536l);
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.data.typedata.NullData;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+
+public class DbcRecordViewTest {
+    private static final long[] IDS = new long[] {100l, 257l, 419351061l, 5l};
+
+    @Test
+    public void testViewMatchesDecode() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        final DbcCompiledDecoder decoder = DbcCompiledDecoder.compile(
+                MessageDecodeBuilder.buildDBC(resource.getFile(), true, false, true, false, true, null));
+        final Random random = new Random(4l);
+        for (int i = 0; i < 200; ++i) {
+            final byte[] data = new byte[8];
+            random.nextBytes(data);
+            final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(i), 1, IDS[i % IDS.length], data);
+            final boolean applyFormula = i % 2 == 0;
+            final Record expected = decoder.compute(frame, frame, applyFormula);
+            final DbcRecordView view = decoder.view(frame, frame, applyFormula);
+            if (expected == null) {
+                assertNull(view);
+                continue;
+            }
+
+            assertEquals(0, view.decoded());
+            final String name = expected.nameAt(expected.size() - 1);
+            assertEquals(String.valueOf(expected.get(name)), String.valueOf(view.get(name)));
+            assertSame(view.get(name), view.get(name));
+            assertEquals(1, view.decoded());
+            assertNull(view.get("missing"));
+
+            final Record record = view.toRecord();
+            assertEquals(expected.size(), record.size());
+            for (int j = 0; j < expected.size(); ++j) {
+                assertEquals(expected.nameAt(j), view.nameAt(j));
+                assertEquals(String.valueOf(expected.dataAt(j)), String.valueOf(record.dataAt(j)));
+            }
+        }
+    }
+
+    @Test
+    public void testInactivePageReadsNull() throws Exception {
+        final DbcConsolidateMessageDecoder decoder = (DbcConsolidateMessageDecoder) MessageDecodeBuilder.buildDBCFromFileContents(
+                Arrays.asList("BO_ 10 Mux: 8 ECU\n"
+                        + " SG_ Mux M : 0|8@1+ (1,0) [0|255] \"\" X\n"
+                        + " SG_ Speed m0 : 8|8@1+ (2,0) [0|510] \"\" X\n"
+                        + " SG_ Voltage m1 : 16|8@1+ (1,0) [0|255] \"\" X\n"),
+                true, false, true, false, false, null);
+        final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 10l, new byte[] {0, 7, 9, 0, 0, 0, 0, 0});
+        final DbcRecordView view = decoder.view(frame, frame, true);
+        assertNotNull(view);
+        assertSame(NullData.INSTANCE, view.get("Voltage"));
+        assertEquals(14d, view.get("Speed").toDouble(), 0d);
+        assertEquals(7d, decoder.view(frame, frame, false).get("Speed").toDouble(), 0d);
+        assertEquals(2, view.decoded());
+    }
+}
@@ -0,0 +1,122 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+
+public class DbcReloadableDecoderTest {
+    private static final int THREADS = 4;
+
+    private static MessageDecoder build(final int factor) throws Exception {
+        return DbcCompiledDecoder.compile(MessageDecodeBuilder.buildDBCFromFileContents(
+                Collections.singletonList("BO_ 10 M: 8 ECU\n SG_ S : 0|8@1+ (" + factor + ",0) [0|2550] \"\" X\n"),
+                true, false, true, false, false, null));
+    }
+
+    @Test
+    public void testReloadWhileDecoding() throws Exception {
+        final MessageDecoder one = build(1), two = build(2);
+        final DbcReloadableDecoder decoder = new DbcReloadableDecoder(one);
+        assertEquals(1l, decoder.getVersion());
+        assertEquals(0l, decoder.getLastVersion());
+
+        final DbcUtils.Message frame = new DbcUtils.Message(Instant.EPOCH, 1, 10l, new byte[] {3, 0, 0, 0, 0, 0, 0, 0});
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; ++i) {
+                final DbcReloadableDecoder local = decoder.clone();
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        long decoded = 0l, previous = 0l;
+                        while (running.get() || decoded == 0l) {
+                            final Record record = local.decode(frame, frame);
+                            final long version = local.getLastVersion();
+                            assertTrue(version >= previous);
+                            assertEquals(version % 2 == 1 ? 3d : 6d, record.get("S", 0).toDouble(), 0d);
+                            previous = version;
+                            ++decoded;
+                        }
+                        return decoded;
+                    }
+                }));
+            }
+            for (int n = 0; n < 2000; ++n) {
+                assertEquals(n + 2l, decoder.reload(n % 2 == 0 ? two : one));
+            }
+            running.set(false);
+            for (final Future<Long> future : futures) {
+                assertTrue(future.get() > 0l);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2001l, decoder.getVersion());
+        assertEquals(3d, decoder.decode(frame, frame).get("S", 0).toDouble(), 0d);
+        assertEquals(2001l, decoder.getLastVersion());
+    }
+
+    @Test
+    public void testVersionedRecordsOutliveNextFrame() throws Exception {
+        final DbcReloadableDecoder decoder = new DbcReloadableDecoder(build(1));
+        final DbcUtils.Message frame = new DbcUtils.Message(Instant.EPOCH, 1, 10l, new byte[] {3, 0, 0, 0, 0, 0, 0, 0});
+
+        final List<DbcReloadableDecoder.Versioned> buffered = new ArrayList<>();
+        buffered.add(decoder.decodeVersioned(frame, frame));
+        decoder.reload(build(2));
+        buffered.add(decoder.computeVersioned(frame, frame, null, true));
+        buffered.add(decoder.computeVersioned(frame, frame, null, false));
+        assertEquals(2l, decoder.getLastVersion());
+
+        assertEquals(1l, buffered.get(0).getVersion());
+        assertEquals(3d, buffered.get(0).getRecord().get("S", 0).toDouble(), 0d);
+        assertEquals(2l, buffered.get(1).getVersion());
+        assertEquals(6d, buffered.get(1).getRecord().get("S", 0).toDouble(), 0d);
+        assertEquals(2l, buffered.get(2).getVersion());
+        assertEquals(3d, buffered.get(2).getRecord().get("S", 0).toDouble(), 0d);
+
+        final DbcUtils.Message unknown = new DbcUtils.Message(Instant.EPOCH, 1, 11l, new byte[8]);
+        assertNull(decoder.decodeVersioned(unknown, unknown));
+    }
+
+    @Test
+    public void testSelectReloadsSelectedModel() throws Exception {
+        final DbcUtils.Message frame = new DbcUtils.Message(Instant.EPOCH, 1, 10l, new byte[] {3, 4, 0, 0, 0, 0, 0, 0});
+        for (final boolean compiled : new boolean[] {true, false}) {
+            MessageDecoder model = MessageDecodeBuilder.buildDBCFromFileContents(
+                    Collections.singletonList("BO_ 10 M: 8 ECU\n SG_ A : 0|8@1+ (1,0) [0|255] \"\" X\n SG_ B : 8|8@1+ (1,0) [0|255] \"\" X\n"),
+                    true, false, true, false, false, null);
+            if (compiled) {
+                model = DbcCompiledDecoder.compile(model);
+            }
+            final DbcReloadableDecoder decoder = new DbcReloadableDecoder(model);
+            final DbcReloadableDecoder local = decoder.clone();
+            decoder.select(Collections.singleton("B"));
+
+            assertEquals(2l, decoder.getVersion());
+            final Record record = local.decode(frame, frame);
+            assertNull(record.get("A"));
+            assertEquals(4d, record.get("B").toDouble(), 0d);
+            assertEquals(3d, model.decode(frame, frame).get("A").toDouble(), 0d);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+
+public class DbcSelectTest {
+    private static final byte[] DATA = new byte[] {1, 2, 3, 4, 5, 6, 7, 8};
+
+    @Test
+    public void testSelectProjectsWithoutModifyingSource() throws Exception {
+        for (final boolean consolidate : new boolean[] {true, false}) {
+            final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+            final MessageDecoder source = MessageDecodeBuilder.buildDBC(
+                    resource.getFile(), consolidate, false, true, false, false, null);
+            final MessageDecoder selected = source.clone();
+            selected.select(new HashSet<>(Arrays.asList("EngineTemp", "Fault")));
+
+            final DbcUtils.Message engine = new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 100l, DATA);
+            final DbcUtils.Message gear = new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 257l, DATA);
+            final DbcUtils.Message battery = new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 419351061l, DATA);
+
+            final Record full = source.decode(engine, engine);
+            final Record projected = selected.decode(engine, engine);
+            assertEquals(5, full.size());
+            assertEquals(2, projected.size());
+            assertEquals("EngineTemp", projected.nameAt(1));
+            assertEquals(full.get("EngineTemp", 0), projected.dataAt(1));
+
+            assertNull(selected.decode(gear, gear));
+            assertEquals(4, source.decode(gear, gear).size());
+            assertEquals(2, selected.decode(battery, battery).size());
+
+            final DbcMessage message = consolidate
+                    ? ((DbcConsolidateMessageDecoder) selected).getMessages().get(419351061l)
+                    : ((DbcChannelMessageDecoder) selected).getChannel(1).getMessage(419351061l);
+            assertArrayEquals(new int[] {4}, message.getProjection());
+        }
+    }
+
+    @Test
+    public void testInspect() throws Exception {
+        final DbcMessage message = new DbcMessage(0, 1l, "M", 8);
+        for (final String name : new String[] {"A", "B", "C"}) {
+            final DbcAttributeInteger attribute = new DbcAttributeInteger();
+            attribute.setName(name);
+            attribute.setOrder(DbcByteOrder.INTEL);
+            attribute.setStartBit(message.size() * 8);
+            attribute.setLength(8);
+            attribute.setMultiplier(1);
+            message.addAttribute(attribute);
+        }
+        message.setOutputOffset(true);
+
+        final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(1l), 0, 1l, DATA);
+        final Set<String> selection = new HashSet<>(Arrays.asList("C", "A"));
+        for (int n = 0; n < 3; ++n) {
+            final Record record = message.inspect(frame, frame, selection, message.getTemplate().dataCopy());
+            assertEquals(1, record.get("A", 0).toInt().intValue());
+            assertEquals(3, record.get("C", 0).toInt().intValue());
+        }
+        assertNull(message.inspect(frame, frame, Collections.singleton("X"), message.getTemplate().dataCopy()));
+    }
+}
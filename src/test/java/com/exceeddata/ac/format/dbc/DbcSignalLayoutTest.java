@@ -0,0 +1,135 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DbcSignalLayoutTest {
+
+    @Test
+    public void testLayoutMatchesBitSetExtraction() {
+        final Random random = new Random(20240501l);
+        for (final int payload : new int[] {8, 64}) {
+            final byte[] bytes = new byte[payload];
+            for (int n = 0; n < 20000; ++n) {
+                random.nextBytes(bytes);
+
+                final int length = 2 + random.nextInt(63);
+                final DbcByteOrder order = random.nextBoolean() ? DbcByteOrder.MOTOROLA : DbcByteOrder.INTEL;
+                final boolean signed = random.nextBoolean();
+                final int startBit = randomStartBit(random, payload, length, order);
+
+                final DbcAttributeLong reference = new DbcAttributeLong();
+                reference.setStartBit(startBit);
+                reference.setLength(length);
+                reference.setOrder(order);
+                reference.setSigned(signed);
+
+                final DbcSignalLayout layout = new DbcSignalLayout(startBit, length, order, signed);
+                assertEquals(order + " " + startBit + "|" + length + (signed ? "-" : "+"),
+                        DbcUtils.bsToLong(reference.extract(bytes)),
+                        layout.extract(bytes));
+            }
+        }
+    }
+
+    @Test
+    public void testDecodeMatchesReferenceDecode() {
+        final Random random = new Random(20240502l);
+        final byte[] bytes = new byte[64];
+        for (int n = 0; n < 5000; ++n) {
+            random.nextBytes(bytes);
+
+            final DbcByteOrder order = random.nextBoolean() ? DbcByteOrder.MOTOROLA : DbcByteOrder.INTEL;
+            final boolean signed = random.nextBoolean();
+            final int intLength = 2 + random.nextInt(signed ? 31 : 30);
+            final int intStart = randomStartBit(random, bytes.length, intLength, order);
+
+            final DbcAttributeInteger integer = new DbcAttributeInteger();
+            integer.setStartBit(intStart);
+            integer.setLength(intLength);
+            integer.setOrder(order);
+            integer.setSigned(signed);
+            integer.setMultiplier(3);
+            integer.setAdjustment(-7);
+            assertEquals(order == DbcByteOrder.MOTOROLA ? integer.decodeMotorola(bytes) : integer.decodeIntel(bytes), integer.decode(bytes));
+
+            final int doubleLength = 2 + random.nextInt(signed ? 63 : 62);
+            final int doubleStart = randomStartBit(random, bytes.length, doubleLength, order);
+
+            final DbcAttributeDouble dbl = new DbcAttributeDouble();
+            dbl.setStartBit(doubleStart);
+            dbl.setLength(doubleLength);
+            dbl.setOrder(order);
+            dbl.setSigned(signed);
+            dbl.setMultiplier(new BigDecimal("0.125"));
+            dbl.setAdjustment(new BigDecimal("-40"));
+            assertEquals(order == DbcByteOrder.MOTOROLA ? dbl.decodeMotorola(bytes) : dbl.decodeIntel(bytes), dbl.decode(bytes));
+        }
+    }
+
+    @Test
+    public void testInsertMatchesBitSetEncode() {
+        final Random random = new Random(20240503l);
+        for (final int payload : new int[] {8, 64}) {
+            for (int n = 0; n < 20000; ++n) {
+                final int length = 2 + random.nextInt(63);
+                final DbcByteOrder order = random.nextBoolean() ? DbcByteOrder.MOTOROLA : DbcByteOrder.INTEL;
+                final boolean signed = random.nextBoolean();
+                final int startBit = randomStartBit(random, payload, length, order);
+                final long value = random.nextLong();
+                final String signal = order + " " + startBit + "|" + length + (signed ? "-" : "+");
+
+                final DbcAttributeLong reference = new DbcAttributeLong();
+                reference.setStartBit(startBit);
+                reference.setLength(length);
+                reference.setOrder(order);
+                reference.setSigned(signed);
+                final byte[] expected = new byte[payload];
+                if (order == DbcByteOrder.MOTOROLA) {
+                    reference.encodeMotorola(value, expected);
+                } else {
+                    reference.encodeIntel(value, expected);
+                }
+
+                final DbcSignalLayout layout = new DbcSignalLayout(startBit, length, order, signed);
+                final byte[] actual = new byte[payload + 3];
+                layout.insert(value, actual, 3);
+                assertArrayEquals(signal, expected, Arrays.copyOfRange(actual, 3, actual.length));
+
+                //inserting into a noisy payload keeps the other bits and reads back the value
+                final byte[] noisy = new byte[payload];
+                random.nextBytes(noisy);
+                final byte[] original = noisy.clone();
+                final long previous = layout.extract(noisy);
+                layout.insert(value, noisy, 0);
+                assertEquals(signal, layout.extract(expected), layout.extract(noisy));
+                layout.insert(previous, noisy, 0);
+                assertArrayEquals(signal, original, noisy);
+
+                final ByteBuffer direct = ByteBuffer.allocateDirect(payload + 5);
+                layout.insert(value, direct, 5);
+                final byte[] written = new byte[payload];
+                direct.position(5);
+                direct.get(written);
+                assertArrayEquals(signal, expected, written);
+            }
+        }
+    }
+
+    private static int randomStartBit(final Random random, final int payload, final int length, final DbcByteOrder order) {
+        if (order == DbcByteOrder.INTEL) {
+            return random.nextInt(payload * 8 - length + 1);
+        }
+
+        //motorola start bit is the MSB, pick the MSB position in big endian stream order and convert back
+        final int msb = random.nextInt(payload * 8 - length + 1);
+        return (msb / 8) * 8 + (7 - msb % 8);
+    }
+}
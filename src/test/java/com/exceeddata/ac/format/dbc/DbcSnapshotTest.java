@@ -0,0 +1,166 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.message.MessageContent;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+import com.exceeddata.ac.format.util.MessageEncodeBuilder;
+
+public class DbcSnapshotTest {
+    private static final long[] IDS = new long[] {100l, 257l, 419351061l};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSnapshotRoundTrip() throws Exception {
+        final String sample = sample();
+        final String mux = folder.newFile("mux.dbc").getPath();
+        Files.write(Paths.get(mux), (
+                "BO_ 200 Mux: 8 ECU\n"
+                + " SG_ Selector M : 0|8@1+ (1,0) [0|255] \"\" Vector__XXX\n"
+                + " SG_ Page2 m2 : 8|32@1- (0.5,1) [-1E+3|1] \"km/h\" Vector__XXX\n"
+                + " SG_ Wide : 0|64@1+ (1,0) [0|18446744073709551615] \"\" Vector__XXX\n").getBytes(StandardCharsets.UTF_8));
+
+        final String[] paths = new String[] {sample, " ", mux};
+        final String key = DbcSnapshot.key(paths, "test", null, true);
+        final List<DbcChannel> channels = DbcParser.parseFiles(paths, true, true);
+        final Path file = DbcSnapshot.path(folder.getRoot().getPath(), key);
+        channels.get(2).getMessage(200l).setOutputOffset(true);
+
+        assertNull(DbcSnapshot.read(file, key));
+        assertEquals(true, DbcSnapshot.write(file, key, channels));
+        final List<DbcChannel> loaded = DbcSnapshot.read(file, key);
+        assertEquals(channels.size(), loaded.size());
+        for (int i = 0; i < channels.size(); ++i) {
+            assertSameChannel(channels.get(i), loaded.get(i));
+        }
+        assertEquals(true, loaded.get(2).getMessage(200l).getOutputOffset());
+        assertEquals(true, loaded.get(2).getMessage(200l).isMultiplexed());
+    }
+
+    @Test
+    public void testStaleSnapshotIsRebuilt() throws Exception {
+        final File dbc = folder.newFile("stale.dbc");
+        Files.write(dbc.toPath(), Files.readAllBytes(Paths.get(sample())));
+        final String dir = folder.newFolder("snapshots").getPath();
+
+        final String key = DbcSnapshot.key(new String[] {dbc.getPath()}, "decoder", null, true, false, true, false, false);
+        assertNotEquals(key, DbcSnapshot.key(new String[] {dbc.getPath()}, "decoder", null, true, false, true, false, true));
+        assertNotEquals(key, DbcSnapshot.key(new String[] {dbc.getPath()}, "decoder", Collections.singleton("Torque"), true, false, true, false, false));
+        assertNotEquals(key, DbcSnapshot.key(new String[] {dbc.getPath()}, "encoder", null, true, false, true, false, false));
+
+        //a snapshot of another format or key reads as stale and is replaced
+        final Path file = DbcSnapshot.path(dir, key);
+        Files.write(file, new byte[] {1, 2, 3});
+        assertNull(DbcSnapshot.read(file, key));
+        MessageDecodeBuilder.buildDBC(dbc.getPath(), true, false, true, false, false, null, dir);
+        assertNotNull(DbcSnapshot.read(file, key));
+
+        final byte[] truncated = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(truncated, truncated.length - 5));
+        assertNull(DbcSnapshot.read(file, key));
+        assertNull(DbcSnapshot.read(file, DbcSnapshot.key(new String[] {dbc.getPath()}, "decoder", null)));
+
+        //a corrupted snapshot reads as stale rather than failing
+        final byte[] corrupted = truncated.clone();
+        for (int i = 8; i < corrupted.length; ++i) {
+            corrupted[i] = (byte) ~truncated[i];
+            Files.write(file, corrupted);
+            DbcSnapshot.read(file, key);
+            corrupted[i] = truncated[i];
+        }
+
+        //an edited DBC file has another key
+        Files.write(dbc.toPath(), "\nBO_ 9 Extra: 1 ECU\n SG_ Flag : 0|1@1+ (1,0) [0|1] \"\" X\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        final String edited = DbcSnapshot.key(new String[] {dbc.getPath()}, "decoder", null, true, false, true, false, false);
+        assertNotEquals(key, edited);
+        MessageDecodeBuilder.buildDBC(dbc.getPath(), true, false, true, false, false, null, dir);
+        assertNotNull(DbcSnapshot.read(DbcSnapshot.path(dir, edited), edited).get(0).getMessage(9l));
+    }
+
+    @Test
+    public void testSnapshotBuildsMatchParsedBuilds() throws Exception {
+        final String sample = sample();
+        final String dir = folder.newFolder("builds").getPath();
+        final MessageDecoder parsed = MessageDecodeBuilder.buildDBC(sample, true, false, true, false, true, null);
+        final DbcMessageEncoder encoder = (DbcMessageEncoder) MessageEncodeBuilder.buildDBC(sample, false, true, false);
+
+        for (int n = 0; n < 2; ++n) { //written, then read
+            final MessageDecoder snapshot = MessageDecodeBuilder.buildDBC(sample, true, false, true, false, true, null, dir);
+            final DbcMessageEncoder snapshotEncoder = (DbcMessageEncoder) MessageEncodeBuilder.buildDBC(sample, false, true, false, dir);
+            assertEquals(MessageDecodeBuilder.toSchema(parsed), MessageDecodeBuilder.toSchema(snapshot));
+
+            for (int i = 0; i < 30; ++i) {
+                final byte[] data = new byte[] {(byte) i, 2, 3, (byte) (i * 5), 5, 6, (byte) (i * 11), 8};
+                final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(i), 1, IDS[i % IDS.length], data);
+                final Record expected = parsed.decode(frame, frame);
+                final Record actual = snapshot.decode(frame, frame);
+                assertEquals(expected.size(), actual.size());
+                for (int j = 0; j < expected.size(); ++j) {
+                    assertEquals(expected.nameAt(j), actual.nameAt(j));
+                    assertEquals(String.valueOf(expected.dataAt(j)), String.valueOf(actual.dataAt(j)));
+                }
+
+                final List<MessageContent> contents = snapshotEncoder.encode(expected);
+                assertArrayEquals(encoder.encode(expected).get(0).getData(), contents.get(0).getData());
+            }
+        }
+        assertEquals(2, new File(dir).list().length);
+    }
+
+    private String sample() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        return Paths.get(resource.toURI()).toString();
+    }
+
+    private static void assertSameChannel(final DbcChannel expected, final DbcChannel actual) {
+        assertEquals(expected.getChannelID(), actual.getChannelID());
+        assertEquals(expected.getMessages().keySet(), actual.getMessages().keySet());
+        for (final DbcMessage e : expected.getMessages().values()) {
+            final DbcMessage a = actual.getMessage(e.getMessageID());
+            assertEquals(e.getChannelID(), a.getChannelID());
+            assertEquals(e.getName(), a.getName());
+            assertEquals(e.getLength(), a.getLength());
+            assertEquals(e.isExtendedFrame(), a.isExtendedFrame());
+            assertEquals(e.size(), a.size());
+            for (int i = 0; i < e.size(); ++i) {
+                final DbcAttribute ea = e.getAttributes().get(i);
+                final DbcAttribute aa = a.getAttributes().get(i);
+                assertEquals(ea.getClass(), aa.getClass());
+                assertEquals(ea.getName(), aa.getName());
+                assertEquals(ea.getUnit(), aa.getUnit());
+                assertEquals(ea.getStartBit(), aa.getStartBit());
+                assertEquals(ea.getLength(), aa.getLength());
+                assertEquals(ea.getByteOrder(), aa.getByteOrder());
+                assertEquals(ea.isSigned(), aa.isSigned());
+                assertEquals(ea.getMultiplier(), aa.getMultiplier());
+                assertEquals(ea.getAdjustment(), aa.getAdjustment());
+                assertEquals(ea.getMultiplexValue(), aa.getMultiplexValue());
+                assertEquals(ea.isMultiplexor(), aa.isMultiplexor());
+            }
+        }
+    }
+}
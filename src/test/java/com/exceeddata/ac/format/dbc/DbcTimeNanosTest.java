@@ -0,0 +1,102 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.data.typedata.LongData;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+
+public class DbcTimeNanosTest {
+    private static final Instant START = Instant.parse("2024-05-01T10:00:00.123456789Z");
+
+    @Test
+    public void testRecordsCarryEpochNanos() throws Exception {
+        final DbcConsolidateMessageDecoder decoder = (DbcConsolidateMessageDecoder) MessageDecodeBuilder.buildDBCFromFileContents(
+                Collections.singletonList("BO_ 10 M: 8 ECU\n SG_ S : 0|8@1+ (1,0) [0|255] \"\" X\n"),
+                true, false, true, false, true, null);
+        final DbcUtils.Message frame = new DbcUtils.Message(START, 1, 10l, new byte[] {3, 0, 0, 0, 0, 0, 0, 0});
+        final String instant = String.valueOf(decoder.decode(frame, frame).dataAt(0));
+        final DbcConsolidateMessageDecoder sibling = decoder.clone();
+
+        decoder.setTimeNanos(true);
+        final long nanos = DbcUtils.toEpochNanos(START);
+        final DbcCompiledDecoder compiled = DbcCompiledDecoder.compile(decoder.clone());
+        for (final Record record : Arrays.asList(
+                decoder.decode(frame, frame), decoder.interpret(frame, frame), compiled.decode(frame, frame),
+                compiled.view(frame, frame, true).toRecord(), new DbcNullDecoder(true).decode(frame, frame))) {
+            assertTrue(record.dataAt(0) instanceof LongData);
+            assertEquals(nanos, record.dataAt(0).toLong().longValue());
+        }
+        assertEquals(instant, String.valueOf(new DbcNullDecoder().decode(frame, frame).dataAt(0)));
+        assertEquals(instant, String.valueOf(sibling.decode(frame, frame).dataAt(0)));
+        assertEquals(nanos, compiled.view(frame, frame, true).getTimeNanos());
+        assertTrue(MessageDecodeBuilder.toSchema(compiled).startsWith("TIME long"));
+        assertTrue(compiled.getFieldIndex().newRecord().dataAt(0) instanceof LongData);
+
+        final DbcMessageColumns columns = compiled.decodeBatch(frame, Collections.singletonList(frame), true).getColumns().get(0);
+        assertEquals(nanos, columns.getTimes()[0]);
+        assertEquals(START, columns.getTime(0));
+    }
+
+    @Test
+    public void testAddedMessagesFollowDecoder() throws Exception {
+        final DbcConsolidateMessageDecoder source = (DbcConsolidateMessageDecoder) MessageDecodeBuilder.buildDBCFromFileContents(
+                Collections.singletonList("BO_ 10 M: 8 ECU\n SG_ S : 0|8@1+ (1,0) [0|255] \"\" X\n"),
+                true, false, true, false, false, null);
+        final DbcMessage message = source.getMessages().get(10l);
+        final DbcConsolidateMessageDecoder decoder = new DbcConsolidateMessageDecoder(false);
+        decoder.setTimeNanos(true);
+        decoder.addMessage(message);
+        final DbcChannel channel = new DbcChannel();
+        channel.setChannelID(1);
+        channel.addMessage(message);
+        final DbcChannelMessageDecoder channels = new DbcChannelMessageDecoder(false);
+        channels.setTimeNanos(true);
+        channels.addChannel(channel);
+
+        final DbcUtils.Message frame = new DbcUtils.Message(START, 1, 10l, new byte[] {3, 0, 0, 0, 0, 0, 0, 0});
+        assertEquals(DbcUtils.toEpochNanos(START), decoder.decode(frame, frame).dataAt(0).toLong().longValue());
+        assertEquals(DbcUtils.toEpochNanos(START), channels.decode(frame, frame).dataAt(0).toLong().longValue());
+        assertFalse(message.isTimeNanos());
+        assertFalse(source.decode(frame, frame).dataAt(0) instanceof LongData);
+    }
+
+    @Test
+    public void testLazyAndWrappedDecoders() throws Exception {
+        final List<String> dbc = Collections.singletonList("BO_ 10 M: 8 ECU\n SG_ S : 0|8@1+ (1,0) [0|255] \"\" X\n");
+        final DbcUtils.Message frame = new DbcUtils.Message(START, 1, 10l, new byte[] {3, 0, 0, 0, 0, 0, 0, 0});
+        final DbcLazyMessageDecoder lazy = (DbcLazyMessageDecoder) MessageDecodeBuilder.buildLazyDBCFromFileContents(dbc, false, true, false, null);
+        final DbcLazyMessageDecoder sibling = lazy.clone();
+        assertFalse(lazy.decode(frame, frame).dataAt(0) instanceof LongData);
+        lazy.setTimeNanos(true);
+        assertEquals(DbcUtils.toEpochNanos(START), lazy.decode(frame, frame).dataAt(0).toLong().longValue());
+        assertFalse(sibling.decode(frame, frame).dataAt(0) instanceof LongData);
+
+        final DbcConsolidateMessageDecoder nanos = (DbcConsolidateMessageDecoder) MessageDecodeBuilder.buildDBCFromFileContents(
+                dbc, true, false, true, false, false, null);
+        nanos.setTimeNanos(true);
+        for (final MessageDecoder decoder : Arrays.asList(lazy, lazy.clone(), new DbcReloadableDecoder(nanos),
+                new DbcVersionedDecoder().addVersion(null, null, nanos))) {
+            assertTrue(MessageDecodeBuilder.toSchema(decoder).startsWith("TIME long"));
+            assertTrue(MessageDecodeBuilder.toTemplateRecord(decoder).dataAt(0) instanceof LongData);
+            assertTrue(decoder.decode(frame, frame).dataAt(0) instanceof LongData);
+        }
+    }
+
+    @Test
+    public void testToInstant() {
+        for (final Instant instant : Arrays.asList(START, Instant.ofEpochSecond(-3l, 5l), Instant.EPOCH)) {
+            assertEquals(instant, DbcUtils.toInstant(DbcUtils.toEpochNanos(instant)));
+        }
+    }
+}
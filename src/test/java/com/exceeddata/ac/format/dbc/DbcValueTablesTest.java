@@ -0,0 +1,120 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.typedata.TypeData;
+
+public class DbcValueTablesTest {
+
+    @Test
+    public void testTablesMatchDecode() {
+        final Random random = new Random(7l);
+        final List<DbcAttribute> attributes = new ArrayList<>();
+        final DbcMessage message = new DbcMessage(0, 1l, "M", 8);
+        for (int i = 0; i < 200; ++i) {
+            final DbcAttribute attribute = newAttribute(random, i % 4, 2 + random.nextInt(11));
+            attributes.add(attribute);
+            message.addAttribute(attribute);
+        }
+
+        final List<byte[]> frames = new ArrayList<>();
+        final List<TypeData[]> expected = new ArrayList<>();
+        for (int n = 0; n < 500; ++n) {
+            final byte[] bytes = new byte[8];
+            random.nextBytes(bytes);
+            final TypeData[] row = new TypeData[attributes.size()];
+            for (int i = 0; i < row.length; ++i) {
+                row[i] = attributes.get(i).decode(bytes);
+            }
+            frames.add(bytes);
+            expected.add(row);
+        }
+
+        assertTrue(DbcValueTables.tabulate(Collections.singletonList(message)) > 0);
+        for (int n = 0; n < frames.size(); ++n) {
+            for (int i = 0; i < attributes.size(); ++i) {
+                assertEquals(expected.get(n)[i], attributes.get(i).decode(frames.get(n)));
+            }
+        }
+    }
+
+    @Test
+    public void testMemoryCeilingAndInvalidation() {
+        final Random random = new Random(8l);
+        final DbcMessage message = new DbcMessage(0, 1l, "M", 8);
+        final DbcAttributeInteger narrow = (DbcAttributeInteger) newAttribute(random, 0, 4);
+        final DbcAttributeInteger wide = (DbcAttributeInteger) newAttribute(random, 0, 12);
+        message.addAttribute(wide);
+        message.addAttribute(narrow);
+
+        assertEquals(16l * 32l, DbcValueTables.tabulate(Collections.singletonList(message), 12, 1024l));
+        assertTrue(narrow.isTabulated());
+        assertFalse(wide.isTabulated());
+
+        narrow.setMultiplier(5);
+        assertFalse(narrow.isTabulated());
+    }
+
+    @Test
+    public void testCompiledTablesStayOnCopies() throws Exception {
+        final Random random = new Random(9l);
+        final DbcMessage message = new DbcMessage(0, 10l, "M", 8);
+        final DbcAttributeInteger attribute = (DbcAttributeInteger) newAttribute(random, 0, 4);
+        message.addAttribute(attribute);
+        final DbcConsolidateMessageDecoder source = new DbcConsolidateMessageDecoder();
+        source.addMessage(message);
+
+        final DbcCompiledDecoder compiled = DbcCompiledDecoder.compile(source);
+        assertFalse(attribute.isTabulated());
+        assertTrue(((DbcAttributeInteger) compiled.getMessages().get(0).getAttributes().get(0)).isTabulated());
+
+        DbcValueTables.tabulate(Collections.singletonList(message));
+        final DbcCompiledDecoder untabulated = DbcCompiledDecoder.compile(source, 0, 0l);
+        assertTrue(attribute.isTabulated());
+        assertFalse(((DbcAttributeInteger) untabulated.getMessages().get(0).getAttributes().get(0)).isTabulated());
+    }
+
+    private static DbcAttribute newAttribute(final Random random, final int type, final int length) {
+        final DbcByteOrder order = random.nextBoolean() ? DbcByteOrder.MOTOROLA : DbcByteOrder.INTEL;
+        final boolean signed = random.nextBoolean();
+        final int startBit = order == DbcByteOrder.INTEL ? random.nextInt(64 - length + 1) : 7 + random.nextInt(8 - (length + 7) / 8 + 1) * 8;
+        switch (type) {
+            case 0: {
+                final DbcAttributeInteger a = new DbcAttributeInteger();
+                a.setName("I"); a.setOrder(order); a.setStartBit(startBit); a.setLength(length); a.setSigned(signed);
+                a.setMultiplier(3); a.setAdjustment(-1);
+                return a;
+            }
+            case 1: {
+                final DbcAttributeLong a = new DbcAttributeLong();
+                a.setName("L"); a.setOrder(order); a.setStartBit(startBit); a.setLength(length); a.setSigned(signed);
+                a.setMultiplier(2l); a.setAdjustment(100l);
+                return a;
+            }
+            case 2: {
+                final DbcAttributeDouble a = new DbcAttributeDouble();
+                a.setName("D"); a.setOrder(order); a.setStartBit(startBit); a.setLength(length); a.setSigned(signed);
+                a.setMultiplier(new BigDecimal("0.1")); a.setAdjustment(new BigDecimal("-40"));
+                return a;
+            }
+            default: {
+                final DbcAttributeDecimal a = new DbcAttributeDecimal();
+                a.setName("C");
+                a.setOrder(order).setStartBit(startBit);
+                a.setLength(length);
+                a.setSigned(signed).setMultiplier(new BigDecimal("0.001")).setAdjustment(BigDecimal.ONE);
+                return a;
+            }
+        }
+    }
+}
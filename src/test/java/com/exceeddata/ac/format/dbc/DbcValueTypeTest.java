@@ -0,0 +1,75 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.data.typedata.DoubleData;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+import com.exceeddata.ac.format.util.MessageEncodeBuilder;
+
+public class DbcValueTypeTest {
+    private static final List<String> DBC = Collections.singletonList(
+            "BO_ 100 Inverter: 8 ECU\n"
+            + " SG_ Torque : 0|32@1- (1,0) [0|0] \"Nm\" X\n"
+            + " SG_ Speed : 32|32@1+ (0.5,10) [0|0] \"rpm\" X\n"
+            + "BO_ 101 Adas: 8 ECU\n"
+            + " SG_ Range : 7|64@0+ (1,0) [0|0] \"m\" X\n"
+            + "SIG_VALTYPE_ 100 Torque : 1;\n"
+            + "SIG_VALTYPE_ 100 Speed : 1;\n"
+            + "SIG_VALTYPE_ 101 Range : 2;\n");
+
+    @Test
+    public void testDecodeIeeeSignals() throws Exception {
+        final DbcConsolidateMessageDecoder decoder = (DbcConsolidateMessageDecoder) MessageDecodeBuilder.buildDBCFromFileContents(
+                DBC, true, false, true, false, false, null);
+        final DbcCompiledDecoder compiled = DbcCompiledDecoder.compile(decoder.clone());
+        final DbcUtils.Message inverter = new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 100l, ByteBuffer.allocate(8)
+                .order(ByteOrder.LITTLE_ENDIAN).putFloat(0, -123.25f).putFloat(4, 3000.5f).array());
+        final DbcUtils.Message adas = new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 101l, ByteBuffer.allocate(8)
+                .putDouble(0, 1234.5678d).array());
+
+        for (final Record record : Arrays.asList(decoder.decode(inverter, inverter), compiled.decode(inverter, inverter))) {
+            assertTrue(record.get("Torque") instanceof DoubleData);
+            assertEquals(-123.25d, record.get("Torque").toDouble(), 0d);
+            assertEquals(1510.25d, record.get("Speed").toDouble(), 0d);
+        }
+        assertEquals(3000.5d, decoder.interpret(inverter, inverter).get("Speed").toDouble(), 0d);
+        assertEquals(1234.5678d, decoder.decode(adas, adas).get("Range").toDouble(), 0d);
+        assertEquals(1234.5678d, compiled.decode(adas, adas).get("Range").toDouble(), 0d);
+
+        final DbcMessageColumns columns = compiled.decodeBatch(inverter, Collections.singletonList(inverter), true).getColumns().get(0);
+        assertEquals(-123.25d, columns.getDoubleColumn(columns.indexOf("Torque"))[0], 0d);
+        assertEquals(1510.25d, columns.getDoubleColumn(columns.indexOf("Speed"))[0], 0d);
+    }
+
+    @Test
+    public void testEncodeIeeeSignals() throws Exception {
+        final DbcConsolidateMessageDecoder decoder = (DbcConsolidateMessageDecoder) MessageDecodeBuilder.buildDBCFromFileContents(
+                DBC, true, false, true, false, false, null);
+        final DbcMessageEncoder encoder = (DbcMessageEncoder) MessageEncodeBuilder.buildDBCFromFileContents(DBC, false, true, false);
+        for (final byte[] data : Arrays.asList(
+                ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putFloat(0, 0.1f).putFloat(4, -7.75f).array(),
+                ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putFloat(0, Float.MAX_VALUE).putFloat(4, 1e-3f).array())) {
+            final DbcUtils.Message frame = new DbcUtils.Message(Instant.ofEpochSecond(1l), 1, 100l, data);
+            assertArrayEquals(data, encoder.encode(decoder.decode(frame, frame)).get(0).getData());
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testValueTypeLengthMismatch() throws Exception {
+        MessageDecodeBuilder.buildDBCFromFileContents(Collections.singletonList(
+                "BO_ 1 M: 8 ECU\n SG_ S : 0|16@1+ (1,0) [0|0] \"\" X\nSIG_VALTYPE_ 1 S : 1;\n"),
+                true, false, true, false, false, null);
+    }
+}
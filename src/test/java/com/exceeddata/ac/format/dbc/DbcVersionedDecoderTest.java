@@ -0,0 +1,71 @@
+package com.exceeddata.ac.format.dbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.time.Instant;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.exceeddata.ac.common.data.record.Record;
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.format.util.MessageDecodeBuilder;
+
+public class DbcVersionedDecoderTest {
+    private static final Instant T1 = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant T2 = Instant.parse("2024-03-01T00:00:00Z");
+    private static final Instant T3 = Instant.parse("2024-06-01T00:00:00Z");
+
+    private static MessageDecoder build(final int factor) throws Exception {
+        return MessageDecodeBuilder.buildDBCFromFileContents(
+                Collections.singletonList("BO_ 10 M: 8 ECU\n SG_ S : 0|8@1+ (" + factor + ",0) [0|2550] \"\" X\n"),
+                true, false, true, false, false, null);
+    }
+
+    @Test
+    public void testRoutesFramesByTime() throws Exception {
+        final MessageDecoder one = build(1), two = build(2), three = build(3);
+        final DbcVersionedDecoder decoder = new DbcVersionedDecoder()
+                .addVersion(T3, null, three)
+                .addVersion(null, T1, one)
+                .addVersion(T1, T2, two);
+        assertEquals(3, decoder.size());
+        assertSame(one, decoder.getDecoder(Long.MIN_VALUE));
+        assertSame(two, decoder.getDecoder(DbcUtils.toEpochNanos(T1)));
+        assertNull(decoder.getDecoder(DbcUtils.toEpochNanos(T2)));
+        assertSame(three, decoder.getDecoder(DbcUtils.toEpochNanos(T3)));
+
+        final long[] steps = new long[] {-5000l, -1l, 0l, 1l, 86400l * 30, 86400l * 60, 86400l * 100, 86400l * 152, 86400l * 400};
+        final int[] versions = new int[] {0, 0, 1, 1, 1, -1, -1, 2, 2};
+        final MessageDecoder local = decoder.clone();
+        for (int n = 0; n < 3; ++n) {
+            for (int i = 0; i < steps.length; ++i) {
+                final DbcUtils.Message frame = new DbcUtils.Message(T1.plusSeconds(steps[i]), 1, 10l, new byte[] {5, 0, 0, 0, 0, 0, 0, 0});
+                final Record record = local.decode(frame, frame);
+                assertEquals(versions[i], ((DbcVersionedDecoder) local).getLastVersion());
+                if (versions[i] < 0) {
+                    assertNull(record);
+                } else {
+                    assertEquals(5d * (versions[i] + 1), record.get("S", 0).toDouble(), 0d);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWrapperSchemaOfFirstModel() throws Exception {
+        final MessageDecoder one = build(1);
+        final String schema = MessageDecodeBuilder.toSchema(one);
+        assertEquals("TIME instant,S int", schema);
+        assertEquals(schema, MessageDecodeBuilder.toSchema(new DbcVersionedDecoder().addVersion(T1, null, one).addVersion(null, T1, build(2))));
+        assertEquals(schema, MessageDecodeBuilder.toSchema(new DbcReloadableDecoder(one)));
+        assertEquals(MessageDecodeBuilder.toTemplateRecord(one).size(), MessageDecodeBuilder.toTemplateRecord(new DbcReloadableDecoder(one)).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOverlappingVersions() throws Exception {
+        new DbcVersionedDecoder().addVersion(T1, T3, build(1)).addVersion(T2, null, build(2));
+    }
+}
@@ -0,0 +1,144 @@
+package com.exceeddata.ac.format.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.exceeddata.ac.common.message.MessageDecoder;
+import com.exceeddata.ac.common.message.MessageEncoder;
+
+public class MessageCodecRegistryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSharesBuildsByContentAndOptions() throws Exception {
+        final String sample = sample();
+        final File copy = folder.newFile("copy.dbc");
+        Files.write(copy.toPath(), Files.readAllBytes(Paths.get(sample)));
+
+        final MessageCodecRegistry registry = new MessageCodecRegistry(16, Long.MAX_VALUE);
+        final MessageDecoder decoder = registry.decoder(sample, true, false, true, false, false, null);
+        assertSame(decoder, registry.decoder(sample, true, false, true, false, false, null));
+        assertSame(decoder, registry.decoder(copy.getPath(), true, false, true, false, false, null));
+        assertNotSame(decoder, registry.decoder(sample, true, false, true, false, true, null));
+        assertNotSame(decoder, registry.decoder(sample, true, false, true, false, false, Collections.singleton("Torque")));
+
+        final List<String> contents = Collections.singletonList(new String(Files.readAllBytes(Paths.get(sample)), StandardCharsets.UTF_8));
+        final MessageEncoder encoder = registry.encoder(sample, false, true, false);
+        assertSame(encoder, registry.encoder(sample, false, true, false));
+        assertSame(registry.encoderFromFileContents(contents, false, true, false), registry.encoderFromFileContents(contents, false, true, false));
+
+        assertEquals(5, registry.getMisses());
+        assertEquals(5, registry.getBuilds());
+        assertEquals(4, registry.getHits());
+        assertEquals(5, registry.size());
+        assertTrue(registry.getBuildNanos() > 0l);
+
+        //an edited file is another key
+        Files.write(copy.toPath(), "\nBO_ 9 Extra: 1 ECU\n SG_ Flag : 0|1@1+ (1,0) [0|1] \"\" X\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertNotSame(decoder, registry.decoder(copy.getPath(), true, false, true, false, false, null));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        final List<String> contents = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            contents.add("BO_ " + (i + 10) + " M" + i + ": 8 ECU\n SG_ S" + i + " : 0|8@1+ (1,0) [0|255] \"\" X\n");
+        }
+
+        final MessageCodecRegistry registry = new MessageCodecRegistry(2, Long.MAX_VALUE);
+        final MessageDecoder first = decoder(registry, contents.get(0));
+        decoder(registry, contents.get(1));
+        assertSame(first, decoder(registry, contents.get(0)));
+        decoder(registry, contents.get(2)); //evicts the second, least recently used
+        assertEquals(2, registry.size());
+        assertEquals(1, registry.getEvictions());
+        assertSame(first, decoder(registry, contents.get(0)));
+        assertEquals(3, registry.getBuilds());
+        decoder(registry, contents.get(1));
+        assertEquals(4, registry.getBuilds());
+
+        final MessageCodecRegistry small = new MessageCodecRegistry(100, 1l);
+        decoder(small, contents.get(0));
+        decoder(small, contents.get(1));
+        assertEquals(1, small.size()); //the latest is kept even over the footprint
+        assertTrue(small.getEstimatedBytes() > 1l);
+    }
+
+    @Test
+    public void testConcurrentRequestsBuildOnce() throws Exception {
+        final String sample = sample();
+        final MessageCodecRegistry registry = new MessageCodecRegistry(16, Long.MAX_VALUE);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final List<Future<MessageDecoder>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; ++i) {
+                futures.add(executor.submit(new Callable<MessageDecoder>() {
+                    @Override
+                    public MessageDecoder call() throws Exception {
+                        start.await();
+                        return registry.decoder(sample, false, false, true, false, false, null);
+                    }
+                }));
+            }
+            start.countDown();
+            final MessageDecoder decoder = futures.get(0).get();
+            for (final Future<MessageDecoder> future : futures) {
+                assertSame(decoder, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, registry.getBuilds());
+        assertEquals(1, registry.getMisses());
+        assertEquals(31, registry.getHits());
+    }
+
+    @Test
+    public void testFailedBuildIsNotCached() throws Exception {
+        final MessageCodecRegistry registry = new MessageCodecRegistry(16, Long.MAX_VALUE);
+        final List<String> contents = Collections.singletonList("BO_ 1 A: 8 X\nBO_TX_BU_ 1 : X;\n SG_ A : 0|8@1+ (1,0) [0|255] \"\" X\n");
+        for (int i = 0; i < 2; ++i) {
+            try {
+                registry.decoderFromFileContents(contents, false, false, true, false, false, null);
+                fail();
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().startsWith("FORMAT_DBC_ATTRIBUTE_UNEXPECTED"));
+            }
+        }
+        assertEquals(2, registry.getBuildFailures());
+        assertEquals(0, registry.size());
+    }
+
+    private static MessageDecoder decoder(final MessageCodecRegistry registry, final String content) throws Exception {
+        return registry.decoderFromFileContents(Collections.singletonList(content), false, false, true, false, false, null);
+    }
+
+    private String sample() throws Exception {
+        final URL resource = getClass().getClassLoader().getResource("sample.dbc");
+        return Paths.get(resource.toURI()).toString();
+    }
+}